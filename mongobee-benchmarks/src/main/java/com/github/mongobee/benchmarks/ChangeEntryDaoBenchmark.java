@@ -0,0 +1,115 @@
+package com.github.mongobee.benchmarks;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.core.changeset.ChangeEntry;
+import com.github.mongobee.core.dao.ChangeEntryCodec;
+import com.github.mongobee.core.dao.ChangeEntryDao;
+import com.github.mongobee.core.exception.MongobeeException;
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoCollection;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-entry work of the DAO layer: encoding a change entry through a {@link Document} or with
+ * {@link ChangeEntryCodec}, and {@link ChangeEntryDao#isNewChange(ChangeEntry)} / {@link ChangeEntryDao#save(ChangeEntry)}
+ * against Fongo with thousands of entries. Meant to be read together with the allocation rate of the GC profiler.
+ *
+ * @since 0.14
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChangeEntryDaoBenchmark {
+  private static final String DB_NAME = "benchmark";
+  private static final String CHANGELOG_COLLECTION_NAME = "dbchangelog";
+  private static final String LOCK_COLLECTION_NAME = "mongobeelock";
+  private static final int INSERT_BATCH_SIZE = 1000;
+
+  @Param({"1000", "10000"})
+  public int entries;
+
+  private final DocumentCodec documentCodec = new DocumentCodec();
+  private final ChangeEntryCodec changeEntryCodec = new ChangeEntryCodec();
+  private final EncoderContext encoderContext = EncoderContext.builder().build();
+
+  private ChangeEntry changeEntry;
+  private ChangeEntry appliedEntry;
+  private ChangeEntryDao dao;
+  private int saved;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    changeEntry = new ChangeEntry("changeId", SyntheticChangeLogs.AUTHOR, new Date(), "ChangeLog", "changeSet");
+
+    MongoClient mongoClient = new Fongo(DB_NAME).getMongo();
+    MongoCollection<Document> changelog = mongoClient.getDatabase(DB_NAME).getCollection(CHANGELOG_COLLECTION_NAME);
+    List<Document> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+    Date now = new Date();
+    for (int i = 0; i < entries; i++) {
+      batch.add(new ChangeEntry("applied" + i, SyntheticChangeLogs.AUTHOR, now, "ChangeLog", "changeSet").buildFullDBObject());
+      if (batch.size() >= INSERT_BATCH_SIZE) {
+        changelog.insertMany(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      changelog.insertMany(batch);
+    }
+    appliedEntry = new ChangeEntry("applied" + entries / 2, SyntheticChangeLogs.AUTHOR, now, "ChangeLog", "changeSet");
+
+    dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME);
+    dao.connectMongoDb(mongoClient, DB_NAME);
+  }
+
+  /**
+   * Encoding as done before the codecs: the entry is copied into a {@link Document} first
+   */
+  @Benchmark
+  public int encodeDocument() {
+    BasicOutputBuffer buffer = new BasicOutputBuffer();
+    documentCodec.encode(new BsonBinaryWriter(buffer), changeEntry.buildFullDBObject(), encoderContext);
+    return buffer.getPosition();
+  }
+
+  @Benchmark
+  public int encodeWithCodec() {
+    BasicOutputBuffer buffer = new BasicOutputBuffer();
+    changeEntryCodec.encode(new BsonBinaryWriter(buffer), changeEntry, encoderContext);
+    return buffer.getPosition();
+  }
+
+  @Benchmark
+  public boolean isNewChange() throws MongobeeException {
+    return dao.isNewChange(appliedEntry);
+  }
+
+  @Benchmark
+  public void save() throws MongobeeException {
+    dao.save(new ChangeEntry("saved" + saved++, SyntheticChangeLogs.AUTHOR, new Date(), "ChangeLog", "changeSet"));
+  }
+
+}
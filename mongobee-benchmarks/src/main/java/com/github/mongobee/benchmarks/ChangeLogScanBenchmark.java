@@ -0,0 +1,68 @@
+package com.github.mongobee.benchmarks;
+
+import com.github.mongobee.core.changeset.ChangeLogDescriptor;
+import com.github.mongobee.core.exception.MongobeeException;
+import com.github.mongobee.core.utils.ChangeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ChangeService#fetchChangeLogs()} over a package of generated changelogs, the classpath scan done
+ * by every execution.
+ *
+ * @since 0.14
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChangeLogScanBenchmark {
+
+  @Param({"10", "100", "5000"})
+  public int changeLogs;
+
+  private SyntheticChangeLogs synthetic;
+  private ClassLoader previousClassLoader;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    synthetic = new SyntheticChangeLogs("com.github.mongobee.benchmarks.scan" + changeLogs, changeLogs, 1);
+    // the scan looks the package up in the context class loader
+    previousClassLoader = Thread.currentThread().getContextClassLoader();
+    Thread.currentThread().setContextClassLoader(synthetic.getClassLoader());
+    if (new ChangeService(synthetic.getPackageName()).fetchChangeLogs().size() != changeLogs) {
+      throw new IllegalStateException("Generated changelogs not found in package " + synthetic.getPackageName());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    Thread.currentThread().setContextClassLoader(previousClassLoader);
+    synthetic.close();
+  }
+
+  /**
+   * A new service scans the package again; the descriptors of the classes are reused
+   */
+  @Benchmark
+  public List<ChangeLogDescriptor> fetchChangeLogs() throws MongobeeException {
+    return new ChangeService(synthetic.getPackageName()).fetchChangeLogs();
+  }
+
+}
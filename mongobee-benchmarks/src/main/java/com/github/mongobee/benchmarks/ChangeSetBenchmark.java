@@ -0,0 +1,119 @@
+package com.github.mongobee.benchmarks;
+
+import com.github.mongobee.core.changeset.ChangeEntry;
+import com.github.mongobee.core.changeset.ChangeLogDescriptor;
+import com.github.mongobee.core.changeset.ChangeSetDescriptor;
+import com.github.mongobee.core.exception.MongobeeChangeSetException;
+import com.github.mongobee.core.utils.ChangeLogComparator;
+import com.github.mongobee.core.utils.ChangeSetComparator;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-changelog and per-changeset work of an execution: looking up the descriptor of a changelog,
+ * sorting changesets and changelogs, creating change entries and their documents.
+ *
+ * @since 0.14
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChangeSetBenchmark {
+
+  @Param({"10", "100"})
+  public int size;
+
+  private SyntheticChangeLogs synthetic;
+  private Class<?> changeLog;
+  private ChangeSetDescriptor[] shuffledChangeSets;
+  private ChangeLogDescriptor[] shuffledChangeLogs;
+  private ChangeSetDescriptor changeSet;
+  private ChangeEntry changeEntry;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    synthetic = new SyntheticChangeLogs("com.github.mongobee.benchmarks.changeset" + size, size, size);
+    changeLog = synthetic.loadChangeLog(0);
+
+    Random random = new Random(size);
+    List<ChangeSetDescriptor> changeSets = new ArrayList<>(ChangeLogDescriptor.of(changeLog).getChangeSets());
+    Collections.shuffle(changeSets, random);
+    shuffledChangeSets = changeSets.toArray(new ChangeSetDescriptor[0]);
+
+    List<ChangeLogDescriptor> changeLogs = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      changeLogs.add(ChangeLogDescriptor.of(synthetic.loadChangeLog(i)));
+    }
+    Collections.shuffle(changeLogs, random);
+    shuffledChangeLogs = changeLogs.toArray(new ChangeLogDescriptor[0]);
+
+    changeSet = shuffledChangeSets[0];
+    changeEntry = changeSet.createChangeEntry();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    synthetic.close();
+  }
+
+  /**
+   * Descriptor of an already described changelog, as looked up by every execution after the first one
+   */
+  @Benchmark
+  public ChangeLogDescriptor describeChangeLog() throws MongobeeChangeSetException {
+    return ChangeLogDescriptor.of(changeLog);
+  }
+
+  @Benchmark
+  public ChangeSetDescriptor[] sortChangeSets() {
+    ChangeSetDescriptor[] changeSets = shuffledChangeSets.clone();
+    Arrays.sort(changeSets, new ChangeSetComparator());
+    return changeSets;
+  }
+
+  @Benchmark
+  public ChangeLogDescriptor[] sortChangeLogs() {
+    ChangeLogDescriptor[] changeLogs = shuffledChangeLogs.clone();
+    Arrays.sort(changeLogs, new ChangeLogComparator());
+    return changeLogs;
+  }
+
+  @Benchmark
+  public ChangeEntry createChangeEntry() throws MongobeeChangeSetException {
+    return changeSet.createChangeEntry();
+  }
+
+  @Benchmark
+  public Document buildFullDBObject() {
+    return changeEntry.buildFullDBObject();
+  }
+
+  @Benchmark
+  public Document createAndBuildChangeEntry() {
+    return new ChangeEntry("changeId", SyntheticChangeLogs.AUTHOR, new Date(), "ChangeLog", "changeSet").buildFullDBObject();
+  }
+
+}
@@ -0,0 +1,117 @@
+package com.github.mongobee.benchmarks;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.core.invocation.ChangeSetInvoker;
+import com.github.mongobee.core.invocation.MigrationContext;
+import com.mongodb.DB;
+import com.mongodb.client.MongoDatabase;
+import org.github.mongobee.jongo.JongoParameterResolver;
+import org.github.mongobee.spring.SpringParameterResolver;
+import org.jongo.Jongo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invocation of a changeset method with the resolvers of the core, Spring and Jongo runners, without
+ * a pre-configured MongoTemplate or Jongo. Benchmarks named "first..." start a new migration for every invocation,
+ * so the argument is resolved every time instead of once per migration.
+ *
+ * @since 0.14
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChangeSetDispatchBenchmark {
+  private static final String DB_NAME = "benchmark";
+
+  private DispatchChangeLog changeLog;
+  private DB db;
+  private MongoDatabase mongoDatabase;
+  private MigrationContext context;
+
+  private ChangeSetInvoker core;
+  private ChangeSetInvoker spring;
+  private ChangeSetInvoker jongo;
+
+  private Method noArgs;
+  private Method withMongoDatabase;
+  private Method withMongoTemplate;
+  private Method withJongo;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    Fongo fongo = new Fongo(DB_NAME);
+    changeLog = new DispatchChangeLog();
+    db = fongo.getDB(DB_NAME);
+    mongoDatabase = fongo.getDatabase(DB_NAME);
+    context = new MigrationContext(db, mongoDatabase, DB_NAME);
+
+    core = new ChangeSetInvoker();
+    spring = new ChangeSetInvoker();
+    spring.addResolver(new SpringParameterResolver());
+    jongo = new ChangeSetInvoker();
+    jongo.addResolver(new JongoParameterResolver());
+
+    noArgs = DispatchChangeLog.class.getMethod("noArgs");
+    withMongoDatabase = DispatchChangeLog.class.getMethod("mongoDatabase", MongoDatabase.class);
+    withMongoTemplate = DispatchChangeLog.class.getMethod("mongoTemplate", MongoTemplate.class);
+    withJongo = DispatchChangeLog.class.getMethod("jongo", Jongo.class);
+  }
+
+  @Benchmark
+  public Object reflectiveMongoDatabase() throws Exception {
+    return withMongoDatabase.invoke(changeLog, mongoDatabase);
+  }
+
+  @Benchmark
+  public Object coreNoArgs() throws Exception {
+    return core.invoke(context, noArgs, changeLog, null);
+  }
+
+  @Benchmark
+  public Object coreMongoDatabase() throws Exception {
+    return core.invoke(context, withMongoDatabase, changeLog, null);
+  }
+
+  @Benchmark
+  public Object springMongoDatabase() throws Exception {
+    return spring.invoke(context, withMongoDatabase, changeLog, null);
+  }
+
+  @Benchmark
+  public Object springMongoTemplate() throws Exception {
+    return spring.invoke(context, withMongoTemplate, changeLog, null);
+  }
+
+  @Benchmark
+  public Object firstSpringMongoTemplate() throws Exception {
+    return spring.invoke(new MigrationContext(db, mongoDatabase, DB_NAME), withMongoTemplate, changeLog, null);
+  }
+
+  @Benchmark
+  public Object jongoJongo() throws Exception {
+    return jongo.invoke(context, withJongo, changeLog, null);
+  }
+
+  @Benchmark
+  public Object firstJongoJongo() throws Exception {
+    return jongo.invoke(new MigrationContext(db, mongoDatabase, DB_NAME), withJongo, changeLog, null);
+  }
+
+}
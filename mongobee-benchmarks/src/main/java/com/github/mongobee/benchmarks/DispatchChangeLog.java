@@ -0,0 +1,37 @@
+package com.github.mongobee.benchmarks;
+
+import com.github.mongobee.core.changeset.ChangeLog;
+import com.github.mongobee.core.changeset.ChangeSet;
+import com.mongodb.client.MongoDatabase;
+import org.jongo.Jongo;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * Changesets with every supported argument list, doing nothing but returning their arguments
+ *
+ * @since 0.14
+ */
+@ChangeLog(order = "1")
+public class DispatchChangeLog {
+
+  @ChangeSet(author = "benchmark", id = "noArgs", order = "01")
+  public Object noArgs() {
+    return this;
+  }
+
+  @ChangeSet(author = "benchmark", id = "mongoDatabase", order = "03")
+  public Object mongoDatabase(MongoDatabase mongoDatabase) {
+    return mongoDatabase;
+  }
+
+  @ChangeSet(author = "benchmark", id = "mongoTemplate", order = "04")
+  public Object mongoTemplate(MongoTemplate mongoTemplate) {
+    return mongoTemplate;
+  }
+
+  @ChangeSet(author = "benchmark", id = "jongo", order = "05")
+  public Object jongo(Jongo jongo) {
+    return jongo;
+  }
+
+}
@@ -0,0 +1,103 @@
+package com.github.mongobee.benchmarks;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.core.Mongobee;
+import com.github.mongobee.core.changeset.ChangeEntry;
+import com.github.mongobee.core.exception.MongobeeException;
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link Mongobee#execute()} of an application restart: all changesets are already applied and
+ * dbchangelog also holds the entries of many other (e.g. removed) changesets. Runs against Fongo, so the results
+ * show the client-side cost of an execution, not database round trips.
+ *
+ * @since 0.14
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExecuteBenchmark {
+  private static final String DB_NAME = "benchmark";
+  private static final String CHANGELOG_COLLECTION_NAME = "dbchangelog";
+  private static final int CHANGELOGS = 50;
+  private static final int CHANGESETS_PER_CHANGELOG = 10;
+  private static final int INSERT_BATCH_SIZE = 1000;
+
+  @Param({"1000", "100000"})
+  public int otherEntries;
+
+  @Param({"true", "false"})
+  public boolean prefetchAppliedChanges;
+
+  private SyntheticChangeLogs synthetic;
+  private ClassLoader previousClassLoader;
+  private MongoClient mongoClient;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    synthetic = new SyntheticChangeLogs("com.github.mongobee.benchmarks.execute", CHANGELOGS, CHANGESETS_PER_CHANGELOG);
+    previousClassLoader = Thread.currentThread().getContextClassLoader();
+    Thread.currentThread().setContextClassLoader(synthetic.getClassLoader());
+
+    mongoClient = new Fongo(DB_NAME).getMongo();
+    MongoCollection<Document> changelog = mongoClient.getDatabase(DB_NAME).getCollection(CHANGELOG_COLLECTION_NAME);
+    List<Document> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+    for (ChangeEntry entry : synthetic.changeEntries()) {
+      batch.add(entry.buildFullDBObject());
+    }
+    Date now = new Date();
+    for (int i = 0; i < otherEntries; i++) {
+      batch.add(new ChangeEntry("removed" + i, SyntheticChangeLogs.AUTHOR, now, "RemovedChangeLog", "changeSet").buildFullDBObject());
+      if (batch.size() >= INSERT_BATCH_SIZE) {
+        changelog.insertMany(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      changelog.insertMany(batch);
+    }
+
+    // creates the index and the lock outside of the measurement
+    execute();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    Thread.currentThread().setContextClassLoader(previousClassLoader);
+    synthetic.close();
+  }
+
+  @Benchmark
+  public Mongobee execute() throws MongobeeException {
+    Mongobee runner = new Mongobee(mongoClient);
+    runner.setDbName(DB_NAME);
+    runner.setChangeLogsScanPackage(synthetic.getPackageName());
+    runner.setPrefetchAppliedChanges(prefetchAppliedChanges);
+    runner.execute();
+    return runner;
+  }
+
+}
@@ -0,0 +1,30 @@
+package com.github.mongobee.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so the allocation rate is reported next to the time.
+ * Accepts the usual JMH command line options, e.g. a benchmark name regex:
+ * <pre>
+ *   java -jar mongobee-benchmarks/target/benchmarks.jar ChangeLogScan -p changeLogs=5000
+ * </pre>
+ *
+ * @since 0.14
+ */
+public class MongobeeBenchmarks {
+
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    Options options = new OptionsBuilder()
+        .parent(new CommandLineOptions(args))
+        .addProfiler(GCProfiler.class)
+        .build();
+    new Runner(options).run();
+  }
+
+}
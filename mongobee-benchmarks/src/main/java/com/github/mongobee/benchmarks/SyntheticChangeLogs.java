@@ -0,0 +1,156 @@
+package com.github.mongobee.benchmarks;
+
+import com.github.mongobee.core.changeset.ChangeEntry;
+import com.github.mongobee.core.changeset.ChangeLog;
+import com.github.mongobee.core.changeset.ChangeSet;
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.NotFoundException;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.annotation.Annotation;
+import javassist.bytecode.annotation.StringMemberValue;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Package of generated changelog classes with empty changeset methods, written to a temporary directory
+ * and loaded by {@link #getClassLoader()}.
+ *
+ * @since 0.14
+ */
+public class SyntheticChangeLogs implements Closeable {
+  static final String AUTHOR = "benchmark";
+
+  private final String packageName;
+  private final int changeLogs;
+  private final int changeSetsPerChangeLog;
+  private final File directory;
+  private final URLClassLoader classLoader;
+
+  /**
+   * @param packageName            package of the generated changelogs, should be unique per generated set
+   * @param changeLogs             number of changelog classes
+   * @param changeSetsPerChangeLog number of changeset methods per changelog
+   */
+  public SyntheticChangeLogs(String packageName, int changeLogs, int changeSetsPerChangeLog)
+      throws IOException, CannotCompileException, NotFoundException {
+    this.packageName = packageName;
+    this.changeLogs = changeLogs;
+    this.changeSetsPerChangeLog = changeSetsPerChangeLog;
+    this.directory = Files.createTempDirectory("mongobee-benchmark").toFile();
+
+    ClassPool pool = new ClassPool(true);
+    for (int changeLog = 0; changeLog < changeLogs; changeLog++) {
+      generateChangeLog(pool, changeLog);
+    }
+    this.classLoader = new URLClassLoader(new URL[]{directory.toURI().toURL()}, SyntheticChangeLogs.class.getClassLoader());
+  }
+
+  private void generateChangeLog(ClassPool pool, int changeLog) throws CannotCompileException, NotFoundException, IOException {
+    CtClass type = pool.makeClass(className(changeLog));
+    ConstPool constPool = type.getClassFile().getConstPool();
+    type.getClassFile().addAttribute(annotation(constPool, ChangeLog.class.getName(), "order", order(changeLog)));
+    type.addConstructor(CtNewConstructor.defaultConstructor(type));
+
+    for (int changeSet = 0; changeSet < changeSetsPerChangeLog; changeSet++) {
+      CtMethod method = CtNewMethod.make("public void " + methodName(changeSet) + "() { }", type);
+      AnnotationsAttribute attribute = annotation(constPool, ChangeSet.class.getName(),
+          "order", order(changeSet), "id", changeId(changeLog, changeSet), "author", AUTHOR);
+      method.getMethodInfo().addAttribute(attribute);
+      type.addMethod(method);
+    }
+    type.writeFile(directory.getAbsolutePath());
+    type.detach();
+  }
+
+  private static AnnotationsAttribute annotation(ConstPool constPool, String annotationType, String... members) {
+    Annotation annotation = new Annotation(annotationType, constPool);
+    for (int i = 0; i < members.length; i += 2) {
+      annotation.addMemberValue(members[i], new StringMemberValue(members[i + 1], constPool));
+    }
+    AnnotationsAttribute attribute = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+    attribute.addAnnotation(annotation);
+    return attribute;
+  }
+
+  public String getPackageName() {
+    return packageName;
+  }
+
+  public ClassLoader getClassLoader() {
+    return classLoader;
+  }
+
+  public Class<?> loadChangeLog(int changeLog) throws ClassNotFoundException {
+    return Class.forName(className(changeLog), false, classLoader);
+  }
+
+  /**
+   * @return change entries of all generated changesets, as recorded in dbchangelog after a migration
+   */
+  public List<ChangeEntry> changeEntries() {
+    List<ChangeEntry> entries = new ArrayList<>(changeLogs * changeSetsPerChangeLog);
+    Date now = new Date();
+    for (int changeLog = 0; changeLog < changeLogs; changeLog++) {
+      for (int changeSet = 0; changeSet < changeSetsPerChangeLog; changeSet++) {
+        entries.add(new ChangeEntry(changeId(changeLog, changeSet), AUTHOR, now, className(changeLog), methodName(changeSet)));
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Closes the class loader and deletes the generated classes
+   */
+  @Override
+  public void close() throws IOException {
+    classLoader.close();
+    Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private String className(int changeLog) {
+    return packageName + ".ChangeLog" + order(changeLog);
+  }
+
+  private static String methodName(int changeSet) {
+    return "changeSet" + order(changeSet);
+  }
+
+  private static String changeId(int changeLog, int changeSet) {
+    return "changelog" + order(changeLog) + "-changeset" + order(changeSet);
+  }
+
+  private static String order(int index) {
+    return String.format("%05d", index);
+  }
+
+}
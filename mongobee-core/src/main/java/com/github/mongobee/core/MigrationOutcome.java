@@ -0,0 +1,21 @@
+package com.github.mongobee.core;
+
+/**
+ * Outcome of the migration executed by the process holding the lock, see {@link Mongobee#getLeaderOutcome()}
+ *
+ * @since 0.14
+ */
+public enum MigrationOutcome {
+  /**
+   * All changesets have been applied
+   */
+  SUCCEEDED,
+  /**
+   * The migration stopped with an exception or some changesets failed
+   */
+  FAILED,
+  /**
+   * The lock holder did not finish before the wait timeout elapsed
+   */
+  TIMED_OUT
+}
@@ -0,0 +1,92 @@
+package com.github.mongobee.core;
+
+import com.github.mongobee.core.changeset.ChangeEntry;
+
+/**
+ * Snapshot of the progress of a runner, see {@link Mongobee#getMigrationStatus()}
+ *
+ * @since 0.14
+ */
+public class MigrationStatus {
+
+  /**
+   * State of the execution
+   */
+  public enum State {
+    /**
+     * Not started yet or submitted to the executor
+     */
+    PENDING,
+    /**
+     * The migration is executing
+     */
+    RUNNING,
+    /**
+     * The execution finished: all changesets are applied (by this process or by the lock holder it waited for),
+     * the database was up to date or Mongobee is disabled
+     */
+    DONE,
+    /**
+     * The execution ended without migrating: another process held the lock and waiting for it is disabled,
+     * so its migration may still be running
+     */
+    LOCKED,
+    /**
+     * The execution threw an exception, some changesets failed or the lock holder did not finish in time
+     */
+    FAILED
+  }
+
+  private final State state;
+  private final ChangeEntry currentChangeSet;
+  private final MigrationOutcome outcome;
+  private final Throwable failure;
+
+  MigrationStatus(State state, ChangeEntry currentChangeSet, MigrationOutcome outcome, Throwable failure) {
+    this.state = state;
+    this.currentChangeSet = currentChangeSet;
+    this.outcome = outcome;
+    this.failure = failure;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * @return the changeset started last while running, null otherwise
+   */
+  public ChangeEntry getCurrentChangeSet() {
+    return currentChangeSet;
+  }
+
+  /**
+   * @return outcome of the migration, see {@link Mongobee#getLeaderOutcome()}
+   */
+  public MigrationOutcome getOutcome() {
+    return outcome;
+  }
+
+  /**
+   * @return exception thrown by the execution, null if it did not throw
+   */
+  public Throwable getFailure() {
+    return failure;
+  }
+
+  /**
+   * @return true in the {@link State#DONE} state, when features depending on the migration can be enabled
+   */
+  public boolean isDone() {
+    return state == State.DONE;
+  }
+
+  @Override
+  public String toString() {
+    return "[State: " + state
+        + (currentChangeSet != null ? ", changeset: " + currentChangeSet : "")
+        + (outcome != null ? ", outcome: " + outcome : "")
+        + (failure != null ? ", failure: " + failure : "") + "]";
+  }
+
+}
@@ -1,22 +1,44 @@
 package com.github.mongobee.core;
 
 import com.github.mongobee.core.changeset.ChangeEntry;
+import com.github.mongobee.core.changeset.ChangeLogDescriptor;
+import com.github.mongobee.core.changeset.ChangeSetDescriptor;
+import com.github.mongobee.core.changeset.ChangeSetCheckpoint;
 import com.github.mongobee.core.dao.ChangeEntryDao;
+import com.github.mongobee.core.dao.ChangeEntryJournal;
 import com.github.mongobee.core.exception.MongobeeChangeSetException;
 import com.github.mongobee.core.exception.MongobeeConfigurationException;
 import com.github.mongobee.core.exception.MongobeeConnectionException;
 import com.github.mongobee.core.exception.MongobeeException;
+import com.github.mongobee.core.invocation.ChangeSetInvoker;
+import com.github.mongobee.core.invocation.MigrationContext;
+import com.github.mongobee.core.invocation.ParameterResolver;
+import com.github.mongobee.core.metrics.ChangeSetOutcome;
+import com.github.mongobee.core.metrics.MigrationListener;
+import com.github.mongobee.core.metrics.MigrationPhase;
+import com.github.mongobee.core.throttle.Throttle;
+import com.github.mongobee.core.utils.ChangeLogGraph;
 import com.github.mongobee.core.utils.ChangeService;
-import com.mongodb.DB;
+import com.github.mongobee.core.utils.ChangeSetSummary;
+import com.github.mongobee.core.utils.ExecutionEnvironment;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientURI;
-import com.mongodb.client.MongoDatabase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import static com.github.mongobee.core.utils.StringUtils.hasText;
 import static com.mongodb.ServerAddress.defaultHost;
@@ -33,11 +55,35 @@ public class Mongobee {
 
   private static final String DEFAULT_CHANGELOG_COLLECTION_NAME = "dbchangelog";
   private static final String DEFAULT_LOCK_COLLECTION_NAME = "mongobeelock";
+  private static final long DEFAULT_CHECKPOINT_INTERVAL_MILLIS = 10000;
+  private static final long INITIAL_LOCK_POLL_MILLIS = 100;
+  private static final long MAX_LOCK_POLL_MILLIS = 5000;
 
   private ChangeEntryDao dao;
 
   private boolean enabled = true;
+  private boolean prefetchAppliedChanges = true;
+  private int changeEntryBatchSize = 1;
+  private long changeEntryFlushInterval = 0;
+  private boolean flushChangeEntriesAtEnd = false;
+  private int changeLogParallelism = 1;
+  private boolean upToDateCheck = false;
+  private long leaderWaitTimeout = 0;
+  private long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL_MILLIS;
+  private Throttle throttle;
+  private final List<MigrationListener> listeners = new CopyOnWriteArrayList<>();
+  private final ChangeSetInvoker changeSetInvoker = new ChangeSetInvoker();
+  private volatile MigrationContext migrationContext;
+  private volatile boolean changeSetFailed;
+  private volatile MigrationOutcome leaderOutcome;
+  private volatile boolean lockedElsewhere; // lock held by another process, which was not waited for
+  private volatile MigrationStatus.State state = MigrationStatus.State.PENDING;
+  private volatile ChangeEntry currentChangeSet;
+  private volatile Throwable failure;
+  private Executor migrationExecutor;
   protected String changeLogsScanPackage;
+  protected List<Class<?>> changeLogClasses = Collections.emptyList();
+  protected File scanCacheFile;
   private MongoClientURI mongoClientURI;
   private MongoClient mongoClient;
   protected String dbName;
@@ -115,110 +161,443 @@ public class Mongobee {
    * @throws MongobeeException exception
    */
   public void execute() throws MongobeeException {
+    state = MigrationStatus.State.RUNNING;
+    failure = null;
+    lockedElsewhere = false;
+    boolean completed = false;
+    try {
+      migrate();
+      completed = true;
+    } catch (MongobeeException | RuntimeException e) {
+      failure = e;
+      throw e;
+    } finally {
+      currentChangeSet = null;
+      MigrationOutcome outcome = leaderOutcome;
+      if (!completed || outcome == MigrationOutcome.FAILED || outcome == MigrationOutcome.TIMED_OUT) {
+        state = MigrationStatus.State.FAILED;
+      } else {
+        state = lockedElsewhere ? MigrationStatus.State.LOCKED : MigrationStatus.State.DONE;
+      }
+    }
+  }
+
+  /**
+   * Executing migration without blocking the calling thread. The migration runs on the executor set by
+   * {@link #setMigrationExecutor(Executor)} or on a new thread; its progress is available from
+   * {@link #getMigrationStatus()}.
+   *
+   * @return future completed with the final status, or failed with the exception thrown by the migration
+   */
+  public Future<MigrationStatus> executeAsync() {
+    FutureTask<MigrationStatus> task = new FutureTask<>(new Callable<MigrationStatus>() {
+      @Override
+      public MigrationStatus call() throws MongobeeException {
+        try {
+          execute();
+        } catch (MongobeeException | RuntimeException e) {
+          logger.error("Mongobee migration failed", e);
+          throw e;
+        }
+        return getMigrationStatus();
+      }
+    });
+
+    state = MigrationStatus.State.PENDING;
+    failure = null;
+    Executor executor = migrationExecutor;
+    if (executor != null) {
+      executor.execute(task);
+    } else {
+      new Thread(task, "mongobee-migration").start();
+    }
+    return task;
+  }
+
+  /**
+   * @return current state of the execution, the changeset being executed and the outcome when finished
+   */
+  public MigrationStatus getMigrationStatus() {
+    MigrationStatus.State current = state;
+    return new MigrationStatus(current, currentChangeSet, leaderOutcome, failure);
+  }
+
+  private void migrate() throws MongobeeException {
     if (!isEnabled()) {
       logger.info("Mongobee is disabled. Exiting.");
       return;
     }
 
     validateConfig();
+    leaderOutcome = null;
+    long executionStart = System.nanoTime();
 
-    if (this.mongoClient != null) {
-      dao.connectMongoDb(this.mongoClient, dbName);
-    } else {
-      dao.connectMongoDb(this.mongoClientURI, dbName);
+    ChangeService service = newChangeService();
+    List<ChangeLogDescriptor> changeLogs = null;
+    String planFingerprint = null;
+
+    openMongoDb();
+    long start = phaseCompleted(MigrationPhase.CONNECT, executionStart);
+    if (upToDateCheck) {
+      changeLogs = service.fetchChangeLogs();
+      planFingerprint = service.fetchPlanFingerprint(changeLogs);
+      start = phaseCompleted(MigrationPhase.CHANGELOG_SCAN, start);
+      if (planFingerprint != null && planFingerprint.equals(dao.getPlanFingerprint())) {
+        logger.info("Mongobee found all changesets already applied. Exiting.");
+        return;
+      }
+      start = System.nanoTime();
     }
+    dao.initializeMongoDb();
+    start = phaseCompleted(MigrationPhase.INDEX_ENSURE, start);
 
-    if (!dao.acquireProcessLock()) {
-      logger.info("Mongobee did not acquire process lock. Exiting.");
+    boolean lockAcquired = acquireProcessLockOrWaitForLeader();
+    phaseCompleted(MigrationPhase.LOCK_ACQUIRE, start);
+    if (!lockAcquired) {
       return;
     }
 
     logger.info("Mongobee acquired process lock, starting the data migration sequence..");
 
+    MigrationOutcome outcome = MigrationOutcome.FAILED;
     try {
-      executeMigration();
+      changeSetFailed = false;
+      migrationContext = new MigrationContext(dao.getDb(), dao.getMongoDatabase(), dbName, throttle);
+      try {
+        if (prefetchAppliedChanges) {
+          start = System.nanoTime();
+          dao.loadAppliedChanges();
+          phaseCompleted(MigrationPhase.APPLIED_CHANGES_LOAD, start);
+        }
+        if (changeLogs == null) {
+          start = System.nanoTime();
+          changeLogs = service.fetchChangeLogs();
+          phaseCompleted(MigrationPhase.CHANGELOG_SCAN, start);
+        }
+        executeMigration(changeLogs);
+      } catch (Throwable e) {
+        closeChangeEntryJournal(e);
+        throw e;
+      }
+      closeChangeEntryJournal();
+      if (planFingerprint != null && !changeSetFailed) {
+        dao.savePlanFingerprint(planFingerprint);
+      }
+      outcome = changeSetFailed ? MigrationOutcome.FAILED : MigrationOutcome.SUCCEEDED;
     } finally {
       logger.info("Mongobee is releasing process lock.");
-      dao.releaseProcessLock();
+      migrationContext = null;
+      leaderOutcome = outcome;
+      dao.releaseProcessLock(outcome.name());
+      migrationCompleted(outcome, executionStart);
     }
 
     logger.info("Mongobee has finished his job.");
   }
 
-  private void executeMigration() throws MongobeeConnectionException, MongobeeException {
-
-    ChangeService service = newChangeService();
+  /**
+   * @return true if the lock has been acquired, false if another process holds it (and finished its migration
+   * when waiting is enabled)
+   */
+  private boolean acquireProcessLockOrWaitForLeader() throws MongobeeException {
+    if (dao.acquireProcessLock()) {
+      return true;
+    }
+    if (leaderWaitTimeout <= 0) {
+      lockedElsewhere = true;
+      logger.info("Mongobee did not acquire process lock. Exiting.");
+      return false;
+    }
 
-    for (Class<?> changelogClass : service.fetchChangeLogs()) {
+    logger.info("Mongobee did not acquire process lock, waiting for the migration of the lock holder..");
+    long deadline = System.currentTimeMillis() + leaderWaitTimeout;
+    long pollInterval = INITIAL_LOCK_POLL_MILLIS;
+    while (true) {
+      if (!dao.isProccessLockHeld()) {
+        String outcome = dao.getReleasedProcessOutcome();
+        if (outcome != null) {
+          leaderOutcome = MigrationOutcome.valueOf(outcome);
+          logger.info("Mongobee lock holder finished the migration with outcome " + outcome + ". Exiting.");
+          return false;
+        }
+        // the lease of the holder lapsed without an outcome, the holder is gone
+        if (dao.acquireProcessLock()) {
+          return true;
+        }
+      }
 
-      Object changelogInstance = null;
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        leaderOutcome = MigrationOutcome.TIMED_OUT;
+        logger.warn("Mongobee lock holder did not finish the migration within " + leaderWaitTimeout + " ms. Exiting.");
+        return false;
+      }
+      // equal jitter spreads the polls of processes started at the same time
+      long sleep = pollInterval / 2 + ThreadLocalRandom.current().nextLong(pollInterval / 2 + 1);
       try {
-        changelogInstance = changelogClass.getConstructor().newInstance();
-        List<Method> changesetMethods = service.fetchChangeSets(changelogInstance.getClass());
-
-        for (Method changesetMethod : changesetMethods) {
-          ChangeEntry changeEntry = service.createChangeEntry(changesetMethod);
-
-          try {
-            if (dao.isNewChange(changeEntry)) {
-              executeChangeSetMethod(changesetMethod, changelogInstance, dao.getDb(), dao.getMongoDatabase());
-              dao.save(changeEntry);
-              logger.info(changeEntry + " applied");
-            } else if (service.isRunAlwaysChangeSet(changesetMethod)) {
-              executeChangeSetMethod(changesetMethod, changelogInstance, dao.getDb(), dao.getMongoDatabase());
-              logger.info(changeEntry + " reapplied");
-            } else {
-              logger.info(changeEntry + " passed over");
-            }
-          } catch (MongobeeChangeSetException e) {
-            logger.error(e.getMessage());
-          }
-        }
-      } catch (NoSuchMethodException e) {
-        throw new MongobeeException(e.getMessage(), e);
-      } catch (IllegalAccessException e) {
-        throw new MongobeeException(e.getMessage(), e);
-      } catch (InvocationTargetException e) {
-        Throwable targetException = e.getTargetException();
-        throw new MongobeeException(targetException.getMessage(), e);
-      } catch (InstantiationException e) {
-        throw new MongobeeException(e.getMessage(), e);
+        Thread.sleep(Math.min(sleep, remaining));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MongobeeException("Interrupted while waiting for the process lock", e);
       }
+      pollInterval = Math.min(pollInterval * 2, MAX_LOCK_POLL_MILLIS);
+    }
+  }
 
+  private void openMongoDb() throws MongobeeException {
+    if (this.mongoClient != null) {
+      dao.openMongoDb(this.mongoClient, dbName);
+    } else {
+      dao.openMongoDb(this.mongoClientURI, dbName);
     }
   }
 
-  protected ChangeService newChangeService() {
-    return new ChangeService(changeLogsScanPackage);
+  private void executeMigration(List<ChangeLogDescriptor> changeLogs) throws MongobeeException {
+
+    if (changeLogParallelism > 1) {
+      new ChangeLogGraph(changeLogs).execute(changeLogParallelism, new ChangeLogGraph.ChangeLogTask() {
+        @Override
+        public void execute(ChangeLogDescriptor changeLog) throws MongobeeException {
+          executeChangeLog(changeLog);
+        }
+      });
+    } else {
+      for (ChangeLogDescriptor changeLog : changeLogs) {
+        executeChangeLog(changeLog);
+      }
+    }
   }
 
-  protected Object executeChangeSetMethod(Method changeSetMethod, Object changeLogInstance, DB db, MongoDatabase mongoDatabase)
-      throws IllegalAccessException, InvocationTargetException, MongobeeChangeSetException {
-    if (changeSetMethod.getParameterTypes().length == 1
-        && changeSetMethod.getParameterTypes()[0].equals(DB.class)) {
-      logger.debug("method with DB argument");
+  /**
+   * Checks all changesets of the changelog first; the changelog is instantiated (and its class initialized)
+   * only when one of them is new, runAlways or a runOnChange changeset with a changed checksum.
+   */
+  private void executeChangeLog(ChangeLogDescriptor changeLog) throws MongobeeException {
+    List<ChangeSetDescriptor> changeSets = changeLog.getChangeSets();
+    ChangeEntry[] changeEntries = new ChangeEntry[changeSets.size()];
+    boolean[] newChanges = new boolean[changeSets.size()];
+    boolean[] changed = new boolean[changeSets.size()];
+    long[] checkNanos = new long[changeSets.size()];
+    boolean pending = false;
+    for (int i = 0; i < changeSets.size(); i++) {
+      ChangeSetDescriptor changeSet = changeSets.get(i);
+      changeEntries[i] = changeSet.createChangeEntry();
+      long start = System.nanoTime();
+      newChanges[i] = dao.isNewChange(changeEntries[i]);
+      if (!newChanges[i] && changeSet.isRunOnChange()) {
+        String appliedChecksum = dao.findAppliedChecksum(changeEntries[i]);
+        if (appliedChecksum == null) {
+          // applied before it was declared runOnChange, the current code is taken as the applied one
+          dao.recordChecksum(changeEntries[i]);
+          logger.info(changeEntries[i] + " recorded without checksum, checksum stored");
+        } else {
+          changed[i] = !changeEntries[i].getChecksum().equals(appliedChecksum);
+        }
+      }
+      checkNanos[i] = phaseCompleted(MigrationPhase.CHANGE_CHECK, start) - start;
+      pending |= newChanges[i] || changed[i] || changeSet.isRunAlways();
+    }
 
-      return changeSetMethod.invoke(changeLogInstance, db);
-    } else if (changeSetMethod.getParameterTypes().length == 1
-        && changeSetMethod.getParameterTypes()[0].equals(MongoDatabase.class)) {
-      logger.debug("method with DB argument");
+    if (!pending) {
+      for (int i = 0; i < changeSets.size(); i++) {
+        logger.info(changeEntries[i] + " passed over");
+        changeSetCompleted(changeEntries[i], ChangeSetOutcome.SKIPPED, System.nanoTime() - checkNanos[i]);
+      }
+      return;
+    }
 
-      return changeSetMethod.invoke(changeLogInstance, mongoDatabase);
-    } else if (changeSetMethod.getParameterTypes().length == 0) {
-      logger.debug("method with no params");
+    Object changelogInstance = null;
+    try {
+      long start = System.nanoTime();
+      changelogInstance = changeLog.getType().getConstructor().newInstance();
+      phaseCompleted(MigrationPhase.CHANGELOG_INSTANTIATION, start);
+
+      for (int i = 0; i < changeSets.size(); i++) {
+        verifyProcessLock();
+        currentChangeSet = changeEntries[i];
+
+        start = System.nanoTime() - checkNanos[i];
+        ChangeSetOutcome outcome = ChangeSetOutcome.FAILED;
+        try {
+          outcome = applyChangeSet(changeSets.get(i), changelogInstance, changeEntries[i], newChanges[i], changed[i]);
+        } catch (MongobeeChangeSetException e) {
+          changeSetFailed = true;
+          logger.error(e.getMessage());
+        } finally {
+          changeSetCompleted(changeEntries[i], outcome, start);
+        }
+      }
+    } catch (NoSuchMethodException e) {
+      throw new MongobeeException(e.getMessage(), e);
+    } catch (IllegalAccessException e) {
+      throw new MongobeeException(e.getMessage(), e);
+    } catch (InvocationTargetException e) {
+      Throwable targetException = e.getTargetException();
+      throw new MongobeeException(targetException.getMessage(), e);
+    } catch (InstantiationException e) {
+      throw new MongobeeException(e.getMessage(), e);
+    }
+  }
 
-      return changeSetMethod.invoke(changeLogInstance);
+  private ChangeSetOutcome applyChangeSet(ChangeSetDescriptor changeSet, Object changelogInstance, ChangeEntry changeEntry,
+                                          boolean newChange, boolean changed)
+      throws MongobeeException, InvocationTargetException {
+    if (newChange) {
+      flushIfBarrier(changeSet);
+      ChangeSetCheckpoint checkpoint = executeChangeSet(changeSet, changelogInstance, changeEntry);
+      long start = System.nanoTime();
+      dao.save(changeEntry);
+      phaseCompleted(MigrationPhase.ENTRY_SAVE, start);
+      if (checkpoint != null) {
+        dao.clearCheckpoint(changeEntry);
+      }
+      logger.info(changeEntry + " applied");
+      return ChangeSetOutcome.APPLIED;
+    } else if (changeSet.isRunAlways()) {
+      flushIfBarrier(changeSet);
+      ChangeSetCheckpoint checkpoint = executeChangeSet(changeSet, changelogInstance, changeEntry);
+      if (checkpoint != null) {
+        dao.clearCheckpoint(changeEntry);
+      }
+      logger.info(changeEntry + " reapplied");
+      return ChangeSetOutcome.REAPPLIED;
+    } else if (changed) {
+      flushIfBarrier(changeSet);
+      ChangeSetCheckpoint checkpoint = executeChangeSet(changeSet, changelogInstance, changeEntry);
+      long start = System.nanoTime();
+      dao.replace(changeEntry);
+      phaseCompleted(MigrationPhase.ENTRY_SAVE, start);
+      if (checkpoint != null) {
+        dao.clearCheckpoint(changeEntry);
+      }
+      logger.info(changeEntry + " changed, reapplied");
+      return ChangeSetOutcome.REAPPLIED;
     } else {
-      throw new MongobeeChangeSetException("ChangeSet method " + changeSetMethod.getName() +
-          " has wrong arguments list. Please see docs for more info!");
+      logger.info(changeEntry + " passed over");
+      return ChangeSetOutcome.SKIPPED;
+    }
+  }
+
+  /**
+   * Records the timing, host and returned summary of the execution in the change entry.
+   *
+   * @return checkpoint passed to the changeset, null if the changeset does not take one
+   */
+  private ChangeSetCheckpoint executeChangeSet(ChangeSetDescriptor changeSet, Object changelogInstance,
+                                               ChangeEntry changeEntry)
+      throws InvocationTargetException, MongobeeChangeSetException {
+    ChangeSetCheckpoint checkpoint = changeSetInvoker.acceptsCheckpoint(changeSet.getMethod())
+        ? new ChangeSetCheckpoint(dao, changeEntry, checkpointInterval) : null;
+    Date startedAt = new Date();
+    long start = System.nanoTime();
+    boolean completed = false;
+    try {
+      Object result = changeSetInvoker.invoke(migrationContext.withOptions(changeSet.getDatabaseOptions()),
+          changeSet.getMethod(), changelogInstance, checkpoint);
+      long end = System.nanoTime();
+      changeEntry.recordExecution(startedAt, new Date(), TimeUnit.NANOSECONDS.toMillis(end - start),
+          ExecutionEnvironment.getHost(), ExecutionEnvironment.getProcessId(), ExecutionEnvironment.getMongobeeVersion(),
+          ChangeSetSummary.of(result));
+      completed = true;
+    } finally {
+      phaseCompleted(MigrationPhase.CHANGESET_EXECUTION, start);
+      if (checkpoint != null && !completed) {
+        saveCheckpointOfFailedChangeSet(checkpoint, changeEntry);
+      }
+    }
+    return checkpoint;
+  }
+
+  private void saveCheckpointOfFailedChangeSet(ChangeSetCheckpoint checkpoint, ChangeEntry changeEntry) {
+    try {
+      checkpoint.flush();
+    } catch (MongobeeConnectionException | RuntimeException e) {
+      logger.warn("Checkpoint of failed " + changeEntry + " could not be saved", e);
+    }
+  }
+
+  private void verifyProcessLock() throws MongobeeException {
+    if (dao.isProcessLockLost()) {
+      throw new MongobeeException("Mongobee process lock has been taken over by another process, stopping the migration");
+    }
+  }
+
+  private void flushIfBarrier(ChangeSetDescriptor changeSet) throws MongobeeConnectionException {
+    if (changeSet.isBarrier()) {
+      flushChangeEntries();
+    }
+  }
+
+  private void flushChangeEntries() throws MongobeeConnectionException {
+    long start = System.nanoTime();
+    dao.flushChangeEntries();
+    phaseCompleted(MigrationPhase.ENTRY_SAVE, start);
+  }
+
+  private void closeChangeEntryJournal() throws MongobeeConnectionException {
+    long start = System.nanoTime();
+    dao.closeChangeEntryJournal();
+    phaseCompleted(MigrationPhase.ENTRY_SAVE, start);
+  }
+
+  /**
+   * Flushes the journal while the migration fails, a failing flush does not hide the failure of the migration
+   */
+  private void closeChangeEntryJournal(Throwable migrationFailure) {
+    try {
+      closeChangeEntryJournal();
+    } catch (MongobeeConnectionException | RuntimeException e) {
+      logger.error("Mongobee could not record the journaled change entries of the failed migration", e);
+      migrationFailure.addSuppressed(e);
+    }
+  }
+
+  /**
+   * @return the current time, start of the next phase
+   */
+  private long phaseCompleted(MigrationPhase phase, long startNanos) {
+    long now = System.nanoTime();
+    for (MigrationListener listener : listeners) {
+      try {
+        listener.phaseCompleted(phase, now - startNanos);
+      } catch (RuntimeException e) {
+        logger.warn("Mongobee migration listener failed", e);
+      }
+    }
+    return now;
+  }
+
+  private void changeSetCompleted(ChangeEntry changeEntry, ChangeSetOutcome outcome, long startNanos) {
+    long duration = System.nanoTime() - startNanos;
+    for (MigrationListener listener : listeners) {
+      try {
+        listener.changeSetCompleted(changeEntry, outcome, duration);
+      } catch (RuntimeException e) {
+        logger.warn("Mongobee migration listener failed", e);
+      }
     }
   }
 
+  private void migrationCompleted(MigrationOutcome outcome, long startNanos) {
+    long duration = System.nanoTime() - startNanos;
+    for (MigrationListener listener : listeners) {
+      try {
+        listener.migrationCompleted(dbName, outcome, duration);
+      } catch (RuntimeException e) {
+        logger.warn("Mongobee migration listener failed", e);
+      }
+    }
+  }
+
+  protected ChangeService newChangeService() {
+    return new ChangeService(changeLogsScanPackage, changeLogClasses).setScanCacheFile(scanCacheFile);
+  }
+
   private void validateConfig() throws MongobeeConfigurationException {
     if (!hasText(dbName)) {
       throw new MongobeeConfigurationException("DB name is not set. It should be defined in MongoDB URI or via setter");
     }
-    if (!hasText(changeLogsScanPackage)) {
+    if (!hasText(changeLogsScanPackage) && changeLogClasses.isEmpty()) {
       throw new MongobeeConfigurationException("Scan package for changelogs is not set: use appropriate setter");
     }
   }
@@ -231,6 +610,18 @@ public class Mongobee {
     return dao.isProccessLockHeld();
   }
 
+  /**
+   * Slowest changesets recorded in the changelog collection, e.g. to estimate the duration of similar migrations.
+   * Changesets applied before execution times were recorded are not included.
+   *
+   * @param limit maximum number of changesets
+   * @return change entries with their execution fields, slowest first
+   * @throws MongobeeConnectionException exception
+   */
+  public List<ChangeEntry> findSlowestChangeSets(int limit) throws MongobeeConnectionException {
+    return dao.findSlowestChanges(limit);
+  }
+
   /**
    * Used DB name should be set here or via MongoDB URI (in a constructor)
    *
@@ -254,7 +645,7 @@ public class Mongobee {
   }
 
   /**
-   * Package name where @ChangeLog-annotated classes are kept.
+   * Package name where @ChangeLog-annotated classes are kept. Several packages are separated by commas.
    *
    * @param changeLogsScanPackage package where your changelogs are
    * @return Mongobee object for fluent interface
@@ -264,6 +655,31 @@ public class Mongobee {
     return this;
   }
 
+  /**
+   * Changelogs executed in addition to the changelogs of the scan package, without scanning the classpath
+   * when no scan package is set.
+   *
+   * @param changeLogClasses classes annotated with @ChangeLog
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setChangeLogClasses(Class<?>... changeLogClasses) {
+    this.changeLogClasses = Collections.unmodifiableList(Arrays.asList(changeLogClasses.clone()));
+    return this;
+  }
+
+  /**
+   * Feature which stores the changelogs found by the classpath scan in a local file, keyed by a fingerprint of
+   * the scanned jars and class files (paths, sizes, modification times). Starts with an unchanged classpath read
+   * the file instead of scanning; stale or corrupt files are replaced after a scan.
+   *
+   * @param scanCacheFile cache file, e.g. in a writable volume of the container, null disables the cache (default)
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setScanCacheFile(File scanCacheFile) {
+    this.scanCacheFile = scanCacheFile;
+    return this;
+  }
+
   /**
    * @return true if Mongobee runner is enabled and able to run, otherwise false
    */
@@ -282,6 +698,133 @@ public class Mongobee {
     return this;
   }
 
+  /**
+   * @return true if applied changes are loaded once per execution instead of being queried per changeset
+   */
+  public boolean isPrefetchAppliedChanges() {
+    return prefetchAppliedChanges;
+  }
+
+  /**
+   * Feature which loads all applied changes with one query after the process lock is acquired, instead of
+   * querying the changelog collection for every changeset. The snapshot is dropped when the lock is released.
+   *
+   * @param prefetchAppliedChanges default is true
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setPrefetchAppliedChanges(boolean prefetchAppliedChanges) {
+    this.prefetchAppliedChanges = prefetchAppliedChanges;
+    return this;
+  }
+
+  /**
+   * Buffers change entries of applied changesets and writes them in batches instead of one insert per changeset.
+   * Buffered entries are always written before a changeset with {@code barrier = true} and at the end of the
+   * migration. If the process dies in between, the changesets of unwritten entries are executed again on the next run,
+   * so they should be idempotent.
+   *
+   * @param batchSize           number of buffered entries written together, 0 means no size limit, default is 1
+   * @param flushIntervalMillis maximum time an entry stays in the buffer, 0 means no time limit
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setChangeEntryBatching(int batchSize, long flushIntervalMillis) {
+    this.changeEntryBatchSize = batchSize;
+    this.changeEntryFlushInterval = flushIntervalMillis;
+    this.dao.setChangeEntryJournal(newChangeEntryJournal());
+    return this;
+  }
+
+  /**
+   * Feature which writes all change entries only once, at the end of the migration.
+   * Intended for ephemeral (e.g. test) databases.
+   *
+   * @param flushChangeEntriesAtEnd default is false
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setFlushChangeEntriesAtEnd(boolean flushChangeEntriesAtEnd) {
+    this.flushChangeEntriesAtEnd = flushChangeEntriesAtEnd;
+    this.dao.setChangeEntryJournal(newChangeEntryJournal());
+    return this;
+  }
+
+  private ChangeEntryJournal newChangeEntryJournal() {
+    if (flushChangeEntriesAtEnd) {
+      return new ChangeEntryJournal(0, 0);
+    } else if (changeEntryBatchSize == 1) {
+      return null;
+    }
+    return new ChangeEntryJournal(Math.max(changeEntryBatchSize, 0), Math.max(changeEntryFlushInterval, 0));
+  }
+
+  /**
+   * Feature which stores a fingerprint of the changeset plan (changelogs, changeset ids, authors, methods and order)
+   * after a successful migration. Following executions with the same plan read the fingerprint and exit without
+   * creating indexes, acquiring the lock or checking changesets one by one.
+   * Plans with a runAlways changeset are always executed, changing a runOnChange changeset changes the plan.
+   *
+   * CAUTION! Changesets removed from the changelog collection by hand are not re-executed while the plan is unchanged.
+   *
+   * @param upToDateCheck default is false
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setUpToDateCheck(boolean upToDateCheck) {
+    this.upToDateCheck = upToDateCheck;
+    return this;
+  }
+
+  /**
+   * Executes independent changelogs concurrently. Changelogs of one {@link com.github.mongobee.core.changeset.ChangeLog#group()}
+   * are executed one by one and a changelog starts only after all groups it
+   * {@link com.github.mongobee.core.changeset.ChangeLog#dependsOn()} are completed.
+   * When a changelog fails, no more changelogs are started and the first failure (in changelog order) is thrown.
+   *
+   * @param changeLogParallelism maximum number of changelogs executed at the same time, default is 1 (sequential)
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setChangeLogParallelism(int changeLogParallelism) {
+    this.changeLogParallelism = changeLogParallelism;
+    return this;
+  }
+
+  /**
+   * Registers a resolver of changeset method arguments, consulted before the resolvers registered earlier
+   * and the built-in resolver of {@link com.mongodb.client.MongoDatabase}, {@link com.mongodb.DB} and {@link Throttle} arguments.
+   *
+   * @param resolver parameter resolver
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee addParameterResolver(ParameterResolver resolver) {
+    this.changeSetInvoker.addResolver(resolver);
+    return this;
+  }
+
+  /**
+   * Makes a throttle available to changesets declaring a {@link Throttle} parameter, to pace their writes
+   * (e.g. with {@link com.github.mongobee.core.bulk.BulkBackfill#setThrottle(Throttle)}) by its rate and the load
+   * of the cluster reported by its load probe, e.g. a {@link com.github.mongobee.core.throttle.ServerStatusLoadProbe}.
+   * The throttle is used as configured. Without this setting changesets get a throttle that does not limit.
+   *
+   * @param throttle throttle shared by all changesets of the migration
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setThrottle(Throttle throttle) {
+    this.throttle = throttle;
+    return this;
+  }
+
+  /**
+   * Registers a listener receiving the duration of the migration phases and the outcome of every changeset,
+   * see {@link com.github.mongobee.core.metrics.MigrationMetrics} and
+   * {@link com.github.mongobee.core.metrics.Slf4jMetricsReporter}
+   *
+   * @param listener migration listener
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee addMigrationListener(MigrationListener listener) {
+    this.listeners.add(listener);
+    return this;
+  }
+
   /**
    * Overwrites a default mongobee changelog collection hardcoded in DEFAULT_CHANGELOG_COLLECTION_NAME.
    *
@@ -307,6 +850,87 @@ public class Mongobee {
     return this;
   }
 
+  /**
+   * Makes processes which did not acquire the process lock wait until the lock holder finishes its migration,
+   * instead of exiting immediately. The outcome of the holder's migration is available
+   * from {@link #getLeaderOutcome()}. Disabled by default.
+   *
+   * @param leaderWaitTimeoutMillis maximum time to wait in milliseconds, 0 to exit immediately
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setWaitForLeader(long leaderWaitTimeoutMillis) {
+    this.leaderWaitTimeout = leaderWaitTimeoutMillis;
+    return this;
+  }
+
+  /**
+   * @return outcome of the migration executed by this process or by the lock holder this process waited for,
+   * null if no migration has been executed or waited for by the last {@link #execute()}
+   */
+  public MigrationOutcome getLeaderOutcome() {
+    return leaderOutcome;
+  }
+
+  /**
+   * Executor running the migrations started by {@link #executeAsync()}. Without an executor every
+   * asynchronous execution starts a new thread.
+   *
+   * @param migrationExecutor executor, null to start a new thread (default)
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setMigrationExecutor(Executor migrationExecutor) {
+    this.migrationExecutor = migrationExecutor;
+    return this;
+  }
+
+  /**
+   * Sets the lease time of the process lock. The lock is renewed in the background while the migration runs;
+   * when the process dies, other processes may take the lock over once the lease has expired.
+   * Default is 60 seconds.
+   *
+   * @param lockLeaseMillis lease time in milliseconds
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setLockLeaseTime(long lockLeaseMillis) {
+    this.dao.setLockLeaseTime(lockLeaseMillis);
+    return this;
+  }
+
+  /**
+   * Sets how often the progress saved by changesets taking a {@link ChangeSetCheckpoint} is written.
+   * Default is 10 seconds.
+   *
+   * @param checkpointIntervalMillis minimal time between two writes of the checkpoint of a changeset
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setCheckpointInterval(long checkpointIntervalMillis) {
+    this.checkpointInterval = checkpointIntervalMillis;
+    return this;
+  }
+
+  /**
+   * Overwrites a default mongobee checkpoint collection (mongobeecheckpoint), which keeps the progress
+   * of changesets which have not completed yet
+   *
+   * @param checkpointCollectionName a new checkpoint collection name
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setCheckpointCollectionName(String checkpointCollectionName) {
+    this.dao.setCheckpointCollectionName(checkpointCollectionName);
+    return this;
+  }
+
+  /**
+   * Overwrites a default mongobee metadata collection (mongobeemeta), which keeps the fingerprint of the last plan
+   *
+   * @param metadataCollectionName a new metadata collection name
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setMetadataCollectionName(String metadataCollectionName) {
+    this.dao.setMetadataCollectionName(metadataCollectionName);
+    return this;
+  }
+
   /**
    * Closes the Mongo instance used by Mongobee.
    * This will close either the connection Mongobee was initiated with or that which was internally created.
@@ -0,0 +1,134 @@
+package com.github.mongobee.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Aggregated result of {@link MultiDatabaseMongobee#execute()} with the status of every database
+ *
+ * @since 0.14
+ */
+public class MultiDatabaseMigrationResult {
+
+  /**
+   * Status of the migration of a single database
+   */
+  public enum Status {
+    /**
+     * All changesets have been applied
+     */
+    SUCCEEDED,
+    /**
+     * The migration failed, some changesets failed or the lock holder did not finish in time
+     */
+    FAILED,
+    /**
+     * Nothing was executed: the database was up to date or Mongobee is disabled
+     */
+    SKIPPED,
+    /**
+     * Nothing was executed: another process held the lock of the database and was not waited for,
+     * its migration may still be running
+     */
+    NOT_ACQUIRED
+  }
+
+  private final List<DatabaseResult> results;
+
+  MultiDatabaseMigrationResult(List<DatabaseResult> results) {
+    this.results = Collections.unmodifiableList(new ArrayList<>(results));
+  }
+
+  /**
+   * @return results of all databases in the order they were listed
+   */
+  public List<DatabaseResult> getResults() {
+    return results;
+  }
+
+  /**
+   * @return results of the databases whose migration failed
+   */
+  public List<DatabaseResult> getFailed() {
+    return withStatus(Status.FAILED);
+  }
+
+  public List<DatabaseResult> withStatus(Status status) {
+    List<DatabaseResult> selected = new ArrayList<>();
+    for (DatabaseResult result : results) {
+      if (result.getStatus() == status) {
+        selected.add(result);
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * @return true if no database migration failed
+   */
+  public boolean isSuccessful() {
+    return getFailed().isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "[Databases: " + results.size()
+        + ", succeeded: " + withStatus(Status.SUCCEEDED).size()
+        + ", skipped: " + withStatus(Status.SKIPPED).size()
+        + ", not acquired: " + withStatus(Status.NOT_ACQUIRED).size()
+        + ", failed: " + withStatus(Status.FAILED).size() + "]";
+  }
+
+  /**
+   * Result of the migration of a single database
+   */
+  public static class DatabaseResult {
+    private final String dbName;
+    private final Status status;
+    private final MigrationOutcome outcome;
+    private final Exception exception;
+    private final long durationMillis;
+
+    DatabaseResult(String dbName, Status status, MigrationOutcome outcome, Exception exception, long durationMillis) {
+      this.dbName = dbName;
+      this.status = status;
+      this.outcome = outcome;
+      this.exception = exception;
+      this.durationMillis = durationMillis;
+    }
+
+    public String getDbName() {
+      return dbName;
+    }
+
+    public Status getStatus() {
+      return status;
+    }
+
+    /**
+     * @return outcome of the migration of this database, null if skipped or failed with an exception
+     */
+    public MigrationOutcome getOutcome() {
+      return outcome;
+    }
+
+    /**
+     * @return exception which stopped the migration, null if none
+     */
+    public Exception getException() {
+      return exception;
+    }
+
+    public long getDurationMillis() {
+      return durationMillis;
+    }
+
+    @Override
+    public String toString() {
+      return "[Database: " + dbName + ", status: " + status + ", duration: " + durationMillis + " ms"
+          + (exception != null ? ", exception: " + exception.getMessage() : "") + "]";
+    }
+  }
+
+}
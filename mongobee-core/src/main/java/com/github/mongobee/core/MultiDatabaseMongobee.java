@@ -0,0 +1,318 @@
+package com.github.mongobee.core;
+
+import com.github.mongobee.core.MultiDatabaseMigrationResult.DatabaseResult;
+import com.github.mongobee.core.MultiDatabaseMigrationResult.Status;
+import com.github.mongobee.core.exception.MongobeeConfigurationException;
+import com.github.mongobee.core.exception.MongobeeException;
+import com.github.mongobee.core.metrics.MigrationListener;
+import com.github.mongobee.core.utils.ChangeService;
+import com.mongodb.MongoClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import static com.github.mongobee.core.utils.StringUtils.hasText;
+
+/**
+ * Mongobee runner migrating many databases (e.g. a database per tenant) of one cluster.
+ * The changelogs are scanned once and all databases share the given MongoClient, which is not closed by the runner.
+ * Every database is migrated by its own {@link Mongobee} under its own process lock.
+ *
+ * @since 0.14
+ */
+public class MultiDatabaseMongobee {
+  private static final Logger logger = LoggerFactory.getLogger(MultiDatabaseMongobee.class);
+
+  private static final List<String> SYSTEM_DATABASES = Arrays.asList("admin", "local", "config");
+
+  private final MongoClient mongoClient;
+  private final Set<String> dbNames = new LinkedHashSet<>();
+  private Pattern dbNamePattern;
+  private String changeLogsScanPackage;
+  private List<Class<?>> changeLogClasses = Collections.emptyList();
+  private File scanCacheFile;
+  private int parallelism = 4;
+  private String changelogCollectionName;
+  private String lockCollectionName;
+  private boolean upToDateCheck = false;
+  private long leaderWaitTimeout = 0;
+  private final List<MigrationListener> listeners = new ArrayList<>();
+
+  /**
+   * @param mongoClient database connection client shared by all migrated databases
+   */
+  public MultiDatabaseMongobee(MongoClient mongoClient) {
+    this.mongoClient = mongoClient;
+  }
+
+  /**
+   * Migrating all databases
+   *
+   * @return status of every database
+   * @throws MongobeeException configuration errors or interruption; failures of single databases are reported
+   *                           in the result
+   */
+  public MultiDatabaseMigrationResult execute() throws MongobeeException {
+    validateConfig();
+
+    List<String> databases = resolveDbNames();
+    if (databases.isEmpty()) {
+      logger.info("Mongobee found no databases to migrate. Exiting.");
+      return new MultiDatabaseMigrationResult(Collections.<DatabaseResult>emptyList());
+    }
+
+    final ChangeService service = new ChangeService(changeLogsScanPackage, changeLogClasses)
+        .setScanCacheFile(scanCacheFile);
+    service.fetchChangeLogs(); // scanned once, shared by the runners of all databases
+    logger.info("Mongobee is migrating " + databases.size() + " databases with parallelism " + parallelism);
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, databases.size()), new ThreadFactory() {
+      private final AtomicInteger counter = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "mongobee-database-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+    try {
+      List<Future<DatabaseResult>> futures = new ArrayList<>();
+      for (final String dbName : databases) {
+        futures.add(executor.submit(new Callable<DatabaseResult>() {
+          @Override
+          public DatabaseResult call() {
+            return migrate(dbName, service);
+          }
+        }));
+      }
+
+      List<DatabaseResult> results = new ArrayList<>();
+      for (Future<DatabaseResult> future : futures) {
+        results.add(future.get());
+      }
+      MultiDatabaseMigrationResult result = new MultiDatabaseMigrationResult(results);
+      logger.info("Mongobee has finished migrating databases " + result);
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MongobeeException("Interrupted while migrating databases", e);
+    } catch (ExecutionException e) {
+      throw new MongobeeException(e.getCause().getMessage(), e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private DatabaseResult migrate(String dbName, ChangeService service) {
+    long start = System.currentTimeMillis();
+    try {
+      Mongobee runner = newMongobee(dbName, service);
+      runner.execute();
+
+      MigrationOutcome outcome = runner.getLeaderOutcome();
+      Status status;
+      if (runner.getMigrationStatus().getState() == MigrationStatus.State.LOCKED) {
+        status = Status.NOT_ACQUIRED;
+      } else if (outcome == null) {
+        status = Status.SKIPPED;
+      } else {
+        status = outcome == MigrationOutcome.SUCCEEDED ? Status.SUCCEEDED : Status.FAILED;
+      }
+      return new DatabaseResult(dbName, status, outcome, null, System.currentTimeMillis() - start);
+    } catch (Exception e) {
+      logger.error("Mongobee failed to migrate database " + dbName, e);
+      return new DatabaseResult(dbName, Status.FAILED, null, e, System.currentTimeMillis() - start);
+    }
+  }
+
+  /**
+   * Creates the runner of a single database. Override to configure the runners further.
+   *
+   * @param dbName  database to migrate
+   * @param service changelogs scanned once for all databases
+   * @return runner using the shared MongoClient
+   */
+  protected Mongobee newMongobee(String dbName, final ChangeService service) {
+    Mongobee runner = new Mongobee(mongoClient) {
+      @Override
+      protected ChangeService newChangeService() {
+        return service;
+      }
+    };
+    runner.setDbName(dbName);
+    runner.setChangeLogsScanPackage(changeLogsScanPackage);
+    runner.setChangeLogClasses(changeLogClasses.toArray(new Class<?>[0]));
+    runner.setUpToDateCheck(upToDateCheck);
+    runner.setWaitForLeader(leaderWaitTimeout);
+    for (MigrationListener listener : listeners) {
+      runner.addMigrationListener(listener);
+    }
+    if (changelogCollectionName != null) {
+      runner.setChangelogCollectionName(changelogCollectionName);
+    }
+    if (lockCollectionName != null) {
+      runner.setLockCollectionName(lockCollectionName);
+    }
+    return runner;
+  }
+
+  private List<String> resolveDbNames() {
+    Set<String> resolved = new LinkedHashSet<>(dbNames);
+    if (dbNamePattern != null) {
+      for (String dbName : listDatabaseNames()) {
+        if (!SYSTEM_DATABASES.contains(dbName) && dbNamePattern.matcher(dbName).matches()) {
+          resolved.add(dbName);
+        }
+      }
+    }
+    return new ArrayList<>(resolved);
+  }
+
+  /**
+   * @return names of all databases of the cluster
+   */
+  protected Iterable<String> listDatabaseNames() {
+    return mongoClient.listDatabaseNames();
+  }
+
+  private void validateConfig() throws MongobeeConfigurationException {
+    if (!hasText(changeLogsScanPackage) && changeLogClasses.isEmpty()) {
+      throw new MongobeeConfigurationException("Scan package for changelogs is not set: use appropriate setter");
+    }
+    if (dbNames.isEmpty() && dbNamePattern == null) {
+      throw new MongobeeConfigurationException("No databases to migrate: set DB names or a DB name pattern");
+    }
+    if (parallelism < 1) {
+      throw new MongobeeConfigurationException("Parallelism must be positive");
+    }
+  }
+
+  /**
+   * Package name where @ChangeLog-annotated classes are kept. Several packages are separated by commas.
+   *
+   * @param changeLogsScanPackage package where your changelogs are
+   * @return MultiDatabaseMongobee object for fluent interface
+   */
+  public MultiDatabaseMongobee setChangeLogsScanPackage(String changeLogsScanPackage) {
+    this.changeLogsScanPackage = changeLogsScanPackage;
+    return this;
+  }
+
+  /**
+   * @param changeLogClasses classes annotated with @ChangeLog, executed in addition to the scan package
+   * @return MultiDatabaseMongobee object for fluent interface
+   * @see Mongobee#setChangeLogClasses(Class[])
+   */
+  public MultiDatabaseMongobee setChangeLogClasses(Class<?>... changeLogClasses) {
+    this.changeLogClasses = Collections.unmodifiableList(Arrays.asList(changeLogClasses.clone()));
+    return this;
+  }
+
+  /**
+   * @param scanCacheFile cache file of the classpath scan, null disables the cache (default)
+   * @return MultiDatabaseMongobee object for fluent interface
+   * @see Mongobee#setScanCacheFile(File)
+   */
+  public MultiDatabaseMongobee setScanCacheFile(File scanCacheFile) {
+    this.scanCacheFile = scanCacheFile;
+    return this;
+  }
+
+  /**
+   * @param dbNames databases to migrate
+   * @return MultiDatabaseMongobee object for fluent interface
+   */
+  public MultiDatabaseMongobee setDbNames(List<String> dbNames) {
+    this.dbNames.clear();
+    this.dbNames.addAll(dbNames);
+    return this;
+  }
+
+  /**
+   * Migrates also all databases of the cluster whose names match the pattern (except admin, local and config)
+   *
+   * @param dbNameRegex regular expression matching the whole database name
+   * @return MultiDatabaseMongobee object for fluent interface
+   */
+  public MultiDatabaseMongobee setDbNamePattern(String dbNameRegex) {
+    this.dbNamePattern = dbNameRegex != null ? Pattern.compile(dbNameRegex) : null;
+    return this;
+  }
+
+  /**
+   * @param parallelism maximum number of databases migrated at the same time, default is 4
+   * @return MultiDatabaseMongobee object for fluent interface
+   */
+  public MultiDatabaseMongobee setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * @param changelogCollectionName a new changelog collection name used in every database
+   * @return MultiDatabaseMongobee object for fluent interface
+   * @see Mongobee#setChangelogCollectionName(String)
+   */
+  public MultiDatabaseMongobee setChangelogCollectionName(String changelogCollectionName) {
+    this.changelogCollectionName = changelogCollectionName;
+    return this;
+  }
+
+  /**
+   * @param lockCollectionName a new lock collection name used in every database
+   * @return MultiDatabaseMongobee object for fluent interface
+   * @see Mongobee#setLockCollectionName(String)
+   */
+  public MultiDatabaseMongobee setLockCollectionName(String lockCollectionName) {
+    this.lockCollectionName = lockCollectionName;
+    return this;
+  }
+
+  /**
+   * @param upToDateCheck true to skip up-to-date databases after a single read
+   * @return MultiDatabaseMongobee object for fluent interface
+   * @see Mongobee#setUpToDateCheck(boolean)
+   */
+  public MultiDatabaseMongobee setUpToDateCheck(boolean upToDateCheck) {
+    this.upToDateCheck = upToDateCheck;
+    return this;
+  }
+
+  /**
+   * @param leaderWaitTimeoutMillis maximum time to wait for the lock holder of a database, 0 to skip the database
+   * @return MultiDatabaseMongobee object for fluent interface
+   * @see Mongobee#setWaitForLeader(long)
+   */
+  public MultiDatabaseMongobee setWaitForLeader(long leaderWaitTimeoutMillis) {
+    this.leaderWaitTimeout = leaderWaitTimeoutMillis;
+    return this;
+  }
+
+  /**
+   * @param listener listener registered in the runner of every database, called concurrently
+   * @return MultiDatabaseMongobee object for fluent interface
+   * @see Mongobee#addMigrationListener(MigrationListener)
+   */
+  public MultiDatabaseMongobee addMigrationListener(MigrationListener listener) {
+    this.listeners.add(listener);
+    return this;
+  }
+
+}
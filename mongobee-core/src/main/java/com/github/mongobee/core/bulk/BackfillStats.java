@@ -0,0 +1,177 @@
+package com.github.mongobee.core.bulk;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of the stages of a {@link BulkBackfill}. Busy time of a stage is the time its threads spent working,
+ * not waiting for the neighbouring stages; the stage with the highest utilization is the bottleneck.
+ *
+ * @since 0.14
+ */
+public class BackfillStats {
+
+  private final StageStats reader = new StageStats("reader", 1);
+  private final StageStats transformer;
+  private final StageStats writer = new StageStats("writer", 1);
+  private final AtomicLong skipped = new AtomicLong();
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong matched = new AtomicLong();
+  private final AtomicLong modified = new AtomicLong();
+  private final AtomicLong inserted = new AtomicLong();
+  private final AtomicLong deleted = new AtomicLong();
+  private final AtomicLong upserted = new AtomicLong();
+  private final AtomicLong throttledNanos = new AtomicLong();
+  private volatile long elapsedNanos;
+
+  BackfillStats(int transformerThreads) {
+    this.transformer = new StageStats("transformer", transformerThreads);
+  }
+
+  /**
+   * @return documents read from the source collection
+   */
+  public StageStats getReader() {
+    return reader;
+  }
+
+  /**
+   * @return documents transformed
+   */
+  public StageStats getTransformer() {
+    return transformer;
+  }
+
+  /**
+   * @return write operations applied
+   */
+  public StageStats getWriter() {
+    return writer;
+  }
+
+  /**
+   * @return documents for which the transformer returned no write
+   */
+  public long getSkipped() {
+    return skipped.get();
+  }
+
+  /**
+   * @return bulk writes issued
+   */
+  public long getBatches() {
+    return batches.get();
+  }
+
+  public long getMatched() {
+    return matched.get();
+  }
+
+  public long getModified() {
+    return modified.get();
+  }
+
+  public long getInserted() {
+    return inserted.get();
+  }
+
+  public long getDeleted() {
+    return deleted.get();
+  }
+
+  public long getUpserted() {
+    return upserted.get();
+  }
+
+  /**
+   * @return time the writer waited for the throttle
+   */
+  public long getThrottledMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(throttledNanos.get());
+  }
+
+  public long getElapsedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+  }
+
+  void skipped() {
+    skipped.incrementAndGet();
+  }
+
+  void batchWritten(int matched, int modified, int inserted, int deleted, int upserted) {
+    this.batches.incrementAndGet();
+    this.matched.addAndGet(matched);
+    this.modified.addAndGet(modified);
+    this.inserted.addAndGet(inserted);
+    this.deleted.addAndGet(deleted);
+    this.upserted.addAndGet(upserted);
+  }
+
+  void throttled(long nanos) {
+    throttledNanos.addAndGet(nanos);
+  }
+
+  void finished(long elapsedNanos) {
+    this.elapsedNanos = elapsedNanos;
+    reader.elapsedNanos = elapsedNanos;
+    transformer.elapsedNanos = elapsedNanos;
+    writer.elapsedNanos = elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "[Elapsed: " + getElapsedMillis() + " ms, " + reader + ", " + transformer + ", " + writer
+        + ", skipped: " + getSkipped() + ", batches: " + getBatches()
+        + ", matched: " + getMatched() + ", modified: " + getModified() + ", inserted: " + getInserted()
+        + ", deleted: " + getDeleted() + ", upserted: " + getUpserted() + ", throttled: " + getThrottledMillis() + " ms]";
+  }
+
+  /**
+   * Items processed by a stage and the time its threads spent on them
+   */
+  public static class StageStats {
+    private final String name;
+    private final int threads;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private volatile long elapsedNanos;
+
+    StageStats(String name, int threads) {
+      this.name = name;
+      this.threads = threads;
+    }
+
+    void record(long items, long nanos) {
+      count.addAndGet(items);
+      busyNanos.addAndGet(nanos);
+    }
+
+    public long getCount() {
+      return count.get();
+    }
+
+    public long getBusyMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(busyNanos.get());
+    }
+
+    /**
+     * @return items per second of the whole backfill
+     */
+    public double getThroughput() {
+      return elapsedNanos > 0 ? count.get() * 1e9 / elapsedNanos : 0;
+    }
+
+    /**
+     * @return share of the backfill time the threads of the stage were busy, from 0 to 1
+     */
+    public double getUtilization() {
+      return elapsedNanos > 0 ? (double) busyNanos.get() / elapsedNanos / threads : 0;
+    }
+
+    @Override
+    public String toString() {
+      return name + ": " + getCount() + " (" + String.format("%.0f/s, %.0f%% busy", getThroughput(), getUtilization() * 100) + ")";
+    }
+  }
+
+}
@@ -0,0 +1,461 @@
+package com.github.mongobee.core.bulk;
+
+import com.github.mongobee.core.exception.MongobeeConfigurationException;
+import com.github.mongobee.core.exception.MongobeeException;
+import com.github.mongobee.core.throttle.Throttle;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pipelined rewrite of a whole collection, to be called from changesets with the MongoDatabase they receive:
+ * <ol>
+ * <li>the calling thread reads the source collection with a cursor,</li>
+ * <li>transformer threads turn every document into a write (see {@link DocumentTransformer}),</li>
+ * <li>a writer thread applies the writes with unordered bulk writes of at most 1000 operations and 16MB.</li>
+ * </ol>
+ * The stages are connected by bounded queues, so a slow stage slows down the stages in front of it
+ * instead of buffering the collection in memory. With a {@link Throttle} the writer also limits its batches
+ * to the batch size of the throttle and acquires a permit per operation before each bulk write.
+ * <pre>
+ * new BulkBackfill(db.getCollection("users"))
+ *     .setProjection(Projections.include("name"))
+ *     .setTransformer(new DocumentTransformer() {
+ *       public WriteModel&lt;Document&gt; transform(Document user) {
+ *         return new UpdateOneModel&lt;&gt;(eq("_id", user.get("_id")), set("lowerName", user.getString("name").toLowerCase()));
+ *       }
+ *     })
+ *     .execute();
+ * </pre>
+ *
+ * @since 0.14
+ */
+public class BulkBackfill {
+  private static final Logger logger = LoggerFactory.getLogger(BulkBackfill.class);
+
+  private static final int DEFAULT_CURSOR_BATCH_SIZE = 1000;
+  private static final int DEFAULT_QUEUE_CAPACITY = 10000;
+  private static final int MAX_BATCH_OPERATIONS = 1000;
+  private static final int MAX_BATCH_BYTES = 16 * 1024 * 1024 - 16 * 1024; // leaves room for the command itself
+  private static final int OPERATION_OVERHEAD_BYTES = 64;
+  private static final long POLL_MILLIS = 100;
+
+  private static final Document END_OF_DOCUMENTS = new Document();
+  private static final SizedWrite END_OF_WRITES = new SizedWrite(new DeleteOneModel<Document>(new Document()), 0);
+
+  private final MongoCollection<Document> source;
+  private MongoCollection<Document> target;
+  private Bson filter = new Document();
+  private Bson projection;
+  private int cursorBatchSize = DEFAULT_CURSOR_BATCH_SIZE;
+  private long maxTimeMillis;
+  private DocumentTransformer transformer;
+  private int transformerThreads = Runtime.getRuntime().availableProcessors();
+  private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+  private int maxBatchOperations = MAX_BATCH_OPERATIONS;
+  private int maxBatchBytes = MAX_BATCH_BYTES;
+  private Throttle throttle;
+
+  /**
+   * @param source collection to read, also the collection written unless {@link #setTarget(MongoCollection)} is used
+   */
+  public BulkBackfill(MongoCollection<Document> source) {
+    this.source = source;
+    this.target = source;
+  }
+
+  /**
+   * Runs the backfill, returns when all writes have been applied
+   *
+   * @return throughput of the stages
+   * @throws MongobeeException when reading, transforming or writing failed; the writes of the batches
+   *                           written before the failure are kept
+   */
+  public BackfillStats execute() throws MongobeeException {
+    validateConfig();
+
+    final Pipeline pipeline = new Pipeline();
+    ExecutorService executor = Executors.newFixedThreadPool(transformerThreads + 1, new ThreadFactory() {
+      private final AtomicInteger counter = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "mongobee-backfill-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+    long start = System.nanoTime();
+    try {
+      List<Future<?>> stages = new ArrayList<>();
+      for (int i = 0; i < transformerThreads; i++) {
+        stages.add(executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            pipeline.transform();
+          }
+        }));
+      }
+      stages.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          pipeline.write();
+        }
+      }));
+
+      pipeline.read();
+
+      for (Future<?> stage : stages) {
+        stage.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      pipeline.fail(e);
+    } catch (ExecutionException e) {
+      pipeline.fail(e.getCause());
+    } finally {
+      executor.shutdownNow();
+      pipeline.stats.finished(System.nanoTime() - start);
+    }
+
+    Throwable failure = pipeline.failure.get();
+    if (failure != null) {
+      logger.error("Backfill of collection " + source.getNamespace() + " failed after " + pipeline.stats);
+      throw new MongobeeException("Backfill of collection " + source.getNamespace() + " failed: " + failure.getMessage(), failure);
+    }
+    logger.info("Backfill of collection " + source.getNamespace() + " finished " + pipeline.stats);
+    return pipeline.stats;
+  }
+
+  private void validateConfig() throws MongobeeConfigurationException {
+    if (transformer == null) {
+      throw new MongobeeConfigurationException("Transformer of the backfill is not set: use appropriate setter");
+    }
+    if (transformerThreads < 1 || queueCapacity < 1 || maxBatchOperations < 1 || maxBatchBytes < 1) {
+      throw new MongobeeConfigurationException("Threads, queue capacity and batch limits of the backfill must be positive");
+    }
+  }
+
+  /**
+   * @param filter documents of the source collection to backfill, default is all
+   * @return BulkBackfill object for fluent interface
+   */
+  public BulkBackfill setFilter(Bson filter) {
+    this.filter = filter;
+    return this;
+  }
+
+  /**
+   * @param projection fields read from the source collection, default is all
+   * @return BulkBackfill object for fluent interface
+   */
+  public BulkBackfill setProjection(Bson projection) {
+    this.projection = projection;
+    return this;
+  }
+
+  /**
+   * @param cursorBatchSize documents fetched from the server at once, default is 1000
+   * @return BulkBackfill object for fluent interface
+   */
+  public BulkBackfill setCursorBatchSize(int cursorBatchSize) {
+    this.cursorBatchSize = cursorBatchSize;
+    return this;
+  }
+
+  /**
+   * @param maxTime  server-side time limit of the cursor reading the source collection, 0 (default) for none
+   * @param timeUnit unit of maxTime
+   * @return BulkBackfill object for fluent interface
+   */
+  public BulkBackfill setMaxTime(long maxTime, TimeUnit timeUnit) {
+    this.maxTimeMillis = timeUnit.toMillis(maxTime);
+    return this;
+  }
+
+  /**
+   * @param transformer rewrite of a single document
+   * @return BulkBackfill object for fluent interface
+   */
+  public BulkBackfill setTransformer(DocumentTransformer transformer) {
+    this.transformer = transformer;
+    return this;
+  }
+
+  /**
+   * @param target collection the writes are applied to, default is the source collection
+   * @return BulkBackfill object for fluent interface
+   */
+  public BulkBackfill setTarget(MongoCollection<Document> target) {
+    this.target = target;
+    return this;
+  }
+
+  /**
+   * @param transformerThreads threads running the transformer, default is the number of processors
+   * @return BulkBackfill object for fluent interface
+   */
+  public BulkBackfill setTransformerThreads(int transformerThreads) {
+    this.transformerThreads = transformerThreads;
+    return this;
+  }
+
+  /**
+   * @param queueCapacity documents and writes buffered between the stages, default is 10000
+   * @return BulkBackfill object for fluent interface
+   */
+  public BulkBackfill setQueueCapacity(int queueCapacity) {
+    this.queueCapacity = queueCapacity;
+    return this;
+  }
+
+  /**
+   * @param maxBatchOperations operations of a single bulk write, default (and maximum of the server) is 1000
+   * @return BulkBackfill object for fluent interface
+   */
+  public BulkBackfill setMaxBatchOperations(int maxBatchOperations) {
+    this.maxBatchOperations = Math.min(maxBatchOperations, MAX_BATCH_OPERATIONS);
+    return this;
+  }
+
+  /**
+   * @param maxBatchBytes estimated size of a single bulk write, default (and maximum) is just below 16MB
+   * @return BulkBackfill object for fluent interface
+   */
+  public BulkBackfill setMaxBatchBytes(int maxBatchBytes) {
+    this.maxBatchBytes = Math.min(maxBatchBytes, MAX_BATCH_BYTES);
+    return this;
+  }
+
+  /**
+   * @param throttle pacing of the bulk writes, e.g. the throttle passed to the changeset, default is none
+   * @return BulkBackfill object for fluent interface
+   */
+  public BulkBackfill setThrottle(Throttle throttle) {
+    this.throttle = throttle;
+    return this;
+  }
+
+  /**
+   * State of a single execution
+   */
+  private class Pipeline {
+    private final BlockingQueue<Document> documents = new ArrayBlockingQueue<>(queueCapacity);
+    private final BlockingQueue<SizedWrite> writes = new ArrayBlockingQueue<>(queueCapacity);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final BackfillStats stats = new BackfillStats(transformerThreads);
+    private final CodecRegistry codecRegistry = target.getCodecRegistry();
+    private final BsonDocumentCodec bsonDocumentCodec = new BsonDocumentCodec();
+
+    void read() {
+      MongoCursor<Document> cursor = null;
+      try {
+        cursor = source.find(filter).projection(projection).batchSize(cursorBatchSize)
+            .maxTime(maxTimeMillis, TimeUnit.MILLISECONDS).iterator();
+        while (true) {
+          long start = System.nanoTime();
+          Document document = cursor.hasNext() ? cursor.next() : null;
+          if (document == null) {
+            break;
+          }
+          stats.getReader().record(1, System.nanoTime() - start);
+          if (!put(documents, document)) {
+            return;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        fail(e);
+        return;
+      } catch (Throwable e) {
+        fail(e);
+        return;
+      } finally {
+        if (cursor != null) {
+          cursor.close();
+        }
+      }
+      try {
+        for (int i = 0; i < transformerThreads; i++) {
+          if (!put(documents, END_OF_DOCUMENTS)) {
+            return;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        fail(e);
+      }
+    }
+
+    void transform() {
+      try {
+        while (true) {
+          Document document = take(documents);
+          if (document == null) {
+            return;
+          }
+          if (document == END_OF_DOCUMENTS) {
+            put(writes, END_OF_WRITES);
+            return;
+          }
+          long start = System.nanoTime();
+          WriteModel<Document> write = transformer.transform(document);
+          stats.getTransformer().record(1, System.nanoTime() - start);
+          if (write == null) {
+            stats.skipped();
+          } else if (!put(writes, new SizedWrite(write, estimateSize(write)))) {
+            return;
+          }
+        }
+      } catch (Throwable e) {
+        fail(e);
+      }
+    }
+
+    void write() {
+      try {
+        List<WriteModel<Document>> batch = new ArrayList<>();
+        int batchBytes = 0;
+        int ended = 0;
+        while (ended < transformerThreads) {
+          SizedWrite write = take(writes);
+          if (write == null) {
+            return;
+          }
+          if (write == END_OF_WRITES) {
+            ended++;
+            continue;
+          }
+          if (!batch.isEmpty() && (batch.size() >= batchOperations() || batchBytes + write.size > maxBatchBytes)) {
+            bulkWrite(batch);
+            batch = new ArrayList<>();
+            batchBytes = 0;
+          }
+          batch.add(write.model);
+          batchBytes += write.size;
+        }
+        if (!batch.isEmpty()) {
+          bulkWrite(batch);
+        }
+      } catch (Throwable e) {
+        fail(e);
+      }
+    }
+
+    private int batchOperations() {
+      return throttle != null ? Math.min(maxBatchOperations, throttle.getBatchSize()) : maxBatchOperations;
+    }
+
+    private void bulkWrite(List<WriteModel<Document>> batch) throws InterruptedException {
+      if (throttle != null) {
+        stats.throttled(throttle.acquire(batch.size()));
+      }
+      long start = System.nanoTime();
+      BulkWriteResult result = target.bulkWrite(batch, new BulkWriteOptions().ordered(false));
+      stats.getWriter().record(batch.size(), System.nanoTime() - start);
+      stats.batchWritten(result.getMatchedCount(), result.isModifiedCountAvailable() ? result.getModifiedCount() : 0,
+          result.getInsertedCount(), result.getDeletedCount(), result.getUpserts().size());
+    }
+
+    /**
+     * Encodes the documents of the write, so it is called by the transformer threads and not by the single writer
+     */
+    private int estimateSize(WriteModel<Document> write) {
+      if (write instanceof InsertOneModel) {
+        return OPERATION_OVERHEAD_BYTES + size(((InsertOneModel<Document>) write).getDocument());
+      } else if (write instanceof ReplaceOneModel) {
+        ReplaceOneModel<Document> replace = (ReplaceOneModel<Document>) write;
+        return OPERATION_OVERHEAD_BYTES + size(replace.getFilter()) + size(replace.getReplacement());
+      } else if (write instanceof UpdateOneModel) {
+        UpdateOneModel<Document> update = (UpdateOneModel<Document>) write;
+        return OPERATION_OVERHEAD_BYTES + size(update.getFilter()) + size(update.getUpdate());
+      } else if (write instanceof UpdateManyModel) {
+        UpdateManyModel<Document> update = (UpdateManyModel<Document>) write;
+        return OPERATION_OVERHEAD_BYTES + size(update.getFilter()) + size(update.getUpdate());
+      } else if (write instanceof DeleteOneModel) {
+        return OPERATION_OVERHEAD_BYTES + size(((DeleteOneModel<Document>) write).getFilter());
+      } else if (write instanceof DeleteManyModel) {
+        return OPERATION_OVERHEAD_BYTES + size(((DeleteManyModel<Document>) write).getFilter());
+      }
+      return OPERATION_OVERHEAD_BYTES;
+    }
+
+    private int size(Bson bson) {
+      BsonDocument document = bson.toBsonDocument(Document.class, codecRegistry);
+      return new RawBsonDocument(document, bsonDocumentCodec).getByteBuffer().remaining();
+    }
+
+    /**
+     * @return false if the backfill failed meanwhile
+     */
+    private <T> boolean put(BlockingQueue<T> queue, T item) throws InterruptedException {
+      while (failure.get() == null) {
+        if (queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * @return null if the backfill failed meanwhile
+     */
+    private <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+      while (failure.get() == null) {
+        T item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (item != null) {
+          return item;
+        }
+      }
+      return null;
+    }
+
+    void fail(Throwable e) {
+      failure.compareAndSet(null, e);
+    }
+  }
+
+  /**
+   * Write with its estimated size in bytes
+   */
+  private static final class SizedWrite {
+    private final WriteModel<Document> model;
+    private final int size;
+
+    SizedWrite(WriteModel<Document> model, int size) {
+      this.model = model;
+      this.size = size;
+    }
+  }
+
+}
@@ -0,0 +1,20 @@
+package com.github.mongobee.core.bulk;
+
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+
+/**
+ * Rewrites a single document read by {@link BulkBackfill}. Called concurrently by the transformer threads.
+ *
+ * @since 0.14
+ */
+public interface DocumentTransformer {
+
+  /**
+   * @param document document read from the source collection
+   * @return write applied to the target collection, null to leave the document untouched
+   * @throws Exception stops the backfill
+   */
+  WriteModel<Document> transform(Document document) throws Exception;
+
+}
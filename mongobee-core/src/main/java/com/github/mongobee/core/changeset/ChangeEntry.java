@@ -18,19 +18,44 @@ public class ChangeEntry {
   public static final String KEY_TIMESTAMP = "timestamp";
   public static final String KEY_CHANGELOGCLASS = "changeLogClass";
   public static final String KEY_CHANGESETMETHOD = "changeSetMethod";
+  public static final String KEY_CHECKSUM = "checksum";
+  public static final String KEY_STARTED_AT = "startedAt";
+  public static final String KEY_FINISHED_AT = "finishedAt";
+  public static final String KEY_DURATION = "durationMillis";
+  public static final String KEY_HOST = "host";
+  public static final String KEY_PROCESS_ID = "processId";
+  public static final String KEY_MONGOBEE_VERSION = "mongobeeVersion";
+  public static final String KEY_SUMMARY = "summary";
 
   private String changeId;
   private String author;
   private Date timestamp;
   private String changeLogClass;
   private String changeSetMethodName;
-  
+  private String checksum;
+  private Date startedAt;   // execution fields are null until the changeset has been executed
+  private Date finishedAt;
+  private Long durationMillis;
+  private String host;
+  private String processId;
+  private String mongobeeVersion;
+  private Document summary; // null if the changeset returned nothing to summarize
+
   public ChangeEntry(String changeId, String author, Date timestamp, String changeLogClass, String changeSetMethodName) {
+    this(changeId, author, timestamp, changeLogClass, changeSetMethodName, null);
+  }
+
+  /**
+   * @param checksum checksum of a runOnChange changeset, null for other changesets
+   */
+  public ChangeEntry(String changeId, String author, Date timestamp, String changeLogClass, String changeSetMethodName,
+                     String checksum) {
     this.changeId = changeId;
     this.author = author;
-    this.timestamp = new Date(timestamp.getTime());
+    this.timestamp = timestamp != null ? new Date(timestamp.getTime()) : null; // null when read with a projection
     this.changeLogClass = changeLogClass;
     this.changeSetMethodName = changeSetMethodName;
+    this.checksum = checksum;
   }
 
   public Document buildFullDBObject() {
@@ -41,10 +66,46 @@ public class ChangeEntry {
         .append(KEY_TIMESTAMP, this.timestamp)
         .append(KEY_CHANGELOGCLASS, this.changeLogClass)
         .append(KEY_CHANGESETMETHOD, this.changeSetMethodName);
+    if (this.checksum != null) {
+      entry.append(KEY_CHECKSUM, this.checksum);
+    }
+    if (this.startedAt != null) {
+      entry.append(KEY_STARTED_AT, this.startedAt)
+          .append(KEY_FINISHED_AT, this.finishedAt)
+          .append(KEY_DURATION, this.durationMillis)
+          .append(KEY_HOST, this.host)
+          .append(KEY_PROCESS_ID, this.processId)
+          .append(KEY_MONGOBEE_VERSION, this.mongobeeVersion);
+      if (this.summary != null) {
+        entry.append(KEY_SUMMARY, this.summary);
+      }
+    }
 
     return entry;
   }
 
+  /**
+   * Records the execution of the changeset, stored with the entry
+   *
+   * @param startedAt       start of the execution
+   * @param finishedAt      end of the execution
+   * @param durationMillis  duration of the execution, measured with a monotonic clock
+   * @param host            host the changeset was executed on
+   * @param processId       id of the process the changeset was executed in
+   * @param mongobeeVersion version of Mongobee, null if unknown
+   * @param summary         summary of the value returned by the changeset (e.g. documents matched and modified), may be null
+   */
+  public void recordExecution(Date startedAt, Date finishedAt, Long durationMillis, String host, String processId,
+                              String mongobeeVersion, Document summary) {
+    this.startedAt = startedAt != null ? new Date(startedAt.getTime()) : null; // null when read with a projection
+    this.finishedAt = finishedAt != null ? new Date(finishedAt.getTime()) : null;
+    this.durationMillis = durationMillis;
+    this.host = host;
+    this.processId = processId;
+    this.mongobeeVersion = mongobeeVersion;
+    this.summary = summary;
+  }
+
   public Document buildSearchQueryDBObject() {
     return new Document()
         .append(KEY_CHANGEID, this.changeId)
@@ -78,5 +139,43 @@ public class ChangeEntry {
   public String getChangeSetMethodName() {
     return this.changeSetMethodName;
   }
+
+  /**
+   * @return checksum of a runOnChange changeset, null for other changesets
+   */
+  public String getChecksum() {
+    return this.checksum;
+  }
+
+  /**
+   * @return start of the execution, null if the changeset has not been executed (or was applied by an older version)
+   */
+  public Date getStartedAt() {
+    return this.startedAt;
+  }
+
+  public Date getFinishedAt() {
+    return this.finishedAt;
+  }
+
+  public Long getDurationMillis() {
+    return this.durationMillis;
+  }
+
+  public String getHost() {
+    return this.host;
+  }
+
+  public String getProcessId() {
+    return this.processId;
+  }
+
+  public String getMongobeeVersion() {
+    return this.mongobeeVersion;
+  }
+
+  public Document getSummary() {
+    return this.summary;
+  }
   
 }
@@ -20,4 +20,19 @@ public @interface ChangeLog {
    * @return order
    */
   String order() default "";
+
+  /**
+   * Group of the changelog. Changelogs of one group are always executed one by one, in their order.
+   * When parallel execution is enabled, changelogs of different groups may run at the same time.
+   * If not set, the changelog belongs to the default group.
+   * @return group name
+   */
+  String group() default "";
+
+  /**
+   * Groups which have to be completely executed before this changelog starts.
+   * Only relevant when parallel execution is enabled.
+   * @return group names
+   */
+  String[] dependsOn() default {};
 }
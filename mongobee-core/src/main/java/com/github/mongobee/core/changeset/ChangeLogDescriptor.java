@@ -0,0 +1,177 @@
+package com.github.mongobee.core.changeset;
+
+import com.github.mongobee.core.exception.MongobeeChangeSetException;
+import com.github.mongobee.core.utils.ChangeSetComparator;
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.github.mongobee.core.utils.StringUtils.hasText;
+import static java.util.Arrays.asList;
+
+/**
+ * Immutable description of a changelog class with all data of its annotations and its changesets, sorted by
+ * {@link ChangeSet#order()} and checked for duplicated ids. A class is described only once per class loader,
+ * so repeated migrations in the same JVM do not read the annotations again.
+ * <p>The cached descriptor references the class and its methods, so it is held softly: a value of a
+ * {@link ClassValue} strongly referencing its class keeps the class loader from being unloaded (JDK-8136353),
+ * e.g. after redeploying a web application. A descriptor cleared under memory pressure is created again.</p>
+ *
+ * @since 0.14
+ */
+public final class ChangeLogDescriptor {
+
+  private static final ClassValue<SoftReference<Object>> DESCRIPTORS = new ClassValue<SoftReference<Object>>() {
+    @Override
+    protected SoftReference<Object> computeValue(Class<?> type) {
+      try {
+        return new SoftReference<Object>(new ChangeLogDescriptor(type));
+      } catch (MongobeeChangeSetException e) {
+        return new SoftReference<Object>(e); // cached as well, the class cannot change
+      }
+    }
+  };
+
+  private final Class<?> type;
+  private final String order;
+  private final String sortKey;
+  private final String group;
+  private final List<String> dependsOn;
+  private final List<ChangeSetDescriptor> changeSets;
+  private final Map<Class<? extends Annotation>, Annotation> annotations;
+
+  private ChangeLogDescriptor(Class<?> type) throws MongobeeChangeSetException {
+    ChangeLog annotation = type.getAnnotation(ChangeLog.class);
+    if (annotation == null) {
+      throw new MongobeeChangeSetException("Class " + type.getName() + " is not annotated with @ChangeLog");
+    }
+    this.type = type;
+    this.order = annotation.order();
+    this.sortKey = hasText(annotation.order()) ? annotation.order() : type.getCanonicalName();
+    this.group = annotation.group();
+    this.dependsOn = Collections.unmodifiableList(asList(annotation.dependsOn().clone()));
+    this.annotations = annotationsOf(type);
+
+    Set<String> ids = new HashSet<>();
+    List<ChangeSetDescriptor> changeSets = new ArrayList<>();
+    for (Method method : type.getDeclaredMethods()) {
+      if (method.isAnnotationPresent(ChangeSet.class)) {
+        ChangeSetDescriptor changeSet = new ChangeSetDescriptor(method);
+        if (!ids.add(changeSet.getId())) {
+          throw new MongobeeChangeSetException(String.format("Duplicated changeset id found: '%s'", changeSet.getId()));
+        }
+        if (changeSet.isRunAlways() && changeSet.isRunOnChange()) {
+          throw new MongobeeChangeSetException(String.format("Changeset '%s' cannot be both runAlways and runOnChange",
+              changeSet.getId()));
+        }
+        changeSets.add(changeSet);
+      }
+    }
+    Collections.sort(changeSets, new ChangeSetComparator());
+    this.changeSets = Collections.unmodifiableList(changeSets);
+  }
+
+  private ChangeLogDescriptor(ChangeLogDescriptor changeLog, List<ChangeSetDescriptor> changeSets) {
+    this.type = changeLog.type;
+    this.order = changeLog.order;
+    this.sortKey = changeLog.sortKey;
+    this.group = changeLog.group;
+    this.dependsOn = changeLog.dependsOn;
+    this.annotations = changeLog.annotations;
+    this.changeSets = Collections.unmodifiableList(new ArrayList<>(changeSets));
+  }
+
+  /**
+   * @param type class annotated with {@link ChangeLog}
+   * @return descriptor of the class, created on the first call only
+   * @throws MongobeeChangeSetException if the class is not a changelog or has duplicated changeset ids
+   */
+  public static ChangeLogDescriptor of(Class<?> type) throws MongobeeChangeSetException {
+    Object descriptor = DESCRIPTORS.get(type).get();
+    while (descriptor == null) {
+      DESCRIPTORS.remove(type);
+      descriptor = DESCRIPTORS.get(type).get();
+    }
+    if (descriptor instanceof MongobeeChangeSetException) {
+      MongobeeChangeSetException failure = (MongobeeChangeSetException) descriptor;
+      throw new MongobeeChangeSetException(failure.getMessage());
+    }
+    return (ChangeLogDescriptor) descriptor;
+  }
+
+  static Map<Class<? extends Annotation>, Annotation> annotationsOf(AnnotatedElement element) {
+    Map<Class<? extends Annotation>, Annotation> annotations = new HashMap<>();
+    for (Annotation annotation : element.getAnnotations()) {
+      annotations.put(annotation.annotationType(), annotation);
+    }
+    return Collections.unmodifiableMap(annotations);
+  }
+
+  /**
+   * @param changeSets subset of the changesets of this changelog, in their order
+   * @return descriptor of this changelog with the given changesets only
+   */
+  public ChangeLogDescriptor withChangeSets(List<ChangeSetDescriptor> changeSets) {
+    return new ChangeLogDescriptor(this, changeSets);
+  }
+
+  public Class<?> getType() {
+    return type;
+  }
+
+  public String getName() {
+    return type.getName();
+  }
+
+  /**
+   * @return {@link ChangeLog#order()}, may be empty
+   */
+  public String getOrder() {
+    return order;
+  }
+
+  /**
+   * @return value the changelogs are sorted by: the order or, if not set, the canonical class name
+   */
+  public String getSortKey() {
+    return sortKey;
+  }
+
+  public String getGroup() {
+    return group;
+  }
+
+  public List<String> getDependsOn() {
+    return dependsOn;
+  }
+
+  /**
+   * @return changesets sorted by their order
+   */
+  public List<ChangeSetDescriptor> getChangeSets() {
+    return changeSets;
+  }
+
+  /**
+   * @param annotationType type of the annotation, e.g. a Spring {@code @Profile}
+   * @return annotation of the changelog class or null if it is not present
+   */
+  public <A extends Annotation> A getAnnotation(Class<A> annotationType) {
+    return annotationType.cast(annotations.get(annotationType));
+  }
+
+  @Override
+  public String toString() {
+    return "ChangeLog [" + type.getName() + "]";
+  }
+
+}
@@ -42,10 +42,37 @@ public @interface ChangeSet {
    * @return should run always?
    */
   public boolean runAlways() default false;
-//
-//  /**
-//   * Executes the change the first time it is seen and each time the change set has been changed. <br/>
-//   * Optional (default is false)
-//   */
-//  public boolean runOnChange() default false;
+
+  /**
+   * Writes all buffered change entries before the change set is executed, so it can rely on the
+   * changelog collection being up to date. Only relevant when change entries are batched.
+   * Optional (default is false)
+   * @return should flush change entries before execution?
+   */
+  public boolean barrier() default false;
+
+  /**
+   * Executes the change set the first time it is seen and again each time its checksum changes. The checksum covers
+   * the bytecode of the method (not of the methods it calls), {@link #version()} and the content of {@link #resources()}.
+   * Cannot be combined with {@link #runAlways()}.
+   * Optional (default is false)
+   * @return should run on change?
+   */
+  public boolean runOnChange() default false;
+
+  /**
+   * Version of a runOnChange change set, part of its checksum. Changing it executes the change set again,
+   * e.g. when a method it calls has been changed.
+   * Optional (default is empty)
+   * @return version
+   */
+  public String version() default "";
+
+  /**
+   * Classpath resources read by a runOnChange change set (e.g. "data/countries.json"), their content is part
+   * of its checksum.
+   * Optional (default is none)
+   * @return resource names
+   */
+  public String[] resources() default {};
 }
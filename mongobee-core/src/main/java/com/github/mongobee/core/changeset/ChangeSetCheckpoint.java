@@ -0,0 +1,98 @@
+package com.github.mongobee.core.changeset;
+
+import com.github.mongobee.core.dao.ChangeEntryDao;
+import com.github.mongobee.core.exception.MongobeeConnectionException;
+import org.bson.Document;
+
+/**
+ * Resume token of a long-running changeset. A changeset method declaring a last parameter of this type
+ * saves its progress (e.g. the last processed _id) with {@link #save(Document)}; when the migration is restarted
+ * before the changeset completed, {@link #getToken()} returns the last saved progress.
+ * The checkpoint is removed once the changeset has been recorded in the changelog collection.
+ * <pre>
+ * &#64;ChangeSet(order = "001", id = "backfill", author = "testAuthor")
+ * public void backfill(MongoDatabase db, ChangeSetCheckpoint checkpoint) throws MongobeeConnectionException {
+ *   Document last = checkpoint.getToken();
+ *   Bson filter = last != null ? gt("_id", last.get("lastId")) : new Document();
+ *   for (Document user : db.getCollection("users").find(filter).sort(ascending("_id"))) {
+ *     // ...
+ *     checkpoint.save(new Document("lastId", user.get("_id")));
+ *   }
+ * }
+ * </pre>
+ *
+ * @since 0.14
+ */
+public class ChangeSetCheckpoint {
+
+  private final ChangeEntryDao dao;
+  private final ChangeEntry changeEntry;
+  private final long intervalMillis;
+
+  private boolean loaded;
+  private Document token;
+  private Document unsavedToken;
+  private long lastSaveTime;
+
+  /**
+   * @param dao            dao of the migrated database
+   * @param changeEntry    changeset the checkpoint belongs to
+   * @param intervalMillis minimal time between two writes of the token, 0 to write every token
+   */
+  public ChangeSetCheckpoint(ChangeEntryDao dao, ChangeEntry changeEntry, long intervalMillis) {
+    this.dao = dao;
+    this.changeEntry = changeEntry;
+    this.intervalMillis = intervalMillis;
+    this.lastSaveTime = System.currentTimeMillis();
+  }
+
+  /**
+   * @return the last saved token, null when the changeset starts from the beginning
+   * @throws MongobeeConnectionException exception
+   */
+  public synchronized Document getToken() throws MongobeeConnectionException {
+    if (!loaded) {
+      token = dao.getCheckpoint(changeEntry);
+      loaded = true;
+    }
+    return unsavedToken != null ? unsavedToken : token;
+  }
+
+  /**
+   * @return true if the changeset resumes an earlier, interrupted execution
+   * @throws MongobeeConnectionException exception
+   */
+  public boolean isResumed() throws MongobeeConnectionException {
+    return getToken() != null;
+  }
+
+  /**
+   * Records the progress of the changeset. The token is written when the checkpoint interval has elapsed
+   * since the last write, otherwise it is kept until the next call, {@link #flush()} or a failure of the changeset.
+   *
+   * @param token resume token
+   * @throws MongobeeConnectionException exception
+   */
+  public synchronized void save(Document token) throws MongobeeConnectionException {
+    this.unsavedToken = token;
+    if (System.currentTimeMillis() - lastSaveTime >= intervalMillis) {
+      flush();
+    }
+  }
+
+  /**
+   * Writes the last recorded token
+   *
+   * @throws MongobeeConnectionException exception
+   */
+  public synchronized void flush() throws MongobeeConnectionException {
+    if (unsavedToken != null) {
+      dao.saveCheckpoint(changeEntry, unsavedToken);
+      token = unsavedToken;
+      loaded = true;
+      unsavedToken = null;
+    }
+    lastSaveTime = System.currentTimeMillis();
+  }
+
+}
@@ -0,0 +1,514 @@
+package com.github.mongobee.core.changeset;
+
+import com.github.mongobee.core.exception.MongobeeChangeSetException;
+import com.github.mongobee.core.utils.ClassFileReader;
+import com.github.mongobee.core.utils.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checksum of a runOnChange changeset: SHA-256 of the bytecode of the method, the declared version and the content
+ * of the declared classpath resources.
+ * <p>Constant pool references in the bytecode are replaced by the constants they point to, branch targets by
+ * instruction indices, and debug attributes (line numbers, local variable names) are left out, so recompiling the
+ * class or changing other methods of the changelog does not change the checksum. The bodies of the lambdas of the
+ * method are part of its checksum. The bytecode of a class is read only once per class loader.</p>
+ *
+ * @since 0.14
+ */
+final class ChangeSetChecksum {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final ClassValue<Object> METHOD_DIGESTS = new ClassValue<Object>() {
+    @Override
+    protected Object computeValue(Class<?> type) {
+      try {
+        return readMethodDigests(type);
+      } catch (IOException e) {
+        return e; // cached as well, the class cannot change
+      }
+    }
+  };
+
+  // operand bytes of the other instructions, switches and wide are handled separately
+  private static final int[] OPERAND_BYTES = new int[256];
+
+  static {
+    OPERAND_BYTES[0x10] = 1; // bipush
+    OPERAND_BYTES[0x11] = 2; // sipush
+    for (int opcode = 0x15; opcode <= 0x19; opcode++) {
+      OPERAND_BYTES[opcode] = 1; // iload .. aload
+    }
+    for (int opcode = 0x36; opcode <= 0x3a; opcode++) {
+      OPERAND_BYTES[opcode] = 1; // istore .. astore
+    }
+    OPERAND_BYTES[0x84] = 2; // iinc
+    for (int opcode = 0x99; opcode <= 0xa8; opcode++) {
+      OPERAND_BYTES[opcode] = 2; // if<cond>, if_<cmp>, goto, jsr
+    }
+    OPERAND_BYTES[0xa9] = 1; // ret
+    OPERAND_BYTES[0xbc] = 1; // newarray
+    OPERAND_BYTES[0xc6] = 2; // ifnull
+    OPERAND_BYTES[0xc7] = 2; // ifnonnull
+    OPERAND_BYTES[0xc8] = 4; // goto_w
+    OPERAND_BYTES[0xc9] = 4; // jsr_w
+  }
+
+  private ChangeSetChecksum() {
+  }
+
+  /**
+   * @param method  changeset method
+   * @param version declared version
+   * @param resources declared classpath resources
+   * @return hex encoded SHA-256 checksum
+   * @throws MongobeeChangeSetException if the class file of the method or a resource cannot be read
+   */
+  static String compute(Method method, String version, String[] resources) throws MongobeeChangeSetException {
+    Class<?> type = method.getDeclaringClass();
+    Object methodDigests = METHOD_DIGESTS.get(type);
+    if (methodDigests instanceof IOException) {
+      throw new MongobeeChangeSetException("Bytecode of ChangeLog " + type.getName() + " cannot be read: "
+          + ((IOException) methodDigests).getMessage());
+    }
+    @SuppressWarnings("unchecked")
+    byte[] methodDigest = ((Map<String, byte[]>) methodDigests).get(method.getName() + descriptor(method));
+    if (methodDigest == null) {
+      throw new MongobeeChangeSetException("Bytecode of ChangeSet method " + method.getName() + " not found in "
+          + type.getName());
+    }
+
+    MessageDigest digest = sha256();
+    digest.update(methodDigest);
+    digest.update(version.getBytes(UTF_8));
+    digest.update((byte) 0);
+    ClassLoader classLoader = type.getClassLoader() != null ? type.getClassLoader() : ClassLoader.getSystemClassLoader();
+    for (String resource : resources) {
+      String name = resource.startsWith("/") ? resource.substring(1) : resource;
+      InputStream in = classLoader.getResourceAsStream(name);
+      if (in == null) {
+        throw new MongobeeChangeSetException("Resource " + resource + " of ChangeSet method " + method.getName()
+            + " not found");
+      }
+      try {
+        digest.update(name.getBytes(UTF_8));
+        digest.update((byte) 0);
+        digest.update(ClassFileReader.readFully(in));
+      } catch (IOException e) {
+        throw new MongobeeChangeSetException("Resource " + resource + " of ChangeSet method " + method.getName()
+            + " cannot be read: " + e.getMessage());
+      }
+    }
+
+    return StringUtils.toHex(digest.digest());
+  }
+
+  private static Map<String, byte[]> readMethodDigests(Class<?> type) throws IOException {
+    ClassLoader classLoader = type.getClassLoader() != null ? type.getClassLoader() : ClassLoader.getSystemClassLoader();
+    InputStream classFile = classLoader.getResourceAsStream(type.getName().replace('.', '/') + ".class");
+    if (classFile == null) {
+      throw new IOException("class file not found");
+    }
+    try {
+      return parse(new ClassFileReader(ClassFileReader.readFully(classFile)));
+    } catch (RuntimeException e) {
+      throw new IOException("Malformed class file", e);
+    }
+  }
+
+  /**
+   * @return digests of the Code attributes by method name and descriptor
+   */
+  private static Map<String, byte[]> parse(ClassFileReader in) throws IOException {
+    in.skip(2); // access flags
+    String className = in.className(in.readUnsignedShort());
+    in.skip(2); // super class
+    in.skip(2 * in.readUnsignedShort()); // interfaces
+    in.skipMembers(); // fields
+
+    Map<String, Integer> codeOffsets = new HashMap<>();
+    int methods = in.readUnsignedShort();
+    for (int i = 0; i < methods; i++) {
+      in.skip(2); // access flags
+      String name = in.utf8(in.readUnsignedShort());
+      String descriptor = in.utf8(in.readUnsignedShort());
+      int attributes = in.readUnsignedShort();
+      for (int j = 0; j < attributes; j++) {
+        String attributeName = in.utf8(in.readUnsignedShort());
+        int length = in.readInt();
+        if ("Code".equals(attributeName)) {
+          codeOffsets.put(name + descriptor, in.position());
+        }
+        in.skip(length);
+      }
+    }
+
+    int[] bootstrapMethods = new int[0];
+    int attributes = in.readUnsignedShort();
+    for (int i = 0; i < attributes; i++) {
+      String attributeName = in.utf8(in.readUnsignedShort());
+      int length = in.readInt();
+      int end = in.position() + length;
+      if ("BootstrapMethods".equals(attributeName)) {
+        bootstrapMethods = new int[in.readUnsignedShort()];
+        for (int j = 0; j < bootstrapMethods.length; j++) {
+          bootstrapMethods[j] = in.position();
+          in.skip(2); // method handle
+          in.skip(2 * in.readUnsignedShort()); // arguments
+        }
+      }
+      in.position(end);
+    }
+
+    MethodDigests methodDigests = new MethodDigests(in, className, codeOffsets, bootstrapMethods);
+    Map<String, byte[]> digests = new HashMap<>();
+    for (String method : codeOffsets.keySet()) {
+      digests.put(method, methodDigests.digest(method));
+    }
+    return digests;
+  }
+
+  /**
+   * Digests of the Code attributes of one class. Branch targets and exception handler ranges are digested as
+   * instruction indices instead of byte offsets, and the padding of switches is left out, so an instruction
+   * growing elsewhere in the method (e.g. ldc becoming ldc_w because the constant pool of the class grew past
+   * 256 entries) does not change the digest. Lambda bodies are digested as part of the method creating the lambda.
+   */
+  private static final class MethodDigests {
+    private final ClassFileReader in;
+    private final String className;
+    private final Map<String, Integer> codeOffsets;
+    private final int[] bootstrapMethods;
+    private final Map<String, byte[]> digests = new HashMap<>();
+    private final Set<String> digesting = new HashSet<>();
+
+    MethodDigests(ClassFileReader in, String className, Map<String, Integer> codeOffsets, int[] bootstrapMethods) {
+      this.in = in;
+      this.className = className;
+      this.codeOffsets = codeOffsets;
+      this.bootstrapMethods = bootstrapMethods;
+    }
+
+    byte[] digest(String method) throws IOException {
+      byte[] methodDigest = digests.get(method);
+      if (methodDigest == null) {
+        digesting.add(method);
+        int position = in.position();
+        in.position(codeOffsets.get(method));
+        methodDigest = digestCode();
+        in.position(position);
+        digesting.remove(method);
+        digests.put(method, methodDigest);
+      }
+      return methodDigest;
+    }
+
+    private byte[] digestCode() throws IOException {
+      MessageDigest digest = sha256();
+      in.skip(4); // max stack and locals, follow from the code
+      byte[] code = in.readBytes(in.readInt());
+
+      // index of the instruction starting at each offset, -1 inside instructions
+      int[] instructions = new int[code.length + 1];
+      Arrays.fill(instructions, -1);
+      int count = 0;
+      for (int pc = 0; pc < code.length; pc += instructionLength(code, pc)) {
+        instructions[pc] = count++;
+      }
+      instructions[code.length] = count;
+
+      int pc = 0;
+      while (pc < code.length) {
+        int opcode = code[pc] & 0xFF;
+        int length = instructionLength(code, pc);
+        switch (opcode) {
+          case 0x12: // ldc
+            digest.update((byte) opcode);
+            digestConstant(digest, code[pc + 1] & 0xFF);
+            break;
+          case 0x13: // ldc_w
+          case 0x14: // ldc2_w
+          case 0xb2: // getstatic
+          case 0xb3: // putstatic
+          case 0xb4: // getfield
+          case 0xb5: // putfield
+          case 0xb6: // invokevirtual
+          case 0xb7: // invokespecial
+          case 0xb8: // invokestatic
+          case 0xbb: // new
+          case 0xbd: // anewarray
+          case 0xc0: // checkcast
+          case 0xc1: // instanceof
+          case 0xb9: // invokeinterface, the count follows from the descriptor
+          case 0xba: // invokedynamic
+            digest.update((byte) (opcode == 0x13 ? 0x12 : opcode)); // ldc_w only because the constant pool is larger
+            digestConstant(digest, readUnsignedShort(code, pc + 1));
+            break;
+          case 0xc5: // multianewarray
+            digest.update((byte) opcode);
+            digestConstant(digest, readUnsignedShort(code, pc + 1));
+            digest.update(code[pc + 3]);
+            break;
+          case 0xc8: // goto_w, only because the method is larger
+          case 0xc9: // jsr_w
+            digest.update((byte) (opcode == 0xc8 ? 0xa7 : 0xa8));
+            updateLong(digest, target(instructions, pc, readInt(code, pc + 1)));
+            break;
+          case 0xaa: { // tableswitch
+            int base = pc + 1 + padding(pc);
+            int low = readInt(code, base + 4);
+            int high = readInt(code, base + 8);
+            digest.update((byte) opcode);
+            updateLong(digest, target(instructions, pc, readInt(code, base)));
+            updateLong(digest, low);
+            updateLong(digest, high);
+            for (int i = 0; i < high - low + 1; i++) {
+              updateLong(digest, target(instructions, pc, readInt(code, base + 12 + 4 * i)));
+            }
+            break;
+          }
+          case 0xab: { // lookupswitch
+            int base = pc + 1 + padding(pc);
+            int pairs = readInt(code, base + 4);
+            digest.update((byte) opcode);
+            updateLong(digest, target(instructions, pc, readInt(code, base)));
+            updateLong(digest, pairs);
+            for (int i = 0; i < pairs; i++) {
+              updateLong(digest, readInt(code, base + 8 + 8 * i));
+              updateLong(digest, target(instructions, pc, readInt(code, base + 12 + 8 * i)));
+            }
+            break;
+          }
+          default:
+            if ((opcode >= 0x99 && opcode <= 0xa8) || opcode == 0xc6 || opcode == 0xc7) { // if*, goto, jsr
+              digest.update((byte) opcode);
+              updateLong(digest, target(instructions, pc, (short) readUnsignedShort(code, pc + 1)));
+            } else {
+              digest.update(code, pc, length);
+            }
+        }
+        pc += length;
+      }
+
+      int exceptionHandlers = in.readUnsignedShort();
+      for (int i = 0; i < exceptionHandlers; i++) {
+        for (int j = 0; j < 3; j++) { // start, end and handler pc
+          updateLong(digest, target(instructions, 0, in.readUnsignedShort()));
+        }
+        int catchType = in.readUnsignedShort();
+        if (catchType != 0) {
+          digestConstant(digest, catchType);
+        } else {
+          digest.update((byte) 0);
+        }
+      }
+      // line numbers, local variables and stack map frames are not read
+      return digest.digest();
+    }
+
+    /**
+     * Digests a constant pool entry as the constant it describes instead of its index
+     */
+    private void digestConstant(MessageDigest digest, int index) throws IOException {
+      int tag = in.tag(index);
+      digest.update((byte) tag);
+      switch (tag) {
+        case ClassFileReader.UTF8:
+          digest.update(in.utf8(index).getBytes(UTF_8));
+          digest.update((byte) 0);
+          break;
+        case ClassFileReader.INTEGER:
+        case ClassFileReader.FLOAT:
+          updateLong(digest, in.entryInt(index));
+          break;
+        case ClassFileReader.LONG:
+        case ClassFileReader.DOUBLE:
+          updateLong(digest, in.entryLong(index));
+          break;
+        case ClassFileReader.METHOD_HANDLE:
+          digest.update((byte) in.entryByte(index));
+          digestMethodHandleTarget(digest, in.entryShort(index, 1));
+          break;
+        case ClassFileReader.DYNAMIC:
+        case ClassFileReader.INVOKE_DYNAMIC:
+          digestBootstrapMethod(digest, in.entryShort(index, 0));
+          digestConstant(digest, in.entryShort(index, 2));
+          break;
+        case ClassFileReader.FIELD_REF:
+        case ClassFileReader.METHOD_REF:
+        case ClassFileReader.INTERFACE_METHOD_REF:
+        case ClassFileReader.NAME_AND_TYPE:
+          digestConstant(digest, in.entryShort(index, 0));
+          digestConstant(digest, in.entryShort(index, 2));
+          break;
+        case ClassFileReader.CLASS:
+        case ClassFileReader.STRING:
+        case ClassFileReader.METHOD_TYPE:
+        case ClassFileReader.MODULE:
+        case ClassFileReader.PACKAGE:
+          digestConstant(digest, in.entryShort(index, 0));
+          break;
+        default:
+          throw new IOException("Invalid constant pool reference " + index);
+      }
+    }
+
+    /**
+     * Digests the bootstrap method with its arguments, e.g. the implementation method of a lambda
+     */
+    private void digestBootstrapMethod(MessageDigest digest, int bootstrapMethod) throws IOException {
+      if (bootstrapMethod >= bootstrapMethods.length) {
+        throw new IOException("Invalid bootstrap method reference " + bootstrapMethod);
+      }
+      int position = in.position();
+      in.position(bootstrapMethods[bootstrapMethod]);
+      int methodHandle = in.readUnsignedShort();
+      int[] arguments = new int[in.readUnsignedShort()];
+      for (int i = 0; i < arguments.length; i++) {
+        arguments[i] = in.readUnsignedShort();
+      }
+      in.position(position);
+
+      digestConstant(digest, methodHandle);
+      updateLong(digest, arguments.length);
+      for (int argument : arguments) {
+        digestConstant(digest, argument);
+      }
+    }
+
+    /**
+     * A lambda body is compiled to a synthetic method of the class, numbered in the order of the lambdas of the
+     * class. It is digested by its code instead of its name, so the body is covered and lambdas added to other
+     * methods do not matter.
+     */
+    private void digestMethodHandleTarget(MessageDigest digest, int reference) throws IOException {
+      int tag = in.tag(reference);
+      if (tag == ClassFileReader.METHOD_REF || tag == ClassFileReader.INTERFACE_METHOD_REF) {
+        int nameAndType = in.entryShort(reference, 2);
+        String name = in.utf8(in.entryShort(nameAndType, 0));
+        String method = name + in.utf8(in.entryShort(nameAndType, 2));
+        if (name.startsWith("lambda$") && className.equals(in.className(in.entryShort(reference, 0)))
+            && codeOffsets.containsKey(method) && !digesting.contains(method)) {
+          digest.update((byte) tag);
+          digest.update(digest(method));
+          return;
+        }
+      }
+      digestConstant(digest, reference);
+    }
+  }
+
+  private static int instructionLength(byte[] code, int pc) {
+    int opcode = code[pc] & 0xFF;
+    switch (opcode) {
+      case 0x12: // ldc
+        return 2;
+      case 0x13: // ldc_w
+      case 0x14: // ldc2_w
+      case 0xb2: // getstatic
+      case 0xb3: // putstatic
+      case 0xb4: // getfield
+      case 0xb5: // putfield
+      case 0xb6: // invokevirtual
+      case 0xb7: // invokespecial
+      case 0xb8: // invokestatic
+      case 0xbb: // new
+      case 0xbd: // anewarray
+      case 0xc0: // checkcast
+      case 0xc1: // instanceof
+        return 3;
+      case 0xc5: // multianewarray
+        return 4;
+      case 0xb9: // invokeinterface
+      case 0xba: // invokedynamic
+        return 5;
+      case 0xaa: { // tableswitch
+        int base = pc + 1 + padding(pc);
+        return base - pc + 12 + (readInt(code, base + 8) - readInt(code, base + 4) + 1) * 4;
+      }
+      case 0xab: { // lookupswitch
+        int base = pc + 1 + padding(pc);
+        return base - pc + 8 + readInt(code, base + 4) * 8;
+      }
+      case 0xc4: // wide
+        return (code[pc + 1] & 0xFF) == 0x84 ? 6 : 4;
+      default:
+        return 1 + OPERAND_BYTES[opcode];
+    }
+  }
+
+  /**
+   * @return index of the instruction at the offset relative to the instruction at pc
+   */
+  private static int target(int[] instructions, int pc, int offset) throws IOException {
+    int target = pc + offset;
+    if (target < 0 || target >= instructions.length || instructions[target] < 0) {
+      throw new IOException("Invalid branch target " + target);
+    }
+    return instructions[target];
+  }
+
+  private static void updateLong(MessageDigest digest, long value) {
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      digest.update((byte) (value >>> shift));
+    }
+  }
+
+  private static int padding(int pc) {
+    return (4 - (pc + 1) % 4) % 4;
+  }
+
+  private static int readUnsignedShort(byte[] code, int offset) {
+    return (code[offset] & 0xFF) << 8 | code[offset + 1] & 0xFF;
+  }
+
+  private static int readInt(byte[] code, int offset) {
+    return readUnsignedShort(code, offset) << 16 | readUnsignedShort(code, offset + 2);
+  }
+
+  private static String descriptor(Method method) {
+    StringBuilder descriptor = new StringBuilder("(");
+    for (Class<?> parameterType : method.getParameterTypes()) {
+      appendDescriptor(descriptor, parameterType);
+    }
+    descriptor.append(')');
+    appendDescriptor(descriptor, method.getReturnType());
+    return descriptor.toString();
+  }
+
+  private static void appendDescriptor(StringBuilder descriptor, Class<?> type) {
+    if (type.isArray()) {
+      descriptor.append(type.getName().replace('.', '/'));
+    } else if (!type.isPrimitive()) {
+      descriptor.append('L').append(type.getName().replace('.', '/')).append(';');
+    } else if (type == void.class) {
+      descriptor.append('V');
+    } else if (type == boolean.class) {
+      descriptor.append('Z');
+    } else if (type == long.class) {
+      descriptor.append('J');
+    } else {
+      descriptor.append(Character.toUpperCase(type.getName().charAt(0))); // B, C, D, F, I, S
+    }
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+package com.github.mongobee.core.changeset;
+
+import com.github.mongobee.core.exception.MongobeeChangeSetException;
+import com.github.mongobee.core.invocation.DatabaseOptions;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Immutable description of a changeset method with all data of its annotations, built once per changelog class
+ * by {@link ChangeLogDescriptor#of(Class)}.
+ *
+ * @since 0.14
+ */
+public final class ChangeSetDescriptor {
+
+  private final Method method;
+  private final String changeLogClassName;
+  private final String id;
+  private final String author;
+  private final String order;
+  private final boolean runAlways;
+  private final boolean barrier;
+  private final boolean runOnChange;
+  private final String version;
+  private final String[] resources;
+  private volatile String checksum; // computed on first use, runOnChange changesets only
+  private final DatabaseOptions databaseOptions;
+  private final Map<Class<? extends Annotation>, Annotation> annotations;
+
+  ChangeSetDescriptor(Method method) throws MongobeeChangeSetException {
+    ChangeSet annotation = method.getAnnotation(ChangeSet.class);
+    this.method = method;
+    this.changeLogClassName = method.getDeclaringClass().getName();
+    this.id = annotation.id();
+    this.author = annotation.author();
+    this.order = annotation.order();
+    this.runAlways = annotation.runAlways();
+    this.barrier = annotation.barrier();
+    this.runOnChange = annotation.runOnChange();
+    this.version = annotation.version();
+    this.resources = annotation.resources().clone();
+    this.databaseOptions = DatabaseOptions.of(method.getAnnotation(ChangeSetOptions.class));
+    this.annotations = ChangeLogDescriptor.annotationsOf(method);
+  }
+
+  public Method getMethod() {
+    return method;
+  }
+
+  public String getMethodName() {
+    return method.getName();
+  }
+
+  public String getChangeLogClassName() {
+    return changeLogClassName;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getAuthor() {
+    return author;
+  }
+
+  public String getOrder() {
+    return order;
+  }
+
+  public boolean isRunAlways() {
+    return runAlways;
+  }
+
+  public boolean isBarrier() {
+    return barrier;
+  }
+
+  public boolean isRunOnChange() {
+    return runOnChange;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  /**
+   * @return driver settings declared with {@link ChangeSetOptions}, null to use the settings of the connection
+   */
+  public DatabaseOptions getDatabaseOptions() {
+    return databaseOptions;
+  }
+
+  /**
+   * Checksum of the bytecode of the method, {@link #getVersion()} and the declared resources,
+   * computed once per changeset.
+   *
+   * @return hex encoded checksum or null if the changeset is not runOnChange
+   * @throws MongobeeChangeSetException if the bytecode of the method or a resource cannot be read
+   */
+  public String getChecksum() throws MongobeeChangeSetException {
+    if (!runOnChange) {
+      return null;
+    }
+    String checksum = this.checksum;
+    if (checksum == null) {
+      checksum = ChangeSetChecksum.compute(method, version, resources);
+      this.checksum = checksum;
+    }
+    return checksum;
+  }
+
+  /**
+   * @param annotationType type of the annotation, e.g. a Spring {@code @Profile}
+   * @return annotation of the changeset method or null if it is not present
+   */
+  public <A extends Annotation> A getAnnotation(Class<A> annotationType) {
+    return annotationType.cast(annotations.get(annotationType));
+  }
+
+  /**
+   * @return new change entry of the changeset, with the current time and the checksum of a runOnChange changeset
+   * @throws MongobeeChangeSetException if the checksum of a runOnChange changeset cannot be computed
+   */
+  public ChangeEntry createChangeEntry() throws MongobeeChangeSetException {
+    return new ChangeEntry(id, author, new Date(), changeLogClassName, method.getName(), getChecksum());
+  }
+
+  @Override
+  public String toString() {
+    return "ChangeSet [id=" + id + ", author=" + author + ", method=" + changeLogClassName + "." + method.getName() + "]";
+  }
+
+}
@@ -0,0 +1,42 @@
+package com.github.mongobee.core.changeset;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Driver settings of the database passed to a changeset, overriding the settings of the connection, e.g. to
+ * rewrite a large collection idempotently with an acknowledged instead of a majority write concern.
+ * Applies to the MongoDatabase, DB, Jongo and MongoTemplate arguments of the changeset; change entries are always
+ * written with a majority write concern.
+ * @since 0.14
+ * @see ChangeSet
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ChangeSetOptions {
+
+  /**
+   * Write concern by name ("ACKNOWLEDGED", "W1", "W2", "MAJORITY", "JOURNALED", "UNACKNOWLEDGED")
+   * or number of acknowledging members.
+   * Optional (default is the write concern of the connection)
+   * @return write concern
+   */
+  String writeConcern() default "";
+
+  /**
+   * Read preference by name ("primary", "primaryPreferred", "secondary", "secondaryPreferred", "nearest").
+   * Optional (default is the read preference of the connection)
+   * @return read preference
+   */
+  String readPreference() default "";
+
+  /**
+   * Read concern level ("local", "majority").
+   * Optional (default is the read concern of the connection)
+   * @return read concern
+   */
+  String readConcern() default "";
+
+}
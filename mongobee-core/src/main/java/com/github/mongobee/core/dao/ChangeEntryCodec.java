@@ -0,0 +1,145 @@
+package com.github.mongobee.core.dao;
+
+import com.github.mongobee.core.changeset.ChangeEntry;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+
+import java.util.Date;
+
+/**
+ * Writes and reads {@link ChangeEntry} directly, without an intermediate {@link org.bson.Document}.
+ * The fields are the ones of {@link ChangeEntry#buildFullDBObject()}, the checksum and the execution fields are written only when set; missing fields, e.g. of entries read
+ * with a projection, are decoded as null.
+ *
+ * @since 0.14
+ */
+public class ChangeEntryCodec implements Codec<ChangeEntry> {
+
+  private static final DocumentCodec SUMMARY_CODEC = new DocumentCodec();
+
+  @Override
+  public void encode(BsonWriter writer, ChangeEntry changeEntry, EncoderContext encoderContext) {
+    writer.writeStartDocument();
+    writeString(writer, ChangeEntry.KEY_CHANGEID, changeEntry.getChangeId());
+    writeString(writer, ChangeEntry.KEY_AUTHOR, changeEntry.getAuthor());
+    writer.writeName(ChangeEntry.KEY_TIMESTAMP);
+    if (changeEntry.getTimestamp() != null) {
+      writer.writeDateTime(changeEntry.getTimestamp().getTime());
+    } else {
+      writer.writeNull();
+    }
+    writeString(writer, ChangeEntry.KEY_CHANGELOGCLASS, changeEntry.getChangeLogClass());
+    writeString(writer, ChangeEntry.KEY_CHANGESETMETHOD, changeEntry.getChangeSetMethodName());
+    if (changeEntry.getChecksum() != null) {
+      writer.writeString(ChangeEntry.KEY_CHECKSUM, changeEntry.getChecksum());
+    }
+    if (changeEntry.getStartedAt() != null) {
+      writeDate(writer, ChangeEntry.KEY_STARTED_AT, changeEntry.getStartedAt());
+      writeDate(writer, ChangeEntry.KEY_FINISHED_AT, changeEntry.getFinishedAt());
+      writer.writeName(ChangeEntry.KEY_DURATION);
+      if (changeEntry.getDurationMillis() != null) {
+        writer.writeInt64(changeEntry.getDurationMillis());
+      } else {
+        writer.writeNull();
+      }
+      writeString(writer, ChangeEntry.KEY_HOST, changeEntry.getHost());
+      writeString(writer, ChangeEntry.KEY_PROCESS_ID, changeEntry.getProcessId());
+      writeString(writer, ChangeEntry.KEY_MONGOBEE_VERSION, changeEntry.getMongobeeVersion());
+      if (changeEntry.getSummary() != null) {
+        writer.writeName(ChangeEntry.KEY_SUMMARY);
+        SUMMARY_CODEC.encode(writer, changeEntry.getSummary(), encoderContext);
+      }
+    }
+    writer.writeEndDocument();
+  }
+
+  @Override
+  public ChangeEntry decode(BsonReader reader, DecoderContext decoderContext) {
+    String changeId = null;
+    String author = null;
+    Date timestamp = null;
+    String changeLogClass = null;
+    String changeSetMethod = null;
+    String checksum = null;
+    Date startedAt = null;
+    Date finishedAt = null;
+    Long durationMillis = null;
+    String host = null;
+    String processId = null;
+    String mongobeeVersion = null;
+    Document summary = null;
+
+    reader.readStartDocument();
+    while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+      String name = reader.readName();
+      if (reader.getCurrentBsonType() == BsonType.NULL) {
+        reader.readNull();
+      } else if (ChangeEntry.KEY_CHANGEID.equals(name)) {
+        changeId = reader.readString();
+      } else if (ChangeEntry.KEY_AUTHOR.equals(name)) {
+        author = reader.readString();
+      } else if (ChangeEntry.KEY_TIMESTAMP.equals(name)) {
+        timestamp = new Date(reader.readDateTime());
+      } else if (ChangeEntry.KEY_CHANGELOGCLASS.equals(name)) {
+        changeLogClass = reader.readString();
+      } else if (ChangeEntry.KEY_CHANGESETMETHOD.equals(name)) {
+        changeSetMethod = reader.readString();
+      } else if (ChangeEntry.KEY_CHECKSUM.equals(name)) {
+        checksum = reader.readString();
+      } else if (ChangeEntry.KEY_STARTED_AT.equals(name)) {
+        startedAt = new Date(reader.readDateTime());
+      } else if (ChangeEntry.KEY_FINISHED_AT.equals(name)) {
+        finishedAt = new Date(reader.readDateTime());
+      } else if (ChangeEntry.KEY_DURATION.equals(name)) {
+        durationMillis = reader.getCurrentBsonType() == BsonType.INT32 ? reader.readInt32() : reader.readInt64();
+      } else if (ChangeEntry.KEY_HOST.equals(name)) {
+        host = reader.readString();
+      } else if (ChangeEntry.KEY_PROCESS_ID.equals(name)) {
+        processId = reader.readString();
+      } else if (ChangeEntry.KEY_MONGOBEE_VERSION.equals(name)) {
+        mongobeeVersion = reader.readString();
+      } else if (ChangeEntry.KEY_SUMMARY.equals(name)) {
+        summary = SUMMARY_CODEC.decode(reader, decoderContext);
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.readEndDocument();
+
+    ChangeEntry changeEntry = new ChangeEntry(changeId, author, timestamp, changeLogClass, changeSetMethod, checksum);
+    if (startedAt != null || durationMillis != null) {
+      changeEntry.recordExecution(startedAt, finishedAt, durationMillis, host, processId, mongobeeVersion, summary);
+    }
+    return changeEntry;
+  }
+
+  @Override
+  public Class<ChangeEntry> getEncoderClass() {
+    return ChangeEntry.class;
+  }
+
+  private static void writeDate(BsonWriter writer, String name, Date value) {
+    writer.writeName(name);
+    if (value != null) {
+      writer.writeDateTime(value.getTime());
+    } else {
+      writer.writeNull();
+    }
+  }
+
+  private static void writeString(BsonWriter writer, String name, String value) {
+    writer.writeName(name);
+    if (value != null) {
+      writer.writeString(value);
+    } else {
+      writer.writeNull();
+    }
+  }
+
+}
@@ -4,17 +4,35 @@ import com.github.mongobee.core.Mongobee;
 import com.github.mongobee.core.changeset.ChangeEntry;
 import com.github.mongobee.core.exception.MongobeeConfigurationException;
 import com.github.mongobee.core.exception.MongobeeConnectionException;
+import com.github.mongobee.core.exception.MongobeeLockException;
 import com.github.mongobee.core.utils.StringUtils;
 import com.mongodb.DB;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientURI;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import static com.github.mongobee.core.utils.StringUtils.hasText;
+import static com.mongodb.client.model.Projections.excludeId;
+import static com.mongodb.client.model.Projections.fields;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Filters.gte;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Sorts.ascending;
+import static com.mongodb.client.model.Sorts.descending;
+import static com.mongodb.client.model.Updates.set;
 
 /**
  * @author lstolowski
@@ -22,19 +40,37 @@ import static com.github.mongobee.core.utils.StringUtils.hasText;
  */
 public class ChangeEntryDao {
   private static final Logger logger = LoggerFactory.getLogger("Mongobee dao");
+  private static final String DEFAULT_METADATA_COLLECTION_NAME = "mongobeemeta";
+  private static final String DEFAULT_CHECKPOINT_COLLECTION_NAME = "mongobeecheckpoint";
+  // increment when the indexes of the changelog, lock or other collections of Mongobee change
+  private static final int METADATA_SCHEMA_VERSION = 2;
+  // covered by the unique changeId/author index, entries are read without fetching the documents
+  private static final Bson APPLIED_CHANGE_PROJECTION =
+      fields(include(ChangeEntry.KEY_CHANGEID, ChangeEntry.KEY_AUTHOR), excludeId());
+  private static final Bson CHECKSUM_PROJECTION = fields(include(ChangeEntry.KEY_CHECKSUM), excludeId());
 
   private MongoDatabase mongoDatabase;
   private DB db;  // only for Jongo driver compatibility - do not use in other contexts
   private MongoClient mongoClient;
   private ChangeEntryIndexDao indexDao;
   private String changelogCollectionName;
+  private String lockCollectionName;
+  private Set<String> appliedChanges; // snapshot of applied (changeId, author) pairs, null when not loaded
+  private ChangeEntryJournal journal;  // null when entries are written immediately
+  private volatile ChangeLogCollection changeLogCollection; // typed handle, null until first used
+  private final List<ChangeEntry> completedCheckpoints = new ArrayList<>(); // removed once their entries are written
 
   private LockDao lockDao;
+  private MetadataDao metadataDao;
+  private CheckpointDao checkpointDao;
 
   public ChangeEntryDao(String changelogCollectionName, String lockCollectionName) {
 	this.indexDao = new ChangeEntryIndexDao(changelogCollectionName);
 	this.lockDao = new LockDao(lockCollectionName);
+	this.metadataDao = new MetadataDao(DEFAULT_METADATA_COLLECTION_NAME);
+	this.checkpointDao = new CheckpointDao(DEFAULT_CHECKPOINT_COLLECTION_NAME);
 	this.changelogCollectionName = changelogCollectionName;
+	this.lockCollectionName = lockCollectionName;
   }
 
   public MongoDatabase getMongoDatabase() {
@@ -50,27 +86,85 @@ public class ChangeEntryDao {
   }
 
   public MongoDatabase connectMongoDb(MongoClient mongo, String dbName) throws MongobeeConfigurationException {
+    openMongoDb(mongo, dbName);
+    initializeMongoDb();
+    return mongoDatabase;
+  }
+
+  public MongoDatabase connectMongoDb(MongoClientURI mongoClientURI, String dbName)
+      throws MongobeeConfigurationException, MongobeeConnectionException {
+
+    final MongoClient mongoClient = new MongoClient(mongoClientURI);
+    final String database = (!hasText(dbName)) ? mongoClientURI.getDatabase() : dbName;
+    return this.connectMongoDb(mongoClient, database);
+  }
+
+  /**
+   * Connects to the database without creating indexes and the lock collection,
+   * {@link #initializeMongoDb()} has to be called before any changelog or lock operation.
+   *
+   * @param mongo   database connection client
+   * @param dbName  database name
+   * @return MongoDatabase object
+   * @throws MongobeeConfigurationException if the database name is not set
+   */
+  public MongoDatabase openMongoDb(MongoClient mongo, String dbName) throws MongobeeConfigurationException {
     if (!hasText(dbName)) {
       throw new MongobeeConfigurationException("DB name is not set. Should be defined in MongoDB URI or via setter");
     } else {
 
       this.mongoClient = mongo;
+      invalidateAppliedChanges();
 
       db = mongo.getDB(dbName); // for Jongo driver and backward compatibility (constructor has required parameter Jongo(DB) )
       mongoDatabase = mongo.getDatabase(dbName);
-
-      ensureChangeLogCollectionIndex(mongoDatabase.getCollection(changelogCollectionName));
-      initializeLock();
       return mongoDatabase;
     }
   }
 
-  public MongoDatabase connectMongoDb(MongoClientURI mongoClientURI, String dbName)
-      throws MongobeeConfigurationException, MongobeeConnectionException {
-
+  public MongoDatabase openMongoDb(MongoClientURI mongoClientURI, String dbName) throws MongobeeConfigurationException {
     final MongoClient mongoClient = new MongoClient(mongoClientURI);
     final String database = (!hasText(dbName)) ? mongoClientURI.getDatabase() : dbName;
-    return this.connectMongoDb(mongoClient, database);
+    return this.openMongoDb(mongoClient, database);
+  }
+
+  /**
+   * Creates the required index of the changelog collection and initializes the lock collection.
+   * Once done, a bootstrap marker is stored in the metadata collection. Later starts trust the indexes while the
+   * marker matches and both collections still exist, checked by one listCollections. A dropped collection, e.g. the
+   * lock collection dropped to clear a stuck lock, has lost its unique index, so the setup runs again.
+   *
+   * @throws MongobeeConfigurationException if the database is not opened
+   */
+  public void initializeMongoDb() throws MongobeeConfigurationException {
+    if (mongoDatabase == null) {
+      throw new MongobeeConfigurationException("Database is not opened");
+    }
+    if (metadataDao.isBootstrapped(mongoDatabase, METADATA_SCHEMA_VERSION, changelogCollectionName, lockCollectionName)
+        && hasRequiredCollections()) {
+      logger.debug("Collections of schema version " + METADATA_SCHEMA_VERSION + " already initialized");
+      return;
+    }
+    MongoCollection<Document> changelog = mongoDatabase.getCollection(changelogCollectionName);
+    ensureChangeLogCollectionIndex(changelog);
+    indexDao.createDurationIndex(changelog);
+    initializeLock();
+    metadataDao.saveBootstrapped(mongoDatabase, METADATA_SCHEMA_VERSION, changelogCollectionName, lockCollectionName);
+  }
+
+  /**
+   * @return fingerprint of the last successfully executed changeset plan or null if none was stored
+   * @throws MongobeeConnectionException exception
+   */
+  public String getPlanFingerprint() throws MongobeeConnectionException {
+    verifyDbConnection();
+    return metadataDao.getPlanFingerprint(getMongoDatabase());
+  }
+
+  public void savePlanFingerprint(String fingerprint) throws MongobeeConnectionException {
+    verifyDbConnection();
+    verifyProcessLock();
+    metadataDao.savePlanFingerprint(getMongoDatabase(), fingerprint);
   }
 
   /**
@@ -86,29 +180,287 @@ public class ChangeEntryDao {
 
   public void releaseProcessLock() throws MongobeeConnectionException {
     verifyDbConnection();
+    invalidateAppliedChanges();
     lockDao.releaseLock(getMongoDatabase());
   }
 
+  /**
+   * Releases the process lock and records the outcome of the migration for processes waiting for the lock
+   *
+   * @param outcome outcome of the migration, null if none should be recorded
+   * @throws MongobeeConnectionException exception
+   */
+  public void releaseProcessLock(String outcome) throws MongobeeConnectionException {
+    verifyDbConnection();
+    invalidateAppliedChanges();
+    lockDao.releaseLock(getMongoDatabase(), outcome);
+  }
+
+  /**
+   * @return outcome recorded by the last process releasing the lock, null if the lock is held or none was recorded
+   * @throws MongobeeConnectionException exception
+   */
+  public String getReleasedProcessOutcome() throws MongobeeConnectionException {
+    verifyDbConnection();
+    return lockDao.getReleasedOutcome(getMongoDatabase());
+  }
+
   public boolean isProccessLockHeld() throws MongobeeConnectionException {
     verifyDbConnection();
     return lockDao.isLockHeld(getMongoDatabase());
   }
 
+  /**
+   * @return true if the lease of the process lock could not be renewed because another process took the lock over
+   */
+  public boolean isProcessLockLost() {
+    return lockDao.isLockLost();
+  }
+
+  /**
+   * @return token of the process lock held by this process, 0 if not held
+   */
+  public long getProcessLockToken() {
+    return lockDao.getLockToken();
+  }
+
+  /**
+   * Fences the writes of the lock holder with the token of its lock, see {@link LockDao#verifyLock(MongoDatabase)}:
+   * once another process has taken the lock over, change entries, checkpoints and the plan fingerprint are not
+   * written anymore. Writes without the lock held by this DAO, e.g. of tools or tests, are not fenced.
+   *
+   * @throws MongobeeLockException if the process lock has been taken over
+   */
+  public void verifyProcessLock() throws MongobeeLockException {
+    long token = lockDao.getLockToken();
+    if (token != 0 && !lockDao.verifyLock(mongoDatabase)) {
+      throw new MongobeeLockException("Mongobee process lock with token " + token
+          + " has been taken over by another process, not writing the migration state anymore");
+    }
+  }
+
+  /**
+   * Loads all applied (changeId, author) pairs with a single query covered by the unique changeId/author index.
+   * Until {@link #invalidateAppliedChanges()} is called {@link #isNewChange(ChangeEntry)} is answered from memory,
+   * so the snapshot should be loaded only while holding the process lock - no other process can add entries then.
+   *
+   * @throws MongobeeConnectionException exception
+   */
+  public void loadAppliedChanges() throws MongobeeConnectionException {
+    verifyDbConnection();
+
+    Set<String> applied = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    MongoCursor<ChangeEntry> cursor = changeEntries()
+        .find()
+        .projection(APPLIED_CHANGE_PROJECTION)
+        .sort(ascending(ChangeEntry.KEY_CHANGEID, ChangeEntry.KEY_AUTHOR))
+        .iterator();
+    try {
+      while (cursor.hasNext()) {
+        ChangeEntry entry = cursor.next();
+        applied.add(appliedChangeKey(entry.getChangeId(), entry.getAuthor()));
+      }
+    } finally {
+      cursor.close();
+    }
+
+    this.appliedChanges = applied;
+    logger.debug("Loaded " + applied.size() + " applied changes from " + changelogCollectionName);
+  }
+
+  /**
+   * Drops the in-memory snapshot of applied changes, next checks go to the database again.
+   */
+  public void invalidateAppliedChanges() {
+    this.appliedChanges = null;
+  }
+
   public boolean isNewChange(ChangeEntry changeEntry) throws MongobeeConnectionException {
     verifyDbConnection();
 
-    MongoCollection<Document> mongobeeChangeLog = getMongoDatabase().getCollection(changelogCollectionName);
-    Document entry = mongobeeChangeLog.find(changeEntry.buildSearchQueryDBObject()).first();
+    Set<String> applied = this.appliedChanges;
+    if (applied != null) {
+      return !applied.contains(appliedChangeKey(changeEntry.getChangeId(), changeEntry.getAuthor()));
+    }
+
+    ChangeEntry entry = changeEntries()
+        .find(changeEntry.buildSearchQueryDBObject())
+        .projection(APPLIED_CHANGE_PROJECTION)
+        .first();
 
     return entry == null;
   }
 
+  /**
+   * @param changeEntry applied runOnChange changeset
+   * @return checksum recorded for the changeset, null if it was recorded without a checksum or is not applied
+   * @throws MongobeeConnectionException exception
+   */
+  public String findAppliedChecksum(ChangeEntry changeEntry) throws MongobeeConnectionException {
+    verifyDbConnection();
+
+    ChangeEntry entry = changeEntries()
+        .find(changeEntry.buildSearchQueryDBObject())
+        .projection(CHECKSUM_PROJECTION)
+        .first();
+
+    return entry != null ? entry.getChecksum() : null;
+  }
+
+  /**
+   * Stores the checksum of a runOnChange changeset recorded without one, e.g. before it was declared runOnChange.
+   * Written immediately, also when a journal is set.
+   *
+   * @param changeEntry applied runOnChange changeset with its current checksum
+   * @throws MongobeeConnectionException exception
+   */
+  public void recordChecksum(ChangeEntry changeEntry) throws MongobeeConnectionException {
+    verifyDbConnection();
+    verifyProcessLock();
+    changeEntries().updateOne(changeEntry.buildSearchQueryDBObject(),
+        set(ChangeEntry.KEY_CHECKSUM, changeEntry.getChecksum()));
+  }
+
+  /**
+   * Replaces the recorded entry of an applied changeset, e.g. with the new checksum of a re-executed
+   * runOnChange changeset. Written immediately, also when a journal is set.
+   *
+   * @param changeEntry applied changeset
+   * @throws MongobeeConnectionException exception
+   */
+  public void replace(ChangeEntry changeEntry) throws MongobeeConnectionException {
+    verifyDbConnection();
+    verifyProcessLock();
+    changeEntries().replaceOne(changeEntry.buildSearchQueryDBObject(), changeEntry);
+  }
+
   public void save(ChangeEntry changeEntry) throws MongobeeConnectionException {
     verifyDbConnection();
 
-    MongoCollection<Document> mongobeeLog = getMongoDatabase().getCollection(changelogCollectionName);
+    MongoCollection<ChangeEntry> mongobeeLog = changeEntries();
+
+    if (journal != null) {
+      journal.append(mongobeeLog, changeEntry);
+    } else {
+      verifyProcessLock();
+      mongobeeLog.insertOne(changeEntry);
+    }
+
+    Set<String> applied = this.appliedChanges;
+    if (applied != null) {
+      applied.add(appliedChangeKey(changeEntry.getChangeId(), changeEntry.getAuthor()));
+    }
+  }
+
+  /**
+   * Uses the index of {@link ChangeEntry#KEY_DURATION}, entries recorded without an execution time are not included
+   *
+   * @param limit maximum number of entries
+   * @return entries of the slowest applied changesets, slowest first
+   * @throws MongobeeConnectionException exception
+   */
+  public List<ChangeEntry> findSlowestChanges(int limit) throws MongobeeConnectionException {
+    verifyDbConnection();
+    return changeEntries()
+        .find(gte(ChangeEntry.KEY_DURATION, 0L))
+        .sort(descending(ChangeEntry.KEY_DURATION))
+        .limit(limit)
+        .into(new ArrayList<ChangeEntry>());
+  }
+
+  /**
+   * Writes change entries buffered by the journal (if set) and waits for the write to complete.
+   *
+   * @throws MongobeeConnectionException exception
+   */
+  public void flushChangeEntries() throws MongobeeConnectionException {
+    if (journal != null) {
+      journal.flush();
+    }
+    removeCompletedCheckpoints();
+  }
 
-    mongobeeLog.insertOne(changeEntry.buildFullDBObject());
+  /**
+   * Writes change entries buffered by the journal (if set) like {@link #flushChangeEntries()} and stops the
+   * background thread of the journal, at the end of a migration.
+   *
+   * @throws MongobeeConnectionException exception
+   */
+  public void closeChangeEntryJournal() throws MongobeeConnectionException {
+    if (journal != null) {
+      journal.close();
+    }
+    removeCompletedCheckpoints();
+  }
+
+  /**
+   * @param changeEntry changeset
+   * @return last resume token saved by the changeset, null if none
+   * @throws MongobeeConnectionException exception
+   */
+  public Document getCheckpoint(ChangeEntry changeEntry) throws MongobeeConnectionException {
+    verifyDbConnection();
+    return checkpointDao.getCheckpoint(getMongoDatabase(), changeEntry.getChangeId(), changeEntry.getAuthor());
+  }
+
+  public void saveCheckpoint(ChangeEntry changeEntry, Document token) throws MongobeeConnectionException {
+    verifyDbConnection();
+    verifyProcessLock();
+    checkpointDao.saveCheckpoint(getMongoDatabase(), changeEntry.getChangeId(), changeEntry.getAuthor(), token);
+  }
+
+  /**
+   * Removes the checkpoint of a completed changeset. When change entries are written by the journal, the checkpoint
+   * is removed by {@link #flushChangeEntries()}, after the entry of the changeset has been written -
+   * until then a restarted migration resumes the changeset.
+   *
+   * @param changeEntry completed changeset
+   * @throws MongobeeConnectionException exception
+   */
+  public void clearCheckpoint(ChangeEntry changeEntry) throws MongobeeConnectionException {
+    verifyDbConnection();
+    synchronized (completedCheckpoints) {
+      completedCheckpoints.add(changeEntry);
+    }
+    if (journal == null) {
+      removeCompletedCheckpoints();
+    }
+  }
+
+  private void removeCompletedCheckpoints() throws MongobeeConnectionException {
+    List<ChangeEntry> completed;
+    synchronized (completedCheckpoints) {
+      completed = new ArrayList<>(completedCheckpoints);
+      completedCheckpoints.clear();
+    }
+    if (!completed.isEmpty()) {
+      verifyProcessLock();
+    }
+    for (ChangeEntry changeEntry : completed) {
+      checkpointDao.removeCheckpoint(getMongoDatabase(), changeEntry.getChangeId(), changeEntry.getAuthor());
+    }
+  }
+
+  /**
+   * @return changelog collection writing and reading {@link ChangeEntry} with {@link ChangeEntryCodec}
+   * and a majority write concern (whatever the connection uses), created once per database and collection name
+   */
+  private MongoCollection<ChangeEntry> changeEntries() {
+    MongoDatabase database = getMongoDatabase();
+    ChangeLogCollection current = this.changeLogCollection;
+    if (current == null || current.database != database || !current.name.equals(changelogCollectionName)) {
+      MongoCollection<ChangeEntry> collection = database
+          .getCollection(changelogCollectionName, ChangeEntry.class)
+          .withCodecRegistry(MongobeeCodecs.codecRegistry(database.getCodecRegistry()))
+          .withWriteConcern(WriteConcern.MAJORITY);
+      current = new ChangeLogCollection(database, changelogCollectionName, collection);
+      this.changeLogCollection = current;
+    }
+    return current.collection;
+  }
+
+  private static String appliedChangeKey(String changeId, String author) {
+    return changeId + '\u0000' + author;
   }
 
   private void verifyDbConnection() throws MongobeeConnectionException {
@@ -118,6 +470,18 @@ public class ChangeEntryDao {
     }
   }
 
+  private boolean hasRequiredCollections() {
+    int collections = 0;
+    for (Document collection : mongoDatabase.listCollections()
+        .filter(in("name", changelogCollectionName, lockCollectionName))) {
+      String name = collection.getString("name");
+      if (changelogCollectionName.equals(name) || lockCollectionName.equals(name)) {
+        collections++;
+      }
+    }
+    return collections == 2;
+  }
+
   private void ensureChangeLogCollectionIndex(MongoCollection<Document> collection) {
     Document index = indexDao.findRequiredChangeAndAuthorIndex(mongoDatabase);
     if (index == null) {
@@ -131,6 +495,18 @@ public class ChangeEntryDao {
 
   }
 
+  private static final class ChangeLogCollection {
+    private final MongoDatabase database;
+    private final String name;
+    private final MongoCollection<ChangeEntry> collection;
+
+    ChangeLogCollection(MongoDatabase database, String name, MongoCollection<ChangeEntry> collection) {
+      this.database = database;
+      this.name = name;
+      this.collection = collection;
+    }
+  }
+
   public void close() {
       this.mongoClient.close();
   }
@@ -148,6 +524,21 @@ public class ChangeEntryDao {
     this.lockDao = lockDao;
   }
 
+  /**
+   * @param journal write-behind journal for change entries, null to write every entry immediately
+   */
+  public void setChangeEntryJournal(ChangeEntryJournal journal) {
+    this.journal = journal;
+    if (journal != null) {
+      journal.setWriteFence(new ChangeEntryJournal.WriteFence() {
+        @Override
+        public void check() throws MongobeeConnectionException {
+          verifyProcessLock();
+        }
+      });
+    }
+  }
+
   public void setChangelogCollectionName(String changelogCollectionName) {
 	this.indexDao.setChangelogCollectionName(changelogCollectionName);
 	this.changelogCollectionName = changelogCollectionName;
@@ -155,6 +546,19 @@ public class ChangeEntryDao {
 
   public void setLockCollectionName(String lockCollectionName) {
 	this.lockDao.setLockCollectionName(lockCollectionName);
+	this.lockCollectionName = lockCollectionName;
+  }
+
+  public void setLockLeaseTime(long leaseMillis) {
+    this.lockDao.setLeaseMillis(leaseMillis);
+  }
+
+  public void setMetadataCollectionName(String metadataCollectionName) {
+    this.metadataDao.setMetadataCollectionName(metadataCollectionName);
+  }
+
+  public void setCheckpointCollectionName(String checkpointCollectionName) {
+    this.checkpointDao.setCheckpointCollectionName(checkpointCollectionName);
   }
   
 }
@@ -1,17 +1,25 @@
 package com.github.mongobee.core.dao;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
 import org.bson.Document;
 
 import com.github.mongobee.core.changeset.ChangeEntry;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
 
 /**
  * @author lstolowski
  * @since 10.12.14
  */
 public class ChangeEntryIndexDao {
+  private static final List<String> REQUIRED_KEY = Arrays.asList(ChangeEntry.KEY_CHANGEID, ChangeEntry.KEY_AUTHOR);
 
   private String changelogCollectionName;
 	  
@@ -27,14 +35,50 @@ public class ChangeEntryIndexDao {
     );
   }
 
+  /**
+   * Creates the index of {@link ChangeEntry#KEY_DURATION} used to find the slowest changesets, if it does not exist
+   *
+   * @param collection changelog collection
+   */
+  public void createDurationIndex(MongoCollection<Document> collection) {
+    collection.createIndex(Indexes.descending(ChangeEntry.KEY_DURATION));
+  }
+
+  /**
+   * Looks the index up with listIndexes, the legacy system.indexes collection is not available on WiredTiger
+   *
+   * @param db MongoDatabase object
+   * @return index with exactly the keys changeId and author (ascending, in this order), null if there is none
+   */
   public Document findRequiredChangeAndAuthorIndex(MongoDatabase db) {
-    MongoCollection<Document> indexes = db.getCollection("system.indexes");
-    Document index = indexes.find(new Document()
-        .append("ns", db.getName() + "." + changelogCollectionName)
-        .append("key", new Document().append(ChangeEntry.KEY_CHANGEID, 1).append(ChangeEntry.KEY_AUTHOR, 1))
-    ).first();
+    MongoCursor<Document> indexes = db.getCollection(changelogCollectionName).listIndexes().iterator();
+    try {
+      while (indexes.hasNext()) {
+        Document index = indexes.next();
+        if (isRequiredKey(index.get("key"))) {
+          return index;
+        }
+      }
+      return null;
+    } finally {
+      indexes.close();
+    }
+  }
 
-    return index;
+  private static boolean isRequiredKey(Object key) {
+    if (!(key instanceof Document) || ((Document) key).size() != REQUIRED_KEY.size()) {
+      return false;
+    }
+    Iterator<Map.Entry<String, Object>> fields = ((Document) key).entrySet().iterator();
+    for (String name : REQUIRED_KEY) {
+      Map.Entry<String, Object> field = fields.next();
+      // the server may return the direction as int, long or double
+      if (!name.equals(field.getKey()) || !(field.getValue() instanceof Number)
+          || ((Number) field.getValue()).doubleValue() != 1) {
+        return false;
+      }
+    }
+    return true;
   }
 
   public boolean isUnique(Document index) {
@@ -0,0 +1,251 @@
+package com.github.mongobee.core.dao;
+
+import com.github.mongobee.core.changeset.ChangeEntry;
+import com.github.mongobee.core.exception.MongobeeConnectionException;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for change entries. Buffered entries are written with one unordered insertMany
+ * on a single background thread, when the batch size or the flush interval is reached or when
+ * {@link #flush()} is called.
+ * <p>An entry is appended only after its changeset has been executed, so a changeset which has not run
+ * is never recorded. If the process dies before a flush, the buffered changesets are not recorded and
+ * will be executed again by the next run.</p>
+ * <p>A failed write is logged when it happens and thrown by the next {@link #flush()}. Every write is preceded by
+ * the {@link WriteFence} of the journal, e.g. the check that the process lock is still held.</p>
+ *
+ * @since 0.14
+ */
+public class ChangeEntryJournal {
+  private static final Logger logger = LoggerFactory.getLogger(ChangeEntryJournal.class);
+
+  private final int batchSize;
+  private final long flushIntervalMillis;
+
+  private final List<Future<?>> pendingFlushes = new ArrayList<>();
+  private List<ChangeEntry> buffer = new ArrayList<>();
+  private MongoCollection<ChangeEntry> bufferCollection;
+  private ScheduledFuture<?> scheduledFlush;
+  private ScheduledThreadPoolExecutor executor;
+  private volatile WriteFence fence;
+
+  /**
+   * @param batchSize           number of buffered entries which triggers a flush, 0 means no size threshold
+   * @param flushIntervalMillis maximum time an entry is kept in the buffer, 0 means no time threshold
+   */
+  public ChangeEntryJournal(int batchSize, long flushIntervalMillis) {
+    this.batchSize = batchSize;
+    this.flushIntervalMillis = flushIntervalMillis;
+  }
+
+  /**
+   * Check run on the journal thread before every write
+   */
+  interface WriteFence {
+    /**
+     * @throws MongobeeConnectionException if the entries must not be written
+     */
+    void check() throws MongobeeConnectionException;
+  }
+
+  void setWriteFence(WriteFence fence) {
+    this.fence = fence;
+  }
+
+  public synchronized void append(MongoCollection<ChangeEntry> collection, ChangeEntry entry) {
+    if (bufferCollection != null && bufferCollection != collection) {
+      submitFlush();
+    }
+    bufferCollection = collection;
+    buffer.add(entry);
+
+    if (batchSize > 0 && buffer.size() >= batchSize) {
+      submitFlush();
+    } else if (flushIntervalMillis > 0 && scheduledFlush == null) {
+      scheduledFlush = executor().schedule(new Runnable() {
+        @Override
+        public void run() {
+          submitFlush();
+        }
+      }, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Writes all buffered entries and waits until every flush started so far is completed.
+   *
+   * @throws MongobeeConnectionException if interrupted while waiting
+   */
+  public void flush() throws MongobeeConnectionException {
+    List<Future<?>> flushes;
+    synchronized (this) {
+      submitFlush();
+      flushes = new ArrayList<>(pendingFlushes);
+      pendingFlushes.clear();
+    }
+
+    for (Future<?> flush : flushes) {
+      try {
+        flush.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MongobeeConnectionException("Interrupted while writing change entries", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        if (e.getCause() instanceof MongobeeConnectionException) {
+          throw (MongobeeConnectionException) e.getCause();
+        }
+        throw new MongobeeConnectionException("Writing change entries failed", e);
+      }
+    }
+  }
+
+  /**
+   * Writes all buffered entries like {@link #flush()} and stops the background thread, at the end of a migration.
+   * The thread is started again by the next {@link #append(MongoCollection, ChangeEntry)}.
+   *
+   * @throws MongobeeConnectionException if interrupted while waiting
+   */
+  public void close() throws MongobeeConnectionException {
+    try {
+      flush();
+    } finally {
+      shutdownExecutor();
+    }
+  }
+
+  private synchronized void submitFlush() {
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+    if (buffer.isEmpty()) {
+      return;
+    }
+
+    final MongoCollection<ChangeEntry> collection = bufferCollection;
+    final List<ChangeEntry> batch = buffer;
+    buffer = new ArrayList<>();
+    removeCompletedFlushes();
+    pendingFlushes.add(executor().submit(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        try {
+          WriteFence writeFence = fence;
+          if (writeFence != null) {
+            writeFence.check();
+          }
+          write(collection, batch);
+          return null;
+        } catch (Exception e) {
+          logger.error("Writing " + batch.size() + " change entries failed", e);
+          throw e; // thrown again by flush()
+        }
+      }
+    }));
+  }
+
+  private void removeCompletedFlushes() {
+    for (Iterator<Future<?>> it = pendingFlushes.iterator(); it.hasNext(); ) {
+      Future<?> flush = it.next();
+      if (flush.isDone() && !hasFailed(flush)) {
+        it.remove();
+      }
+    }
+  }
+
+  private static boolean hasFailed(Future<?> flush) {
+    try {
+      flush.get();
+      return false;
+    } catch (Exception e) {
+      return true; // kept, so the failure is reported by flush()
+    }
+  }
+
+  private void write(MongoCollection<ChangeEntry> collection, List<ChangeEntry> batch) {
+    try {
+      collection.insertMany(batch, new InsertManyOptions().ordered(false));
+      logger.debug(batch.size() + " change entries written");
+    } catch (MongoBulkWriteException e) {
+      // an entry already recorded (e.g. by a previous, interrupted flush) is not an error
+      Set<Integer> recorded = new HashSet<>();
+      for (BulkWriteError error : e.getWriteErrors()) {
+        if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+          throw e;
+        }
+        recorded.add(error.getIndex());
+      }
+      logger.debug(recorded.size() + " change entries were already written");
+      if (e.getWriteResult().getInsertedCount() + recorded.size() < batch.size()) {
+        writeEach(collection, batch, recorded);
+      }
+    }
+  }
+
+  /**
+   * Inserts the entries one by one, except the ones already recorded
+   */
+  private void writeEach(MongoCollection<ChangeEntry> collection, List<ChangeEntry> batch, Set<Integer> recorded) {
+    for (int i = 0; i < batch.size(); i++) {
+      if (recorded.contains(i)) {
+        continue;
+      }
+      ChangeEntry entry = batch.get(i);
+      try {
+        collection.insertOne(entry);
+      } catch (MongoWriteException e) {
+        if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+          throw e;
+        }
+        logger.debug("Change entry " + entry.getChangeId() + " was already written");
+      }
+    }
+  }
+
+  private synchronized ScheduledThreadPoolExecutor executor() {
+    if (executor == null) {
+      executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "mongobee-journal");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      executor.setKeepAliveTime(1, TimeUnit.MINUTES);
+      executor.allowCoreThreadTimeOut(true);
+    }
+    return executor;
+  }
+
+  private synchronized void shutdownExecutor() {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+}
@@ -0,0 +1,62 @@
+package com.github.mongobee.core.dao;
+
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.UpdateOptions;
+import org.bson.Document;
+
+import java.util.Date;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Projections.include;
+
+/**
+ * Resume tokens of changesets which have not completed yet, looked up by changeId and author.
+ *
+ * @since 0.14
+ */
+public class CheckpointDao {
+  private static final String KEY_ID = "_id";
+  private static final String KEY_CHANGEID = "changeId";
+  private static final String KEY_AUTHOR = "author";
+  private static final String KEY_TOKEN = "token";
+  private static final String KEY_UPDATED_AT = "updatedAt";
+
+  private String checkpointCollectionName;
+
+  public CheckpointDao(String checkpointCollectionName) {
+    this.checkpointCollectionName = checkpointCollectionName;
+  }
+
+  /**
+   * @param db       MongoDatabase object
+   * @param changeId changeset id
+   * @param author   changeset author
+   * @return last saved resume token of the changeset or null if none was saved
+   */
+  public Document getCheckpoint(MongoDatabase db, String changeId, String author) {
+    Document checkpoint = db.getCollection(checkpointCollectionName)
+        .find(eq(KEY_ID, checkpointId(changeId, author)))
+        .projection(include(KEY_TOKEN))
+        .first();
+    return checkpoint != null ? checkpoint.get(KEY_TOKEN, Document.class) : null;
+  }
+
+  public void saveCheckpoint(MongoDatabase db, String changeId, String author, Document token) {
+    db.getCollection(checkpointCollectionName).updateOne(eq(KEY_ID, checkpointId(changeId, author)),
+        new Document("$set", new Document(KEY_TOKEN, token).append(KEY_UPDATED_AT, new Date())),
+        new UpdateOptions().upsert(true));
+  }
+
+  public void removeCheckpoint(MongoDatabase db, String changeId, String author) {
+    db.getCollection(checkpointCollectionName).deleteOne(eq(KEY_ID, checkpointId(changeId, author)));
+  }
+
+  private static Document checkpointId(String changeId, String author) {
+    return new Document(KEY_CHANGEID, changeId).append(KEY_AUTHOR, author);
+  }
+
+  public void setCheckpointCollectionName(String checkpointCollectionName) {
+    this.checkpointCollectionName = checkpointCollectionName;
+  }
+
+}
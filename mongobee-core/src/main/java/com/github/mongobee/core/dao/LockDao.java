@@ -1,27 +1,80 @@
 package com.github.mongobee.core.dao;
 
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.mongodb.ErrorCategory;
-import com.mongodb.MongoWriteException;
+import com.mongodb.MongoServerException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.result.UpdateResult;
+
+import static com.github.mongobee.core.dao.LockRecord.KEY_EXPIRES_AT;
+import static com.github.mongobee.core.dao.LockRecord.KEY_OUTCOME;
+import static com.github.mongobee.core.dao.LockRecord.KEY_OWNER;
+import static com.github.mongobee.core.dao.LockRecord.KEY_PROP_NAME;
+import static com.github.mongobee.core.dao.LockRecord.KEY_STATUS;
+import static com.github.mongobee.core.dao.LockRecord.KEY_TOKEN;
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Filters.ne;
+import static com.mongodb.client.model.Filters.or;
+import static com.mongodb.client.model.Projections.include;
 
 /**
+ * Process lock kept as a lease: the holder renews the expiry time of the lock document in the background
+ * and another process may take the lock over once the lease has expired, e.g. after the holder was killed.
+ * Every acquisition increments a token and the lease is renewed only while the token is unchanged, so a holder
+ * notices within a heartbeat that its lock has been taken over ({@link #isLockLost()}) and stops. The token is also
+ * a fencing token: before writing change entries and checkpoints the holder checks with {@link #verifyLock} that
+ * the lock document still carries its owner and token, so a holder stalled past a takeover fails instead of
+ * recording changesets next to the new holder. The check is a read before the write, not part of it.
+ * A lock document without expiry time, as written by versions without leases, counts as expired.
+ * <p>The lock document is kept when the lock is released, to keep the token and the outcome of the migration.
+ * Versions without leases take the lock by inserting the document and cannot acquire it anymore once it exists,
+ * so all processes of a database should be upgraded before the next migration.</p>
+ * <p>Expiry is compared with the local clock, so clocks of the processes should differ by much less than
+ * the lease time.</p>
+ *
  * @author colsson11
  * @since 13.01.15
  */
 public class LockDao {
   private static final Logger logger = LoggerFactory.getLogger(LockDao.class);
-  private static final String KEY_PROP_NAME = "key";
-
   private static final int INDEX_SORT_ASC = 1;
 
   private static final String LOCK_ENTRY_KEY_VAL = "LOCK";
+  private static final String STATUS_HELD = "LOCK_HELD";
+  private static final String STATUS_RELEASED = "LOCK_RELEASED";
+  private static final long DEFAULT_LEASE_MILLIS = 60 * 1000L;
+
+  private final String owner = UUID.randomUUID().toString();
   private String lockCollectionName;
-  
+  private long leaseMillis = DEFAULT_LEASE_MILLIS;
+
+  private MongoDatabase lockDatabase; // database of the cached collection handle
+  private MongoCollection<LockRecord> locks;
+  private volatile long lockToken;
+  private volatile boolean lockLost;
+  private static ScheduledExecutorService heartbeatExecutor;
+  private ScheduledFuture<?> heartbeat;
+
   public LockDao(String lockCollectionName) {
 	this.lockCollectionName = lockCollectionName;
   }
@@ -34,29 +87,109 @@ public class LockDao {
     Document indexKeys = new Document(KEY_PROP_NAME, INDEX_SORT_ASC);
     IndexOptions indexOptions = new IndexOptions().unique(true).name("mongobeelock_key_idx");
 
-    db.getCollection(lockCollectionName).createIndex(indexKeys, indexOptions);
+    locks(db).createIndex(indexKeys, indexOptions);
+  }
+
+  /**
+   * Mutual exclusion depends on the unique index of the lock key: without it, a second process would insert
+   * a second lock document instead of failing with a duplicate key error.
+   *
+   * @param db MongoDatabase object
+   * @return true if the lock collection has the unique index of the lock key
+   */
+  public boolean hasUniqueKeyIndex(MongoDatabase db) {
+    MongoCursor<Document> indexes = db.getCollection(lockCollectionName).listIndexes().iterator();
+    try {
+      while (indexes.hasNext()) {
+        Document index = indexes.next();
+        if (new Document(KEY_PROP_NAME, INDEX_SORT_ASC).equals(normalizedKey(index.get("key")))
+            && Boolean.TRUE.equals(index.get("unique"))) {
+          return true;
+        }
+      }
+      return false;
+    } finally {
+      indexes.close();
+    }
+  }
+
+  // the server may return the direction as int, long or double
+  private static Document normalizedKey(Object key) {
+    if (!(key instanceof Document) || ((Document) key).size() != 1) {
+      return null;
+    }
+    Object direction = ((Document) key).get(KEY_PROP_NAME);
+    return direction instanceof Number ? new Document(KEY_PROP_NAME, ((Number) direction).intValue()) : null;
   }
 
   public boolean acquireLock(MongoDatabase db) {
+    Date now = new Date();
 
-    Document insertObj = new Document(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL).append("status", "LOCK_HELD");
+    // the lock is free when released or when the lease of its holder has expired; locks written by versions
+    // without leases have no expiry time and are treated as expired
+    Bson free = and(eq(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL),
+        or(ne(KEY_STATUS, STATUS_HELD), lt(KEY_EXPIRES_AT, now), exists(KEY_EXPIRES_AT, false)));
+    Document acquire = new Document("$set", new Document(KEY_STATUS, STATUS_HELD)
+        .append(KEY_OWNER, owner)
+        .append(KEY_EXPIRES_AT, new Date(now.getTime() + leaseMillis)))
+        .append("$inc", new Document(KEY_TOKEN, 1L))
+        .append("$unset", new Document(KEY_OUTCOME, ""));
 
-    // acquire lock by attempting to insert the same value in the collection - if it already exists (i.e. lock held)
-    // there will be an exception
+    // if the lock is held, the upsert tries to insert the same key again - there will be an exception
+    LockRecord previous;
     try {
-      db.getCollection(lockCollectionName).insertOne(insertObj);
-    } catch (MongoWriteException ex) {
-      if (ex.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+      previous = locks(db).findOneAndUpdate(free, acquire,
+          new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.BEFORE));
+    } catch (MongoServerException ex) {
+      if (ErrorCategory.fromErrorCode(ex.getCode()) == ErrorCategory.DUPLICATE_KEY) {
         logger.warn("Duplicate key exception while acquireLock. Probably the lock has been already acquired.");
+        return false;
       }
-      return false;
+      throw ex;
+    }
+
+    if (previous != null && STATUS_HELD.equals(previous.getStatus())) {
+      logger.warn("Lease of lock holder " + previous.getOwner() + " expired at " + previous.getExpiresAt()
+          + ", the lock has been taken over");
     }
+    lockToken = previous != null ? previous.getToken() + 1 : 1;
+    lockLost = false;
+    startHeartbeat(db);
     return true;
   }
 
   public void releaseLock(MongoDatabase db) {
-    // release lock by deleting collection entry
-    db.getCollection(lockCollectionName).deleteMany(new Document(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL));
+    releaseLock(db, null);
+  }
+
+  /**
+   * @param db      MongoDatabase object
+   * @param outcome outcome of the work done while holding the lock, kept for processes waiting for the lock
+   */
+  public void releaseLock(MongoDatabase db, String outcome) {
+    stopHeartbeat();
+    Document release = new Document(KEY_STATUS, STATUS_RELEASED).append(KEY_EXPIRES_AT, new Date());
+    if (outcome != null) {
+      release.append(KEY_OUTCOME, outcome);
+    }
+    // release lock only if still held by this process, the document is kept to preserve the lock token
+    locks(db).updateOne(
+        and(eq(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL), eq(KEY_OWNER, owner), eq(KEY_TOKEN, lockToken)),
+        new Document("$set", release));
+    lockToken = 0;
+  }
+
+  /**
+   * @param db MongoDatabase object
+   * @return outcome recorded by the last holder when releasing the lock, null if the lock is held,
+   * its lease expired or it was released without an outcome
+   */
+  public String getReleasedOutcome(MongoDatabase db) {
+    LockRecord lock = locks(db)
+        .find(eq(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL))
+        .projection(include(KEY_STATUS, KEY_OUTCOME))
+        .first();
+    return lock != null && STATUS_RELEASED.equals(lock.getStatus()) ? lock.getOutcome() : null;
   }
 
   /**
@@ -66,11 +199,134 @@ public class LockDao {
    * @return true if the lock is currently held
    */
   public boolean isLockHeld(MongoDatabase db) {
-    return db.getCollection(lockCollectionName).count() == 1;
+    LockRecord lock = locks(db)
+        .find(eq(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL))
+        .projection(include(KEY_STATUS, KEY_EXPIRES_AT))
+        .first();
+    if (lock == null || !STATUS_HELD.equals(lock.getStatus())) {
+      return false;
+    }
+    Date expiresAt = lock.getExpiresAt();
+    return expiresAt != null && expiresAt.after(new Date());
+  }
+
+  /**
+   * @return token of the lock held by this process, 0 if not held
+   */
+  public long getLockToken() {
+    return lockToken;
+  }
+
+  /**
+   * @return true if the lock acquired by this process could not be renewed because it has been taken over
+   */
+  public boolean isLockLost() {
+    return lockLost;
+  }
+
+  /**
+   * Fencing check of the writes done while holding the lock: reads the lock document and compares it with the owner
+   * and the token of the acquisition of this process. If the lock has been taken over meanwhile, it is marked lost.
+   *
+   * @param db MongoDatabase object
+   * @return true if the lock acquired by this process is still held with its token
+   */
+  public boolean verifyLock(MongoDatabase db) {
+    long token = lockToken;
+    if (lockLost || token == 0) {
+      return false;
+    }
+    LockRecord lock = locks(db)
+        .find(and(eq(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL), eq(KEY_OWNER, owner), eq(KEY_TOKEN, token),
+            eq(KEY_STATUS, STATUS_HELD)))
+        .projection(include(KEY_TOKEN))
+        .first();
+    if (lock == null) {
+      logger.error("Mongobee lock with token " + token + " has been taken over by another process");
+      lockLost = true;
+      stopHeartbeat();
+    }
+    return lock != null;
+  }
+
+  private synchronized void startHeartbeat(final MongoDatabase db) {
+    stopHeartbeat();
+    final long token = lockToken;
+    long period = Math.max(leaseMillis / 3, 1);
+    heartbeat = heartbeatExecutor().scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        renewLease(db, token);
+      }
+    }, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * One thread renews the leases of all locks of the JVM, e.g. when many databases are migrated at once
+   */
+  private static synchronized ScheduledExecutorService heartbeatExecutor() {
+    if (heartbeatExecutor == null) {
+      ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "mongobee-lock-heartbeat");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      executor.setKeepAliveTime(1, TimeUnit.MINUTES);
+      executor.allowCoreThreadTimeOut(true);
+      executor.setRemoveOnCancelPolicy(true);
+      heartbeatExecutor = executor;
+    }
+    return heartbeatExecutor;
+  }
+
+  private synchronized void stopHeartbeat() {
+    if (heartbeat != null) {
+      heartbeat.cancel(false);
+      heartbeat = null;
+    }
+  }
+
+  private void renewLease(MongoDatabase db, long token) {
+    try {
+      UpdateResult result = locks(db).updateOne(
+          and(eq(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL), eq(KEY_OWNER, owner), eq(KEY_TOKEN, token),
+              eq(KEY_STATUS, STATUS_HELD)),
+          new Document("$set", new Document(KEY_EXPIRES_AT, new Date(System.currentTimeMillis() + leaseMillis))));
+      if (result.getMatchedCount() == 0) {
+        logger.error("Mongobee lock with token " + token + " has been taken over by another process");
+        lockLost = true;
+        stopHeartbeat();
+      }
+    } catch (RuntimeException e) {
+      logger.warn("Mongobee lock lease could not be renewed, retrying", e);
+    }
+  }
+
+  /**
+   * @return handle of the lock collection, created once per database and collection name
+   */
+  private synchronized MongoCollection<LockRecord> locks(MongoDatabase db) {
+    if (locks == null || lockDatabase != db) {
+      locks = db.getCollection(lockCollectionName, LockRecord.class)
+          .withCodecRegistry(MongobeeCodecs.codecRegistry(db.getCodecRegistry()));
+      lockDatabase = db;
+    }
+    return locks;
+  }
+
+  /**
+   * @param leaseMillis time after which a lock not renewed by its holder may be taken over, default is 60 seconds
+   */
+  public void setLeaseMillis(long leaseMillis) {
+    this.leaseMillis = leaseMillis;
   }
 
-  public void setLockCollectionName(String lockCollectionName) {
+  public synchronized void setLockCollectionName(String lockCollectionName) {
 	this.lockCollectionName = lockCollectionName;
+	this.locks = null;
   }
 
 }
@@ -0,0 +1,58 @@
+package com.github.mongobee.core.dao;
+
+import java.util.Date;
+
+/**
+ * Lock document as read by {@link LockDao}. Fields excluded by a projection are null (0 for the token).
+ *
+ * @since 0.14
+ */
+public final class LockRecord {
+  static final String KEY_PROP_NAME = "key";
+  static final String KEY_STATUS = "status";
+  static final String KEY_OWNER = "owner";
+  static final String KEY_EXPIRES_AT = "expiresAt";
+  static final String KEY_TOKEN = "token";
+  static final String KEY_OUTCOME = "outcome";
+
+  private final String key;
+  private final String status;
+  private final String owner;
+  private final Date expiresAt;
+  private final long token;
+  private final String outcome;
+
+  public LockRecord(String key, String status, String owner, Date expiresAt, long token, String outcome) {
+    this.key = key;
+    this.status = status;
+    this.owner = owner;
+    this.expiresAt = expiresAt;
+    this.token = token;
+    this.outcome = outcome;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public String getOwner() {
+    return owner;
+  }
+
+  public Date getExpiresAt() {
+    return expiresAt;
+  }
+
+  public long getToken() {
+    return token;
+  }
+
+  public String getOutcome() {
+    return outcome;
+  }
+
+}
@@ -0,0 +1,97 @@
+package com.github.mongobee.core.dao;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import java.util.Date;
+
+/**
+ * Reads and writes {@link LockRecord} directly, without an intermediate {@link org.bson.Document}
+ *
+ * @since 0.14
+ */
+public class LockRecordCodec implements Codec<LockRecord> {
+
+  @Override
+  public void encode(BsonWriter writer, LockRecord lock, EncoderContext encoderContext) {
+    writer.writeStartDocument();
+    writeString(writer, LockRecord.KEY_PROP_NAME, lock.getKey());
+    writeString(writer, LockRecord.KEY_STATUS, lock.getStatus());
+    writeString(writer, LockRecord.KEY_OWNER, lock.getOwner());
+    if (lock.getExpiresAt() != null) {
+      writer.writeDateTime(LockRecord.KEY_EXPIRES_AT, lock.getExpiresAt().getTime());
+    }
+    writer.writeInt64(LockRecord.KEY_TOKEN, lock.getToken());
+    writeString(writer, LockRecord.KEY_OUTCOME, lock.getOutcome());
+    writer.writeEndDocument();
+  }
+
+  @Override
+  public LockRecord decode(BsonReader reader, DecoderContext decoderContext) {
+    String key = null;
+    String status = null;
+    String owner = null;
+    Date expiresAt = null;
+    long token = 0;
+    String outcome = null;
+
+    reader.readStartDocument();
+    while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+      String name = reader.readName();
+      BsonType type = reader.getCurrentBsonType();
+      if (type == BsonType.NULL) {
+        reader.readNull();
+      } else if (LockRecord.KEY_PROP_NAME.equals(name)) {
+        key = reader.readString();
+      } else if (LockRecord.KEY_STATUS.equals(name)) {
+        status = reader.readString();
+      } else if (LockRecord.KEY_OWNER.equals(name)) {
+        owner = reader.readString();
+      } else if (LockRecord.KEY_EXPIRES_AT.equals(name)) {
+        expiresAt = new Date(reader.readDateTime());
+      } else if (LockRecord.KEY_TOKEN.equals(name)) {
+        token = readNumber(reader, type);
+      } else if (LockRecord.KEY_OUTCOME.equals(name)) {
+        outcome = reader.readString();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.readEndDocument();
+
+    return new LockRecord(key, status, owner, expiresAt, token, outcome);
+  }
+
+  @Override
+  public Class<LockRecord> getEncoderClass() {
+    return LockRecord.class;
+  }
+
+  /**
+   * $inc of a missing field stores the type of the increment, tokens written by other clients may be int or double
+   */
+  private static long readNumber(BsonReader reader, BsonType type) {
+    switch (type) {
+      case INT32:
+        return reader.readInt32();
+      case INT64:
+        return reader.readInt64();
+      case DOUBLE:
+        return (long) reader.readDouble();
+      default:
+        reader.skipValue();
+        return 0;
+    }
+  }
+
+  private static void writeString(BsonWriter writer, String name, String value) {
+    if (value != null) {
+      writer.writeString(name, value);
+    }
+  }
+
+}
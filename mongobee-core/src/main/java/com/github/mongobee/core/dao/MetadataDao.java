@@ -0,0 +1,90 @@
+package com.github.mongobee.core.dao;
+
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.UpdateOptions;
+import org.bson.Document;
+
+import java.util.Date;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Projections.include;
+
+/**
+ * Documents describing the state of the migrations, kept in a separate collection and looked up by _id.
+ *
+ * @since 0.14
+ */
+public class MetadataDao {
+  private static final String KEY_ID = "_id";
+  private static final String KEY_FINGERPRINT = "fingerprint";
+  private static final String KEY_UPDATED_AT = "updatedAt";
+  private static final String KEY_VERSION = "version";
+  private static final String KEY_CHANGELOG_COLLECTION = "changelogCollection";
+  private static final String KEY_LOCK_COLLECTION = "lockCollection";
+
+  private static final String PLAN_ID = "plan";
+  private static final String BOOTSTRAP_ID = "bootstrap";
+
+  private String metadataCollectionName;
+
+  public MetadataDao(String metadataCollectionName) {
+    this.metadataCollectionName = metadataCollectionName;
+  }
+
+  /**
+   * @param db MongoDatabase object
+   * @return fingerprint of the last successfully executed changeset plan or null if none was stored
+   */
+  public String getPlanFingerprint(MongoDatabase db) {
+    Document plan = db.getCollection(metadataCollectionName)
+        .find(eq(KEY_ID, PLAN_ID))
+        .projection(include(KEY_FINGERPRINT))
+        .first();
+    return plan != null ? plan.getString(KEY_FINGERPRINT) : null;
+  }
+
+  public void savePlanFingerprint(MongoDatabase db, String fingerprint) {
+    db.getCollection(metadataCollectionName).updateOne(eq(KEY_ID, PLAN_ID),
+        new Document("$set", new Document(KEY_FINGERPRINT, fingerprint).append(KEY_UPDATED_AT, new Date())),
+        new UpdateOptions().upsert(true));
+  }
+
+  /**
+   * @param db                      MongoDatabase object
+   * @param version                 schema version of the collections of Mongobee
+   * @param changelogCollectionName changelog collection
+   * @param lockCollectionName      lock collection
+   * @return true if the indexes of exactly these collections have been created for the version
+   */
+  public boolean isBootstrapped(MongoDatabase db, int version, String changelogCollectionName, String lockCollectionName) {
+    return db.getCollection(metadataCollectionName)
+        .find(and(eq(KEY_ID, BOOTSTRAP_ID), eq(KEY_VERSION, version),
+            eq(KEY_CHANGELOG_COLLECTION, changelogCollectionName), eq(KEY_LOCK_COLLECTION, lockCollectionName)))
+        .projection(include(KEY_ID))
+        .first() != null;
+  }
+
+  /**
+   * Records that the indexes of the collections have been created, see
+   * {@link #isBootstrapped(MongoDatabase, int, String, String)}
+   *
+   * @param db                      MongoDatabase object
+   * @param version                 schema version of the collections of Mongobee
+   * @param changelogCollectionName changelog collection
+   * @param lockCollectionName      lock collection
+   */
+  public void saveBootstrapped(MongoDatabase db, int version, String changelogCollectionName, String lockCollectionName) {
+    db.getCollection(metadataCollectionName).updateOne(eq(KEY_ID, BOOTSTRAP_ID),
+        new Document("$set", new Document(KEY_VERSION, version)
+            .append(KEY_CHANGELOG_COLLECTION, changelogCollectionName)
+            .append(KEY_LOCK_COLLECTION, lockCollectionName)
+            .append(KEY_UPDATED_AT, new Date())),
+        new UpdateOptions().upsert(true));
+  }
+
+  public void setMetadataCollectionName(String metadataCollectionName) {
+    this.metadataCollectionName = metadataCollectionName;
+  }
+
+}
@@ -0,0 +1,26 @@
+package com.github.mongobee.core.dao;
+
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+
+/**
+ * Codecs of the documents written by Mongobee
+ *
+ * @since 0.14
+ */
+public final class MongobeeCodecs {
+
+  private MongobeeCodecs() {
+  }
+
+  /**
+   * @param databaseRegistry registry of the database, used for filters, updates and all other types
+   * @return registry with the codecs of {@link com.github.mongobee.core.changeset.ChangeEntry} and {@link LockRecord}
+   */
+  public static CodecRegistry codecRegistry(CodecRegistry databaseRegistry) {
+    return CodecRegistries.fromRegistries(
+        CodecRegistries.fromCodecs(new ChangeEntryCodec(), new LockRecordCodec()),
+        databaseRegistry);
+  }
+
+}
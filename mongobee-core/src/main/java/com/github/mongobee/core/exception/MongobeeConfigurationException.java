@@ -8,4 +8,8 @@ public class MongobeeConfigurationException extends MongobeeException {
   public MongobeeConfigurationException(String message) {
     super(message);
   }
+
+  public MongobeeConfigurationException(String message, Throwable cause) {
+    super(message, cause);
+  }
 }
@@ -0,0 +1,13 @@
+package com.github.mongobee.core.exception;
+
+/**
+ * The process lock of this process has been taken over by another process, e.g. after the lease of a stalled
+ * holder expired, so the migration must not write anymore
+ *
+ * @since 0.14
+ */
+public class MongobeeLockException extends MongobeeConnectionException {
+  public MongobeeLockException(String message) {
+    super(message, null);
+  }
+}
@@ -0,0 +1,141 @@
+package com.github.mongobee.core.invocation;
+
+import com.github.mongobee.core.changeset.ChangeSetCheckpoint;
+import com.github.mongobee.core.exception.MongobeeChangeSetException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Invokes changeset methods. The parameters of a method are matched with the {@link ParameterResolver}s once,
+ * the resulting invocation plan (a {@link MethodHandle} and a resolver per parameter) is reused for every invocation.
+ * A {@link ChangeSetCheckpoint} parameter gets the checkpoint of the invoked changeset.
+ *
+ * @since 0.14
+ */
+public class ChangeSetInvoker {
+
+  private final List<ParameterResolver> resolvers = new CopyOnWriteArrayList<>();
+  private final ConcurrentMap<Method, InvocationPlan> plans = new ConcurrentHashMap<>();
+
+  public ChangeSetInvoker() {
+    resolvers.add(new CoreParameterResolver());
+  }
+
+  /**
+   * @param resolver resolver consulted before the resolvers added earlier
+   */
+  public void addResolver(ParameterResolver resolver) {
+    resolvers.add(0, resolver);
+    plans.clear();
+  }
+
+  /**
+   * @param changeSetMethod changeset method
+   * @return true if the method takes a {@link ChangeSetCheckpoint}
+   * @throws MongobeeChangeSetException if an argument of the method cannot be resolved
+   */
+  public boolean acceptsCheckpoint(Method changeSetMethod) throws MongobeeChangeSetException {
+    return plan(changeSetMethod).acceptsCheckpoint;
+  }
+
+  /**
+   * @param context           migration the changeset belongs to
+   * @param changeSetMethod   changeset method
+   * @param changeLogInstance changelog instance
+   * @param checkpoint        checkpoint of the changeset, null if the method does not take one
+   * @return value returned by the method
+   * @throws MongobeeChangeSetException if an argument of the method cannot be resolved
+   * @throws InvocationTargetException  wraps an exception thrown by the method
+   */
+  public Object invoke(MigrationContext context, Method changeSetMethod, Object changeLogInstance,
+                       ChangeSetCheckpoint checkpoint) throws MongobeeChangeSetException, InvocationTargetException {
+    InvocationPlan plan = plan(changeSetMethod);
+    Object[] arguments = new Object[plan.parameterResolvers.length];
+    for (int i = 0; i < arguments.length; i++) {
+      ParameterResolver resolver = plan.parameterResolvers[i];
+      arguments[i] = resolver != null ? context.getArgument(plan.parameterTypes[i], resolver) : checkpoint;
+    }
+
+    try {
+      return plan.handle.invokeExact(changeLogInstance, arguments);
+    } catch (Throwable e) {
+      throw new InvocationTargetException(e);
+    }
+  }
+
+  private InvocationPlan plan(Method changeSetMethod) throws MongobeeChangeSetException {
+    InvocationPlan plan = plans.get(changeSetMethod);
+    if (plan == null) {
+      plan = createPlan(changeSetMethod);
+      plans.putIfAbsent(changeSetMethod, plan);
+    }
+    return plan;
+  }
+
+  private InvocationPlan createPlan(Method changeSetMethod) throws MongobeeChangeSetException {
+    Class<?>[] parameterTypes = changeSetMethod.getParameterTypes();
+    ParameterResolver[] parameterResolvers = new ParameterResolver[parameterTypes.length];
+    boolean acceptsCheckpoint = false;
+    for (int i = 0; i < parameterTypes.length; i++) {
+      if (parameterTypes[i].equals(ChangeSetCheckpoint.class)) {
+        if (i != parameterTypes.length - 1) {
+          throw new MongobeeChangeSetException("ChangeSet method " + changeSetMethod.getName() +
+              " has to take ChangeSetCheckpoint as its last argument");
+        }
+        acceptsCheckpoint = true;
+      } else {
+        parameterResolvers[i] = findResolver(changeSetMethod, parameterTypes[i]);
+      }
+    }
+
+    MethodHandle handle;
+    try {
+      handle = MethodHandles.publicLookup().unreflect(changeSetMethod);
+    } catch (IllegalAccessException e) {
+      throw new MongobeeChangeSetException("ChangeSet method " + changeSetMethod.getName() + " is not accessible: " + e.getMessage());
+    }
+    if (Modifier.isStatic(changeSetMethod.getModifiers())) {
+      handle = MethodHandles.dropArguments(handle, 0, Object.class);
+    }
+    // (Object changeLog, Object[] arguments) -> Object, void methods return null
+    handle = handle.asType(MethodType.genericMethodType(parameterTypes.length + 1))
+        .asSpreader(Object[].class, parameterTypes.length);
+
+    return new InvocationPlan(handle, parameterTypes, parameterResolvers, acceptsCheckpoint);
+  }
+
+  private ParameterResolver findResolver(Method changeSetMethod, Class<?> parameterType) throws MongobeeChangeSetException {
+    for (ParameterResolver resolver : resolvers) {
+      if (resolver.supports(parameterType)) {
+        return resolver;
+      }
+    }
+    throw new MongobeeChangeSetException("ChangeSet method " + changeSetMethod.getName() +
+        " has wrong arguments list. Please see docs for more info!");
+  }
+
+  private static class InvocationPlan {
+    private final MethodHandle handle;
+    private final Class<?>[] parameterTypes;
+    private final ParameterResolver[] parameterResolvers; // null for the checkpoint
+    private final boolean acceptsCheckpoint;
+
+    InvocationPlan(MethodHandle handle, Class<?>[] parameterTypes, ParameterResolver[] parameterResolvers,
+                   boolean acceptsCheckpoint) {
+      this.handle = handle;
+      this.parameterTypes = parameterTypes;
+      this.parameterResolvers = parameterResolvers;
+      this.acceptsCheckpoint = acceptsCheckpoint;
+    }
+  }
+
+}
@@ -0,0 +1,28 @@
+package com.github.mongobee.core.invocation;
+
+import com.github.mongobee.core.throttle.Throttle;
+import com.mongodb.DB;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * Resolves {@link MongoDatabase}, {@link DB} and {@link Throttle} arguments. Without a configured throttle,
+ * changesets get a throttle that does not limit
+ *
+ * @since 0.14
+ */
+public class CoreParameterResolver implements ParameterResolver {
+
+  @Override
+  public boolean supports(Class<?> parameterType) {
+    return parameterType.equals(MongoDatabase.class) || parameterType.equals(DB.class) || parameterType.equals(Throttle.class);
+  }
+
+  @Override
+  public Object resolve(Class<?> parameterType, MigrationContext context) {
+    if (parameterType.equals(Throttle.class)) {
+      return context.getThrottle() != null ? context.getThrottle() : new Throttle();
+    }
+    return parameterType.equals(MongoDatabase.class) ? context.getMongoDatabase() : context.getDb();
+  }
+
+}
@@ -0,0 +1,156 @@
+package com.github.mongobee.core.invocation;
+
+import com.github.mongobee.core.changeset.ChangeSetOptions;
+import com.github.mongobee.core.exception.MongobeeChangeSetException;
+import com.mongodb.DB;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadConcernLevel;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.MongoDatabase;
+
+import static com.github.mongobee.core.utils.StringUtils.hasText;
+
+/**
+ * Write concern, read preference and read concern of the database passed to a changeset, parsed from
+ * {@link ChangeSetOptions}. Settings not declared are null and keep the value of the connection.
+ *
+ * @since 0.14
+ */
+public final class DatabaseOptions {
+
+  private final WriteConcern writeConcern;
+  private final ReadPreference readPreference;
+  private final ReadConcern readConcern;
+
+  public DatabaseOptions(WriteConcern writeConcern, ReadPreference readPreference, ReadConcern readConcern) {
+    this.writeConcern = writeConcern;
+    this.readPreference = readPreference;
+    this.readConcern = readConcern;
+  }
+
+  /**
+   * @param annotation options of a changeset method, may be null
+   * @return parsed options, null if the annotation is missing or declares nothing
+   * @throws MongobeeChangeSetException if a name is not recognized
+   */
+  public static DatabaseOptions of(ChangeSetOptions annotation) throws MongobeeChangeSetException {
+    if (annotation == null) {
+      return null;
+    }
+    WriteConcern writeConcern = hasText(annotation.writeConcern()) ? writeConcern(annotation.writeConcern()) : null;
+    ReadPreference readPreference = null;
+    ReadConcern readConcern = null;
+    try {
+      if (hasText(annotation.readPreference())) {
+        readPreference = ReadPreference.valueOf(annotation.readPreference());
+      }
+      if (hasText(annotation.readConcern())) {
+        readConcern = new ReadConcern(ReadConcernLevel.fromString(annotation.readConcern()));
+      }
+    } catch (IllegalArgumentException e) {
+      throw new MongobeeChangeSetException("Invalid @ChangeSetOptions: " + e.getMessage());
+    }
+    if (writeConcern == null && readPreference == null && readConcern == null) {
+      return null;
+    }
+    return new DatabaseOptions(writeConcern, readPreference, readConcern);
+  }
+
+  private static WriteConcern writeConcern(String name) throws MongobeeChangeSetException {
+    WriteConcern writeConcern = WriteConcern.valueOf(name);
+    if (writeConcern != null) {
+      return writeConcern;
+    }
+    try {
+      return new WriteConcern(Integer.parseInt(name));
+    } catch (NumberFormatException e) {
+      throw new MongobeeChangeSetException("Invalid @ChangeSetOptions: unknown write concern " + name);
+    }
+  }
+
+  /**
+   * @param database database of the connection
+   * @return database with these options
+   */
+  public MongoDatabase apply(MongoDatabase database) {
+    MongoDatabase derived = database;
+    if (writeConcern != null) {
+      derived = derived.withWriteConcern(writeConcern);
+    }
+    if (readPreference != null) {
+      derived = derived.withReadPreference(readPreference);
+    }
+    if (readConcern != null) {
+      derived = derived.withReadConcern(readConcern);
+    }
+    return derived;
+  }
+
+  /**
+   * The legacy DB has setters only, so a new DB instance of the same client is configured.
+   *
+   * @param db database of the connection, for Jongo driver and backward compatibility
+   * @return new DB object with these options
+   */
+  public DB apply(DB db) {
+    DB derived = new DB(db.getMongo(), db.getName());
+    derived.setWriteConcern(writeConcern != null ? writeConcern : db.getWriteConcern());
+    derived.setReadPreference(readPreference != null ? readPreference : db.getReadPreference());
+    derived.setReadConcern(readConcern != null ? readConcern : db.getReadConcern());
+    return derived;
+  }
+
+  /**
+   * @return write concern, null to keep the one of the connection
+   */
+  public WriteConcern getWriteConcern() {
+    return writeConcern;
+  }
+
+  /**
+   * @return read preference, null to keep the one of the connection
+   */
+  public ReadPreference getReadPreference() {
+    return readPreference;
+  }
+
+  /**
+   * @return read concern, null to keep the one of the connection
+   */
+  public ReadConcern getReadConcern() {
+    return readConcern;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    DatabaseOptions that = (DatabaseOptions) o;
+    return equal(writeConcern, that.writeConcern) && equal(readPreference, that.readPreference)
+        && equal(readConcern, that.readConcern);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = writeConcern != null ? writeConcern.hashCode() : 0;
+    result = 31 * result + (readPreference != null ? readPreference.hashCode() : 0);
+    result = 31 * result + (readConcern != null ? readConcern.hashCode() : 0);
+    return result;
+  }
+
+  private static boolean equal(Object a, Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  @Override
+  public String toString() {
+    return "[writeConcern: " + writeConcern + ", readPreference: " + readPreference
+        + ", readConcern: " + (readConcern != null ? readConcern.asDocument() : null) + "]";
+  }
+
+}
@@ -0,0 +1,98 @@
+package com.github.mongobee.core.invocation;
+
+import com.github.mongobee.core.exception.MongobeeChangeSetException;
+import com.github.mongobee.core.throttle.Throttle;
+import com.mongodb.DB;
+import com.mongodb.client.MongoDatabase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Database of a single migration and the changeset arguments resolved for it
+ *
+ * @since 0.14
+ */
+public class MigrationContext {
+
+  private final DB db;
+  private final MongoDatabase mongoDatabase;
+  private final String dbName;
+  private final Throttle throttle;
+  private final DatabaseOptions options;
+  private final Map<Class<?>, Object> arguments = new HashMap<>();
+  private final Map<DatabaseOptions, MigrationContext> derivedContexts = new HashMap<>();
+
+  public MigrationContext(DB db, MongoDatabase mongoDatabase, String dbName) {
+    this(db, mongoDatabase, dbName, null);
+  }
+
+  public MigrationContext(DB db, MongoDatabase mongoDatabase, String dbName, Throttle throttle) {
+    this(db, mongoDatabase, dbName, throttle, null);
+  }
+
+  private MigrationContext(DB db, MongoDatabase mongoDatabase, String dbName, Throttle throttle, DatabaseOptions options) {
+    this.db = db;
+    this.mongoDatabase = mongoDatabase;
+    this.dbName = dbName;
+    this.throttle = throttle;
+    this.options = options;
+  }
+
+  /**
+   * Context of the changesets declaring the options, with its own databases and arguments (created once per
+   * migration and distinct options). The throttle is shared with this context.
+   *
+   * @param options driver settings of a changeset, may be null
+   * @return this context if options is null, the derived context otherwise
+   */
+  public synchronized MigrationContext withOptions(DatabaseOptions options) {
+    if (options == null || options.equals(this.options)) {
+      return this;
+    }
+    MigrationContext derived = derivedContexts.get(options);
+    if (derived == null) {
+      derived = new MigrationContext(db != null ? options.apply(db) : null,
+          mongoDatabase != null ? options.apply(mongoDatabase) : null, dbName, throttle, options);
+      derivedContexts.put(options, derived);
+    }
+    return derived;
+  }
+
+  /**
+   * @return com.mongodb.DB, for Jongo driver and backward compatibility
+   */
+  public DB getDb() {
+    return db;
+  }
+
+  public MongoDatabase getMongoDatabase() {
+    return mongoDatabase;
+  }
+
+  public String getDbName() {
+    return dbName;
+  }
+
+  /**
+   * @return throttle shared by the changesets of the migration, null if not configured
+   */
+  public Throttle getThrottle() {
+    return throttle;
+  }
+
+  /**
+   * @return driver settings of the databases of this context, null for the settings of the connection
+   */
+  public DatabaseOptions getOptions() {
+    return options;
+  }
+
+  synchronized Object getArgument(Class<?> parameterType, ParameterResolver resolver) throws MongobeeChangeSetException {
+    if (!arguments.containsKey(parameterType)) {
+      arguments.put(parameterType, resolver.resolve(parameterType, this));
+    }
+    return arguments.get(parameterType);
+  }
+
+}
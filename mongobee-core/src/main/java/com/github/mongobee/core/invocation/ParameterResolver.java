@@ -0,0 +1,28 @@
+package com.github.mongobee.core.invocation;
+
+import com.github.mongobee.core.exception.MongobeeChangeSetException;
+
+/**
+ * Provides the arguments of changeset methods. An argument is resolved once per migration and type,
+ * and passed to all changesets of the migration declaring a parameter of the type.
+ *
+ * @see com.github.mongobee.core.Mongobee#addParameterResolver(ParameterResolver)
+ * @since 0.14
+ */
+public interface ParameterResolver {
+
+  /**
+   * @param parameterType type of a changeset method parameter
+   * @return true if this resolver provides arguments of the type
+   */
+  boolean supports(Class<?> parameterType);
+
+  /**
+   * @param parameterType supported parameter type
+   * @param context       migration the argument is resolved for
+   * @return argument, may be null
+   * @throws MongobeeChangeSetException if the argument cannot be provided
+   */
+  Object resolve(Class<?> parameterType, MigrationContext context) throws MongobeeChangeSetException;
+
+}
@@ -0,0 +1,25 @@
+package com.github.mongobee.core.metrics;
+
+/**
+ * Result of a single changeset, reported to {@link MigrationListener#changeSetCompleted}
+ *
+ * @since 0.14
+ */
+public enum ChangeSetOutcome {
+  /**
+   * New changeset executed and recorded
+   */
+  APPLIED,
+  /**
+   * runAlways changeset or changed runOnChange changeset executed again
+   */
+  REAPPLIED,
+  /**
+   * Changeset already applied, passed over
+   */
+  SKIPPED,
+  /**
+   * Changeset method failed
+   */
+  FAILED
+}
@@ -0,0 +1,103 @@
+package com.github.mongobee.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds. Every power of two is split into 8 buckets,
+ * so percentiles are accurate to 12.5%; count, total and maximum are exact.
+ *
+ * @since 0.14
+ */
+public class Histogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  public void record(long nanos) {
+    long value = Math.max(nanos, 0);
+    buckets.incrementAndGet(bucketIndex(value));
+    count.incrementAndGet();
+    totalNanos.addAndGet(value);
+    long max = maxNanos.get();
+    while (value > max && !maxNanos.compareAndSet(max, value)) {
+      max = maxNanos.get();
+    }
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getTotalNanos() {
+    return totalNanos.get();
+  }
+
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+
+  public long getMeanNanos() {
+    long count = this.count.get();
+    return count > 0 ? totalNanos.get() / count : 0;
+  }
+
+  /**
+   * @param quantile from 0 to 1, e.g. 0.99
+   * @return upper bound of the bucket holding the quantile, 0 when nothing has been recorded
+   */
+  public long getPercentileNanos(double quantile) {
+    long count = this.count.get();
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max((long) Math.ceil(quantile * count), 1);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets.get(i);
+      if (seen >= rank) {
+        return Math.min(bucketUpperBound(i), maxNanos.get());
+      }
+    }
+    return maxNanos.get();
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+  }
+
+  static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lower + (1L << shift) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "count: " + getCount()
+        + ", total: " + millis(getTotalNanos()) + " ms"
+        + ", mean: " + millis(getMeanNanos()) + " ms"
+        + ", p50: " + millis(getPercentileNanos(0.5)) + " ms"
+        + ", p99: " + millis(getPercentileNanos(0.99)) + " ms"
+        + ", max: " + millis(getMaxNanos()) + " ms";
+  }
+
+  private static String millis(long nanos) {
+    return String.format("%.1f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+}
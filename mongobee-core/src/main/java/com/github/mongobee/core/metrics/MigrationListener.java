@@ -0,0 +1,42 @@
+package com.github.mongobee.core.metrics;
+
+import com.github.mongobee.core.MigrationOutcome;
+import com.github.mongobee.core.changeset.ChangeEntry;
+
+/**
+ * Receives the timing of a migration, e.g. to bridge it to a metrics library.
+ * Listeners are called synchronously by the migrating threads, concurrently when changelogs are executed in parallel
+ * or when one listener is shared by several runners, so they should be thread-safe and fast.
+ * Exceptions thrown by a listener are logged and ignored.
+ *
+ * @see MigrationMetrics
+ * @see Slf4jMetricsReporter
+ * @since 0.14
+ */
+public interface MigrationListener {
+
+  /**
+   * @param phase         completed phase
+   * @param durationNanos time spent in the phase
+   */
+  void phaseCompleted(MigrationPhase phase, long durationNanos);
+
+  /**
+   * @param changeEntry   changeset
+   * @param outcome       result of the changeset
+   * @param durationNanos time spent on the changeset, including the check whether it has been applied
+   *                      and the write of its change entry
+   */
+  void changeSetCompleted(ChangeEntry changeEntry, ChangeSetOutcome outcome, long durationNanos);
+
+  /**
+   * Called after a migration executed by this process, when the process lock has been released.
+   * Not called when the process exits without the lock or because the database is up to date.
+   *
+   * @param dbName        migrated database
+   * @param outcome       outcome of the migration
+   * @param durationNanos time since the start of the execution
+   */
+  void migrationCompleted(String dbName, MigrationOutcome outcome, long durationNanos);
+
+}
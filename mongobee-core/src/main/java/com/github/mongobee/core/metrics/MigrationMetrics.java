@@ -0,0 +1,101 @@
+package com.github.mongobee.core.metrics;
+
+import com.github.mongobee.core.MigrationOutcome;
+import com.github.mongobee.core.changeset.ChangeEntry;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process {@link MigrationListener} keeping a {@link Histogram} per phase and counters of changeset outcomes,
+ * accumulated over all migrations it listens to. Lock-free, may be shared by several runners.
+ *
+ * @since 0.14
+ */
+public class MigrationMetrics implements MigrationListener {
+
+  private final Map<MigrationPhase, Histogram> phases = new EnumMap<>(MigrationPhase.class);
+  private final Map<ChangeSetOutcome, AtomicLong> changeSets = new EnumMap<>(ChangeSetOutcome.class);
+  private final Map<MigrationOutcome, AtomicLong> migrations = new EnumMap<>(MigrationOutcome.class);
+  private final Histogram migrationTime = new Histogram();
+
+  public MigrationMetrics() {
+    // maps are filled once, so reading them is thread-safe
+    for (MigrationPhase phase : MigrationPhase.values()) {
+      phases.put(phase, new Histogram());
+    }
+    for (ChangeSetOutcome outcome : ChangeSetOutcome.values()) {
+      changeSets.put(outcome, new AtomicLong());
+    }
+    for (MigrationOutcome outcome : MigrationOutcome.values()) {
+      migrations.put(outcome, new AtomicLong());
+    }
+  }
+
+  @Override
+  public void phaseCompleted(MigrationPhase phase, long durationNanos) {
+    phases.get(phase).record(durationNanos);
+  }
+
+  @Override
+  public void changeSetCompleted(ChangeEntry changeEntry, ChangeSetOutcome outcome, long durationNanos) {
+    changeSets.get(outcome).incrementAndGet();
+  }
+
+  @Override
+  public void migrationCompleted(String dbName, MigrationOutcome outcome, long durationNanos) {
+    migrations.get(outcome).incrementAndGet();
+    migrationTime.record(durationNanos);
+  }
+
+  /**
+   * @param phase migration phase
+   * @return durations of the phase
+   */
+  public Histogram getPhase(MigrationPhase phase) {
+    return phases.get(phase);
+  }
+
+  /**
+   * @param outcome changeset outcome
+   * @return number of changesets with the outcome
+   */
+  public long getChangeSets(ChangeSetOutcome outcome) {
+    return changeSets.get(outcome).get();
+  }
+
+  /**
+   * @param outcome migration outcome
+   * @return number of migrations with the outcome
+   */
+  public long getMigrations(MigrationOutcome outcome) {
+    return migrations.get(outcome).get();
+  }
+
+  /**
+   * @return durations of the whole migrations
+   */
+  public Histogram getMigrationTime() {
+    return migrationTime;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder summary = new StringBuilder("[migrations: ").append(migrationTime);
+    for (MigrationPhase phase : MigrationPhase.values()) {
+      Histogram histogram = phases.get(phase);
+      if (histogram.getCount() > 0) {
+        summary.append("; ").append(phase.name().toLowerCase()).append(": ").append(histogram);
+      }
+    }
+    summary.append("; changesets");
+    String separator = ": ";
+    for (ChangeSetOutcome outcome : ChangeSetOutcome.values()) {
+      summary.append(separator).append(outcome.name().toLowerCase()).append(' ').append(getChangeSets(outcome));
+      separator = ", ";
+    }
+    return summary.append(']').toString();
+  }
+
+}
@@ -0,0 +1,45 @@
+package com.github.mongobee.core.metrics;
+
+/**
+ * Timed phases of a migration, reported to {@link MigrationListener#phaseCompleted(MigrationPhase, long)}
+ *
+ * @since 0.14
+ */
+public enum MigrationPhase {
+  /**
+   * Opening the database
+   */
+  CONNECT,
+  /**
+   * Creating the changelog collection index and initializing the lock collection
+   */
+  INDEX_ENSURE,
+  /**
+   * Acquiring the process lock, including the time spent waiting for the lock holder
+   */
+  LOCK_ACQUIRE,
+  /**
+   * Finding the changelogs and their changesets (and computing the plan fingerprint when the up-to-date check is enabled)
+   */
+  CHANGELOG_SCAN,
+  /**
+   * Loading the applied changes with one query
+   */
+  APPLIED_CHANGES_LOAD,
+  /**
+   * Creating a changelog instance, once per changelog
+   */
+  CHANGELOG_INSTANTIATION,
+  /**
+   * Checking whether a changeset has been applied, once per changeset
+   */
+  CHANGE_CHECK,
+  /**
+   * Executing a changeset method, once per executed changeset
+   */
+  CHANGESET_EXECUTION,
+  /**
+   * Writing the change entry of an applied changeset, or writing the batched change entries
+   */
+  ENTRY_SAVE
+}
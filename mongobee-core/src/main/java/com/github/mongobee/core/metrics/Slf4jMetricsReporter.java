@@ -0,0 +1,56 @@
+package com.github.mongobee.core.metrics;
+
+import com.github.mongobee.core.MigrationOutcome;
+import com.github.mongobee.core.changeset.ChangeEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs the duration of every changeset (debug) and a summary of the collected {@link MigrationMetrics}
+ * after every migration (info).
+ *
+ * @since 0.14
+ */
+public class Slf4jMetricsReporter implements MigrationListener {
+  private static final Logger logger = LoggerFactory.getLogger("Mongobee metrics");
+
+  private final MigrationMetrics metrics;
+
+  public Slf4jMetricsReporter() {
+    this(new MigrationMetrics());
+  }
+
+  /**
+   * @param metrics metrics updated and reported by this listener
+   */
+  public Slf4jMetricsReporter(MigrationMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void phaseCompleted(MigrationPhase phase, long durationNanos) {
+    metrics.phaseCompleted(phase, durationNanos);
+  }
+
+  @Override
+  public void changeSetCompleted(ChangeEntry changeEntry, ChangeSetOutcome outcome, long durationNanos) {
+    metrics.changeSetCompleted(changeEntry, outcome, durationNanos);
+    if (logger.isDebugEnabled()) {
+      logger.debug(changeEntry + " " + outcome.name().toLowerCase() + " in " + TimeUnit.NANOSECONDS.toMillis(durationNanos) + " ms");
+    }
+  }
+
+  @Override
+  public void migrationCompleted(String dbName, MigrationOutcome outcome, long durationNanos) {
+    metrics.migrationCompleted(dbName, outcome, durationNanos);
+    logger.info("Mongobee migration of " + dbName + " " + outcome.name().toLowerCase() + " in "
+        + TimeUnit.NANOSECONDS.toMillis(durationNanos) + " ms, metrics " + metrics);
+  }
+
+  public MigrationMetrics getMetrics() {
+    return metrics;
+  }
+
+}
@@ -0,0 +1,17 @@
+package com.github.mongobee.core.throttle;
+
+/**
+ * Measures the load of the cluster a {@link Throttle} slows down for. Called by the throttled threads at most once
+ * per probe interval; exceptions are logged and the previous sample is kept.
+ *
+ * @see ServerStatusLoadProbe
+ * @since 0.14
+ */
+public interface LoadProbe {
+
+  /**
+   * @return current load
+   */
+  LoadSample sample();
+
+}
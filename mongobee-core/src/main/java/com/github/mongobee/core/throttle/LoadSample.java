@@ -0,0 +1,40 @@
+package com.github.mongobee.core.throttle;
+
+/**
+ * Load of the cluster at a point in time, as measured by a {@link LoadProbe}
+ *
+ * @since 0.14
+ */
+public class LoadSample {
+
+  /**
+   * Value of a measure the probe could not determine
+   */
+  public static final long UNKNOWN = -1;
+
+  private final long queuedOperations;
+  private final long replicationLagMillis;
+
+  /**
+   * @param queuedOperations     operations waiting for a lock or ticket on the primary, or {@link #UNKNOWN}
+   * @param replicationLagMillis how far the slowest secondary is behind the primary, or {@link #UNKNOWN}
+   */
+  public LoadSample(long queuedOperations, long replicationLagMillis) {
+    this.queuedOperations = queuedOperations;
+    this.replicationLagMillis = replicationLagMillis;
+  }
+
+  public long getQueuedOperations() {
+    return queuedOperations;
+  }
+
+  public long getReplicationLagMillis() {
+    return replicationLagMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "[queued operations: " + queuedOperations + ", replication lag: " + replicationLagMillis + " ms]";
+  }
+
+}
@@ -0,0 +1,106 @@
+package com.github.mongobee.core.throttle;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Reads the load of the connected server with the <tt>serverStatus</tt> (global lock queue)
+ * and <tt>replSetGetStatus</tt> (optime of the primary and the secondaries) commands.
+ * On a standalone server or mongos, and for users not authorized to run <tt>replSetGetStatus</tt>,
+ * the replication lag is {@link LoadSample#UNKNOWN}, the missing authorization is logged as a warning.
+ *
+ * @since 0.14
+ */
+public class ServerStatusLoadProbe implements LoadProbe {
+
+  private static final Logger logger = LoggerFactory.getLogger(ServerStatusLoadProbe.class);
+
+  private static final int UNAUTHORIZED = 13;
+  private static final int NO_REPLICATION_ENABLED = 76;
+  private static final int COMMAND_NOT_FOUND = 59;
+  private static final int PRIMARY = 1;
+  private static final int SECONDARY = 2;
+
+  private static final Document SERVER_STATUS = new Document("serverStatus", 1)
+      .append("metrics", 0)
+      .append("locks", 0);
+  private static final Document REPL_SET_GET_STATUS = new Document("replSetGetStatus", 1);
+
+  private final MongoDatabase adminDatabase;
+  private volatile boolean replicaSet = true;
+
+  /**
+   * @param adminDatabase <tt>admin</tt> database of the cluster, e.g. <tt>mongoClient.getDatabase("admin")</tt>
+   */
+  public ServerStatusLoadProbe(MongoDatabase adminDatabase) {
+    this.adminDatabase = adminDatabase;
+  }
+
+  @Override
+  public LoadSample sample() {
+    Document serverStatus = adminDatabase.runCommand(SERVER_STATUS);
+    Document replSetStatus = null;
+    if (replicaSet) {
+      try {
+        replSetStatus = adminDatabase.runCommand(REPL_SET_GET_STATUS);
+      } catch (MongoCommandException e) {
+        if (e.getErrorCode() != NO_REPLICATION_ENABLED && e.getErrorCode() != COMMAND_NOT_FOUND
+            && e.getErrorCode() != UNAUTHORIZED) {
+          throw e;
+        }
+        if (e.getErrorCode() == UNAUTHORIZED) {
+          logger.warn("Mongobee throttle cannot read the replication lag, the user is not authorized to run "
+              + "replSetGetStatus (e.g. clusterMonitor role): " + e.getErrorMessage());
+        } else {
+          logger.debug("Mongobee throttle does not read the replication lag of a server without replication");
+        }
+        replicaSet = false;
+      }
+    }
+    return toSample(serverStatus, replSetStatus);
+  }
+
+  static LoadSample toSample(Document serverStatus, Document replSetStatus) {
+    return new LoadSample(queuedOperations(serverStatus), replicationLagMillis(replSetStatus));
+  }
+
+  private static long queuedOperations(Document serverStatus) {
+    Document globalLock = (Document) serverStatus.get("globalLock");
+    Document currentQueue = globalLock != null ? (Document) globalLock.get("currentQueue") : null;
+    Number total = currentQueue != null ? (Number) currentQueue.get("total") : null;
+    return total != null ? total.longValue() : LoadSample.UNKNOWN;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static long replicationLagMillis(Document replSetStatus) {
+    List<Document> members = replSetStatus != null ? (List<Document>) replSetStatus.get("members") : null;
+    if (members == null) {
+      return LoadSample.UNKNOWN;
+    }
+    Date primaryOptime = null;
+    Date slowestSecondaryOptime = null;
+    for (Document member : members) {
+      Date optime = member.getDate("optimeDate");
+      Object state = member.get("state");
+      if (optime == null || !(state instanceof Number)) {
+        continue;
+      }
+      if (((Number) state).intValue() == PRIMARY) {
+        primaryOptime = optime;
+      } else if (((Number) state).intValue() == SECONDARY && (slowestSecondaryOptime == null || optime.before(slowestSecondaryOptime))) {
+        slowestSecondaryOptime = optime;
+      }
+    }
+    if (primaryOptime == null || slowestSecondaryOptime == null) {
+      return LoadSample.UNKNOWN;
+    }
+    return Math.max(0, primaryOptime.getTime() - slowestSecondaryOptime.getTime());
+  }
+
+}
@@ -0,0 +1,282 @@
+package com.github.mongobee.core.throttle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces the writes of data changesets so they can run next to production traffic. Combines:
+ * <ul>
+ * <li>a token bucket of permits (operations or documents, as the caller counts them) per second,
+ * with a burst of at most one second of unused permits,</li>
+ * <li>feedback of a {@link LoadProbe}, sampled by the throttled threads once per probe interval: while the queued
+ * operations or the replication lag stay below half their limit the rate and the batch size grow additively,
+ * above the limit they are halved, and above twice the limit (or above the limit without a configured rate)
+ * writing pauses until the load drops.</li>
+ * </ul>
+ * <pre>
+ * Throttle throttle = new Throttle(2000)   // documents per second
+ *     .setLoadProbe(new ServerStatusLoadProbe(mongoClient.getDatabase("admin")))
+ *     .setMaxReplicationLag(5000);
+ *
+ * for (List&lt;Document&gt; batch : batches(throttle.getBatchSize())) {
+ *   throttle.acquire(batch.size());
+ *   collection.insertMany(batch);
+ * }
+ * </pre>
+ * A throttle is thread-safe; threads sharing it share its rate.
+ *
+ * @see com.github.mongobee.core.Mongobee#setThrottle(Throttle)
+ * @see com.github.mongobee.core.bulk.BulkBackfill#setThrottle(Throttle)
+ * @since 0.14
+ */
+public class Throttle {
+  private static final Logger logger = LoggerFactory.getLogger(Throttle.class);
+
+  private static final long DEFAULT_MAX_REPLICATION_LAG_MILLIS = 10000;
+  private static final long DEFAULT_MAX_QUEUED_OPERATIONS = 100;
+  private static final long DEFAULT_PROBE_INTERVAL_MILLIS = 1000;
+  private static final int DEFAULT_MIN_BATCH_SIZE = 10;
+  private static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+  private static final double MIN_RATE_FACTOR = 1.0 / 64;
+  private static final double RATE_FACTOR_INCREASE = 0.1;
+  private static final double BATCH_SIZE_INCREASE = 0.1;
+  private static final double SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final double permitsPerSecond;
+  private LoadProbe loadProbe;
+  private long maxReplicationLagMillis = DEFAULT_MAX_REPLICATION_LAG_MILLIS;
+  private long maxQueuedOperations = DEFAULT_MAX_QUEUED_OPERATIONS;
+  private long probeIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_PROBE_INTERVAL_MILLIS);
+  private int minBatchSize = DEFAULT_MIN_BATCH_SIZE;
+  private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+  private boolean started;
+  private boolean probed;
+  private long nextProbeNanos;
+  private long nextFreeNanos;
+  private double storedPermits;
+  private double rateFactor = 1;
+  private int batchSize = DEFAULT_MAX_BATCH_SIZE;
+  private boolean paused;
+  private LoadSample lastSample;
+
+  /**
+   * Throttle without a rate limit, slowing down only on the feedback of its load probe
+   */
+  public Throttle() {
+    this(0);
+  }
+
+  /**
+   * @param permitsPerSecond permits granted per second while the cluster is not loaded, 0 for no limit
+   */
+  public Throttle(double permitsPerSecond) {
+    this.permitsPerSecond = permitsPerSecond;
+  }
+
+  /**
+   * Waits until the permits are granted, or while writing is paused
+   *
+   * @param permits operations or documents about to be written
+   * @return nanoseconds waited
+   * @throws InterruptedException if the thread has been interrupted while waiting
+   */
+  public long acquire(int permits) throws InterruptedException {
+    long waitedNanos = 0;
+    long pauseNanos;
+    while ((pauseNanos = pauseNanos()) > 0) {
+      sleep(pauseNanos);
+      waitedNanos += pauseNanos;
+    }
+    long waitNanos = reserve(permits);
+    if (waitNanos > 0) {
+      sleep(waitNanos);
+      waitedNanos += waitNanos;
+    }
+    return waitedNanos;
+  }
+
+  /**
+   * @return operations or documents to write at once, between the configured minimum and maximum
+   */
+  public int getBatchSize() {
+    probeIfDue();
+    synchronized (this) {
+      return batchSize;
+    }
+  }
+
+  /**
+   * @return permits granted per second currently, 0 if not limited
+   */
+  public synchronized double getCurrentRate() {
+    return permitsPerSecond * rateFactor;
+  }
+
+  /**
+   * @return true if writing is paused until the load drops
+   */
+  public synchronized boolean isPaused() {
+    return paused;
+  }
+
+  /**
+   * @return last sample of the load probe, null if not sampled yet
+   */
+  public synchronized LoadSample getLastSample() {
+    return lastSample;
+  }
+
+  public double getPermitsPerSecond() {
+    return permitsPerSecond;
+  }
+
+  public synchronized LoadProbe getLoadProbe() {
+    return loadProbe;
+  }
+
+  /**
+   * @param loadProbe source of the load feedback, default is none (only the rate limit applies)
+   * @return Throttle object for fluent interface
+   */
+  public synchronized Throttle setLoadProbe(LoadProbe loadProbe) {
+    this.loadProbe = loadProbe;
+    return this;
+  }
+
+  /**
+   * @param maxReplicationLagMillis replication lag above which the throttle slows down, default is 10 seconds
+   * @return Throttle object for fluent interface
+   */
+  public synchronized Throttle setMaxReplicationLag(long maxReplicationLagMillis) {
+    this.maxReplicationLagMillis = maxReplicationLagMillis;
+    return this;
+  }
+
+  /**
+   * @param maxQueuedOperations operations queued on the server above which the throttle slows down, default is 100
+   * @return Throttle object for fluent interface
+   */
+  public synchronized Throttle setMaxQueuedOperations(long maxQueuedOperations) {
+    this.maxQueuedOperations = maxQueuedOperations;
+    return this;
+  }
+
+  /**
+   * @param probeIntervalMillis minimum time between two samples of the load probe, default is 1 second
+   * @return Throttle object for fluent interface
+   */
+  public synchronized Throttle setProbeInterval(long probeIntervalMillis) {
+    this.probeIntervalNanos = TimeUnit.MILLISECONDS.toNanos(probeIntervalMillis);
+    return this;
+  }
+
+  /**
+   * @param minBatchSize batch size the throttle does not shrink below, default is 10
+   * @param maxBatchSize initial batch size and the size it grows back to, default is 1000
+   * @return Throttle object for fluent interface
+   */
+  public synchronized Throttle setBatchSize(int minBatchSize, int maxBatchSize) {
+    this.minBatchSize = Math.max(1, minBatchSize);
+    this.maxBatchSize = Math.max(this.minBatchSize, maxBatchSize);
+    this.batchSize = this.maxBatchSize;
+    return this;
+  }
+
+  private long pauseNanos() {
+    probeIfDue();
+    synchronized (this) {
+      return paused ? Math.max(1, nextProbeNanos - nanoTime()) : 0;
+    }
+  }
+
+  private synchronized long reserve(int permits) {
+    if (permitsPerSecond <= 0) {
+      return 0;
+    }
+    long now = nanoTime();
+    double rate = permitsPerSecond * rateFactor;
+    double intervalNanos = SECOND_NANOS / rate;
+    if (!started) {
+      started = true;
+      nextFreeNanos = now;
+    } else if (now > nextFreeNanos) {
+      storedPermits = Math.min(rate, storedPermits + (now - nextFreeNanos) / intervalNanos);
+      nextFreeNanos = now;
+    }
+    long waitNanos = nextFreeNanos - now;
+    double fromStored = Math.min(permits, storedPermits);
+    storedPermits -= fromStored;
+    nextFreeNanos += (long) ((permits - fromStored) * intervalNanos);
+    return waitNanos;
+  }
+
+  /**
+   * The thread due to sample claims the probe interval under the lock and samples outside of it, so the other
+   * threads keep acquiring permits at the current rate while the probe waits for the server.
+   */
+  private void probeIfDue() {
+    LoadProbe probe;
+    synchronized (this) {
+      long now = nanoTime();
+      if (loadProbe == null || (probed && now - nextProbeNanos < 0)) {
+        return;
+      }
+      probed = true;
+      nextProbeNanos = now + probeIntervalNanos;
+      probe = loadProbe;
+    }
+    LoadSample sample;
+    try {
+      sample = probe.sample();
+    } catch (RuntimeException e) {
+      logger.warn("Mongobee throttle could not sample the load, keeping the current rate", e);
+      return;
+    }
+    synchronized (this) {
+      lastSample = sample;
+      adapt(sample);
+    }
+  }
+
+  private void adapt(LoadSample sample) {
+    double pressure = Math.max(
+        pressure(sample.getReplicationLagMillis(), maxReplicationLagMillis),
+        pressure(sample.getQueuedOperations(), maxQueuedOperations));
+
+    boolean pause = pressure >= 2 || (pressure >= 1 && permitsPerSecond <= 0);
+    if (pressure >= 1) {
+      rateFactor = Math.max(MIN_RATE_FACTOR, rateFactor / 2);
+      batchSize = Math.max(minBatchSize, batchSize / 2);
+    } else if (pressure < 0.5) {
+      rateFactor = Math.min(1, rateFactor + RATE_FACTOR_INCREASE);
+      batchSize = Math.min(maxBatchSize, batchSize + Math.max(1, (int) (maxBatchSize * BATCH_SIZE_INCREASE)));
+    }
+    storedPermits = Math.min(storedPermits, permitsPerSecond * rateFactor);
+
+    if (pause != paused) {
+      logger.info("Mongobee throttle " + (pause ? "paused" : "resumed") + " writing at load " + sample);
+    }
+    paused = pause;
+    if (logger.isDebugEnabled()) {
+      logger.debug("Mongobee throttle at load " + sample + ": rate " + getCurrentRate() + "/s, batch size " + batchSize);
+    }
+  }
+
+  private static double pressure(long value, long limit) {
+    return value < 0 || limit <= 0 ? 0 : (double) value / limit;
+  }
+
+  /* Visible for testing */
+  long nanoTime() {
+    return System.nanoTime();
+  }
+
+  /* Visible for testing */
+  void sleep(long nanos) throws InterruptedException {
+    TimeUnit.NANOSECONDS.sleep(nanos);
+  }
+
+}
@@ -1,27 +1,21 @@
 package com.github.mongobee.core.utils;
 
-import com.github.mongobee.core.changeset.ChangeLog;
+import com.github.mongobee.core.changeset.ChangeLogDescriptor;
 
 import java.io.Serializable;
 import java.util.Comparator;
 
-import static com.github.mongobee.core.utils.StringUtils.hasText;
-
-
 /**
  * Sort ChangeLogs by 'order' value or class name (if no 'order' is set)
  *
  * @author lstolowski
  * @since 2014-09-17
  */
-public class ChangeLogComparator implements Comparator<Class<?>>, Serializable {
+public class ChangeLogComparator implements Comparator<ChangeLogDescriptor>, Serializable {
   @Override
-  public int compare(Class<?> o1, Class<?> o2) {
-    ChangeLog c1 = o1.getAnnotation(ChangeLog.class);
-    ChangeLog c2 = o2.getAnnotation(ChangeLog.class);
-
-    String val1 = !(hasText(c1.order())) ? o1.getCanonicalName() : c1.order();
-    String val2 = !(hasText(c2.order())) ? o2.getCanonicalName() : c2.order();
+  public int compare(ChangeLogDescriptor o1, ChangeLogDescriptor o2) {
+    String val1 = o1.getSortKey();
+    String val2 = o2.getSortKey();
 
     if (val1 == null && val2 == null){
       return 0;
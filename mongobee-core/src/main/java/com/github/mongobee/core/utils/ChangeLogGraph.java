@@ -0,0 +1,223 @@
+package com.github.mongobee.core.utils;
+
+import com.github.mongobee.core.changeset.ChangeLog;
+import com.github.mongobee.core.changeset.ChangeLogDescriptor;
+import com.github.mongobee.core.exception.MongobeeConfigurationException;
+import com.github.mongobee.core.exception.MongobeeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dependency graph of changelogs built from {@link ChangeLog#group()} and {@link ChangeLog#dependsOn()}.
+ * A changelog depends on the previous changelog of its group and on all changelogs of the groups it depends on.
+ * Independent changelogs are executed concurrently; ready changelogs are always started in their sorted order.
+ *
+ * @since 0.14
+ */
+public class ChangeLogGraph {
+  private static final Logger logger = LoggerFactory.getLogger(ChangeLogGraph.class);
+
+  private final List<ChangeLogDescriptor> changeLogs;
+  private final List<List<Integer>> dependents = new ArrayList<>();
+  private final int[] dependencyCounts;
+
+  /**
+   * @param changeLogs changelogs sorted by {@link ChangeLogComparator}
+   * @throws MongobeeConfigurationException if the dependencies are cyclic
+   */
+  public ChangeLogGraph(List<ChangeLogDescriptor> changeLogs) throws MongobeeConfigurationException {
+    this.changeLogs = new ArrayList<>(changeLogs);
+    this.dependencyCounts = new int[changeLogs.size()];
+
+    Map<String, List<Integer>> groups = new LinkedHashMap<>();
+    for (int i = 0; i < changeLogs.size(); i++) {
+      dependents.add(new ArrayList<Integer>());
+      String group = changeLogs.get(i).getGroup();
+      if (!groups.containsKey(group)) {
+        groups.put(group, new ArrayList<Integer>());
+      }
+      List<Integer> members = groups.get(group);
+      if (!members.isEmpty()) {
+        addDependency(members.get(members.size() - 1), i);
+      }
+      members.add(i);
+    }
+
+    for (int i = 0; i < changeLogs.size(); i++) {
+      ChangeLogDescriptor changeLog = changeLogs.get(i);
+      for (String dependency : changeLog.getDependsOn()) {
+        if (dependency.equals(changeLog.getGroup())) {
+          continue;
+        }
+        if (!groups.containsKey(dependency)) {
+          logger.warn("Changelog " + changeLog.getName() + " depends on group '" + dependency
+              + "' which has no changelogs");
+          continue;
+        }
+        for (Integer member : groups.get(dependency)) {
+          addDependency(member, i);
+        }
+      }
+    }
+
+    verifyAcyclic();
+  }
+
+  /**
+   * Executes all changelogs, each one after all its dependencies have completed. On the first failure
+   * no more changelogs are started; the failure of the first failed changelog (in the sorted order)
+   * is thrown after all running changelogs have completed.
+   *
+   * @param parallelism maximum number of changelogs executed at the same time
+   * @param task        execution of a single changelog
+   * @throws MongobeeException failure of the first failed changelog
+   */
+  public void execute(int parallelism, final ChangeLogTask task) throws MongobeeException {
+    if (changeLogs.isEmpty()) {
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, changeLogs.size()), new ThreadFactory() {
+      private final AtomicInteger counter = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "mongobee-changelog-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+    try {
+      CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+      int[] remaining = dependencyCounts.clone();
+      PriorityQueue<Integer> ready = new PriorityQueue<>();
+      for (int i = 0; i < remaining.length; i++) {
+        if (remaining[i] == 0) {
+          ready.add(i);
+        }
+      }
+
+      Map<Integer, Throwable> failures = new TreeMap<>();
+      int running = 0;
+      while (running > 0 || (!ready.isEmpty() && failures.isEmpty())) {
+        while (failures.isEmpty() && !ready.isEmpty() && running < parallelism) {
+          final int index = ready.poll();
+          completionService.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+              try {
+                task.execute(changeLogs.get(index));
+              } catch (Throwable e) {
+                throw new ChangeLogFailure(index, e);
+              }
+              return index;
+            }
+          });
+          running++;
+        }
+
+        try {
+          int completed = completionService.take().get();
+          for (Integer dependent : dependents.get(completed)) {
+            if (--remaining[dependent] == 0) {
+              ready.add(dependent);
+            }
+          }
+        } catch (ExecutionException e) {
+          ChangeLogFailure failure = (ChangeLogFailure) e.getCause();
+          failures.put(failure.index, failure.getCause());
+        }
+        running--;
+      }
+
+      if (!failures.isEmpty()) {
+        throw asMongobeeException(failures.values().iterator().next());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MongobeeException("Interrupted while executing changelogs", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void addDependency(int dependency, int dependent) {
+    if (!dependents.get(dependency).contains(dependent)) {
+      dependents.get(dependency).add(dependent);
+      dependencyCounts[dependent]++;
+    }
+  }
+
+  private void verifyAcyclic() throws MongobeeConfigurationException {
+    int[] remaining = dependencyCounts.clone();
+    List<Integer> ready = new ArrayList<>();
+    for (int i = 0; i < remaining.length; i++) {
+      if (remaining[i] == 0) {
+        ready.add(i);
+      }
+    }
+    int visited = 0;
+    while (!ready.isEmpty()) {
+      int index = ready.remove(ready.size() - 1);
+      visited++;
+      for (Integer dependent : dependents.get(index)) {
+        if (--remaining[dependent] == 0) {
+          ready.add(dependent);
+        }
+      }
+    }
+    if (visited < changeLogs.size()) {
+      List<String> cyclic = new ArrayList<>();
+      for (int i = 0; i < remaining.length; i++) {
+        if (remaining[i] > 0) {
+          cyclic.add(changeLogs.get(i).getName());
+        }
+      }
+      throw new MongobeeConfigurationException("Cyclic dependencies between changelogs: " + cyclic);
+    }
+  }
+
+  private static MongobeeException asMongobeeException(Throwable failure) {
+    if (failure instanceof MongobeeException) {
+      return (MongobeeException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    return new MongobeeException(failure.getMessage(), failure);
+  }
+
+  /**
+   * Execution of a single changelog
+   */
+  public interface ChangeLogTask {
+    void execute(ChangeLogDescriptor changeLog) throws MongobeeException;
+  }
+
+  private static class ChangeLogFailure extends Exception {
+    private final int index;
+
+    ChangeLogFailure(int index, Throwable cause) {
+      super(cause);
+      this.index = index;
+    }
+  }
+
+}
@@ -0,0 +1,157 @@
+package com.github.mongobee.core.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Index of changelogs generated at compile time by the mongobee-processor annotation processor.
+ * It is stored on the classpath under {@link #LOCATION} and lets {@link ChangeService} find changelogs
+ * without scanning the classpath at runtime.
+ * <p>The index is a UTF-8 text file with the binary name of one changelog class per line. Changesets are not
+ * indexed, they are read from the loaded classes.</p>
+ *
+ * @since 0.14
+ */
+public class ChangeLogIndex {
+  public static final String LOCATION = "META-INF/mongobee/changelogs.idx";
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final String HEADER = "# mongobee changelog index v2";
+
+  private final List<String> classNames;
+  private final Set<String> roots;
+
+  public ChangeLogIndex(Collection<String> classNames) {
+    this(classNames, Collections.<String>emptySet());
+  }
+
+  private ChangeLogIndex(Collection<String> classNames, Set<String> roots) {
+    this.classNames = Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(classNames)));
+    this.roots = roots;
+  }
+
+  /**
+   * Loads and merges all indexes visible to the class loader
+   *
+   * @param classLoader class loader to look up the index resources
+   * @return merged index or null if there is no index on the classpath
+   * @throws IOException if an index cannot be read
+   */
+  public static ChangeLogIndex load(ClassLoader classLoader) throws IOException {
+    Enumeration<URL> resources = classLoader.getResources(LOCATION);
+    if (!resources.hasMoreElements()) {
+      return null;
+    }
+
+    List<String> classNames = new ArrayList<>();
+    Set<String> roots = new HashSet<>();
+    while (resources.hasMoreElements()) {
+      URL resource = resources.nextElement();
+      InputStream in = resource.openStream();
+      try {
+        classNames.addAll(read(new InputStreamReader(in, UTF_8)).getClassNames());
+      } finally {
+        in.close();
+      }
+      roots.add(root(resource, LOCATION));
+    }
+    return new ChangeLogIndex(classNames, roots);
+  }
+
+  public static ChangeLogIndex read(Reader reader) throws IOException {
+    List<String> classNames = new ArrayList<>();
+    BufferedReader lines = new BufferedReader(reader);
+    for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+      String className = line.trim();
+      if (className.isEmpty() || className.startsWith("#")) {
+        continue;
+      }
+      if (!isClassName(className)) {
+        throw new IOException("Malformed changelog index record: " + line);
+      }
+      classNames.add(className);
+    }
+    return new ChangeLogIndex(classNames);
+  }
+
+  private static boolean isClassName(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c != '.' && !Character.isJavaIdentifierPart(c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void write(Writer writer) throws IOException {
+    writer.write(HEADER);
+    writer.write('\n');
+    for (String className : classNames) {
+      writer.write(className);
+      writer.write('\n');
+    }
+    writer.flush();
+  }
+
+  /**
+   * @return binary names of the changelog classes, as accepted by {@link Class#forName(String)}, sorted by name
+   */
+  public List<String> getClassNames() {
+    return classNames;
+  }
+
+  /**
+   * @param basePackage package name
+   * @return changelogs from the package and its subpackages
+   */
+  public List<String> getClassNames(String basePackage) {
+    List<String> found = new ArrayList<>();
+    for (String className : classNames) {
+      if (className.startsWith(basePackage + ".")) {
+        found.add(className);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * An index only lists the changelogs compiled next to it, so it cannot be trusted for a package that is also
+   * found in a classpath root without an index, e.g. a jar built without the processor or the test classes.
+   *
+   * @param classLoader class loader the index was loaded from
+   * @param basePackage package name
+   * @return true if every classpath root containing the package has an index
+   * @throws IOException if the classpath roots cannot be listed
+   */
+  public boolean isComplete(ClassLoader classLoader, String basePackage) throws IOException {
+    String path = basePackage.replace('.', '/') + "/";
+    Enumeration<URL> packageRoots = classLoader.getResources(path);
+    while (packageRoots.hasMoreElements()) {
+      if (!roots.contains(root(packageRoots.nextElement(), path))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String root(URL resource, String path) {
+    String url = resource.toExternalForm();
+    return url.endsWith(path) ? url.substring(0, url.length() - path.length()) : url;
+  }
+
+}
@@ -0,0 +1,128 @@
+package com.github.mongobee.core.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Local file with the changelogs found by the last classpath scan, keyed by the fingerprint of the scanned
+ * classpath entries ({@link ChangeLogScanner#fingerprint(java.util.Collection)}).
+ * <p>The file is UTF-8 text: a header, the fingerprint, the number of changelogs, one class name per line
+ * and an end marker. Files which are incomplete or written for another fingerprint are ignored.</p>
+ *
+ * @since 0.14
+ */
+public class ChangeLogScanCache {
+  private static final Logger logger = LoggerFactory.getLogger(ChangeLogScanCache.class);
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final String HEADER = "# mongobee scan cache v1";
+  private static final String END = "# end";
+
+  private final File file;
+
+  public ChangeLogScanCache(File file) {
+    this.file = file;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * @param fingerprint fingerprint of the current classpath
+   * @return class names of the changelogs or null if the file does not exist, is corrupt or stale
+   */
+  public List<String> read(String fingerprint) {
+    if (!file.isFile()) {
+      return null;
+    }
+
+    String content;
+    try (RandomAccessFile in = new RandomAccessFile(file, "r"); FileChannel channel = in.getChannel()) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      content = UTF_8.newDecoder().decode(buffer).toString();
+    } catch (CharacterCodingException e) {
+      logger.warn("Mongobee scan cache " + file + " is corrupt, scanning the classpath");
+      return null;
+    } catch (IOException e) {
+      logger.warn("Mongobee scan cache " + file + " cannot be read, scanning the classpath", e);
+      return null;
+    }
+
+    List<String> lines = Arrays.asList(content.split("\n", -1));
+    try {
+      if (lines.size() < 4 || !HEADER.equals(lines.get(0))) {
+        logger.warn("Mongobee scan cache " + file + " is corrupt, scanning the classpath");
+        return null;
+      }
+      if (!fingerprint.equals(lines.get(1))) {
+        logger.info("Mongobee scan cache " + file + " is out of date, scanning the classpath");
+        return null;
+      }
+      int count = Integer.parseInt(lines.get(2));
+      if (lines.size() != count + 5 || !END.equals(lines.get(count + 3)) || !lines.get(count + 4).isEmpty()) {
+        logger.warn("Mongobee scan cache " + file + " is corrupt, scanning the classpath");
+        return null;
+      }
+      return new ArrayList<>(lines.subList(3, count + 3));
+    } catch (NumberFormatException e) {
+      logger.warn("Mongobee scan cache " + file + " is corrupt, scanning the classpath");
+      return null;
+    }
+  }
+
+  /**
+   * Replaces the file atomically where the file system supports it. Failures are logged only,
+   * the next start scans again.
+   *
+   * @param fingerprint fingerprint of the scanned classpath
+   * @param classNames  class names of the found changelogs
+   */
+  public void write(String fingerprint, List<String> classNames) {
+    Path target = file.toPath();
+    Path temporary = null;
+    try {
+      Path directory = target.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+      temporary = Files.createTempFile(directory, file.getName(), ".tmp");
+      try (Writer writer = Files.newBufferedWriter(temporary, UTF_8)) {
+        writer.write(HEADER + "\n" + fingerprint + "\n" + classNames.size() + "\n");
+        for (String className : classNames) {
+          writer.write(className + "\n");
+        }
+        writer.write(END + "\n");
+      }
+      try {
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      logger.warn("Mongobee scan cache " + file + " cannot be written", e);
+      if (temporary != null) {
+        try {
+          Files.deleteIfExists(temporary);
+        } catch (IOException ignored) {
+          // left behind in the cache directory
+        }
+      }
+    }
+  }
+
+}
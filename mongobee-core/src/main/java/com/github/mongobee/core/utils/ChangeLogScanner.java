@@ -0,0 +1,406 @@
+package com.github.mongobee.core.utils;
+
+import com.github.mongobee.core.changeset.ChangeLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Finds the classes annotated with {@link ChangeLog} in packages without loading the other classes.
+ * Class files of directories and jars are read in parallel and only their constant pool and class annotations
+ * are parsed; classes which do not reference the annotation are rejected after the constant pool.
+ * Nothing is retained after {@link #scan(Collection)} returns.
+ * <p>Like other classpath scanners, it finds packages of jars only if the jars contain directory entries.</p>
+ *
+ * @since 0.14
+ */
+public class ChangeLogScanner {
+  private static final Logger logger = LoggerFactory.getLogger(ChangeLogScanner.class);
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final byte[] CHANGELOG_DESCRIPTOR = ("L" + ChangeLog.class.getName().replace('.', '/') + ";").getBytes(UTF_8);
+  private static final byte[] RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations".getBytes(UTF_8);
+  private static final String CLASS_SUFFIX = ".class";
+  private static final int CLASS_FILES_PER_TASK = 64;
+
+  private final ClassLoader classLoader;
+  private final int parallelism;
+
+  /**
+   * @param classLoader class loader to find the packages in and to load the changelogs with
+   */
+  public ChangeLogScanner(ClassLoader classLoader) {
+    this(classLoader, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param classLoader class loader to find the packages in and to load the changelogs with
+   * @param parallelism maximum number of threads reading class files
+   */
+  public ChangeLogScanner(ClassLoader classLoader, int parallelism) {
+    this.classLoader = classLoader;
+    this.parallelism = Math.max(parallelism, 1);
+  }
+
+  /**
+   * @param basePackages packages to scan, including their sub-packages
+   * @return changelog classes sorted by name, not initialized
+   * @throws IOException            if a directory or jar cannot be read
+   * @throws ClassNotFoundException if a found changelog cannot be loaded
+   */
+  public List<Class<?>> scan(Collection<String> basePackages) throws IOException, ClassNotFoundException {
+    List<JarFile> jars = new ArrayList<>();
+    try {
+      List<ClassFile> classFiles = new ArrayList<>();
+      for (String basePackage : basePackages) {
+        String path = basePackage.replace('.', '/') + "/";
+        Enumeration<URL> roots = classLoader.getResources(path);
+        while (roots.hasMoreElements()) {
+          addClassFiles(roots.nextElement(), classFiles, jars);
+        }
+      }
+
+      List<Class<?>> changeLogs = new ArrayList<>();
+      for (String className : findChangeLogs(classFiles)) {
+        changeLogs.add(Class.forName(className, false, classLoader));
+      }
+      return changeLogs;
+    } finally {
+      for (JarFile jar : jars) {
+        closeQuietly(jar);
+      }
+    }
+  }
+
+  private void addClassFiles(URL root, final List<ClassFile> classFiles, List<JarFile> jars) throws IOException {
+    if ("file".equals(root.getProtocol())) {
+      Files.walkFileTree(toPath(root), new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+          if (file.getFileName().toString().endsWith(CLASS_SUFFIX)) {
+            classFiles.add(new FileClassFile(file));
+          }
+          return FileVisitResult.CONTINUE;
+        }
+      });
+      return;
+    }
+
+    URLConnection connection = root.openConnection();
+    if (connection instanceof JarURLConnection) {
+      JarURLConnection jarConnection = (JarURLConnection) connection;
+      jarConnection.setUseCaches(false); // own instance, closed after the scan
+      JarFile jar = jarConnection.getJarFile();
+      jars.add(jar);
+      String prefix = jarConnection.getEntryName();
+      Enumeration<JarEntry> entries = jar.entries();
+      while (entries.hasMoreElements()) {
+        JarEntry entry = entries.nextElement();
+        if (entry.getName().startsWith(prefix) && entry.getName().endsWith(CLASS_SUFFIX)) {
+          classFiles.add(new JarClassFile(jar, entry));
+        }
+      }
+      return;
+    }
+
+    logger.warn("Changelogs in " + root + " cannot be scanned, unsupported protocol " + root.getProtocol());
+  }
+
+  private Set<String> findChangeLogs(List<ClassFile> classFiles) throws IOException {
+    Set<String> changeLogs = new TreeSet<>();
+    if (classFiles.size() <= CLASS_FILES_PER_TASK || parallelism == 1) {
+      changeLogs.addAll(new ScanTask(classFiles).call());
+      return changeLogs;
+    }
+
+    int tasks = (classFiles.size() + CLASS_FILES_PER_TASK - 1) / CLASS_FILES_PER_TASK;
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks), new ThreadFactory() {
+      private final AtomicInteger counter = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "mongobee-scan-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    try {
+      List<Future<List<String>>> futures = new ArrayList<>(tasks);
+      for (int from = 0; from < classFiles.size(); from += CLASS_FILES_PER_TASK) {
+        int to = Math.min(from + CLASS_FILES_PER_TASK, classFiles.size());
+        futures.add(executor.submit(new ScanTask(classFiles.subList(from, to))));
+      }
+      for (Future<List<String>> future : futures) {
+        changeLogs.addAll(future.get());
+      }
+      return changeLogs;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while scanning changelogs", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Computes a fingerprint of the class files the scan of the packages would read, without reading them:
+   * paths, sizes and modification times of jars and class files. Entries of jars which are not files
+   * (e.g. nested jars) contribute their names, sizes and CRCs instead.
+   *
+   * @param basePackages packages to scan, including their sub-packages
+   * @return hex encoded SHA-256 fingerprint
+   * @throws IOException if a directory or jar cannot be read
+   */
+  public String fingerprint(Collection<String> basePackages) throws IOException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    for (String basePackage : basePackages) {
+      update(digest, "package", basePackage);
+      Enumeration<URL> roots = classLoader.getResources(basePackage.replace('.', '/') + "/");
+      while (roots.hasMoreElements()) {
+        URL root = roots.nextElement();
+        update(digest, "root", root.toString());
+        if ("file".equals(root.getProtocol())) {
+          final Path directory = toPath(root);
+          Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+              if (file.getFileName().toString().endsWith(CLASS_SUFFIX)) {
+                update(digest, directory.relativize(file).toString(), String.valueOf(attributes.size()),
+                    String.valueOf(attributes.lastModifiedTime().toMillis()));
+              }
+              return FileVisitResult.CONTINUE;
+            }
+          });
+          continue;
+        }
+
+        URLConnection connection = root.openConnection();
+        if (!(connection instanceof JarURLConnection)) {
+          continue;
+        }
+        JarURLConnection jarConnection = (JarURLConnection) connection;
+        URL jarUrl = jarConnection.getJarFileURL();
+        if ("file".equals(jarUrl.getProtocol())) {
+          File jar = toPath(jarUrl).toFile();
+          update(digest, String.valueOf(jar.length()), String.valueOf(jar.lastModified()));
+          continue;
+        }
+        jarConnection.setUseCaches(false);
+        JarFile jar = jarConnection.getJarFile();
+        try {
+          Enumeration<JarEntry> entries = jar.entries();
+          while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            if (entry.getName().startsWith(jarConnection.getEntryName())) {
+              update(digest, entry.getName(), String.valueOf(entry.getSize()), String.valueOf(entry.getCrc()));
+            }
+          }
+        } finally {
+          closeQuietly(jar);
+        }
+      }
+    }
+
+    return StringUtils.toHex(digest.digest());
+  }
+
+  /**
+   * Loads changelogs found by an earlier scan
+   *
+   * @param classNames binary names of the changelogs
+   * @return changelog classes or null if one of them does not exist or is no changelog anymore
+   */
+  public List<Class<?>> load(List<String> classNames) {
+    List<Class<?>> changeLogs = new ArrayList<>(classNames.size());
+    for (String className : classNames) {
+      try {
+        Class<?> type = Class.forName(className, false, classLoader);
+        if (!type.isAnnotationPresent(ChangeLog.class)) {
+          return null;
+        }
+        changeLogs.add(type);
+      } catch (ClassNotFoundException | LinkageError e) {
+        return null;
+      }
+    }
+    return changeLogs;
+  }
+
+  private static Path toPath(URL url) {
+    try {
+      return Paths.get(url.toURI());
+    } catch (URISyntaxException e) {
+      return new File(url.getPath()).toPath();
+    }
+  }
+
+  private static void update(MessageDigest digest, String... values) {
+    for (String value : values) {
+      digest.update(value.getBytes(UTF_8));
+      digest.update((byte) 0);
+    }
+  }
+
+  /**
+   * @param classFile content of a class file
+   * @return binary name of the class if it is annotated with {@link ChangeLog}, otherwise null
+   * @throws IOException if the class file is malformed
+   */
+  static String changeLogClassName(byte[] classFile) throws IOException {
+    try {
+      return parse(classFile);
+    } catch (RuntimeException e) {
+      throw new IOException("Malformed class file", e);
+    }
+  }
+
+  private static String parse(byte[] classFile) throws IOException {
+    ClassFileReader in = new ClassFileReader(classFile);
+    if (!in.containsUtf8(CHANGELOG_DESCRIPTOR)) {
+      return null;
+    }
+
+    in.skip(2); // access flags
+    int thisClass = in.readUnsignedShort();
+    in.skip(2); // super class
+    in.skip(2 * in.readUnsignedShort()); // interfaces
+    in.skipMembers(); // fields
+    in.skipMembers(); // methods
+
+    int attributes = in.readUnsignedShort();
+    for (int i = 0; i < attributes; i++) {
+      int nameIndex = in.readUnsignedShort();
+      int length = in.readInt();
+      int end = in.position() + length;
+      if (in.isUtf8(nameIndex, RUNTIME_VISIBLE_ANNOTATIONS)) {
+        int annotations = in.readUnsignedShort();
+        for (int j = 0; j < annotations; j++) {
+          if (in.isUtf8(in.peekUnsignedShort(), CHANGELOG_DESCRIPTOR)) {
+            return in.className(thisClass);
+          }
+          in.skipAnnotation();
+        }
+      }
+      in.position(end);
+    }
+    return null;
+  }
+
+  private static void closeQuietly(JarFile jar) {
+    try {
+      jar.close();
+    } catch (IOException e) {
+      logger.debug("Cannot close " + jar.getName(), e);
+    }
+  }
+
+  private static class ScanTask implements Callable<List<String>> {
+    private final List<ClassFile> classFiles;
+
+    ScanTask(List<ClassFile> classFiles) {
+      this.classFiles = classFiles;
+    }
+
+    @Override
+    public List<String> call() throws IOException {
+      List<String> changeLogs = new ArrayList<>();
+      for (ClassFile classFile : classFiles) {
+        String className;
+        try {
+          className = changeLogClassName(classFile.read());
+        } catch (IOException e) {
+          logger.warn("Class file " + classFile + " cannot be read, skipping it", e);
+          continue;
+        }
+        if (className != null) {
+          changeLogs.add(className);
+        }
+      }
+      return changeLogs;
+    }
+  }
+
+  private interface ClassFile {
+    byte[] read() throws IOException;
+  }
+
+  private static class FileClassFile implements ClassFile {
+    private final Path file;
+
+    FileClassFile(Path file) {
+      this.file = file;
+    }
+
+    @Override
+    public byte[] read() throws IOException {
+      return Files.readAllBytes(file);
+    }
+
+    @Override
+    public String toString() {
+      return file.toString();
+    }
+  }
+
+  private static class JarClassFile implements ClassFile {
+    private final JarFile jar;
+    private final JarEntry entry;
+
+    JarClassFile(JarFile jar, JarEntry entry) {
+      this.jar = jar;
+      this.entry = entry;
+    }
+
+    @Override
+    public byte[] read() throws IOException {
+      return ClassFileReader.readFully(jar.getInputStream(entry));
+    }
+
+    @Override
+    public String toString() {
+      return jar.getName() + "!/" + entry.getName();
+    }
+  }
+
+}
@@ -1,12 +1,19 @@
 package com.github.mongobee.core.utils;
 
-import com.github.mongobee.core.changeset.ChangeEntry;
 import com.github.mongobee.core.changeset.ChangeLog;
-import com.github.mongobee.core.changeset.ChangeSet;
+import com.github.mongobee.core.changeset.ChangeLogDescriptor;
+import com.github.mongobee.core.changeset.ChangeSetDescriptor;
 import com.github.mongobee.core.exception.MongobeeChangeSetException;
-import org.reflections.Reflections;
+import com.github.mongobee.core.exception.MongobeeConfigurationException;
+import com.github.mongobee.core.exception.MongobeeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Method;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 import static java.util.Arrays.asList;
@@ -18,68 +25,269 @@ import static java.util.Arrays.asList;
  * @since 27/07/2014
  */
 public class ChangeService {
+  private static final Logger logger = LoggerFactory.getLogger(ChangeService.class);
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
 
-  private final String changeLogsBasePackage;
+  private final List<String> changeLogsBasePackages;
+  private final List<Class<?>> changeLogClasses;
+  private File scanCacheFile;
+  private List<ChangeLogDescriptor> changeLogs;
+  private String planFingerprint;
+  private boolean planFingerprinted;
 
+  /**
+   * @param changeLogsBasePackage package of the changelogs, several packages are separated by commas
+   */
   public ChangeService(String changeLogsBasePackage) {
-    this.changeLogsBasePackage = changeLogsBasePackage;
+    this(changeLogsBasePackage, Collections.<Class<?>>emptyList());
   }
 
-  public List<Class<?>> fetchChangeLogs(){
-    Reflections reflections = new Reflections(changeLogsBasePackage);
-    List<Class<?>> changeLogs = new ArrayList<>(reflections.getTypesAnnotatedWith(ChangeLog.class)); // TODO remove dependency, do own method
+  /**
+   * @param changeLogsBasePackage package of the changelogs, several packages are separated by commas, may be null
+   * @param changeLogClasses      changelogs used in addition to the changelogs of the packages
+   */
+  public ChangeService(String changeLogsBasePackage, List<Class<?>> changeLogClasses) {
+    this.changeLogsBasePackages = splitPackages(changeLogsBasePackage);
+    this.changeLogClasses = new ArrayList<>(changeLogClasses);
+  }
 
-    Collections.sort(changeLogs, new ChangeLogComparator());
+  private static List<String> splitPackages(String changeLogsBasePackage) {
+    List<String> packages = new ArrayList<>();
+    if (changeLogsBasePackage != null) {
+      for (String basePackage : changeLogsBasePackage.split(",")) {
+        if (StringUtils.hasText(basePackage)) {
+          packages.add(basePackage.trim());
+        }
+      }
+    }
+    return packages;
+  }
 
+  /**
+   * Describes, filters, sorts and validates the changelogs of the package. The result is computed once
+   * per service and the descriptors of a class are shared by all services.
+   *
+   * @return changelogs sorted by {@link ChangeLogComparator}, each with its included changesets
+   * @throws MongobeeChangeSetException     if a changeset id is used twice by the same author
+   * @throws MongobeeConfigurationException if the packages cannot be scanned
+   */
+  public synchronized List<ChangeLogDescriptor> fetchChangeLogs() throws MongobeeException {
+    if (changeLogs == null) {
+      List<ChangeLogDescriptor> described = new ArrayList<>();
+      for (Class<?> type : fetchChangeLogClasses()) {
+        ChangeLogDescriptor changeLog = ChangeLogDescriptor.of(type);
+        if (isIncluded(changeLog)) {
+          described.add(filterChangeSets(changeLog));
+        }
+      }
+      Collections.sort(described, new ChangeLogComparator());
+      verifyUniqueChangeSets(described);
+      changeLogs = Collections.unmodifiableList(described);
+    }
     return changeLogs;
   }
 
-  public List<Method> fetchChangeSets(final Class<?> type) throws MongobeeChangeSetException {
-    final List<Method> changeSets = filterChangeSetAnnotation(asList(type.getDeclaredMethods()));
+  /**
+   * @return the given changelog classes and the classes annotated with {@link ChangeLog} in the packages,
+   * from the index or from a classpath scan
+   * @throws MongobeeConfigurationException if the packages cannot be scanned
+   */
+  protected List<Class<?>> fetchChangeLogClasses() throws MongobeeConfigurationException {
+    Set<Class<?>> changeLogs = new LinkedHashSet<>(changeLogClasses);
+    if (!changeLogsBasePackages.isEmpty()) {
+      List<Class<?>> found = fetchIndexedChangeLogs();
+      if (found == null) {
+        try {
+          found = scanChangeLogs();
+        } catch (IOException | ClassNotFoundException e) {
+          throw new MongobeeConfigurationException("Changelogs of " + changeLogsBasePackages + " cannot be scanned: "
+              + e.getMessage(), e);
+        }
+      }
+      changeLogs.addAll(found);
+    }
+    return new ArrayList<>(changeLogs);
+  }
 
-    Collections.sort(changeSets, new ChangeSetComparator());
+  private List<Class<?>> scanChangeLogs() throws IOException, ClassNotFoundException {
+    ChangeLogScanner scanner = new ChangeLogScanner(getClassLoader());
+    if (scanCacheFile == null) {
+      return scanner.scan(changeLogsBasePackages);
+    }
 
-    return changeSets;
+    ChangeLogScanCache cache = new ChangeLogScanCache(scanCacheFile);
+    String fingerprint = scanner.fingerprint(changeLogsBasePackages);
+    List<String> cached = cache.read(fingerprint);
+    if (cached != null) {
+      List<Class<?>> changeLogs = scanner.load(cached);
+      if (changeLogs != null) {
+        return changeLogs;
+      }
+      logger.warn("Mongobee scan cache " + scanCacheFile + " lists missing changelogs, scanning the classpath");
+    }
+
+    List<Class<?>> changeLogs = scanner.scan(changeLogsBasePackages);
+    List<String> classNames = new ArrayList<>(changeLogs.size());
+    for (Class<?> changeLog : changeLogs) {
+      classNames.add(changeLog.getName());
+    }
+    cache.write(fingerprint, classNames);
+    return changeLogs;
+  }
+
+  /**
+   * Stores the result of classpath scans in a file. Later scans of an unchanged classpath read the file
+   * instead of the class files.
+   *
+   * @param scanCacheFile cache file, null disables the cache (default)
+   * @return ChangeService object for fluent interface
+   */
+  public ChangeService setScanCacheFile(File scanCacheFile) {
+    this.scanCacheFile = scanCacheFile;
+    return this;
+  }
+
+  /**
+   * @param changeLog changelog of the package
+   * @return true if the changelog is executed, default is true
+   */
+  protected boolean isIncluded(ChangeLogDescriptor changeLog) {
+    return true;
   }
 
-  public boolean isRunAlwaysChangeSet(Method changesetMethod){
-    if (changesetMethod.isAnnotationPresent(ChangeSet.class)){
-      ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
-      return annotation.runAlways();
-    } else {
-      return false;
+  /**
+   * @param changeSet changeset of an included changelog
+   * @return true if the changeset is executed, default is true
+   */
+  protected boolean isIncluded(ChangeSetDescriptor changeSet) {
+    return true;
+  }
+
+  private ChangeLogDescriptor filterChangeSets(ChangeLogDescriptor changeLog) {
+    List<ChangeSetDescriptor> included = new ArrayList<>();
+    for (ChangeSetDescriptor changeSet : changeLog.getChangeSets()) {
+      if (isIncluded(changeSet)) {
+        included.add(changeSet);
+      }
     }
+    return included.size() == changeLog.getChangeSets().size() ? changeLog : changeLog.withChangeSets(included);
   }
 
-  public ChangeEntry createChangeEntry(Method changesetMethod){
-    if (changesetMethod.isAnnotationPresent(ChangeSet.class)){
-      ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
-  
-      return new ChangeEntry(
-          annotation.id(),
-          annotation.author(),
-          new Date(),
-          changesetMethod.getDeclaringClass().getName(),
-          changesetMethod.getName());
-    } else {
+  /**
+   * Changesets are identified by id and author in the changelog collection, so two changelogs must not
+   * declare the same pair.
+   */
+  private static void verifyUniqueChangeSets(List<ChangeLogDescriptor> changeLogs) throws MongobeeChangeSetException {
+    Map<List<String>, ChangeSetDescriptor> changeSets = new HashMap<>();
+    for (ChangeLogDescriptor changeLog : changeLogs) {
+      for (ChangeSetDescriptor changeSet : changeLog.getChangeSets()) {
+        ChangeSetDescriptor previous = changeSets.put(asList(changeSet.getId(), changeSet.getAuthor()), changeSet);
+        if (previous != null) {
+          throw new MongobeeChangeSetException(String.format("Duplicated changeset id found: '%s' of author '%s' in %s and %s",
+              changeSet.getId(), changeSet.getAuthor(), previous.getChangeLogClassName(), changeSet.getChangeLogClassName()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Loads changelogs listed in the compile time index ({@link ChangeLogIndex#LOCATION}).
+   *
+   * @return changelogs or null if the index does not exist, lists no changelog in one of the packages, does not
+   * cover every classpath root of a package or is out of date
+   */
+  protected List<Class<?>> fetchIndexedChangeLogs() {
+    ClassLoader classLoader = getClassLoader();
+    try {
+      ChangeLogIndex index = ChangeLogIndex.load(classLoader);
+      if (index == null) {
+        return null;
+      }
+
+      List<Class<?>> changeLogs = new ArrayList<>();
+      for (String basePackage : changeLogsBasePackages) {
+        List<String> indexed = index.getClassNames(basePackage);
+        if (indexed.isEmpty()) {
+          return null;
+        }
+        if (!index.isComplete(classLoader, basePackage)) {
+          logger.info("Package " + basePackage + " is also found in a classpath root without a changelog index, "
+              + "scanning packages " + changeLogsBasePackages);
+          return null;
+        }
+        for (String className : indexed) {
+          Class<?> type = Class.forName(className, false, classLoader);
+          if (type.isAnnotationPresent(ChangeLog.class)) {
+            changeLogs.add(type);
+          }
+        }
+      }
+      return changeLogs;
+    } catch (IOException | ClassNotFoundException e) {
+      logger.warn("Changelog index cannot be used, scanning packages " + changeLogsBasePackages + " instead", e);
       return null;
     }
   }
 
-  protected List<Method> filterChangeSetAnnotation(List<Method> allMethods) throws MongobeeChangeSetException {
-    final Set<String> changeSetIds = new HashSet<>();
-    final List<Method> changesetMethods = new ArrayList<>();
-    for (final Method method : allMethods) {
-      if (method.isAnnotationPresent(ChangeSet.class)) {
-        String id = method.getAnnotation(ChangeSet.class).id();
-        if (changeSetIds.contains(id)) {
-          throw new MongobeeChangeSetException(String.format("Duplicated changeset id found: '%s'", id));
+  private ClassLoader getClassLoader() {
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    return classLoader != null ? classLoader : ChangeService.class.getClassLoader();
+  }
+
+  /**
+   * Computes a fingerprint of the changeset plan: changelog classes and their order, changeset ids, authors,
+   * methods and order, and the checksums of runOnChange changesets. Plans containing a runAlways changeset are never
+   * up to date, so they have no fingerprint.
+   * The fingerprint of the changelogs returned by {@link #fetchChangeLogs()} is computed only once.
+   *
+   * @param changeLogs changelogs returned by {@link #fetchChangeLogs()}
+   * @return hex encoded SHA-256 fingerprint or null if the plan contains a runAlways changeset or a checksum
+   * cannot be computed
+   */
+  public synchronized String fetchPlanFingerprint(List<ChangeLogDescriptor> changeLogs) {
+    if (changeLogs != this.changeLogs) {
+      return computePlanFingerprint(changeLogs);
+    }
+    if (!planFingerprinted) {
+      planFingerprint = computePlanFingerprint(changeLogs);
+      planFingerprinted = true;
+    }
+    return planFingerprint;
+  }
+
+  private static String computePlanFingerprint(List<ChangeLogDescriptor> changeLogs) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    for (ChangeLogDescriptor changeLog : changeLogs) {
+      update(digest, "changelog", changeLog.getName(), changeLog.getOrder());
+      for (ChangeSetDescriptor changeSet : changeLog.getChangeSets()) {
+        if (changeSet.isRunAlways()) {
+          return null;
+        }
+        update(digest, "changeset", changeSet.getId(), changeSet.getAuthor(), changeSet.getOrder(), changeSet.getMethodName());
+        if (changeSet.isRunOnChange()) {
+          try {
+            update(digest, "checksum", changeSet.getChecksum());
+          } catch (MongobeeChangeSetException e) {
+            return null; // reported by the migration
+          }
         }
-        changeSetIds.add(id);
-        changesetMethods.add(method);
       }
     }
-    return changesetMethods;
+
+    return StringUtils.toHex(digest.digest());
+  }
+
+  private static void update(MessageDigest digest, String... values) {
+    for (String value : values) {
+      digest.update(value.getBytes(UTF_8));
+      digest.update((byte) 0);
+    }
   }
 
 }
@@ -1,9 +1,8 @@
 package com.github.mongobee.core.utils;
 
-import com.github.mongobee.core.changeset.ChangeSet;
+import com.github.mongobee.core.changeset.ChangeSetDescriptor;
 
 import java.io.Serializable;
-import java.lang.reflect.Method;
 import java.util.Comparator;
 
 /**
@@ -12,11 +11,9 @@ import java.util.Comparator;
  * @author lstolowski
  * @since 2014-09-17
  */
-public class ChangeSetComparator implements Comparator<Method>, Serializable {
+public class ChangeSetComparator implements Comparator<ChangeSetDescriptor>, Serializable {
   @Override
-  public int compare(Method o1, Method o2) {
-    ChangeSet c1 = o1.getAnnotation(ChangeSet.class);
-    ChangeSet c2 = o2.getAnnotation(ChangeSet.class);
-    return c1.order().compareTo(c2.order());
+  public int compare(ChangeSetDescriptor o1, ChangeSetDescriptor o2) {
+    return o1.getOrder().compareTo(o2.getOrder());
   }
 }
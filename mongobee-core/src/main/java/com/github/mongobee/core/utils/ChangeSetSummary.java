@@ -0,0 +1,93 @@
+package com.github.mongobee.core.utils;
+
+import com.github.mongobee.core.bulk.BackfillStats;
+import com.mongodb.WriteResult;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonSerializationException;
+import org.bson.Document;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Summary of the value returned by a changeset method, recorded with its change entry
+ *
+ * @since 0.14
+ */
+public final class ChangeSetSummary {
+  private static final Logger logger = LoggerFactory.getLogger(ChangeSetSummary.class);
+  private static final DocumentCodec SUMMARY_CODEC = new DocumentCodec();
+
+  private ChangeSetSummary() {
+  }
+
+  /**
+   * Other returned values, e.g. documents, are not recorded: they may not be encodable or may be too large for
+   * the change entry, which is written after the changeset has run.
+   *
+   * @param result value returned by a changeset method: a write result of the driver or {@link BackfillStats}
+   * @return summary of the result, null for other values (including null), unacknowledged writes and summaries
+   * which cannot be encoded
+   */
+  public static Document of(Object result) {
+    Document summary = summarize(result);
+    if (summary == null) {
+      return null;
+    }
+    try {
+      SUMMARY_CODEC.encode(new BsonDocumentWriter(new BsonDocument()), summary, EncoderContext.builder().build());
+      return summary;
+    } catch (CodecConfigurationException | BsonSerializationException e) {
+      logger.warn("Summary of " + result.getClass().getName() + " cannot be encoded, the change entry is saved without it", e);
+      return null;
+    }
+  }
+
+  private static Document summarize(Object result) {
+    if (result instanceof UpdateResult) {
+      UpdateResult update = (UpdateResult) result;
+      if (!update.wasAcknowledged()) {
+        return null;
+      }
+      Document summary = new Document("matched", update.getMatchedCount());
+      if (update.isModifiedCountAvailable()) {
+        summary.append("modified", update.getModifiedCount());
+      }
+      return summary.append("upserted", update.getUpsertedId() != null ? 1 : 0);
+    } else if (result instanceof DeleteResult) {
+      DeleteResult delete = (DeleteResult) result;
+      return delete.wasAcknowledged() ? new Document("deleted", delete.getDeletedCount()) : null;
+    } else if (result instanceof BulkWriteResult) {
+      BulkWriteResult bulk = (BulkWriteResult) result;
+      if (!bulk.wasAcknowledged()) {
+        return null;
+      }
+      Document summary = new Document("inserted", bulk.getInsertedCount())
+          .append("matched", bulk.getMatchedCount());
+      if (bulk.isModifiedCountAvailable()) {
+        summary.append("modified", bulk.getModifiedCount());
+      }
+      return summary.append("deleted", bulk.getDeletedCount())
+          .append("upserted", bulk.getUpserts().size());
+    } else if (result instanceof BackfillStats) {
+      BackfillStats stats = (BackfillStats) result;
+      return new Document("matched", stats.getMatched())
+          .append("modified", stats.getModified())
+          .append("inserted", stats.getInserted())
+          .append("deleted", stats.getDeleted())
+          .append("upserted", stats.getUpserted())
+          .append("skipped", stats.getSkipped());
+    } else if (result instanceof WriteResult) {
+      WriteResult write = (WriteResult) result; // DB API and Jongo
+      return write.wasAcknowledged() ? new Document("n", write.getN()) : null;
+    }
+    return null;
+  }
+
+}
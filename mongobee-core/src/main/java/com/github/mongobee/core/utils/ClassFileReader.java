@@ -0,0 +1,318 @@
+package com.github.mongobee.core.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+
+/**
+ * Reads a class file without loading the class: the constant pool is indexed when the reader is created, the rest
+ * of the class file is read sequentially from the end of the constant pool on.
+ * Used by the classpath scan to find changelogs and by the checksums of runOnChange changesets.
+ *
+ * @since 0.14
+ */
+public final class ClassFileReader {
+
+  public static final int UTF8 = 1;
+  public static final int INTEGER = 3;
+  public static final int FLOAT = 4;
+  public static final int LONG = 5;
+  public static final int DOUBLE = 6;
+  public static final int CLASS = 7;
+  public static final int STRING = 8;
+  public static final int FIELD_REF = 9;
+  public static final int METHOD_REF = 10;
+  public static final int INTERFACE_METHOD_REF = 11;
+  public static final int NAME_AND_TYPE = 12;
+  public static final int METHOD_HANDLE = 15;
+  public static final int METHOD_TYPE = 16;
+  public static final int DYNAMIC = 17;
+  public static final int INVOKE_DYNAMIC = 18;
+  public static final int MODULE = 19;
+  public static final int PACKAGE = 20;
+
+  private final ByteBuffer in;
+  private final int[] tags;
+  private final int[] offsets; // position of the entry after its tag
+  private final String[] utf8; // decoded Utf8 entries, decoded when first read
+
+  /**
+   * @param classFile content of a class file
+   * @throws IOException if it is not a class file or its constant pool is malformed
+   */
+  public ClassFileReader(byte[] classFile) throws IOException {
+    in = ByteBuffer.wrap(classFile);
+    try {
+      if (in.getInt() != 0xCAFEBABE) {
+        throw new IOException("Not a class file");
+      }
+      in.getInt(); // minor and major version
+
+      int count = readUnsignedShort();
+      tags = new int[count];
+      offsets = new int[count];
+      utf8 = new String[count];
+      for (int i = 1; i < count; i++) {
+        int tag = in.get() & 0xFF;
+        tags[i] = tag;
+        offsets[i] = in.position();
+        skip(constantLength(tag, i));
+        if (tag == LONG || tag == DOUBLE) {
+          i++;
+        }
+      }
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IOException("Malformed class file", e);
+    }
+  }
+
+  private int constantLength(int tag, int index) throws IOException {
+    switch (tag) {
+      case UTF8:
+        return 2 + (in.getShort(offsets[index]) & 0xFFFF);
+      case CLASS:
+      case STRING:
+      case METHOD_TYPE:
+      case MODULE:
+      case PACKAGE:
+        return 2;
+      case METHOD_HANDLE:
+        return 3;
+      case INTEGER:
+      case FLOAT:
+      case FIELD_REF:
+      case METHOD_REF:
+      case INTERFACE_METHOD_REF:
+      case NAME_AND_TYPE:
+      case DYNAMIC:
+      case INVOKE_DYNAMIC:
+        return 4;
+      case LONG:
+      case DOUBLE:
+        return 8;
+      default:
+        throw new IOException("Unknown constant pool tag " + tag);
+    }
+  }
+
+  /**
+   * @param index constant pool index
+   * @return tag of the entry, 0 for the unusable entries following Long and Double entries
+   */
+  public int tag(int index) {
+    return tags[index];
+  }
+
+  /**
+   * Compares a Utf8 entry without decoding it
+   *
+   * @param index    constant pool index, 0 is never equal
+   * @param expected modified UTF-8 bytes
+   * @return true if the entry is a Utf8 entry of the expected bytes
+   */
+  public boolean isUtf8(int index, byte[] expected) {
+    if (index <= 0 || index >= tags.length || tags[index] != UTF8) {
+      return false;
+    }
+    int offset = offsets[index];
+    if ((in.getShort(offset) & 0xFFFF) != expected.length) {
+      return false;
+    }
+    for (int i = 0; i < expected.length; i++) {
+      if (in.get(offset + 2 + i) != expected[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param expected modified UTF-8 bytes
+   * @return true if a Utf8 entry of the constant pool equals the expected bytes
+   */
+  public boolean containsUtf8(byte[] expected) {
+    for (int i = 1; i < tags.length; i++) {
+      if (isUtf8(i, expected)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Decodes a Utf8 entry, which is encoded in modified UTF-8 like {@link DataInputStream#readUTF()} expects
+   *
+   * @param index constant pool index of a Utf8 entry
+   * @return decoded string
+   * @throws IOException if the entry is no Utf8 entry or is malformed
+   */
+  public String utf8(int index) throws IOException {
+    if (tags[index] != UTF8) {
+      throw new IOException("Constant pool entry " + index + " is no Utf8 entry");
+    }
+    if (utf8[index] == null) {
+      int offset = offsets[index];
+      int length = in.getShort(offset) & 0xFFFF;
+      utf8[index] = new DataInputStream(new ByteArrayInputStream(in.array(), offset, length + 2)).readUTF();
+    }
+    return utf8[index];
+  }
+
+  /**
+   * @param index constant pool index of a Class entry
+   * @return binary name of the class
+   * @throws IOException if the entry is malformed
+   */
+  public String className(int index) throws IOException {
+    return utf8(entryShort(index, 0)).replace('/', '.');
+  }
+
+  /**
+   * @param index constant pool index
+   * @return unsigned first byte of the entry, e.g. the reference kind of a MethodHandle entry
+   */
+  public int entryByte(int index) {
+    return in.get(offsets[index]) & 0xFF;
+  }
+
+  /**
+   * @param index  constant pool index
+   * @param offset offset in bytes from the start of the entry
+   * @return unsigned short, e.g. an index referenced by the entry
+   */
+  public int entryShort(int index, int offset) {
+    return in.getShort(offsets[index] + offset) & 0xFFFF;
+  }
+
+  /**
+   * @param index constant pool index of an Integer or Float entry
+   * @return value as int bits
+   */
+  public int entryInt(int index) {
+    return in.getInt(offsets[index]);
+  }
+
+  /**
+   * @param index constant pool index of a Long or Double entry
+   * @return value as long bits
+   */
+  public long entryLong(int index) {
+    return in.getLong(offsets[index]);
+  }
+
+  public int readUnsignedByte() {
+    return in.get() & 0xFF;
+  }
+
+  public int readUnsignedShort() {
+    return in.getShort() & 0xFFFF;
+  }
+
+  /**
+   * @return next unsigned short without moving on
+   */
+  public int peekUnsignedShort() {
+    return in.getShort(in.position()) & 0xFFFF;
+  }
+
+  public int readInt() {
+    return in.getInt();
+  }
+
+  public byte[] readBytes(int length) {
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return bytes;
+  }
+
+  public void skip(int bytes) {
+    position(in.position() + bytes);
+  }
+
+  public int position() {
+    return in.position();
+  }
+
+  public void position(int position) {
+    // ByteBuffer.position(int) returns ByteBuffer since Java 9, which Java 7 and 8 do not have
+    ((Buffer) in).position(position);
+  }
+
+  /**
+   * Skips the fields or the methods of the class
+   */
+  public void skipMembers() {
+    int members = readUnsignedShort();
+    for (int i = 0; i < members; i++) {
+      skip(6); // access flags, name, descriptor
+      skipAttributes();
+    }
+  }
+
+  public void skipAttributes() {
+    int attributes = readUnsignedShort();
+    for (int i = 0; i < attributes; i++) {
+      skip(2);
+      skip(in.getInt());
+    }
+  }
+
+  public void skipAnnotation() throws IOException {
+    skip(2); // type
+    int pairs = readUnsignedShort();
+    for (int i = 0; i < pairs; i++) {
+      skip(2); // name
+      skipElementValue();
+    }
+  }
+
+  private void skipElementValue() throws IOException {
+    int tag = in.get();
+    switch (tag) {
+      case 'B': case 'C': case 'D': case 'F': case 'I': case 'J': case 'S': case 'Z': case 's': case 'c':
+        skip(2);
+        break;
+      case 'e':
+        skip(4);
+        break;
+      case '@':
+        skipAnnotation();
+        break;
+      case '[':
+        int values = readUnsignedShort();
+        for (int i = 0; i < values; i++) {
+          skipElementValue();
+        }
+        break;
+      default:
+        throw new IOException("Unknown element value tag " + (char) tag);
+    }
+  }
+
+  /**
+   * Reads and closes the stream
+   *
+   * @param in class file or other resource
+   * @return content of the stream
+   * @throws IOException if the stream cannot be read
+   */
+  public static byte[] readFully(InputStream in) throws IOException {
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    } finally {
+      in.close();
+    }
+  }
+
+}
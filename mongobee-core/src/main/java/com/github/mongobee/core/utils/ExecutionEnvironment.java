@@ -0,0 +1,47 @@
+package com.github.mongobee.core.utils;
+
+import com.github.mongobee.core.Mongobee;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Host, process and Mongobee version recorded with every executed changeset. Resolved once, from the name of the
+ * runtime ("pid@host" on most JVMs) - without a name lookup, which could block on a misconfigured DNS.
+ *
+ * @since 0.14
+ */
+public final class ExecutionEnvironment {
+
+  private static final String HOST;
+  private static final String PROCESS_ID;
+  private static final String MONGOBEE_VERSION = Mongobee.class.getPackage().getImplementationVersion();
+
+  static {
+    String name = ManagementFactory.getRuntimeMXBean().getName();
+    int separator = name.indexOf('@');
+    PROCESS_ID = separator > 0 ? name.substring(0, separator) : null;
+    HOST = separator >= 0 ? name.substring(separator + 1) : name;
+  }
+
+  private ExecutionEnvironment() {
+  }
+
+  public static String getHost() {
+    return HOST;
+  }
+
+  /**
+   * @return id of this process, null if the runtime does not expose it
+   */
+  public static String getProcessId() {
+    return PROCESS_ID;
+  }
+
+  /**
+   * @return version of the mongobee-core jar, null when not run from the jar
+   */
+  public static String getMongobeeVersion() {
+    return MONGOBEE_VERSION;
+  }
+
+}
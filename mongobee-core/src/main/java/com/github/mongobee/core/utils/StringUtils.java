@@ -18,4 +18,18 @@ public class StringUtils {
     }
     return false;
   }
+
+  /**
+   * @param bytes e.g. a digest
+   * @since 0.14
+   * @return lower case hex encoding
+   */
+  public static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(2 * bytes.length);
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
 }
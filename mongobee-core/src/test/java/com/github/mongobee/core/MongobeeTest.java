@@ -2,11 +2,21 @@ package com.github.mongobee.core;
 
 import com.github.fakemongo.Fongo;
 import com.github.mongobee.core.changeset.ChangeEntry;
+import com.github.mongobee.core.changeset.ChangeLogDescriptor;
 import com.github.mongobee.core.dao.ChangeEntryDao;
 import com.github.mongobee.core.dao.ChangeEntryIndexDao;
 import com.github.mongobee.core.exception.MongobeeConfigurationException;
+import com.github.mongobee.core.exception.MongobeeConnectionException;
 import com.github.mongobee.core.exception.MongobeeException;
+import com.github.mongobee.core.metrics.ChangeSetOutcome;
+import com.github.mongobee.core.metrics.MigrationMetrics;
+import com.github.mongobee.core.metrics.MigrationPhase;
 import com.github.mongobee.core.test.changelogs.MongobeeTestResource;
+import com.github.mongobee.core.test.checkpoint.CheckpointTestResource;
+import com.github.mongobee.core.test.lazy.LazyTestResource;
+import com.github.mongobee.core.test.runonchange.RunOnChangeTestResource;
+import com.github.mongobee.core.test.uptodate.UpToDateTestResource;
+import com.github.mongobee.core.utils.ChangeService;
 import com.mongodb.DB;
 import com.mongodb.MongoClientURI;
 import com.mongodb.client.MongoDatabase;
@@ -15,14 +25,24 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
@@ -109,6 +129,21 @@ public class MongobeeTest {
     assertEquals(11, changeAll);
   }
 
+  @Test
+  public void shouldExecuteAllChangeSetsInParallelMode() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+    runner.setChangeLogParallelism(4);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao, times(11)).save(any(ChangeEntry.class));
+    assertEquals(11, fakeMongoDatabase.getCollection(CHANGELOG_COLLECTION_NAME).count());
+  }
+
   @Test
   public void shouldPassOverChangeSets() throws Exception {
     // given
@@ -133,6 +168,271 @@ public class MongobeeTest {
     verify(dao, atLeastOnce()).isNewChange(any(ChangeEntry.class));
   }
 
+  @Test
+  public void shouldLoadAppliedChangesWhenLockAcquired() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao).loadAppliedChanges();
+  }
+
+  @Test
+  public void shouldNotLoadAppliedChangesWhenPrefetchDisabled() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    runner.setPrefetchAppliedChanges(false);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao, never()).loadAppliedChanges();
+    verify(dao, atLeastOnce()).isNewChange(any(ChangeEntry.class));
+  }
+
+  @Test
+  public void shouldFlushChangeEntriesBeforeReleasingLock() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+
+    // when
+    runner.execute();
+
+    // then
+    InOrder inOrder = inOrder(dao);
+    inOrder.verify(dao).closeChangeEntryJournal();
+    inOrder.verify(dao).releaseProcessLock(anyString());
+  }
+
+  @Test
+  public void shouldKeepMigrationFailureWhenFlushingChangeEntriesFails() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    MongobeeConnectionException readFailure = new MongobeeConnectionException("read failed", null);
+    MongobeeConnectionException flushFailure = new MongobeeConnectionException("flush failed", null);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenThrow(readFailure);
+    doThrow(flushFailure).when(dao).closeChangeEntryJournal();
+
+    // when
+    try {
+      runner.execute();
+      fail("Migration should fail");
+    } catch (MongobeeConnectionException e) {
+      // then
+      assertSame(readFailure, e);
+      assertSame(flushFailure, e.getSuppressed()[0]);
+    }
+    verify(dao).releaseProcessLock(anyString());
+  }
+
+  @Test
+  public void shouldNotInstantiateChangeLogWithoutPendingChangeSets() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(false);
+    runner.setChangeLogsScanPackage(LazyTestResource.class.getPackage().getName());
+    LazyTestResource.INSTANCES.set(0);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao, times(2)).isNewChange(any(ChangeEntry.class));
+    verify(dao, never()).save(any(ChangeEntry.class));
+    assertEquals(0, LazyTestResource.INSTANCES.get());
+  }
+
+  @Test
+  public void shouldInstantiateChangeLogOnceWithPendingChangeSet() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(false, true);
+    runner.setChangeLogsScanPackage(LazyTestResource.class.getPackage().getName());
+    LazyTestResource.INSTANCES.set(0);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao, times(1)).save(any(ChangeEntry.class));
+    assertEquals(1, LazyTestResource.INSTANCES.get());
+  }
+
+  @Test
+  public void shouldRecordExecutionOfChangeSets() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+
+    // when
+    runner.execute();
+
+    // then
+    Document entry = fakeMongoDatabase.getCollection(CHANGELOG_COLLECTION_NAME)
+        .find(new Document(ChangeEntry.KEY_CHANGEID, "test1")).first();
+    assertNotNull(entry.getDate(ChangeEntry.KEY_STARTED_AT));
+    assertTrue(!entry.getDate(ChangeEntry.KEY_FINISHED_AT).before(entry.getDate(ChangeEntry.KEY_STARTED_AT)));
+    assertTrue(entry.getLong(ChangeEntry.KEY_DURATION) >= 0);
+    assertNotNull(entry.getString(ChangeEntry.KEY_HOST));
+  }
+
+  @Test
+  public void shouldReexecuteRunOnChangeChangeSetWithChangedChecksum() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(false);
+    when(dao.findAppliedChecksum(any(ChangeEntry.class))).thenReturn("outdated");
+    runner.setChangeLogsScanPackage(RunOnChangeTestResource.class.getPackage().getName());
+    RunOnChangeTestResource.EXECUTIONS.set(0);
+
+    // when
+    runner.execute();
+
+    // then
+    assertEquals(1, RunOnChangeTestResource.EXECUTIONS.get());
+    verify(dao).replace(any(ChangeEntry.class));
+    verify(dao, never()).save(any(ChangeEntry.class));
+  }
+
+  @Test
+  public void shouldPassOverRunOnChangeChangeSetWithSameChecksum() throws Exception {
+    // given
+    String checksum = ChangeLogDescriptor.of(RunOnChangeTestResource.class).getChangeSets().get(0).getChecksum();
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(false);
+    when(dao.findAppliedChecksum(any(ChangeEntry.class))).thenReturn(checksum);
+    runner.setChangeLogsScanPackage(RunOnChangeTestResource.class.getPackage().getName());
+    RunOnChangeTestResource.EXECUTIONS.set(0);
+
+    // when
+    runner.execute();
+
+    // then
+    assertEquals(0, RunOnChangeTestResource.EXECUTIONS.get());
+    verify(dao, never()).replace(any(ChangeEntry.class));
+  }
+
+  @Test
+  public void shouldStoreChecksumOfRunOnChangeChangeSetRecordedWithoutOne() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(false);
+    when(dao.findAppliedChecksum(any(ChangeEntry.class))).thenReturn(null);
+    runner.setChangeLogsScanPackage(RunOnChangeTestResource.class.getPackage().getName());
+    RunOnChangeTestResource.EXECUTIONS.set(0);
+
+    // when
+    runner.execute();
+
+    // then
+    assertEquals(0, RunOnChangeTestResource.EXECUTIONS.get());
+    verify(dao).recordChecksum(any(ChangeEntry.class));
+    verify(dao, never()).replace(any(ChangeEntry.class));
+  }
+
+  @Test
+  public void shouldExecuteAsynchronously() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+    final List<MigrationStatus> statuses = new CopyOnWriteArrayList<>();
+    runner.addMigrationListener(new MigrationMetrics() {
+      @Override
+      public void changeSetCompleted(ChangeEntry changeEntry, ChangeSetOutcome outcome, long durationNanos) {
+        statuses.add(runner.getMigrationStatus());
+      }
+    });
+    assertEquals(MigrationStatus.State.PENDING, runner.getMigrationStatus().getState());
+
+    // when
+    MigrationStatus status = runner.executeAsync().get(30, TimeUnit.SECONDS);
+
+    // then
+    verify(dao, times(11)).save(any(ChangeEntry.class));
+    assertEquals(MigrationStatus.State.DONE, status.getState());
+    assertEquals(MigrationOutcome.SUCCEEDED, status.getOutcome());
+    assertTrue(runner.getMigrationStatus().isDone());
+    assertEquals(11, statuses.size());
+    assertEquals(MigrationStatus.State.RUNNING, statuses.get(0).getState());
+    assertNotNull(statuses.get(0).getCurrentChangeSet());
+    assertNull(runner.getMigrationStatus().getCurrentChangeSet());
+  }
+
+  @Test
+  public void shouldFailAsynchronousExecutionWithTheException() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    RuntimeException failure = new IllegalStateException("index creation failed");
+    doThrow(failure).when(dao).initializeMongoDb();
+
+    // when
+    try {
+      runner.executeAsync().get(30, TimeUnit.SECONDS);
+      fail("ExecutionException expected");
+    } catch (ExecutionException e) {
+      // then
+      assertSame(failure, e.getCause());
+    }
+    assertEquals(MigrationStatus.State.FAILED, runner.getMigrationStatus().getState());
+    assertSame(failure, runner.getMigrationStatus().getFailure());
+  }
+
+  @Test
+  public void shouldExitWhenPlanFingerprintUnchanged() throws Exception {
+    // given
+    String scanPackage = UpToDateTestResource.class.getPackage().getName();
+    ChangeService service = new ChangeService(scanPackage);
+    when(dao.getPlanFingerprint()).thenReturn(service.fetchPlanFingerprint(service.fetchChangeLogs()));
+    when(dao.acquireProcessLock()).thenReturn(true);
+    runner.setChangeLogsScanPackage(scanPackage);
+    runner.setUpToDateCheck(true);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao, never()).initializeMongoDb();
+    verify(dao, never()).acquireProcessLock();
+    verify(dao, never()).isNewChange(any(ChangeEntry.class));
+  }
+
+  @Test
+  public void shouldSavePlanFingerprintAfterMigration() throws Exception {
+    // given
+    String scanPackage = UpToDateTestResource.class.getPackage().getName();
+    ChangeService service = new ChangeService(scanPackage);
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+    runner.setChangeLogsScanPackage(scanPackage);
+    runner.setUpToDateCheck(true);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao).initializeMongoDb();
+    verify(dao, times(2)).save(any(ChangeEntry.class));
+    verify(dao).savePlanFingerprint(service.fetchPlanFingerprint(service.fetchChangeLogs()));
+  }
+
+  @Test
+  public void shouldNotSavePlanFingerprintWithRunAlwaysChangeSets() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    runner.setUpToDateCheck(true);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao, atLeastOnce()).isNewChange(any(ChangeEntry.class));
+    verify(dao, never()).savePlanFingerprint(anyString());
+  }
+
   @Test
   public void shouldReleaseLockAfterWhenLockAcquired() throws Exception {
     // given
@@ -142,7 +442,7 @@ public class MongobeeTest {
     runner.execute();
 
     // then
-    verify(dao).releaseProcessLock();
+    verify(dao).releaseProcessLock(anyString());
   }
 
   @Test
@@ -186,8 +486,154 @@ public class MongobeeTest {
       // do nothing
     }
     // then
-    verify(dao).releaseProcessLock();
+    verify(dao).releaseProcessLock("FAILED");
+
+  }
+
+  @Test
+  public void shouldStopMigrationWhenLockTakenOver() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isProcessLockLost()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+
+    // when
+    try {
+      runner.execute();
+    } catch (MongobeeException e) {
+      // expected
+    }
+
+    // then
+    verify(dao, never()).save(any(ChangeEntry.class));
+    verify(dao).releaseProcessLock("FAILED");
+  }
+
+  @Test
+  public void shouldWaitForLeaderAndExposeItsOutcome() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(false);
+    when(dao.isProccessLockHeld()).thenReturn(true, true, false);
+    when(dao.getReleasedProcessOutcome()).thenReturn("SUCCEEDED");
+    runner.setWaitForLeader(10000);
+
+    // when
+    runner.execute();
+
+    // then
+    assertEquals(MigrationOutcome.SUCCEEDED, runner.getLeaderOutcome());
+    assertTrue(runner.getMigrationStatus().isDone());
+    verify(dao, times(3)).isProccessLockHeld();
+    verify(dao, never()).isNewChange(any(ChangeEntry.class));
+  }
+
+  @Test
+  public void shouldMigrateWhenLeaderLeaseLapsedWhileWaiting() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(false, true);
+    when(dao.isProccessLockHeld()).thenReturn(false);
+    runner.setWaitForLeader(10000);
+
+    // when
+    runner.execute();
+
+    // then
+    assertEquals(MigrationOutcome.SUCCEEDED, runner.getLeaderOutcome());
+    verify(dao, atLeastOnce()).isNewChange(any(ChangeEntry.class));
+    verify(dao).releaseProcessLock("SUCCEEDED");
+  }
+
+  @Test
+  public void shouldStopWaitingForLeaderAfterTimeout() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(false);
+    when(dao.isProccessLockHeld()).thenReturn(true);
+    runner.setWaitForLeader(300);
+
+    // when
+    runner.execute();
+
+    // then
+    assertEquals(MigrationOutcome.TIMED_OUT, runner.getLeaderOutcome());
+    verify(dao, never()).isNewChange(any(ChangeEntry.class));
+  }
+
+  @Test
+  public void shouldNotWaitForLeaderByDefault() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(false);
+
+    // when
+    runner.execute();
+
+    // then
+    assertEquals(null, runner.getLeaderOutcome());
+    assertEquals(MigrationStatus.State.LOCKED, runner.getMigrationStatus().getState());
+    assertFalse(runner.getMigrationStatus().isDone());
+    verify(dao, never()).isProccessLockHeld();
+  }
+
+  @Test
+  public void shouldPassLastCheckpointToChangeSet() throws Exception {
+    // given
+    runner.setChangeLogsScanPackage(CheckpointTestResource.class.getPackage().getName());
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+    when(dao.getCheckpoint(any(ChangeEntry.class))).thenReturn(new Document("lastId", 4));
+    CheckpointTestResource.failAt = -1;
+
+    // when
+    runner.execute();
+
+    // then
+    assertEquals(new Document("lastId", 4), CheckpointTestResource.resumedFrom);
+    InOrder inOrder = inOrder(dao);
+    inOrder.verify(dao).save(any(ChangeEntry.class));
+    inOrder.verify(dao).clearCheckpoint(any(ChangeEntry.class));
+  }
+
+  @Test
+  public void shouldSaveCheckpointOfFailedChangeSet() throws Exception {
+    // given
+    runner.setChangeLogsScanPackage(CheckpointTestResource.class.getPackage().getName());
+    runner.setCheckpointInterval(60000);
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+    CheckpointTestResource.failAt = 7;
+
+    // when
+    try {
+      runner.execute();
+    } catch (MongobeeException e) {
+      // expected
+    }
+
+    // then
+    verify(dao).saveCheckpoint(any(ChangeEntry.class), eq(new Document("lastId", 6)));
+    verify(dao, never()).save(any(ChangeEntry.class));
+    verify(dao, never()).clearCheckpoint(any(ChangeEntry.class));
+  }
+
+  @Test
+  public void shouldReportPhasesAndChangeSetOutcomesToListeners() throws Exception {
+    // given
+    MigrationMetrics metrics = new MigrationMetrics();
+    runner.addMigrationListener(metrics);
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(false);
 
+    // when
+    runner.execute();
+
+    // then
+    assertEquals(1, metrics.getMigrations(MigrationOutcome.SUCCEEDED));
+    assertEquals(1, metrics.getChangeSets(ChangeSetOutcome.REAPPLIED)); // runAlways changeset
+    assertEquals(10, metrics.getChangeSets(ChangeSetOutcome.SKIPPED));
+    assertEquals(0, metrics.getChangeSets(ChangeSetOutcome.APPLIED));
+    assertEquals(1, metrics.getPhase(MigrationPhase.LOCK_ACQUIRE).getCount());
+    assertEquals(1, metrics.getPhase(MigrationPhase.CHANGELOG_INSTANTIATION).getCount()); // runAlways changelog only
+    assertEquals(11, metrics.getPhase(MigrationPhase.CHANGE_CHECK).getCount());
+    assertEquals(1, metrics.getPhase(MigrationPhase.CHANGESET_EXECUTION).getCount());
   }
 
   @After
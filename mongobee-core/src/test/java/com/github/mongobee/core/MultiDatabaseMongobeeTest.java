@@ -0,0 +1,123 @@
+package com.github.mongobee.core;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.core.MultiDatabaseMigrationResult.DatabaseResult;
+import com.github.mongobee.core.MultiDatabaseMigrationResult.Status;
+import com.github.mongobee.core.dao.LockDao;
+import com.github.mongobee.core.exception.MongobeeConfigurationException;
+import com.github.mongobee.core.test.uptodate.UpToDateTestResource;
+import com.mongodb.MongoClient;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @since 0.14
+ */
+public class MultiDatabaseMongobeeTest {
+
+  private static final String CHANGELOG_COLLECTION_NAME = "dbchangelog";
+
+  private MongoClient mongoClient;
+
+  @Before
+  public void init() {
+    mongoClient = new Fongo("multiDatabaseServer").getMongo();
+  }
+
+  @Test
+  public void shouldMigrateAllDatabases() throws Exception {
+    // given
+    MultiDatabaseMongobee runner = new MultiDatabaseMongobee(mongoClient)
+        .setChangeLogsScanPackage(UpToDateTestResource.class.getPackage().getName())
+        .setDbNames(asList("tenant1", "tenant2", "tenant3"))
+        .setParallelism(2);
+
+    // when
+    MultiDatabaseMigrationResult result = runner.execute();
+
+    // then
+    assertTrue(result.isSuccessful());
+    assertEquals(3, result.withStatus(Status.SUCCEEDED).size());
+    for (String dbName : asList("tenant1", "tenant2", "tenant3")) {
+      assertEquals(2, mongoClient.getDatabase(dbName).getCollection(CHANGELOG_COLLECTION_NAME).count());
+    }
+  }
+
+  @Test
+  public void shouldSelectDatabasesByPattern() throws Exception {
+    // given
+    MultiDatabaseMongobee runner = new MultiDatabaseMongobee(mongoClient) {
+      @Override
+      protected Iterable<String> listDatabaseNames() {
+        return asList("admin", "tenant_a", "tenant_b", "reporting"); // Fongo does not implement listDatabases
+      }
+    }.setChangeLogsScanPackage(UpToDateTestResource.class.getPackage().getName())
+        .setDbNamePattern("tenant_.*");
+
+    // when
+    MultiDatabaseMigrationResult result = runner.execute();
+
+    // then
+    List<String> migrated = new ArrayList<>();
+    for (DatabaseResult databaseResult : result.getResults()) {
+      migrated.add(databaseResult.getDbName());
+    }
+    assertEquals(2, migrated.size());
+    assertTrue(migrated.containsAll(asList("tenant_a", "tenant_b")));
+    assertEquals(0, mongoClient.getDatabase("reporting").getCollection(CHANGELOG_COLLECTION_NAME).count());
+  }
+
+  @Test
+  public void shouldReportUpToDateDatabasesAsSkipped() throws Exception {
+    // given
+    MultiDatabaseMongobee runner = new MultiDatabaseMongobee(mongoClient)
+        .setChangeLogsScanPackage(UpToDateTestResource.class.getPackage().getName())
+        .setDbNames(asList("tenant1", "tenant2"))
+        .setUpToDateCheck(true);
+    runner.execute();
+
+    // when
+    MultiDatabaseMigrationResult result = runner.execute();
+
+    // then
+    assertEquals(2, result.withStatus(Status.SKIPPED).size());
+  }
+
+  @Test
+  public void shouldReportDatabasesLockedByAnotherProcess() throws Exception {
+    // given
+    LockDao otherProcess = new LockDao("mongobeelock");
+    otherProcess.intitializeLock(mongoClient.getDatabase("tenant1"));
+    assertTrue(otherProcess.acquireLock(mongoClient.getDatabase("tenant1")));
+    MultiDatabaseMongobee runner = new MultiDatabaseMongobee(mongoClient)
+        .setChangeLogsScanPackage(UpToDateTestResource.class.getPackage().getName())
+        .setDbNames(asList("tenant1", "tenant2"));
+
+    try {
+      // when
+      MultiDatabaseMigrationResult result = runner.execute();
+
+      // then
+      assertEquals("tenant1", result.withStatus(Status.NOT_ACQUIRED).get(0).getDbName());
+      assertEquals("tenant2", result.withStatus(Status.SUCCEEDED).get(0).getDbName());
+      assertTrue(result.withStatus(Status.SKIPPED).isEmpty());
+    } finally {
+      otherProcess.releaseLock(mongoClient.getDatabase("tenant1"));
+    }
+  }
+
+  @Test(expected = MongobeeConfigurationException.class)
+  public void shouldThrowAnExceptionIfNoDatabasesSet() throws Exception {
+    new MultiDatabaseMongobee(mongoClient)
+        .setChangeLogsScanPackage(UpToDateTestResource.class.getPackage().getName())
+        .execute();
+  }
+
+}
@@ -0,0 +1,157 @@
+package com.github.mongobee.core.bulk;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.core.exception.MongobeeException;
+import com.github.mongobee.core.throttle.Throttle;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Updates.set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @since 0.14
+ */
+public class BulkBackfillTest {
+
+  private static final int DOCUMENTS = 2500;
+
+  private MongoCollection<Document> users;
+
+  @Before
+  public void init() {
+    users = new Fongo("testServer").getDatabase("mongobeetest").getCollection("users");
+    List<Document> documents = new ArrayList<>();
+    for (int i = 0; i < DOCUMENTS; i++) {
+      documents.add(new Document("_id", i).append("name", "User" + i).append("bio", "long text"));
+    }
+    users.insertMany(documents);
+  }
+
+  @Test
+  public void shouldRewriteAllDocuments() throws Exception {
+    // given
+    BulkBackfill backfill = new BulkBackfill(users)
+        .setProjection(include("name"))
+        .setTransformerThreads(3)
+        .setQueueCapacity(100)
+        .setTransformer(new DocumentTransformer() {
+          @Override
+          public WriteModel<Document> transform(Document user) {
+            assertEquals(null, user.get("bio"));
+            return new UpdateOneModel<>(eq("_id", user.get("_id")), set("lowerName", user.getString("name").toLowerCase()));
+          }
+        });
+
+    // when
+    BackfillStats stats = backfill.execute();
+
+    // then
+    assertEquals(DOCUMENTS, users.count(exists("lowerName")));
+    assertEquals("user7", users.find(eq("_id", 7)).first().getString("lowerName"));
+    assertEquals(DOCUMENTS, stats.getReader().getCount());
+    assertEquals(DOCUMENTS, stats.getTransformer().getCount());
+    assertEquals(DOCUMENTS, stats.getWriter().getCount());
+    assertEquals(3, stats.getBatches()); // at most 1000 operations per batch
+    assertEquals(DOCUMENTS, stats.getModified());
+  }
+
+  @Test
+  public void shouldSplitBatchesBySize() throws Exception {
+    // given
+    BulkBackfill backfill = new BulkBackfill(users)
+        .setFilter(exists("_id"))
+        .setMaxBatchBytes(10 * 1024)
+        .setTransformer(new DocumentTransformer() {
+          @Override
+          public WriteModel<Document> transform(Document user) {
+            return new UpdateOneModel<>(eq("_id", user.get("_id")), set("visited", true));
+          }
+        });
+
+    // when
+    BackfillStats stats = backfill.execute();
+
+    // then
+    assertEquals(DOCUMENTS, stats.getWriter().getCount());
+    assertTrue(stats.getBatches() > 10);
+  }
+
+  @Test
+  public void shouldSkipDocumentsWithoutWrite() throws Exception {
+    // given
+    BulkBackfill backfill = new BulkBackfill(users)
+        .setTransformer(new DocumentTransformer() {
+          @Override
+          public WriteModel<Document> transform(Document user) {
+            return user.getInteger("_id") % 2 == 0 ? new UpdateOneModel<Document>(eq("_id", user.get("_id")), set("even", true)) : null;
+          }
+        });
+
+    // when
+    BackfillStats stats = backfill.execute();
+
+    // then
+    assertEquals(DOCUMENTS / 2, stats.getSkipped());
+    assertEquals(DOCUMENTS / 2, users.count(exists("even")));
+  }
+
+  @Test
+  public void shouldLimitBatchesToBatchSizeOfThrottle() throws Exception {
+    // given
+    BulkBackfill backfill = new BulkBackfill(users)
+        .setThrottle(new Throttle().setBatchSize(10, 100))
+        .setTransformer(new DocumentTransformer() {
+          @Override
+          public WriteModel<Document> transform(Document user) {
+            return new UpdateOneModel<>(eq("_id", user.get("_id")), set("visited", true));
+          }
+        });
+
+    // when
+    BackfillStats stats = backfill.execute();
+
+    // then
+    assertEquals(DOCUMENTS, users.count(exists("visited")));
+    assertEquals(DOCUMENTS / 100, stats.getBatches());
+    assertEquals(0, stats.getThrottledMillis());
+  }
+
+  @Test
+  public void shouldStopOnTransformerFailure() throws Exception {
+    // given
+    BulkBackfill backfill = new BulkBackfill(users)
+        .setQueueCapacity(10)
+        .setTransformer(new DocumentTransformer() {
+          @Override
+          public WriteModel<Document> transform(Document user) {
+            if (user.getInteger("_id") == 100) {
+              throw new IllegalStateException("corrupted user");
+            }
+            return new UpdateOneModel<>(eq("_id", user.get("_id")), set("visited", true));
+          }
+        });
+
+    // when
+    try {
+      backfill.execute();
+      fail("Failure expected");
+    } catch (MongobeeException e) {
+      // then
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+}
@@ -0,0 +1,253 @@
+package com.github.mongobee.core.changeset;
+
+import static java.nio.file.Files.createTempDirectory;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import com.github.mongobee.core.exception.MongobeeChangeSetException;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * @since 0.14
+ */
+public class ChangeSetChecksumTest {
+
+  @Test
+  public void shouldIgnoreOtherMethodsOfChangeLog() throws Exception {
+    // when
+    String checksum = changeSet(ReferenceData.class, "reference").getChecksum();
+    String copyChecksum = changeSet(ReferenceDataCopy.class, "reference").getChecksum();
+
+    // then
+    assertNotNull(checksum);
+    assertEquals(checksum, copyChecksum);
+  }
+
+  @Test
+  public void shouldChangeWithMethodBody() throws Exception {
+    // when
+    String checksum = changeSet(ReferenceData.class, "reference").getChecksum();
+    String changedChecksum = changeSet(ReferenceData.class, "changed").getChecksum();
+
+    // then
+    assertFalse(checksum.equals(changedChecksum));
+  }
+
+  @Test
+  public void shouldChangeWithVersionAndResources() throws Exception {
+    // when
+    String checksum = changeSet(ReferenceData.class, "reference").getChecksum();
+    String versionedChecksum = changeSet(ReferenceData.class, "versioned").getChecksum();
+    String resourceChecksum = changeSet(ReferenceData.class, "resource").getChecksum();
+
+    // then
+    assertFalse(checksum.equals(versionedChecksum));
+    assertFalse(checksum.equals(resourceChecksum));
+    assertFalse(versionedChecksum.equals(resourceChecksum));
+  }
+
+  @Test
+  public void shouldHaveNoChecksumWithoutRunOnChange() throws Exception {
+    // when
+    ChangeSetDescriptor changeSet = changeSet(ReferenceDataCopy.class, "other");
+
+    // then
+    assertNull(changeSet.getChecksum());
+    assertNull(changeSet.createChangeEntry().getChecksum());
+  }
+
+  @Test
+  public void shouldIgnoreInstructionSizesInBranches() throws Exception {
+    // given
+    StringBuilder constants = new StringBuilder();
+    for (int i = 0; i < 300; i++) {
+      constants.append("\"constant").append(i).append("\", ");
+    }
+    String branching = "  @ChangeSet(author = \"testuser\", id = \"branching\", order = \"02\", runOnChange = true)\n"
+        + "  public void branching(MongoDatabase db, int population) {\n"
+        + "    String code = population > 50000000 ? \"DE\" : \"PL\";\n"
+        + "    switch (population) { case 1: code = \"AD\"; break; case 2: code = \"LI\"; break; default: }\n"
+        + "    switch (code) { case \"PL\": population++; break; case \"DE\": population--; break; default: }\n"
+        + "    try {\n"
+        + "      db.getCollection(\"countries\").insertOne(new Document(\"code\", code).append(\"population\", population));\n"
+        + "    } catch (RuntimeException e) {\n"
+        + "      db.getCollection(\"errors\").insertOne(new Document(\"code\", code));\n"
+        + "    }\n"
+        + "  }";
+
+    // when
+    String checksum = changeSet(compile("Branching", branching), "branching").getChecksum();
+    // constants of the first method push the constants of the changeset past ldc, moving the branch targets
+    String largerPoolChecksum = changeSet(compile("Branching",
+        "  public String[] constants() { return new String[] {" + constants + "}; }",
+        branching), "branching").getChecksum();
+
+    // then
+    assertNotNull(checksum);
+    assertEquals(checksum, largerPoolChecksum);
+  }
+
+  @Test
+  public void shouldChangeWithLambdaBody() throws Exception {
+    // when
+    String checksum = changeSet(compile("Lambda", lambda("PL")), "lambda").getChecksum();
+    String changedChecksum = changeSet(compile("Lambda", lambda("DE")), "lambda").getChecksum();
+
+    // then
+    assertFalse(checksum.equals(changedChecksum));
+  }
+
+  @Test
+  public void shouldIgnoreLambdasOfOtherMethods() throws Exception {
+    // when
+    String checksum = changeSet(compile("Lambda", lambda("PL")), "lambda").getChecksum();
+    // the lambda of the first method takes the first synthetic method name
+    String otherLambdaChecksum = changeSet(compile("Lambda",
+        "  public Callable<String> other() { return () -> \"Warsaw\"; }",
+        lambda("PL")), "lambda").getChecksum();
+
+    // then
+    assertNotNull(checksum);
+    assertEquals(checksum, otherLambdaChecksum);
+  }
+
+  @Test(expected = MongobeeChangeSetException.class)
+  public void shouldFailOnMissingResource() throws Exception {
+    changeSet(MissingResource.class, "missing").getChecksum();
+  }
+
+  @Test(expected = MongobeeChangeSetException.class)
+  public void shouldRejectRunAlwaysAndRunOnChange() throws Exception {
+    ChangeLogDescriptor.of(RunAlwaysAndRunOnChange.class);
+  }
+
+  private static ChangeSetDescriptor changeSet(Class<?> changeLog, String id) throws MongobeeChangeSetException {
+    for (ChangeSetDescriptor changeSet : ChangeLogDescriptor.of(changeLog).getChangeSets()) {
+      if (changeSet.getId().equals(id)) {
+        return changeSet;
+      }
+    }
+    throw new IllegalArgumentException(id);
+  }
+
+  private static String lambda(String code) {
+    return "  @ChangeSet(author = \"testuser\", id = \"lambda\", order = \"02\", runOnChange = true)\n"
+        + "  public void lambda(MongoDatabase db) throws Exception {\n"
+        + "    Callable<Document> insert = () -> new Document(\"code\", \"" + code + "\");\n"
+        + "    db.getCollection(\"countries\").insertOne(insert.call());\n"
+        + "  }";
+  }
+
+  /**
+   * Compiles a changelog to a new class loader, lambdas are not available to the sources of the tests
+   */
+  private static Class<?> compile(String className, String... members) throws Exception {
+    StringBuilder code = new StringBuilder("package test.changelogs;\n"
+        + "import com.github.mongobee.core.changeset.*;\n"
+        + "import com.mongodb.client.MongoDatabase;\n"
+        + "import java.util.concurrent.Callable;\n"
+        + "import org.bson.Document;\n"
+        + "@ChangeLog\n"
+        + "public class " + className + " {\n");
+    for (String member : members) {
+      code.append(member).append('\n');
+    }
+    code.append("}\n");
+
+    File outputDir = createTempDirectory("mongobee-checksum").toFile();
+    String classpath = new File(ChangeLog.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath()
+        + File.pathSeparator
+        + new File(MongoDatabase.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    JavaCompiler.CompilationTask task = compiler.getTask(null, null, null,
+        asList("-d", outputDir.getPath(), "-classpath", classpath, "-source", "1.8", "-target", "1.8", "-nowarn"),
+        null, asList(source("test.changelogs." + className, code)));
+    assertTrue(task.call());
+    ClassLoader classLoader = new URLClassLoader(new URL[] {outputDir.toURI().toURL()},
+        ChangeSetChecksumTest.class.getClassLoader());
+    return classLoader.loadClass("test.changelogs." + className);
+  }
+
+  private static JavaFileObject source(String className, final CharSequence code) {
+    return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"),
+        JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return code;
+      }
+    };
+  }
+
+  @ChangeLog
+  public static class ReferenceData {
+
+    @ChangeSet(author = "testuser", id = "reference", order = "01", runOnChange = true)
+    public void reference(MongoDatabase db) {
+      db.getCollection("countries").insertOne(new Document("code", "PL").append("population", 38000000L));
+    }
+
+    @ChangeSet(author = "testuser", id = "versioned", order = "02", runOnChange = true, version = "2")
+    public void versioned(MongoDatabase db) {
+      db.getCollection("countries").insertOne(new Document("code", "PL").append("population", 38000000L));
+    }
+
+    @ChangeSet(author = "testuser", id = "resource", order = "03", runOnChange = true, resources = "test.json")
+    public void resource(MongoDatabase db) {
+      db.getCollection("countries").insertOne(new Document("code", "PL").append("population", 38000000L));
+    }
+
+    @ChangeSet(author = "testuser", id = "changed", order = "04", runOnChange = true)
+    public void changed(MongoDatabase db) {
+      db.getCollection("countries").insertOne(new Document("code", "DE").append("population", 83000000L));
+    }
+  }
+
+  @ChangeLog
+  public static class ReferenceDataCopy {
+
+    // declared first, so its constants come first in the constant pool
+    @ChangeSet(author = "testuser", id = "other", order = "01")
+    public void other(MongoDatabase db) {
+      db.getCollection("cities").insertOne(new Document("name", "Warsaw").append("district", 18));
+    }
+
+    @ChangeSet(author = "testuser", id = "reference", order = "02", runOnChange = true)
+    public void reference(MongoDatabase db) {
+      db.getCollection("countries").insertOne(new Document("code", "PL").append("population", 38000000L));
+    }
+  }
+
+  @ChangeLog
+  public static class MissingResource {
+
+    @ChangeSet(author = "testuser", id = "missing", order = "01", runOnChange = true, resources = "missing.json")
+    public void missing() {
+    }
+  }
+
+  @ChangeLog
+  public static class RunAlwaysAndRunOnChange {
+
+    @ChangeSet(author = "testuser", id = "both", order = "01", runAlways = true, runOnChange = true)
+    public void both() {
+    }
+  }
+
+}
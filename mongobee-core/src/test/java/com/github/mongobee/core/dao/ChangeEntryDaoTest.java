@@ -1,18 +1,28 @@
 package com.github.mongobee.core.dao;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Date;
+import java.util.List;
+
 import org.bson.Document;
 import org.junit.Test;
 
 import com.github.fakemongo.Fongo;
+import com.github.mongobee.core.changeset.ChangeEntry;
 import com.github.mongobee.core.exception.MongobeeConfigurationException;
+import com.github.mongobee.core.exception.MongobeeLockException;
 import com.mongodb.FongoMongoCollection;
 import com.mongodb.MongoClient;
 import com.mongodb.client.MongoDatabase;
@@ -120,6 +130,85 @@ public class ChangeEntryDaoTest {
 
   }
 
+  @Test
+  public void shouldSkipIndexAndLockSetupOnWarmStart() throws MongobeeConfigurationException {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryIndexDao indexDao = spy(new ChangeEntryIndexDao(CHANGELOG_COLLECTION_NAME));
+    LockDao lockDao = spy(new LockDao(LOCK_COLLECTION_NAME));
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME);
+    dao.setIndexDao(indexDao);
+    dao.setLockDao(lockDao);
+    dao.connectMongoDb(mongoClient, DB_NAME);
+    // MongoDB creates the collections with their indexes, Fongo only on the first insert
+    db.getCollection(CHANGELOG_COLLECTION_NAME).insertOne(new Document());
+    db.getCollection(LOCK_COLLECTION_NAME).insertOne(new Document());
+
+    ChangeEntryDao restarted = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME);
+    restarted.setIndexDao(indexDao);
+    restarted.setLockDao(lockDao);
+
+    // when
+    restarted.connectMongoDb(mongoClient, DB_NAME);
+
+    // then
+    verify(indexDao, times(1)).createRequiredUniqueIndex(any(FongoMongoCollection.class));
+    verify(indexDao, times(1)).findRequiredChangeAndAuthorIndex(db);
+    verify(lockDao, times(1)).intitializeLock(db);
+  }
+
+  @Test
+  public void shouldRecreateIndexOfDroppedLockCollectionDespiteMarker() throws MongobeeConfigurationException {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    LockDao lockDao = spy(new LockDao(LOCK_COLLECTION_NAME));
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME);
+    dao.setLockDao(lockDao);
+    dao.connectMongoDb(mongoClient, DB_NAME);
+    db.getCollection(LOCK_COLLECTION_NAME).drop();
+
+    ChangeEntryDao restarted = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME);
+    restarted.setLockDao(lockDao);
+
+    // when
+    restarted.connectMongoDb(mongoClient, DB_NAME);
+
+    // then
+    verify(lockDao, times(2)).intitializeLock(db);
+    assertTrue(lockDao.hasUniqueKeyIndex(db));
+  }
+
+  @Test
+  public void shouldSetUpRenamedChangelogCollection() throws MongobeeConfigurationException {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryIndexDao indexDaoMock = mock(ChangeEntryIndexDao.class);
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME);
+    dao.setIndexDao(indexDaoMock);
+    dao.connectMongoDb(mongoClient, DB_NAME);
+
+    ChangeEntryDao renamed = new ChangeEntryDao("otherchangelog", LOCK_COLLECTION_NAME);
+    renamed.setIndexDao(indexDaoMock);
+
+    // when
+    renamed.connectMongoDb(mongoClient, DB_NAME);
+
+    // then
+    verify(indexDaoMock, times(2)).findRequiredChangeAndAuthorIndex(db);
+  }
+
   @Test
   public void shouldGetLockWhenLockDaoGetsLock() throws Exception {
 
@@ -189,4 +278,216 @@ public class ChangeEntryDaoTest {
     assertTrue(lockHeld);
   }
 
+  @Test
+  public void shouldAnswerNewChangeFromAppliedChangesSnapshot() throws Exception {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME);
+    dao.connectMongoDb(mongoClient, DB_NAME);
+
+    ChangeEntry applied = new ChangeEntry("applied", "testuser", new Date(), "ChangeLog", "method1");
+    ChangeEntry appliedLater = new ChangeEntry("appliedLater", "testuser", new Date(), "ChangeLog", "method2");
+    dao.save(applied);
+
+    // when
+    dao.loadAppliedChanges();
+    db.getCollection(CHANGELOG_COLLECTION_NAME).insertOne(appliedLater.buildFullDBObject());
+
+    // then
+    assertFalse(dao.isNewChange(applied));
+    assertTrue(dao.isNewChange(appliedLater)); // not in the snapshot
+    assertTrue(dao.isNewChange(new ChangeEntry("applied", "otheruser", new Date(), "ChangeLog", "method1")));
+
+    // and after invalidation the database is queried again
+    dao.invalidateAppliedChanges();
+    assertFalse(dao.isNewChange(appliedLater));
+  }
+
+  @Test
+  public void shouldAddSavedChangeToAppliedChangesSnapshot() throws Exception {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME);
+    dao.connectMongoDb(mongoClient, DB_NAME);
+    dao.loadAppliedChanges();
+
+    ChangeEntry entry = new ChangeEntry("newChange", "testuser", new Date(), "ChangeLog", "method1");
+    assertTrue(dao.isNewChange(entry));
+
+    // when
+    dao.save(entry);
+
+    // then
+    assertFalse(dao.isNewChange(entry));
+  }
+
+  @Test
+  public void shouldClearCheckpointOnlyAfterChangeEntryWritten() throws Exception {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME);
+    dao.connectMongoDb(mongoClient, DB_NAME);
+    dao.setChangeEntryJournal(new ChangeEntryJournal(0, 0));
+
+    ChangeEntry entry = new ChangeEntry("backfill", "testuser", new Date(), "ChangeLog", "method1");
+    dao.saveCheckpoint(entry, new Document("lastId", 10));
+
+    // when
+    dao.save(entry);
+    dao.clearCheckpoint(entry);
+
+    // then
+    assertNotNull(dao.getCheckpoint(entry)); // entry still buffered by the journal
+    dao.flushChangeEntries();
+    assertNull(dao.getCheckpoint(entry));
+  }
+
+  @Test
+  public void shouldNotRecordChangeEntriesOnceLockIsTakenOver() throws Exception {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME);
+    dao.connectMongoDb(mongoClient, DB_NAME);
+    dao.acquireProcessLock();
+    takeOverLock(db);
+
+    // when
+    MongobeeLockException failure = null;
+    try {
+      dao.save(new ChangeEntry("stalled", "testuser", new Date(), "ChangeLog", "method1"));
+    } catch (MongobeeLockException e) {
+      failure = e;
+    }
+
+    // then
+    assertNotNull(failure);
+    assertTrue(dao.isProcessLockLost());
+    assertEquals(0, db.getCollection(CHANGELOG_COLLECTION_NAME).count());
+  }
+
+  @Test
+  public void shouldNotFlushChangeEntriesOnceLockIsTakenOver() throws Exception {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME);
+    dao.connectMongoDb(mongoClient, DB_NAME);
+    dao.setChangeEntryJournal(new ChangeEntryJournal(0, 0));
+    dao.acquireProcessLock();
+    dao.save(new ChangeEntry("stalled", "testuser", new Date(), "ChangeLog", "method1"));
+    takeOverLock(db);
+
+    // when
+    MongobeeLockException failure = null;
+    try {
+      dao.flushChangeEntries();
+    } catch (MongobeeLockException e) {
+      failure = e;
+    }
+
+    // then
+    assertNotNull(failure);
+    assertEquals(0, db.getCollection(CHANGELOG_COLLECTION_NAME).count());
+  }
+
+  private static void takeOverLock(MongoDatabase db) {
+    db.getCollection(LOCK_COLLECTION_NAME).updateOne(new Document("key", "LOCK"),
+        new Document("$set", new Document("expiresAt", new Date(0)))); // lease expired while the holder was stalled
+    assertTrue(new LockDao(LOCK_COLLECTION_NAME).acquireLock(db));
+  }
+
+  @Test
+  public void shouldReplaceChecksumOfAppliedChange() throws Exception {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME);
+    dao.connectMongoDb(mongoClient, DB_NAME);
+    dao.save(new ChangeEntry("referenceData", "testuser", new Date(), "ChangeLog", "method1"));
+    ChangeEntry changed = new ChangeEntry("referenceData", "testuser", new Date(), "ChangeLog", "method1", "abc");
+    assertNull(dao.findAppliedChecksum(changed));
+
+    // when
+    dao.replace(changed);
+
+    // then
+    assertEquals("abc", dao.findAppliedChecksum(changed));
+    assertEquals(1, db.getCollection(CHANGELOG_COLLECTION_NAME).count());
+  }
+
+  @Test
+  public void shouldRecordChecksumOfAppliedChange() throws Exception {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME);
+    dao.connectMongoDb(mongoClient, DB_NAME);
+    dao.save(new ChangeEntry("referenceData", "testuser", new Date(), "ChangeLog", "method1"));
+    ChangeEntry current = new ChangeEntry("referenceData", "testuser", new Date(), "ChangeLog", "method1", "abc");
+
+    // when
+    dao.recordChecksum(current);
+
+    // then
+    assertEquals("abc", dao.findAppliedChecksum(current));
+    assertEquals(1, db.getCollection(CHANGELOG_COLLECTION_NAME).count());
+  }
+
+  @Test
+  public void shouldFindSlowestChangesFirst() throws Exception {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME);
+    dao.connectMongoDb(mongoClient, DB_NAME);
+    dao.save(executedEntry("fast", 10));
+    dao.save(executedEntry("slowest", 5000));
+    dao.save(executedEntry("slow", 700));
+    dao.save(new ChangeEntry("notTimed", "testuser", new Date(), "ChangeLog", "method1"));
+
+    // when
+    List<ChangeEntry> slowest = dao.findSlowestChanges(2);
+
+    // then
+    assertEquals(2, slowest.size());
+    assertEquals("slowest", slowest.get(0).getChangeId());
+    assertEquals(Long.valueOf(5000), slowest.get(0).getDurationMillis());
+    assertEquals("slow", slowest.get(1).getChangeId());
+    assertEquals(3, dao.findSlowestChanges(10).size());
+  }
+
+  private static ChangeEntry executedEntry(String changeId, long durationMillis) {
+    ChangeEntry entry = new ChangeEntry(changeId, "testuser", new Date(), "ChangeLog", changeId);
+    entry.recordExecution(new Date(), new Date(), durationMillis, "host", "1", null, null);
+    return entry;
+  }
+
 }
@@ -1,5 +1,6 @@
 package com.github.mongobee.core.dao;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -47,6 +48,37 @@ public class ChangeEntryIndexDaoTest {
     assertTrue(dao.isUnique(createdIndex));
   }
 
+  @Test
+  public void shouldFindRequiredIndexWithListIndexes() {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    dao.createRequiredUniqueIndex(db.getCollection(CHANGELOG_COLLECTION_NAME));
+
+    // when
+    Document index = dao.findRequiredChangeAndAuthorIndex(db);
+
+    // then
+    assertNotNull(index);
+    assertEquals(CHANGEID_AUTHOR_INDEX_NAME, index.get("name"));
+    assertTrue(dao.isUnique(index));
+  }
+
+  @Test
+  public void shouldNotFindIndexWithOtherKeys() {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    MongoCollection<Document> collection = db.getCollection(CHANGELOG_COLLECTION_NAME);
+    collection.createIndex(new Document(ChangeEntry.KEY_CHANGEID, 1));
+    collection.createIndex(new Document(ChangeEntry.KEY_AUTHOR, 1).append(ChangeEntry.KEY_CHANGEID, 1));
+    collection.createIndex(new Document(ChangeEntry.KEY_CHANGEID, 1).append(ChangeEntry.KEY_AUTHOR, -1));
+
+    // when
+    Document index = dao.findRequiredChangeAndAuthorIndex(db);
+
+    // then
+    assertNull(index);
+  }
+
   @Test
   @Ignore("Fongo has not implemented dropIndex for MongoCollection object (issue with mongo driver 3.x)")
   public void shouldDropWrongIndex() {
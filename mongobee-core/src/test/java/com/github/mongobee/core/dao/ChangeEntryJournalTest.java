@@ -0,0 +1,124 @@
+package com.github.mongobee.core.dao;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Date;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.core.changeset.ChangeEntry;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * @since 0.14
+ */
+public class ChangeEntryJournalTest {
+  private static final String TEST_SERVER = "testServer";
+  private static final String DB_NAME = "mongobeetest";
+  private static final String CHANGELOG_COLLECTION_NAME = "dbchangelog";
+
+  @Test
+  public void shouldWriteEntriesWhenBatchSizeReached() throws Exception {
+    // given
+    MongoCollection<ChangeEntry> collection = newChangelogCollection();
+    ChangeEntryJournal journal = new ChangeEntryJournal(2, 0);
+
+    // when
+    journal.append(collection, entry("test1"));
+    journal.append(collection, entry("test2"));
+    journal.append(collection, entry("test3"));
+    waitForWrites(collection, 2);
+
+    // then
+    assertEquals(2, collection.count());
+
+    // and the rest on flush
+    journal.flush();
+    assertEquals(3, collection.count());
+  }
+
+  @Test
+  public void shouldWriteEntriesOnlyOnFlushWhenNoThresholds() throws Exception {
+    // given
+    MongoCollection<ChangeEntry> collection = newChangelogCollection();
+    ChangeEntryJournal journal = new ChangeEntryJournal(0, 0);
+
+    // when
+    for (int i = 0; i < 10; i++) {
+      journal.append(collection, entry("test" + i));
+    }
+
+    // then
+    assertEquals(0, collection.count());
+    journal.flush();
+    assertEquals(10, collection.count());
+  }
+
+  @Test
+  public void shouldWriteEntriesWhenFlushIntervalElapsed() throws Exception {
+    // given
+    MongoCollection<ChangeEntry> collection = newChangelogCollection();
+    ChangeEntryJournal journal = new ChangeEntryJournal(0, 50);
+
+    // when
+    journal.append(collection, entry("test1"));
+
+    // then
+    waitForWrites(collection, 1);
+    assertEquals(1, collection.count());
+  }
+
+  @Test
+  public void shouldIgnoreAlreadyWrittenEntries() throws Exception {
+    // given
+    MongoCollection<ChangeEntry> collection = newChangelogCollection();
+    new ChangeEntryIndexDao(CHANGELOG_COLLECTION_NAME).createRequiredUniqueIndex(collection.withDocumentClass(Document.class));
+    collection.insertOne(entry("test1"));
+    ChangeEntryJournal journal = new ChangeEntryJournal(0, 0);
+
+    // when
+    journal.append(collection, entry("test1"));
+    journal.append(collection, entry("test2"));
+    journal.flush();
+
+    // then
+    assertEquals(2, collection.count());
+  }
+
+  @Test
+  public void shouldWriteEntriesOnCloseAndRestartOnNextAppend() throws Exception {
+    // given
+    MongoCollection<ChangeEntry> collection = newChangelogCollection();
+    ChangeEntryJournal journal = new ChangeEntryJournal(0, 50);
+    journal.append(collection, entry("test1"));
+
+    // when
+    journal.close();
+    journal.append(collection, entry("test2"));
+
+    // then
+    assertEquals(1, collection.count());
+    waitForWrites(collection, 2);
+    assertEquals(2, collection.count());
+  }
+
+  private MongoCollection<ChangeEntry> newChangelogCollection() {
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    return db.getCollection(CHANGELOG_COLLECTION_NAME, ChangeEntry.class)
+        .withCodecRegistry(MongobeeCodecs.codecRegistry(db.getCodecRegistry()));
+  }
+
+  private ChangeEntry entry(String changeId) {
+    return new ChangeEntry(changeId, "testuser", new Date(), "ChangeLog", "method");
+  }
+
+  private void waitForWrites(MongoCollection<ChangeEntry> collection, long expected) throws InterruptedException {
+    for (int i = 0; i < 100 && collection.count() < expected; i++) {
+      Thread.sleep(20);
+    }
+  }
+
+}
@@ -0,0 +1,51 @@
+package com.github.mongobee.core.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * @since 0.14
+ */
+public class CheckpointDaoTest {
+  private static final String TEST_SERVER = "testServer";
+  private static final String DB_NAME = "mongobeetest";
+  private static final String CHECKPOINT_COLLECTION_NAME = "mongobeecheckpoint";
+
+  @Test
+  public void shouldReturnLastSavedCheckpointOfChangeSet() {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    CheckpointDao dao = new CheckpointDao(CHECKPOINT_COLLECTION_NAME);
+
+    // when
+    dao.saveCheckpoint(db, "backfill", "testuser", new Document("lastId", 10));
+    dao.saveCheckpoint(db, "backfill", "testuser", new Document("lastId", 20));
+    dao.saveCheckpoint(db, "backfill", "otheruser", new Document("lastId", 99));
+
+    // then
+    assertEquals(new Document("lastId", 20), dao.getCheckpoint(db, "backfill", "testuser"));
+    assertNull(dao.getCheckpoint(db, "other", "testuser"));
+    assertEquals(2, db.getCollection(CHECKPOINT_COLLECTION_NAME).count());
+  }
+
+  @Test
+  public void shouldRemoveCheckpoint() {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    CheckpointDao dao = new CheckpointDao(CHECKPOINT_COLLECTION_NAME);
+    dao.saveCheckpoint(db, "backfill", "testuser", new Document("lastId", 10));
+
+    // when
+    dao.removeCheckpoint(db, "backfill", "testuser");
+
+    // then
+    assertNull(dao.getCheckpoint(db, "backfill", "testuser"));
+  }
+
+}
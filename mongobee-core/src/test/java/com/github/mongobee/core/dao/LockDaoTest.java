@@ -1,12 +1,16 @@
 package com.github.mongobee.core.dao;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Date;
+
 import org.junit.Test;
 
 import com.github.fakemongo.Fongo;
 import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
 
 /**
  * @author colsson11
@@ -109,4 +113,142 @@ public class LockDaoTest {
 
   }
 
+  @Test
+  public void shouldTakeOverLockWhenLeaseExpired() throws Exception {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    LockDao crashed = new LockDao(LOCK_COLLECTION_NAME);
+    crashed.setLeaseMillis(50);
+    crashed.intitializeLock(db);
+    crashed.acquireLock(db);
+    db.getCollection(LOCK_COLLECTION_NAME).updateOne(new Document("key", "LOCK"),
+        new Document("$set", new Document("owner", "crashed"))); // heartbeat of a killed process stops renewing
+
+    // when
+    Thread.sleep(200);
+    LockDao dao = new LockDao(LOCK_COLLECTION_NAME);
+    boolean hasLock = dao.acquireLock(db);
+
+    // then
+    assertTrue(hasLock);
+    assertEquals(2, dao.getLockToken());
+    Thread.sleep(200);
+    assertTrue(crashed.isLockLost());
+  }
+
+  @Test
+  public void shouldFailFencingCheckOnceLockIsTakenOver() throws Exception {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    LockDao stalled = new LockDao(LOCK_COLLECTION_NAME);
+    stalled.intitializeLock(db);
+    stalled.acquireLock(db);
+    boolean verifiedBefore = stalled.verifyLock(db);
+    db.getCollection(LOCK_COLLECTION_NAME).updateOne(new Document("key", "LOCK"),
+        new Document("$set", new Document("expiresAt", new Date(0)))); // lease expired while stalled
+
+    // when
+    new LockDao(LOCK_COLLECTION_NAME).acquireLock(db);
+    boolean verifiedAfter = stalled.verifyLock(db);
+
+    // then
+    assertTrue(verifiedBefore);
+    assertFalse(verifiedAfter);
+    assertTrue(stalled.isLockLost());
+  }
+
+  @Test
+  public void shouldTakeOverLegacyLockWithoutExpiry() throws Exception {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    LockDao dao = new LockDao(LOCK_COLLECTION_NAME);
+    dao.intitializeLock(db);
+    db.getCollection(LOCK_COLLECTION_NAME).insertOne(new Document("key", "LOCK").append("status", "LOCK_HELD"));
+
+    // when
+    boolean heldBefore = dao.isLockHeld(db);
+    boolean hasLock = dao.acquireLock(db);
+
+    // then
+    assertFalse(heldBefore);
+    assertTrue(hasLock);
+    assertEquals(1, dao.getLockToken());
+    assertTrue(dao.isLockHeld(db));
+    assertEquals(1, db.getCollection(LOCK_COLLECTION_NAME).count());
+    dao.releaseLock(db);
+  }
+
+  @Test
+  public void shouldRenewLeaseWhileHeld() throws Exception {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    LockDao holder = new LockDao(LOCK_COLLECTION_NAME);
+    holder.setLeaseMillis(300);
+    holder.intitializeLock(db);
+    holder.acquireLock(db);
+
+    // when
+    Thread.sleep(700);
+    boolean hasLock = new LockDao(LOCK_COLLECTION_NAME).acquireLock(db);
+
+    // then
+    assertFalse(hasLock);
+    assertTrue(holder.isLockHeld(db));
+    assertFalse(holder.isLockLost());
+    holder.releaseLock(db);
+  }
+
+  @Test
+  public void shouldNotReleaseLockOfAnotherOwner() throws Exception {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    LockDao holder = new LockDao(LOCK_COLLECTION_NAME);
+    holder.intitializeLock(db);
+    holder.acquireLock(db);
+
+    // when
+    new LockDao(LOCK_COLLECTION_NAME).releaseLock(db);
+
+    // then
+    assertTrue(holder.isLockHeld(db));
+    holder.releaseLock(db);
+    assertFalse(holder.isLockHeld(db));
+  }
+
+  @Test
+  public void shouldIncrementLockTokenOnEveryAcquisition() throws Exception {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    LockDao dao = new LockDao(LOCK_COLLECTION_NAME);
+    dao.intitializeLock(db);
+
+    // when
+    dao.acquireLock(db);
+    long first = dao.getLockToken();
+    dao.releaseLock(db);
+    dao.acquireLock(db);
+
+    // then
+    assertEquals(1, first);
+    assertEquals(2, dao.getLockToken());
+  }
+
+  @Test
+  public void shouldKeepOutcomeUntilNextAcquisition() throws Exception {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    LockDao dao = new LockDao(LOCK_COLLECTION_NAME);
+    dao.intitializeLock(db);
+    dao.acquireLock(db);
+    assertEquals(null, dao.getReleasedOutcome(db));
+
+    // when
+    dao.releaseLock(db, "SUCCEEDED");
+
+    // then
+    assertEquals("SUCCEEDED", dao.getReleasedOutcome(db));
+    dao.acquireLock(db);
+    assertEquals(null, dao.getReleasedOutcome(db));
+  }
+
 }
@@ -0,0 +1,63 @@
+package com.github.mongobee.core.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * @since 0.14
+ */
+public class MetadataDaoTest {
+  private static final String TEST_SERVER = "testServer";
+  private static final String DB_NAME = "mongobeetest";
+  private static final String METADATA_COLLECTION_NAME = "mongobeemeta";
+
+  @Test
+  public void shouldReturnNullWhenNoFingerprintStored() {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    MetadataDao dao = new MetadataDao(METADATA_COLLECTION_NAME);
+
+    // then
+    assertNull(dao.getPlanFingerprint(db));
+  }
+
+  @Test
+  public void shouldReplaceStoredFingerprint() {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    MetadataDao dao = new MetadataDao(METADATA_COLLECTION_NAME);
+
+    // when
+    dao.savePlanFingerprint(db, "first");
+    dao.savePlanFingerprint(db, "second");
+
+    // then
+    assertEquals("second", dao.getPlanFingerprint(db));
+    assertEquals(1, db.getCollection(METADATA_COLLECTION_NAME).count());
+  }
+
+  @Test
+  public void shouldMatchBootstrapMarkerOfSameVersionAndCollections() {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    MetadataDao dao = new MetadataDao(METADATA_COLLECTION_NAME);
+    assertFalse(dao.isBootstrapped(db, 1, "dbchangelog", "mongobeelock"));
+
+    // when
+    dao.saveBootstrapped(db, 1, "dbchangelog", "mongobeelock");
+
+    // then
+    assertTrue(dao.isBootstrapped(db, 1, "dbchangelog", "mongobeelock"));
+    assertFalse(dao.isBootstrapped(db, 2, "dbchangelog", "mongobeelock"));
+    assertFalse(dao.isBootstrapped(db, 1, "otherchangelog", "mongobeelock"));
+    assertFalse(dao.isBootstrapped(db, 1, "dbchangelog", "otherlock"));
+  }
+
+}
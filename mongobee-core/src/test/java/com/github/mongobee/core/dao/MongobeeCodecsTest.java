@@ -0,0 +1,125 @@
+package com.github.mongobee.core.dao;
+
+import static com.mongodb.client.model.Projections.excludeId;
+import static com.mongodb.client.model.Projections.fields;
+import static com.mongodb.client.model.Projections.include;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.core.changeset.ChangeEntry;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * @since 0.14
+ */
+public class MongobeeCodecsTest {
+  private static final String TEST_SERVER = "testServer";
+  private static final String DB_NAME = "mongobeetest";
+
+  @Test
+  public void shouldWriteChangeEntryAsFullDocument() {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    MongoCollection<ChangeEntry> collection = typedCollection(db, "dbchangelog", ChangeEntry.class);
+    ChangeEntry entry = new ChangeEntry("test1", "testuser", new Date(), "ChangeLog", "method");
+
+    // when
+    collection.insertOne(entry);
+
+    // then
+    Document stored = db.getCollection("dbchangelog").find().projection(excludeId()).first();
+    assertEquals(entry.buildFullDBObject(), stored);
+  }
+
+  @Test
+  public void shouldReadChangeEntryWithProjection() {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    MongoCollection<ChangeEntry> collection = typedCollection(db, "dbchangelog", ChangeEntry.class);
+    collection.insertOne(new ChangeEntry("test1", "testuser", new Date(), "ChangeLog", "method"));
+
+    // when
+    ChangeEntry read = collection.find()
+        .projection(fields(include(ChangeEntry.KEY_CHANGEID, ChangeEntry.KEY_AUTHOR), excludeId()))
+        .first();
+
+    // then
+    assertEquals("test1", read.getChangeId());
+    assertEquals("testuser", read.getAuthor());
+    assertNull(read.getTimestamp());
+    assertNull(read.getChangeLogClass());
+  }
+
+  @Test
+  public void shouldRoundTripExecutionOfChangeEntry() {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    MongoCollection<ChangeEntry> collection = typedCollection(db, "dbchangelog", ChangeEntry.class);
+    ChangeEntry entry = new ChangeEntry("test1", "testuser", new Date(), "ChangeLog", "method", "abc");
+    Date startedAt = new Date(1000);
+    entry.recordExecution(startedAt, new Date(3500), 2500L, "host", "42", "0.14",
+        new Document("matched", 10L).append("modified", 7L));
+
+    // when
+    collection.insertOne(entry);
+    ChangeEntry read = collection.find().first();
+
+    // then
+    assertEquals("abc", read.getChecksum());
+    assertEquals(startedAt, read.getStartedAt());
+    assertEquals(new Date(3500), read.getFinishedAt());
+    assertEquals(Long.valueOf(2500), read.getDurationMillis());
+    assertEquals("host", read.getHost());
+    assertEquals("42", read.getProcessId());
+    assertEquals("0.14", read.getMongobeeVersion());
+    assertEquals(new Document("matched", 10L).append("modified", 7L), read.getSummary());
+    Document stored = db.getCollection("dbchangelog").find().projection(excludeId()).first();
+    assertEquals(entry.buildFullDBObject(), stored);
+  }
+
+  @Test
+  public void shouldRoundTripLockRecord() {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    MongoCollection<LockRecord> collection = typedCollection(db, "mongobeelock", LockRecord.class);
+    Date expiresAt = new Date();
+
+    // when
+    collection.insertOne(new LockRecord("LOCK", "LOCK_HELD", "owner", expiresAt, 7, null));
+    LockRecord read = collection.find().first();
+
+    // then
+    assertEquals("LOCK", read.getKey());
+    assertEquals("LOCK_HELD", read.getStatus());
+    assertEquals("owner", read.getOwner());
+    assertEquals(expiresAt, read.getExpiresAt());
+    assertEquals(7, read.getToken());
+    assertNull(read.getOutcome());
+  }
+
+  @Test
+  public void shouldReadIntegerTokenOfLockRecord() {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    db.getCollection("mongobeelock").insertOne(new Document("key", "LOCK").append("token", 3));
+
+    // when
+    LockRecord read = typedCollection(db, "mongobeelock", LockRecord.class).find().first();
+
+    // then
+    assertEquals(3, read.getToken());
+    assertNull(read.getExpiresAt());
+  }
+
+  private static <T> MongoCollection<T> typedCollection(MongoDatabase db, String name, Class<T> type) {
+    return db.getCollection(name, type).withCodecRegistry(MongobeeCodecs.codecRegistry(db.getCodecRegistry()));
+  }
+
+}
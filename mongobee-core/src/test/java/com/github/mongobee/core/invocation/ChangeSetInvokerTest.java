@@ -0,0 +1,190 @@
+package com.github.mongobee.core.invocation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.core.changeset.ChangeSetCheckpoint;
+import com.github.mongobee.core.changeset.ChangeSetOptions;
+import com.github.mongobee.core.exception.MongobeeChangeSetException;
+import com.mongodb.DB;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * @since 0.14
+ */
+public class ChangeSetInvokerTest {
+  private static final String DB_NAME = "mongobeetest";
+
+  @Test
+  public void shouldPassBuiltInArguments() throws Exception {
+    // given
+    Fongo fongo = new Fongo("testServer");
+    MigrationContext context = new MigrationContext(fongo.getDB(DB_NAME), fongo.getDatabase(DB_NAME), DB_NAME);
+    ChangeSetInvoker invoker = new ChangeSetInvoker();
+
+    // when
+    Object result = invoker.invoke(context, method("withMongoDatabase", MongoDatabase.class), new TestChangeLog(), null);
+
+    // then
+    assertSame(context.getMongoDatabase(), result);
+  }
+
+  @Test
+  public void shouldResolveArgumentOncePerMigration() throws Exception {
+    // given
+    CountingResolver resolver = new CountingResolver();
+    ChangeSetInvoker invoker = new ChangeSetInvoker();
+    invoker.addResolver(resolver);
+    MigrationContext first = new MigrationContext(null, null, DB_NAME);
+    MigrationContext second = new MigrationContext(null, null, DB_NAME);
+    Method method = method("withStringBuilder", StringBuilder.class);
+
+    // when
+    Object firstResult = invoker.invoke(first, method, new TestChangeLog(), null);
+    invoker.invoke(first, method, new TestChangeLog(), null);
+    Object secondResult = invoker.invoke(second, method, new TestChangeLog(), null);
+
+    // then
+    assertEquals(2, resolver.resolved.get());
+    assertEquals("1", firstResult.toString());
+    assertEquals("2", secondResult.toString());
+  }
+
+  @Test
+  public void shouldPassCheckpointOfChangeSet() throws Exception {
+    // given
+    ChangeSetInvoker invoker = new ChangeSetInvoker();
+    Method method = method("withCheckpoint", MongoDatabase.class, ChangeSetCheckpoint.class);
+    ChangeSetCheckpoint checkpoint = new ChangeSetCheckpoint(null, null, 0);
+
+    // when
+    Object result = invoker.invoke(new MigrationContext(null, null, DB_NAME), method, new TestChangeLog(), checkpoint);
+
+    // then
+    assertTrue(invoker.acceptsCheckpoint(method));
+    assertFalse(invoker.acceptsCheckpoint(method("withMongoDatabase", MongoDatabase.class)));
+    assertSame(checkpoint, result);
+  }
+
+  @Test
+  public void shouldPassDatabasesWithOptionsOfChangeSet() throws Exception {
+    // given
+    Fongo fongo = new Fongo("testServer");
+    MigrationContext context = new MigrationContext(fongo.getDB(DB_NAME), fongo.getDatabase(DB_NAME), DB_NAME);
+    ChangeSetInvoker invoker = new ChangeSetInvoker();
+    Method method = method("withOptions", MongoDatabase.class, DB.class);
+    DatabaseOptions options = DatabaseOptions.of(method.getAnnotation(ChangeSetOptions.class));
+
+    // when
+    MigrationContext derived = context.withOptions(options);
+    Object[] result = (Object[]) invoker.invoke(derived, method, new TestChangeLog(), null);
+
+    // then
+    MongoDatabase mongoDatabase = (MongoDatabase) result[0];
+    assertEquals(WriteConcern.W1, mongoDatabase.getWriteConcern());
+    assertEquals(ReadPreference.secondaryPreferred(), mongoDatabase.getReadPreference());
+    assertEquals(ReadConcern.MAJORITY, mongoDatabase.getReadConcern());
+    DB db = (DB) result[1];
+    assertEquals(WriteConcern.W1, db.getWriteConcern());
+    assertEquals(ReadPreference.secondaryPreferred(), db.getReadPreference());
+    assertEquals(WriteConcern.ACKNOWLEDGED, context.getMongoDatabase().getWriteConcern());
+    assertEquals(WriteConcern.ACKNOWLEDGED, context.getDb().getWriteConcern());
+    assertSame(derived, context.withOptions(DatabaseOptions.of(method.getAnnotation(ChangeSetOptions.class))));
+    assertSame(context, context.withOptions(null));
+  }
+
+  @Test
+  public void shouldIgnoreEmptyOptions() throws Exception {
+    assertNull(DatabaseOptions.of(method("withEmptyOptions").getAnnotation(ChangeSetOptions.class)));
+  }
+
+  @Test(expected = MongobeeChangeSetException.class)
+  public void shouldRejectUnknownOptions() throws Exception {
+    DatabaseOptions.of(method("withUnknownOptions").getAnnotation(ChangeSetOptions.class));
+  }
+
+  @Test(expected = MongobeeChangeSetException.class)
+  public void shouldRejectUnsupportedArguments() throws Exception {
+    new ChangeSetInvoker().invoke(new MigrationContext(null, null, DB_NAME),
+        method("withStringBuilder", StringBuilder.class), new TestChangeLog(), null);
+  }
+
+  @Test(expected = MongobeeChangeSetException.class)
+  public void shouldRejectCheckpointBeforeOtherArguments() throws Exception {
+    new ChangeSetInvoker().invoke(new MigrationContext(null, null, DB_NAME),
+        method("withLeadingCheckpoint", ChangeSetCheckpoint.class, MongoDatabase.class), new TestChangeLog(),
+        new ChangeSetCheckpoint(null, null, 0));
+  }
+
+  @Test(expected = InvocationTargetException.class)
+  public void shouldWrapExceptionOfChangeSet() throws Exception {
+    new ChangeSetInvoker().invoke(new MigrationContext(null, null, DB_NAME), method("failing"), new TestChangeLog(), null);
+  }
+
+  private static Method method(String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+    return TestChangeLog.class.getMethod(name, parameterTypes);
+  }
+
+  public static class TestChangeLog {
+    public Object withMongoDatabase(MongoDatabase mongoDatabase) {
+      return mongoDatabase;
+    }
+
+    public Object withStringBuilder(StringBuilder builder) {
+      return builder;
+    }
+
+    public Object withCheckpoint(MongoDatabase mongoDatabase, ChangeSetCheckpoint checkpoint) {
+      return checkpoint;
+    }
+
+    public Object withLeadingCheckpoint(ChangeSetCheckpoint checkpoint, MongoDatabase mongoDatabase) {
+      return checkpoint;
+    }
+
+    @ChangeSetOptions(writeConcern = "W1", readPreference = "secondaryPreferred", readConcern = "majority")
+    public Object withOptions(MongoDatabase mongoDatabase, DB db) {
+      return new Object[]{mongoDatabase, db};
+    }
+
+    @ChangeSetOptions
+    public void withEmptyOptions() {
+    }
+
+    @ChangeSetOptions(writeConcern = "fast")
+    public void withUnknownOptions() {
+    }
+
+    public void failing() {
+      throw new IllegalStateException("failed");
+    }
+  }
+
+  private static class CountingResolver implements ParameterResolver {
+    private final AtomicInteger resolved = new AtomicInteger();
+
+    @Override
+    public boolean supports(Class<?> parameterType) {
+      return parameterType.equals(StringBuilder.class);
+    }
+
+    @Override
+    public Object resolve(Class<?> parameterType, MigrationContext context) {
+      return new StringBuilder().append(resolved.incrementAndGet());
+    }
+  }
+
+}
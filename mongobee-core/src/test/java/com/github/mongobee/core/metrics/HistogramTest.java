@@ -0,0 +1,57 @@
+package com.github.mongobee.core.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @since 0.14
+ */
+public class HistogramTest {
+
+  @Test
+  public void shouldKeepExactCountTotalAndMax() {
+    // given
+    Histogram histogram = new Histogram();
+
+    // when
+    for (long nanos = 1; nanos <= 1000; nanos++) {
+      histogram.record(nanos);
+    }
+
+    // then
+    assertEquals(1000, histogram.getCount());
+    assertEquals(500500, histogram.getTotalNanos());
+    assertEquals(500, histogram.getMeanNanos());
+    assertEquals(1000, histogram.getMaxNanos());
+    assertEquals(1000, histogram.getPercentileNanos(1));
+  }
+
+  @Test
+  public void shouldApproximatePercentilesWithinBucketPrecision() {
+    // given
+    Histogram histogram = new Histogram();
+
+    // when
+    for (long nanos = 1; nanos <= 100000; nanos++) {
+      histogram.record(nanos * 1000);
+    }
+
+    // then
+    long p50 = histogram.getPercentileNanos(0.5);
+    long p99 = histogram.getPercentileNanos(0.99);
+    assertTrue(p50 >= 50000000L && p50 <= 50000000L * 1.125);
+    assertTrue(p99 >= 99000000L && p99 <= 99000000L * 1.125);
+  }
+
+  @Test
+  public void shouldMapEveryValueToBucketContainingIt() {
+    for (long value : new long[]{0, 1, 7, 8, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE}) {
+      int index = Histogram.bucketIndex(value);
+      assertTrue(value <= Histogram.bucketUpperBound(index));
+      assertTrue(index == 0 || value > Histogram.bucketUpperBound(index - 1));
+    }
+  }
+
+}
@@ -0,0 +1,33 @@
+package com.github.mongobee.core.test.checkpoint;
+
+import com.github.mongobee.core.changeset.ChangeLog;
+import com.github.mongobee.core.changeset.ChangeSet;
+import com.github.mongobee.core.changeset.ChangeSetCheckpoint;
+import com.github.mongobee.core.exception.MongobeeConnectionException;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+
+/**
+ * Changelog with a changeset resuming from its checkpoint
+ *
+ * @since 0.14
+ */
+@ChangeLog(order = "1")
+public class CheckpointTestResource {
+
+  public static Document resumedFrom;
+  public static int failAt = -1;
+
+  @ChangeSet(author = "testuser", id = "checkpoint1", order = "01")
+  public void testChangeSet(MongoDatabase mongoDatabase, ChangeSetCheckpoint checkpoint) throws MongobeeConnectionException {
+    resumedFrom = checkpoint.getToken();
+    int start = resumedFrom != null ? resumedFrom.getInteger("lastId") + 1 : 0;
+    for (int id = start; id < 10; id++) {
+      if (id == failAt) {
+        throw new IllegalStateException("failed at " + id);
+      }
+      checkpoint.save(new Document("lastId", id));
+    }
+  }
+
+}
@@ -0,0 +1,12 @@
+package com.github.mongobee.core.test.duplicates;
+
+import com.github.mongobee.core.changeset.ChangeLog;
+import com.github.mongobee.core.changeset.ChangeSet;
+
+@ChangeLog(order = "2")
+public class DuplicateChangeLog2 {
+  @ChangeSet(author = "testuser", id = "duplicated", order = "01")
+  public void testChangeSet() {
+    System.out.println("invoked duplicated 2");
+  }
+}
@@ -0,0 +1,32 @@
+package com.github.mongobee.core.test.lazy;
+
+import com.github.mongobee.core.changeset.ChangeLog;
+import com.github.mongobee.core.changeset.ChangeSet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Changelog counting its instances
+ *
+ * @since 0.14
+ */
+@ChangeLog(order = "1")
+public class LazyTestResource {
+
+  public static final AtomicInteger INSTANCES = new AtomicInteger();
+
+  public LazyTestResource() {
+    INSTANCES.incrementAndGet();
+  }
+
+  @ChangeSet(author = "testuser", id = "lazy1", order = "01")
+  public void testChangeSet() {
+    System.out.println("invoked lazy1");
+  }
+
+  @ChangeSet(author = "testuser", id = "lazy2", order = "02")
+  public void testChangeSet2() {
+    System.out.println("invoked lazy2");
+  }
+
+}
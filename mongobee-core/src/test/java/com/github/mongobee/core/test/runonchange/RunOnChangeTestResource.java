@@ -0,0 +1,23 @@
+package com.github.mongobee.core.test.runonchange;
+
+import com.github.mongobee.core.changeset.ChangeLog;
+import com.github.mongobee.core.changeset.ChangeSet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Changelog with a runOnChange changeset counting its executions
+ *
+ * @since 0.14
+ */
+@ChangeLog(order = "1")
+public class RunOnChangeTestResource {
+
+  public static final AtomicInteger EXECUTIONS = new AtomicInteger();
+
+  @ChangeSet(author = "testuser", id = "referenceData", order = "01", runOnChange = true)
+  public void testChangeSet() {
+    EXECUTIONS.incrementAndGet();
+  }
+
+}
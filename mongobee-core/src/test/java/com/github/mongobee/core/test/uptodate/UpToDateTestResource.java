@@ -0,0 +1,25 @@
+package com.github.mongobee.core.test.uptodate;
+
+import com.github.mongobee.core.changeset.ChangeLog;
+import com.github.mongobee.core.changeset.ChangeSet;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * Changelog without runAlways changesets
+ *
+ * @since 0.14
+ */
+@ChangeLog(order = "1")
+public class UpToDateTestResource {
+
+  @ChangeSet(author = "testuser", id = "uptodate1", order = "01")
+  public void testChangeSet() {
+    System.out.println("invoked uptodate1");
+  }
+
+  @ChangeSet(author = "testuser", id = "uptodate2", order = "02")
+  public void testChangeSet2(MongoDatabase mongoDatabase) {
+    System.out.println("invoked uptodate2 with mongoDatabase=" + mongoDatabase.toString());
+  }
+
+}
@@ -0,0 +1,120 @@
+package com.github.mongobee.core.throttle;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoDatabase;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 0.14
+ */
+public class ServerStatusLoadProbeTest {
+
+  private static final Document SERVER_STATUS = new Document("globalLock",
+      new Document("currentQueue", new Document("total", 12).append("readers", 4).append("writers", 8)));
+
+  @Test
+  public void shouldReadQueueAndLagOfSlowestSecondary() {
+    // given
+    Document replSetStatus = new Document("members", Arrays.asList(
+        member(1, new Date(10000)),
+        member(2, new Date(9000)),
+        member(2, new Date(7500)),
+        member(7, null)));
+
+    // when
+    LoadSample sample = ServerStatusLoadProbe.toSample(SERVER_STATUS, replSetStatus);
+
+    // then
+    assertEquals(12, sample.getQueuedOperations());
+    assertEquals(2500, sample.getReplicationLagMillis());
+  }
+
+  @Test
+  public void shouldSkipMembersWithoutState() {
+    // given
+    Document replSetStatus = new Document("members", Arrays.asList(
+        member(1, new Date(10000)),
+        new Document("optimeDate", new Date(5000)),
+        member(2, new Date(9000))));
+
+    // when
+    LoadSample sample = ServerStatusLoadProbe.toSample(SERVER_STATUS, replSetStatus);
+
+    // then
+    assertEquals(1000, sample.getReplicationLagMillis());
+  }
+
+  @Test
+  public void shouldReportUnknownLagWithoutSecondaries() {
+    // given
+    Document replSetStatus = new Document("members", Arrays.asList(member(1, new Date(10000))));
+
+    // when
+    LoadSample sample = ServerStatusLoadProbe.toSample(new Document(), replSetStatus);
+
+    // then
+    assertEquals(LoadSample.UNKNOWN, sample.getQueuedOperations());
+    assertEquals(LoadSample.UNKNOWN, sample.getReplicationLagMillis());
+  }
+
+  @Test
+  public void shouldStopAskingStandaloneServerForReplicaSetStatus() {
+    // given
+    MongoDatabase admin = mock(MongoDatabase.class);
+    when(admin.runCommand(any(Document.class))).thenReturn(SERVER_STATUS);
+    when(admin.runCommand(eq(new Document("replSetGetStatus", 1)))).thenThrow(new MongoCommandException(
+        new BsonDocument("ok", new BsonInt32(0)).append("code", new BsonInt32(76))
+            .append("errmsg", new BsonString("not running with --replSet")),
+        new ServerAddress()));
+    ServerStatusLoadProbe probe = new ServerStatusLoadProbe(admin);
+
+    // when
+    LoadSample first = probe.sample();
+    LoadSample second = probe.sample();
+
+    // then
+    assertEquals(12, first.getQueuedOperations());
+    assertEquals(LoadSample.UNKNOWN, first.getReplicationLagMillis());
+    assertEquals(12, second.getQueuedOperations());
+    verify(admin, times(1)).runCommand(eq(new Document("replSetGetStatus", 1)));
+  }
+
+  @Test
+  public void shouldReportUnknownLagWhenNotAuthorizedForReplicaSetStatus() {
+    // given
+    MongoDatabase admin = mock(MongoDatabase.class);
+    when(admin.runCommand(any(Document.class))).thenReturn(SERVER_STATUS);
+    when(admin.runCommand(eq(new Document("replSetGetStatus", 1)))).thenThrow(new MongoCommandException(
+        new BsonDocument("ok", new BsonInt32(0)).append("code", new BsonInt32(13))
+            .append("errmsg", new BsonString("not authorized on admin to execute command")),
+        new ServerAddress()));
+
+    // when
+    LoadSample sample = new ServerStatusLoadProbe(admin).sample();
+
+    // then
+    assertEquals(12, sample.getQueuedOperations());
+    assertEquals(LoadSample.UNKNOWN, sample.getReplicationLagMillis());
+  }
+
+  private static Document member(int state, Date optimeDate) {
+    return new Document("state", state).append("optimeDate", optimeDate);
+  }
+
+}
@@ -0,0 +1,248 @@
+package com.github.mongobee.core.throttle;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @since 0.14
+ */
+public class ThrottleTest {
+
+  private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void shouldPacePermitsByRate() throws Exception {
+    // given
+    FakeClockThrottle throttle = new FakeClockThrottle(100);
+
+    // when
+    long first = throttle.acquire(50);
+    long second = throttle.acquire(50);
+    long third = throttle.acquire(50);
+
+    // then
+    assertEquals(0, first);
+    assertEquals(SECOND_NANOS / 2, second);
+    assertEquals(SECOND_NANOS / 2, third);
+    assertEquals(SECOND_NANOS, throttle.now);
+  }
+
+  @Test
+  public void shouldGrantUnusedPermitsUpToOneSecond() throws Exception {
+    // given
+    FakeClockThrottle throttle = new FakeClockThrottle(100);
+    throttle.acquire(1);
+
+    // when
+    throttle.now += 10 * SECOND_NANOS;
+    long burst = throttle.acquire(100);
+    long next = throttle.acquire(10);
+
+    // then
+    assertEquals(0, burst);
+    assertEquals(0, next);
+    assertEquals(SECOND_NANOS / 10, throttle.acquire(10));
+  }
+
+  @Test
+  public void shouldNotWaitWithoutRate() throws Exception {
+    // given
+    FakeClockThrottle throttle = new FakeClockThrottle(0);
+
+    // when
+    long waited = throttle.acquire(1000000);
+
+    // then
+    assertEquals(0, waited);
+    assertEquals(0, throttle.now);
+  }
+
+  @Test
+  public void shouldHalveRateAndBatchSizeAboveLimit() throws Exception {
+    // given
+    FakeClockThrottle throttle = new FakeClockThrottle(1000);
+    throttle.setBatchSize(10, 1000)
+        .setMaxReplicationLag(1000)
+        .setLoadProbe(new StubLoadProbe(new LoadSample(0, 1500), new LoadSample(0, 1500)));
+
+    // when
+    int firstBatchSize = throttle.getBatchSize();
+    throttle.now += SECOND_NANOS;
+    int secondBatchSize = throttle.getBatchSize();
+
+    // then
+    assertEquals(500, firstBatchSize);
+    assertEquals(250, secondBatchSize);
+    assertEquals(250, throttle.getCurrentRate(), 0.001);
+    assertFalse(throttle.isPaused());
+  }
+
+  @Test
+  public void shouldGrowBackAdditivelyBelowHalfOfLimit() throws Exception {
+    // given
+    FakeClockThrottle throttle = new FakeClockThrottle(1000);
+    throttle.setBatchSize(10, 1000)
+        .setMaxQueuedOperations(100)
+        .setLoadProbe(new StubLoadProbe(new LoadSample(150, 0), new LoadSample(60, 0), new LoadSample(10, 0)));
+    throttle.getBatchSize();
+
+    // when
+    throttle.now += SECOND_NANOS;
+    int heldBatchSize = throttle.getBatchSize();
+    throttle.now += SECOND_NANOS;
+    int grownBatchSize = throttle.getBatchSize();
+
+    // then
+    assertEquals(500, heldBatchSize);
+    assertEquals(600, grownBatchSize);
+    assertEquals(600, throttle.getCurrentRate(), 0.001);
+  }
+
+  @Test
+  public void shouldSampleOncePerProbeInterval() throws Exception {
+    // given
+    StubLoadProbe probe = new StubLoadProbe(new LoadSample(0, 0), new LoadSample(0, 0));
+    FakeClockThrottle throttle = new FakeClockThrottle(1000);
+    throttle.setProbeInterval(1000).setLoadProbe(probe);
+
+    // when
+    throttle.getBatchSize();
+    throttle.now += SECOND_NANOS / 2;
+    throttle.getBatchSize();
+    throttle.acquire(1);
+
+    // then
+    assertEquals(1, probe.samples.size());
+  }
+
+  @Test
+  public void shouldPauseAboveTwiceTheLimitUntilLoadDrops() throws Exception {
+    // given
+    FakeClockThrottle throttle = new FakeClockThrottle(1000);
+    throttle.setMaxReplicationLag(1000)
+        .setLoadProbe(new StubLoadProbe(new LoadSample(0, 5000), new LoadSample(0, 2500), new LoadSample(0, 200)));
+
+    // when
+    long waited = throttle.acquire(1);
+
+    // then
+    assertEquals(2 * SECOND_NANOS, waited);
+    assertFalse(throttle.isPaused());
+    assertEquals(0, throttle.getLastSample().getQueuedOperations());
+    assertEquals(200, throttle.getLastSample().getReplicationLagMillis());
+  }
+
+  @Test
+  public void shouldPauseAboveLimitWithoutRate() throws Exception {
+    // given
+    FakeClockThrottle throttle = new FakeClockThrottle(0);
+    throttle.setMaxQueuedOperations(100)
+        .setLoadProbe(new StubLoadProbe(new LoadSample(120, LoadSample.UNKNOWN), new LoadSample(40, LoadSample.UNKNOWN)));
+
+    // when
+    throttle.getBatchSize();
+    boolean paused = throttle.isPaused();
+    long waited = throttle.acquire(1);
+
+    // then
+    assertTrue(paused);
+    assertEquals(SECOND_NANOS, waited);
+    assertFalse(throttle.isPaused());
+  }
+
+  @Test
+  public void shouldKeepRateWhenProbeFails() throws Exception {
+    // given
+    FakeClockThrottle throttle = new FakeClockThrottle(1000);
+    throttle.setLoadProbe(new StubLoadProbe());
+
+    // when
+    int batchSize = throttle.getBatchSize();
+
+    // then
+    assertEquals(1000, batchSize);
+    assertEquals(1000, throttle.getCurrentRate(), 0.001);
+  }
+
+  @Test(timeout = 10000)
+  public void shouldNotBlockOtherThreadsWhileSampling() throws Exception {
+    // given
+    final CountDownLatch sampling = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Throttle throttle = new Throttle(0).setLoadProbe(new LoadProbe() {
+      @Override
+      public LoadSample sample() {
+        sampling.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return new LoadSample(0, 0);
+      }
+    });
+    Thread sampler = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        throttle.getBatchSize();
+      }
+    });
+    sampler.start();
+    sampling.await();
+
+    // when
+    long waited = throttle.acquire(1);
+    int batchSize = throttle.getBatchSize();
+
+    // then
+    release.countDown();
+    sampler.join();
+    assertEquals(0, waited);
+    assertEquals(1000, batchSize);
+    assertEquals(0, throttle.getLastSample().getQueuedOperations());
+  }
+
+  private static class FakeClockThrottle extends Throttle {
+    private long now;
+
+    FakeClockThrottle(double permitsPerSecond) {
+      super(permitsPerSecond);
+    }
+
+    @Override
+    long nanoTime() {
+      return now;
+    }
+
+    @Override
+    void sleep(long nanos) {
+      now += nanos;
+    }
+  }
+
+  private static class StubLoadProbe implements LoadProbe {
+    private final Deque<LoadSample> samples;
+
+    StubLoadProbe(LoadSample... samples) {
+      this.samples = new ArrayDeque<>(Arrays.asList(samples));
+    }
+
+    @Override
+    public LoadSample sample() {
+      if (samples.isEmpty()) {
+        throw new IllegalStateException("No more samples");
+      }
+      return samples.poll();
+    }
+  }
+
+}
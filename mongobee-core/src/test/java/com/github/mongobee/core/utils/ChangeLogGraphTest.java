@@ -0,0 +1,134 @@
+package com.github.mongobee.core.utils;
+
+import com.github.mongobee.core.changeset.ChangeLog;
+import com.github.mongobee.core.changeset.ChangeLogDescriptor;
+import com.github.mongobee.core.exception.MongobeeConfigurationException;
+import com.github.mongobee.core.exception.MongobeeException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @since 0.14
+ */
+public class ChangeLogGraphTest {
+
+  @Test
+  public void shouldExecuteChangeLogsAfterTheirDependencies() throws Exception {
+    // given
+    final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+    ChangeLogGraph graph = new ChangeLogGraph(changeLogs());
+
+    // when
+    graph.execute(4, new ChangeLogGraph.ChangeLogTask() {
+      @Override
+      public void execute(ChangeLogDescriptor changeLog) {
+        events.add("start " + changeLog.getType().getSimpleName());
+        events.add("end " + changeLog.getType().getSimpleName());
+      }
+    });
+
+    // then
+    assertEquals(8, events.size());
+    assertTrue(events.indexOf("end BillingChangeLog1") < events.indexOf("start BillingChangeLog2"));
+    assertTrue(events.indexOf("end BillingChangeLog2") < events.indexOf("start AuditChangeLog"));
+    assertTrue(events.indexOf("end CatalogChangeLog") < events.indexOf("start AuditChangeLog"));
+  }
+
+  @Test
+  public void shouldExecuteIndependentGroupsConcurrently() throws Exception {
+    // given
+    final CyclicBarrier barrier = new CyclicBarrier(2);
+    ChangeLogGraph graph = new ChangeLogGraph(changeLogs());
+
+    // when
+    graph.execute(2, new ChangeLogGraph.ChangeLogTask() {
+      @Override
+      public void execute(ChangeLogDescriptor changeLog) throws MongobeeException {
+        if (changeLog.getType() == BillingChangeLog1.class || changeLog.getType() == CatalogChangeLog.class) {
+          try {
+            barrier.await(5, TimeUnit.SECONDS); // passes only when both run at the same time
+          } catch (Exception e) {
+            throw new MongobeeException("Not executed concurrently", e);
+          }
+        }
+      }
+    });
+  }
+
+  @Test
+  public void shouldStopAndThrowFirstFailure() throws Exception {
+    // given
+    final List<Class<?>> executed = Collections.synchronizedList(new ArrayList<Class<?>>());
+    ChangeLogGraph graph = new ChangeLogGraph(changeLogs());
+
+    // when
+    try {
+      graph.execute(1, new ChangeLogGraph.ChangeLogTask() {
+        @Override
+        public void execute(ChangeLogDescriptor changeLog) throws MongobeeException {
+          executed.add(changeLog.getType());
+          if (changeLog.getType() == CatalogChangeLog.class) {
+            throw new MongobeeException("catalog failed");
+          }
+        }
+      });
+      fail("Failure expected");
+    } catch (MongobeeException e) {
+      // then
+      assertEquals("catalog failed", e.getMessage());
+    }
+    assertFalse(executed.contains(AuditChangeLog.class));
+  }
+
+  @Test(expected = MongobeeConfigurationException.class)
+  public void shouldFailOnCyclicDependencies() throws Exception {
+    new ChangeLogGraph(describe(CyclicChangeLog1.class, CyclicChangeLog2.class));
+  }
+
+  private static List<ChangeLogDescriptor> changeLogs() throws MongobeeException {
+    return describe(BillingChangeLog1.class, CatalogChangeLog.class, BillingChangeLog2.class, AuditChangeLog.class);
+  }
+
+  private static List<ChangeLogDescriptor> describe(Class<?>... types) throws MongobeeException {
+    List<ChangeLogDescriptor> changeLogs = new ArrayList<>();
+    for (Class<?> type : types) {
+      changeLogs.add(ChangeLogDescriptor.of(type));
+    }
+    return changeLogs;
+  }
+
+  @ChangeLog(order = "1", group = "billing")
+  public static class BillingChangeLog1 {
+  }
+
+  @ChangeLog(order = "2", group = "catalog")
+  public static class CatalogChangeLog {
+  }
+
+  @ChangeLog(order = "3", group = "billing")
+  public static class BillingChangeLog2 {
+  }
+
+  @ChangeLog(order = "4", group = "audit", dependsOn = {"billing", "catalog"})
+  public static class AuditChangeLog {
+  }
+
+  @ChangeLog(order = "1", group = "a", dependsOn = "b")
+  public static class CyclicChangeLog1 {
+  }
+
+  @ChangeLog(order = "2", group = "b", dependsOn = "a")
+  public static class CyclicChangeLog2 {
+  }
+
+}
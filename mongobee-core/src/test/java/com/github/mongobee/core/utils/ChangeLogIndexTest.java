@@ -0,0 +1,81 @@
+package com.github.mongobee.core.utils;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static java.nio.file.Files.createTempDirectory;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @since 0.14
+ */
+public class ChangeLogIndexTest {
+
+  @Test
+  public void shouldWriteAndReadIndex() throws Exception {
+    // given
+    ChangeLogIndex index = new ChangeLogIndex(asList(
+        "com.example.changelogs.SecondChangeLog", "com.example.changelogs.FirstChangeLog$Nested"));
+
+    // when
+    StringWriter writer = new StringWriter();
+    index.write(writer);
+    ChangeLogIndex read = ChangeLogIndex.read(new StringReader(writer.toString()));
+
+    // then
+    assertEquals(asList("com.example.changelogs.FirstChangeLog$Nested", "com.example.changelogs.SecondChangeLog"),
+        read.getClassNames());
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRejectMalformedRecord() throws Exception {
+    ChangeLogIndex.read(new StringReader("changelog\tcom.example.ChangeLog\t1\n"));
+  }
+
+  @Test
+  public void shouldFilterByBasePackage() throws Exception {
+    // given
+    ChangeLogIndex index = new ChangeLogIndex(asList(
+        "com.example.changelogs.ChangeLog", "com.example.changelogs.sub.ChangeLog", "com.example.changelogs2.ChangeLog"));
+
+    // then
+    assertEquals(2, index.getClassNames("com.example.changelogs").size());
+  }
+
+  @Test
+  public void shouldReturnNullWhenNoIndexOnClasspath() throws Exception {
+    assertNull(ChangeLogIndex.load(new URLClassLoader(new URL[0], null)));
+  }
+
+  @Test
+  public void shouldBeIncompleteWhenPackageIsInRootWithoutIndex() throws Exception {
+    // given
+    File indexed = createTempDirectory("mongobee-indexed").toFile();
+    File notIndexed = createTempDirectory("mongobee-not-indexed").toFile();
+    assertTrue(new File(indexed, "com/example/changelogs").mkdirs());
+    assertTrue(new File(indexed, "com/example/indexed").mkdirs());
+    assertTrue(new File(indexed, ChangeLogIndex.LOCATION).getParentFile().mkdirs());
+    assertTrue(new File(indexed, ChangeLogIndex.LOCATION).createNewFile());
+    assertTrue(new File(notIndexed, "com/example/changelogs").mkdirs());
+    ClassLoader classLoader = new URLClassLoader(
+        new URL[]{indexed.toURI().toURL(), notIndexed.toURI().toURL()}, null);
+
+    // when
+    ChangeLogIndex index = ChangeLogIndex.load(classLoader);
+
+    // then
+    assertTrue(index.isComplete(classLoader, "com.example.indexed"));
+    assertFalse(index.isComplete(classLoader, "com.example.changelogs"));
+  }
+
+}
@@ -0,0 +1,61 @@
+package com.github.mongobee.core.utils;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+
+import static java.nio.file.Files.createTempDirectory;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @since 0.14
+ */
+public class ChangeLogScanCacheTest {
+
+  @Test
+  public void shouldReadWrittenChangeLogs() throws Exception {
+    // given
+    ChangeLogScanCache cache = new ChangeLogScanCache(new File(createTempDirectory("mongobee-cache").toFile(), "scan.cache"));
+    cache.write("fingerprint1", asList("a.ChangeLog1", "a.ChangeLog2"));
+
+    // when
+    List<String> classNames = cache.read("fingerprint1");
+
+    // then
+    assertEquals(asList("a.ChangeLog1", "a.ChangeLog2"), classNames);
+  }
+
+  @Test
+  public void shouldIgnoreMissingOrStaleCache() throws Exception {
+    // given
+    ChangeLogScanCache cache = new ChangeLogScanCache(new File(createTempDirectory("mongobee-cache").toFile(), "scan.cache"));
+
+    // then
+    assertNull(cache.read("fingerprint1"));
+    cache.write("fingerprint1", asList("a.ChangeLog1"));
+    assertNull(cache.read("fingerprint2"));
+  }
+
+  @Test
+  public void shouldIgnoreCorruptCache() throws Exception {
+    // given
+    File file = new File(createTempDirectory("mongobee-cache").toFile(), "scan.cache");
+    ChangeLogScanCache cache = new ChangeLogScanCache(file);
+    cache.write("fingerprint1", asList("a.ChangeLog1", "a.ChangeLog2"));
+    byte[] content = Files.readAllBytes(file.toPath());
+
+    // truncated
+    Files.write(file.toPath(), asList(new String(content, 0, content.length - 10, Charset.forName("UTF-8"))), Charset.forName("UTF-8"));
+    assertNull(cache.read("fingerprint1"));
+
+    // not a cache
+    Files.write(file.toPath(), new byte[]{(byte) 0xFF, (byte) 0xFE, 0, 1});
+    assertNull(cache.read("fingerprint1"));
+  }
+
+}
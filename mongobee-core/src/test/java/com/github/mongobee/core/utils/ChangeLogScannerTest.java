@@ -0,0 +1,151 @@
+package com.github.mongobee.core.utils;
+
+import com.github.mongobee.core.test.changelogs.AnotherMongobeeTestResource;
+import com.github.mongobee.core.test.changelogs.MongobeeTestResource;
+import com.github.mongobee.core.test.uptodate.UpToDateTestResource;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static java.nio.file.Files.createTempDirectory;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @since 0.14
+ */
+public class ChangeLogScannerTest {
+
+  @Test
+  public void shouldFindChangeLogsOfPackage() throws Exception {
+    // when
+    List<Class<?>> changeLogs = new ChangeLogScanner(getClass().getClassLoader())
+        .scan(singletonList(MongobeeTestResource.class.getPackage().getName()));
+
+    // then
+    assertEquals(asList(AnotherMongobeeTestResource.class, MongobeeTestResource.class), changeLogs);
+  }
+
+  @Test
+  public void shouldFindChangeLogsOfSeveralPackages() throws Exception {
+    // when
+    List<Class<?>> changeLogs = new ChangeLogScanner(getClass().getClassLoader()).scan(asList(
+        MongobeeTestResource.class.getPackage().getName(), UpToDateTestResource.class.getPackage().getName()));
+
+    // then
+    assertEquals(asList(AnotherMongobeeTestResource.class, MongobeeTestResource.class, UpToDateTestResource.class),
+        changeLogs);
+  }
+
+  @Test
+  public void shouldFindNestedChangeLogsOnly() throws Exception {
+    // when
+    List<Class<?>> changeLogs = new ChangeLogScanner(getClass().getClassLoader())
+        .scan(singletonList(getClass().getPackage().getName()));
+
+    // then
+    assertTrue(changeLogs.contains(ChangeLogWithDuplicate.class));
+    assertTrue(changeLogs.contains(ChangeLogGraphTest.AuditChangeLog.class));
+    assertFalse(changeLogs.contains(ChangeLogScannerTest.class));
+    assertFalse(changeLogs.contains(ChangeService.class));
+  }
+
+  @Test
+  public void shouldFindSameChangeLogsInParallel() throws Exception {
+    // given
+    List<String> packages = singletonList("com.github.mongobee.core");
+
+    // when
+    List<Class<?>> sequential = new ChangeLogScanner(getClass().getClassLoader(), 1).scan(packages);
+    List<Class<?>> parallel = new ChangeLogScanner(getClass().getClassLoader(), 4).scan(packages);
+
+    // then
+    assertTrue(sequential.contains(MongobeeTestResource.class));
+    assertEquals(sequential, parallel);
+  }
+
+  @Test
+  public void shouldComputeFingerprintOfScannedPackages() throws Exception {
+    // given
+    ChangeLogScanner scanner = new ChangeLogScanner(getClass().getClassLoader());
+    List<String> packages = singletonList(MongobeeTestResource.class.getPackage().getName());
+
+    // then
+    assertEquals(scanner.fingerprint(packages), scanner.fingerprint(packages));
+    assertFalse(scanner.fingerprint(packages).equals(
+        scanner.fingerprint(singletonList(UpToDateTestResource.class.getPackage().getName()))));
+  }
+
+  @Test
+  public void shouldFindChangeLogsInJar() throws Exception {
+    // given
+    File jar = new File(createTempDirectory("mongobee-scan").toFile(), "changelogs.jar");
+    JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+    try {
+      // directory entries as written by the build tools, they make the package visible to the class loader
+      for (String directory : asList("com/", "com/github/", "com/github/mongobee/")) {
+        out.putNextEntry(new JarEntry(directory));
+        out.closeEntry();
+      }
+      for (Class<?> type : asList(MongobeeTestResource.class, ChangeService.class)) {
+        String name = type.getName().replace('.', '/') + ".class";
+        out.putNextEntry(new JarEntry(name));
+        out.write(read(type, name));
+        out.closeEntry();
+      }
+    } finally {
+      out.close();
+    }
+    URLClassLoader classLoader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, null);
+
+    try {
+      // when
+      List<Class<?>> changeLogs = new ChangeLogScanner(classLoader).scan(singletonList("com.github.mongobee"));
+
+      // then
+      assertEquals(1, changeLogs.size());
+      assertEquals(MongobeeTestResource.class.getName(), changeLogs.get(0).getName());
+      assertEquals(classLoader, changeLogs.get(0).getClassLoader());
+    } finally {
+      classLoader.close();
+    }
+  }
+
+  @Test
+  public void shouldNotReadClassWithoutChangeLogAnnotation() throws Exception {
+    String name = ChangeService.class.getName().replace('.', '/') + ".class";
+    assertNull(ChangeLogScanner.changeLogClassName(read(ChangeService.class, name)));
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRejectMalformedClassFile() throws Exception {
+    ChangeLogScanner.changeLogClassName(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+  }
+
+  private static byte[] read(Class<?> type, String name) throws IOException {
+    InputStream in = type.getClassLoader().getResourceAsStream(name);
+    try {
+      byte[] buffer = new byte[in.available()];
+      int read = 0;
+      while (read < buffer.length) {
+        read += in.read(buffer, read, buffer.length - read);
+      }
+      return buffer;
+    } finally {
+      in.close();
+    }
+  }
+
+}
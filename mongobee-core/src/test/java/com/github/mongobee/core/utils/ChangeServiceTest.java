@@ -1,14 +1,28 @@
 package com.github.mongobee.core.utils;
 
 import com.github.mongobee.core.changeset.ChangeEntry;
+import com.github.mongobee.core.changeset.ChangeLogDescriptor;
+import com.github.mongobee.core.changeset.ChangeSetDescriptor;
 import com.github.mongobee.core.exception.MongobeeChangeSetException;
+import com.github.mongobee.core.exception.MongobeeException;
 import com.github.mongobee.core.test.changelogs.*;
+import com.github.mongobee.core.test.duplicates.DuplicateChangeLog1;
+import com.github.mongobee.core.test.uptodate.UpToDateTestResource;
 import junit.framework.Assert;
 import org.junit.Test;
 
-import java.lang.reflect.Method;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Enumeration;
 import java.util.List;
 
+import static java.nio.file.Files.createTempDirectory;
+import static java.util.Arrays.asList;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
 
@@ -19,37 +33,130 @@ import static junit.framework.Assert.assertTrue;
 public class ChangeServiceTest {
 
   @Test
-  public void shouldFindChangeLogClasses(){
+  public void shouldFindChangeLogClasses() throws MongobeeException {
     // given
     String scanPackage = MongobeeTestResource.class.getPackage().getName();
     ChangeService service = new ChangeService(scanPackage);
     // when
-    List<Class<?>> foundClasses = service.fetchChangeLogs();
+    List<ChangeLogDescriptor> foundClasses = service.fetchChangeLogs();
     // then
     assertTrue(foundClasses != null && foundClasses.size() > 0);
+    Assert.assertSame(foundClasses, service.fetchChangeLogs());
   }
   
   @Test
-  public void shouldFindChangeSetMethods() throws MongobeeChangeSetException {
+  public void shouldFindChangeLogClassesFromIndex() throws Exception {
+    // given
+    File indexRoot = indexRoot(MongobeeTestResource.class);
+
+    ClassLoader original = Thread.currentThread().getContextClassLoader();
+    // the package is found in the root of the index only, classes are loaded by the parent
+    Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[]{indexRoot.toURI().toURL()}, original) {
+      @Override
+      public Enumeration<URL> getResources(String name) throws IOException {
+        return findResources(name);
+      }
+    });
+    try {
+      ChangeService service = new ChangeService(MongobeeTestResource.class.getPackage().getName());
+
+      // when
+      List<ChangeLogDescriptor> foundClasses = service.fetchChangeLogs();
+
+      // then
+      Assert.assertEquals(1, foundClasses.size());
+      Assert.assertEquals(MongobeeTestResource.class, foundClasses.get(0).getType());
+    } finally {
+      Thread.currentThread().setContextClassLoader(original);
+    }
+  }
+
+  @Test
+  public void shouldScanWhenPackageIsAlsoInRootWithoutIndex() throws Exception {
+    // given
+    File indexRoot = indexRoot(MongobeeTestResource.class);
+
+    ClassLoader original = Thread.currentThread().getContextClassLoader();
+    Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[]{indexRoot.toURI().toURL()}, original));
+    try {
+      ChangeService service = new ChangeService(MongobeeTestResource.class.getPackage().getName());
+
+      // when
+      List<ChangeLogDescriptor> foundClasses = service.fetchChangeLogs();
+
+      // then
+      Assert.assertEquals(2, foundClasses.size());
+    } finally {
+      Thread.currentThread().setContextClassLoader(original);
+    }
+  }
+
+  private static File indexRoot(Class<?> changeLog) throws IOException {
+    File indexRoot = createTempDirectory("mongobee-index").toFile();
+    assertTrue(new File(indexRoot, changeLog.getPackage().getName().replace('.', '/')).mkdirs());
+    File indexFile = new File(indexRoot, ChangeLogIndex.LOCATION);
+    assertTrue(indexFile.getParentFile().mkdirs());
+    Writer writer = new OutputStreamWriter(new FileOutputStream(indexFile), "UTF-8");
+    try {
+      new ChangeLogIndex(asList(changeLog.getName())).write(writer);
+    } finally {
+      writer.close();
+    }
+    return indexRoot;
+  }
+
+  @Test
+  public void shouldReadChangeLogsFromScanCache() throws Exception {
     // given
     String scanPackage = MongobeeTestResource.class.getPackage().getName();
-    ChangeService service = new ChangeService(scanPackage);
+    File cacheFile = new File(createTempDirectory("mongobee-cache").toFile(), "scan.cache");
+    List<ChangeLogDescriptor> scanned = new ChangeService(scanPackage).setScanCacheFile(cacheFile).fetchChangeLogs();
+    String fingerprint = new ChangeLogScanner(getClass().getClassLoader()).fingerprint(asList(scanPackage));
+    // the cache is trusted while the classpath is unchanged
+    new ChangeLogScanCache(cacheFile).write(fingerprint, asList(MongobeeTestResource.class.getName()));
 
     // when
-    List<Method> foundMethods = service.fetchChangeSets(MongobeeTestResource.class);
-    
+    List<ChangeLogDescriptor> cached = new ChangeService(scanPackage).setScanCacheFile(cacheFile).fetchChangeLogs();
+
     // then
-    assertTrue(foundMethods != null && foundMethods.size() == 5);
+    Assert.assertEquals(2, scanned.size());
+    Assert.assertEquals(1, cached.size());
+    Assert.assertEquals(MongobeeTestResource.class, cached.get(0).getType());
   }
 
   @Test
-  public void shouldFindAnotherChangeSetMethods() throws MongobeeChangeSetException {
+  public void shouldScanWhenScanCacheListsMissingChangeLog() throws Exception {
     // given
     String scanPackage = MongobeeTestResource.class.getPackage().getName();
-    ChangeService service = new ChangeService(scanPackage);
+    File cacheFile = new File(createTempDirectory("mongobee-cache").toFile(), "scan.cache");
+    String fingerprint = new ChangeLogScanner(getClass().getClassLoader()).fingerprint(asList(scanPackage));
+    new ChangeLogScanCache(cacheFile).write(fingerprint, asList(scanPackage + ".RemovedChangeLog"));
+
+    // when
+    List<ChangeLogDescriptor> changeLogs = new ChangeService(scanPackage).setScanCacheFile(cacheFile).fetchChangeLogs();
+
+    // then
+    Assert.assertEquals(2, changeLogs.size());
+    Assert.assertEquals(asList(AnotherMongobeeTestResource.class.getName(), MongobeeTestResource.class.getName()),
+        new ChangeLogScanCache(cacheFile).read(fingerprint));
+  }
+
+  @Test
+  public void shouldFindChangeSetMethods() throws MongobeeChangeSetException {
+    // when
+    List<ChangeSetDescriptor> foundMethods = ChangeLogDescriptor.of(MongobeeTestResource.class).getChangeSets();
+
+    // then
+    assertTrue(foundMethods != null && foundMethods.size() == 5);
+    for (int i = 1; i < foundMethods.size(); i++) {
+      assertTrue(foundMethods.get(i - 1).getOrder().compareTo(foundMethods.get(i).getOrder()) < 0);
+    }
+  }
 
+  @Test
+  public void shouldFindAnotherChangeSetMethods() throws MongobeeChangeSetException {
     // when
-    List<Method> foundMethods = service.fetchChangeSets(AnotherMongobeeTestResource.class);
+    List<ChangeSetDescriptor> foundMethods = ChangeLogDescriptor.of(AnotherMongobeeTestResource.class).getChangeSets();
 
     // then
     assertTrue(foundMethods != null && foundMethods.size() == 6);
@@ -58,18 +165,14 @@ public class ChangeServiceTest {
 
   @Test
   public void shouldFindIsRunAlwaysMethod() throws MongobeeChangeSetException {
-    // given
-    String scanPackage = MongobeeTestResource.class.getPackage().getName();
-    ChangeService service = new ChangeService(scanPackage);
-
     // when
-    List<Method> foundMethods = service.fetchChangeSets(AnotherMongobeeTestResource.class);
+    List<ChangeSetDescriptor> foundMethods = ChangeLogDescriptor.of(AnotherMongobeeTestResource.class).getChangeSets();
     // then
-    for (Method foundMethod : foundMethods) {
-      if (foundMethod.getName().equals("testChangeSetWithAlways")){
-        assertTrue(service.isRunAlwaysChangeSet(foundMethod));
+    for (ChangeSetDescriptor foundMethod : foundMethods) {
+      if (foundMethod.getMethodName().equals("testChangeSetWithAlways")){
+        assertTrue(foundMethod.isRunAlways());
       } else {
-        assertFalse(service.isRunAlwaysChangeSet(foundMethod));
+        assertFalse(foundMethod.isRunAlways());
       }
     }
   }
@@ -78,14 +181,12 @@ public class ChangeServiceTest {
   public void shouldCreateEntry() throws MongobeeChangeSetException {
     
     // given
-    String scanPackage = MongobeeTestResource.class.getPackage().getName();
-    ChangeService service = new ChangeService(scanPackage);
-    List<Method> foundMethods = service.fetchChangeSets(MongobeeTestResource.class);
+    List<ChangeSetDescriptor> foundMethods = ChangeLogDescriptor.of(MongobeeTestResource.class).getChangeSets();
 
-    for (Method foundMethod : foundMethods) {
+    for (ChangeSetDescriptor foundMethod : foundMethods) {
     
       // when
-      ChangeEntry entry = service.createChangeEntry(foundMethod);
+      ChangeEntry entry = foundMethod.createChangeEntry();
       
       // then
       Assert.assertEquals("testuser", entry.getAuthor());
@@ -96,11 +197,42 @@ public class ChangeServiceTest {
     }
   }
 
+  @Test
+  public void shouldComputeStablePlanFingerprint() throws MongobeeException {
+    // given
+    String scanPackage = UpToDateTestResource.class.getPackage().getName();
+    ChangeService service = new ChangeService(scanPackage);
+
+    // when
+    String fingerprint = service.fetchPlanFingerprint(service.fetchChangeLogs());
+
+    // then
+    Assert.assertNotNull(fingerprint);
+    Assert.assertEquals(fingerprint, new ChangeService(scanPackage).fetchPlanFingerprint(service.fetchChangeLogs()));
+  }
+
+  @Test
+  public void shouldNotComputePlanFingerprintWithRunAlwaysChangeSet() throws MongobeeException {
+    // given
+    ChangeService service = new ChangeService(MongobeeTestResource.class.getPackage().getName());
+
+    // then
+    Assert.assertNull(service.fetchPlanFingerprint(service.fetchChangeLogs()));
+  }
+
+  @Test
+  public void shouldDescribeChangeLogOnce() throws MongobeeChangeSetException {
+    Assert.assertSame(ChangeLogDescriptor.of(MongobeeTestResource.class), ChangeLogDescriptor.of(MongobeeTestResource.class));
+  }
+
   @Test(expected = MongobeeChangeSetException.class)
   public void shouldFailOnDuplicatedChangeSets() throws MongobeeChangeSetException {
-    String scanPackage = ChangeLogWithDuplicate.class.getPackage().getName();
-    ChangeService service = new ChangeService(scanPackage);
-    service.fetchChangeSets(ChangeLogWithDuplicate.class);
+    ChangeLogDescriptor.of(ChangeLogWithDuplicate.class);
+  }
+
+  @Test(expected = MongobeeChangeSetException.class)
+  public void shouldFailOnChangeSetsDuplicatedAcrossChangeLogs() throws MongobeeException {
+    new ChangeService(DuplicateChangeLog1.class.getPackage().getName()).fetchChangeLogs();
   }
 
 }
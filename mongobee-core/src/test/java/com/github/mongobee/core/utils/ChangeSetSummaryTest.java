@@ -0,0 +1,39 @@
+package com.github.mongobee.core.utils;
+
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonInt32;
+import org.bson.Document;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @since 0.14
+ */
+public class ChangeSetSummaryTest {
+
+  @Test
+  public void shouldSummarizeDriverResults() {
+    // when
+    Document update = ChangeSetSummary.of(UpdateResult.acknowledged(10, 7L, new BsonInt32(1)));
+    Document delete = ChangeSetSummary.of(DeleteResult.acknowledged(3));
+
+    // then
+    assertEquals(new Document("matched", 10L).append("modified", 7L).append("upserted", 1), update);
+    assertEquals(new Document("deleted", 3L), delete);
+    assertNull(ChangeSetSummary.of(DeleteResult.unacknowledged()));
+  }
+
+  @Test
+  public void shouldNotRecordOtherValues() {
+    assertNull(ChangeSetSummary.of(new Document("report", new Object())));
+    assertNull(ChangeSetSummary.of(Collections.singletonMap("matched", 1)));
+    assertNull(ChangeSetSummary.of("done"));
+    assertNull(ChangeSetSummary.of(null));
+  }
+
+}
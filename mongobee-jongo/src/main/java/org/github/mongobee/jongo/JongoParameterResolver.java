@@ -0,0 +1,39 @@
+package org.github.mongobee.jongo;
+
+import com.github.mongobee.core.invocation.MigrationContext;
+import com.github.mongobee.core.invocation.ParameterResolver;
+import org.jongo.Jongo;
+
+/**
+ * Resolves {@link Jongo} arguments. Without a pre-configured Jongo, one is created per migration.
+ * Changesets with {@link com.github.mongobee.core.changeset.ChangeSetOptions} get a Jongo of their own on the DB
+ * with their options, sharing the mapper of the pre-configured Jongo.
+ *
+ * @since 0.14
+ */
+public class JongoParameterResolver implements ParameterResolver {
+
+  private volatile Jongo jongo;
+
+  @Override
+  public boolean supports(Class<?> parameterType) {
+    return parameterType.equals(Jongo.class);
+  }
+
+  @Override
+  public Object resolve(Class<?> parameterType, MigrationContext context) {
+    Jongo configured = jongo;
+    if (context.getOptions() != null) {
+      return configured != null ? new Jongo(context.getDb(), configured.getMapper()) : new Jongo(context.getDb());
+    }
+    return configured != null ? configured : new Jongo(context.getDb());
+  }
+
+  /**
+   * @param jongo Jongo passed to changesets, null to create one per migration
+   */
+  public void setJongo(Jongo jongo) {
+    this.jongo = jongo;
+  }
+
+}
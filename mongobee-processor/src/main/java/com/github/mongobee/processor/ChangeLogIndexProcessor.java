@@ -0,0 +1,127 @@
+package com.github.mongobee.processor;
+
+import com.github.mongobee.core.changeset.ChangeLog;
+import com.github.mongobee.core.changeset.ChangeSet;
+import com.github.mongobee.core.utils.ChangeLogIndex;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Annotation processor which writes the index of all {@link ChangeLog} classes of a compilation unit
+ * to {@link ChangeLogIndex#LOCATION}. With the index on the classpath the changelogs are found without
+ * scanning packages at runtime.
+ * <p>Entries of an index left by a previous (e.g. incremental) compilation are kept as long as their
+ * classes still exist and are still annotated with {@link ChangeLog}.</p>
+ *
+ * @since 0.14
+ */
+@SupportedAnnotationTypes("com.github.mongobee.core.changeset.ChangeLog")
+public class ChangeLogIndexProcessor extends AbstractProcessor {
+
+  private final Set<String> changeLogs = new TreeSet<>();
+  private boolean previousIndex;
+
+  @Override
+  public synchronized void init(ProcessingEnvironment processingEnv) {
+    super.init(processingEnv);
+    readPreviousIndex();
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getElementsAnnotatedWith(ChangeLog.class)) {
+      if (element.getKind() != ElementKind.CLASS) {
+        error(element, "@ChangeLog is allowed on classes only");
+        continue;
+      }
+      TypeElement type = (TypeElement) element;
+      if (verifyUniqueChangeSets(type)) {
+        changeLogs.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+      }
+    }
+
+    if (roundEnv.processingOver()) {
+      writeIndex();
+    }
+    return false;
+  }
+
+  private boolean verifyUniqueChangeSets(TypeElement type) {
+    Set<String> ids = new HashSet<>();
+    boolean valid = true;
+    for (Element member : type.getEnclosedElements()) {
+      ChangeSet changeSet = member.getAnnotation(ChangeSet.class);
+      if (member.getKind() == ElementKind.METHOD && changeSet != null && !ids.add(changeSet.id())) {
+        error(member, String.format("Duplicated changeset id found: '%s'", changeSet.id()));
+        valid = false;
+      }
+    }
+    return valid;
+  }
+
+  private void readPreviousIndex() {
+    try {
+      FileObject previous = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", ChangeLogIndex.LOCATION);
+      Reader reader = new InputStreamReader(previous.openInputStream(), "UTF-8");
+      try {
+        previousIndex = true;
+        for (String className : ChangeLogIndex.read(reader).getClassNames()) {
+          TypeElement type = processingEnv.getElementUtils().getTypeElement(className.replace('$', '.'));
+          if (type != null && type.getAnnotation(ChangeLog.class) != null) {
+            changeLogs.add(className);
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      // no previous index
+    }
+  }
+
+  private void writeIndex() {
+    if (changeLogs.isEmpty() && !previousIndex) {
+      return;
+    }
+    try {
+      FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", ChangeLogIndex.LOCATION);
+      Writer writer = new OutputStreamWriter(index.openOutputStream(), "UTF-8");
+      try {
+        new ChangeLogIndex(changeLogs).write(writer);
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Cannot write changelog index " + ChangeLogIndex.LOCATION + ": " + e.getMessage());
+    }
+  }
+
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+}
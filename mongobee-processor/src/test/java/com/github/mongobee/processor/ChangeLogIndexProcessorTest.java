@@ -0,0 +1,159 @@
+package com.github.mongobee.processor;
+
+import com.github.mongobee.core.changeset.ChangeLog;
+import com.github.mongobee.core.utils.ChangeLogIndex;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.file.Files.createTempDirectory;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @since 0.14
+ */
+public class ChangeLogIndexProcessorTest {
+
+  private File outputDir;
+
+  @Before
+  public void init() throws Exception {
+    outputDir = createTempDirectory("mongobee-processor").toFile();
+  }
+
+  @Test
+  public void shouldWriteIndex() throws Exception {
+    // when
+    boolean compiled = compile(
+        source("test.changelogs.SecondChangeLog",
+            "package test.changelogs;",
+            "import com.github.mongobee.core.changeset.*;",
+            "@ChangeLog(order = \"2\")",
+            "public class SecondChangeLog {",
+            "  @ChangeSet(author = \"testuser\", id = \"test2\", order = \"02\", runAlways = true)",
+            "  public void second(com.mongodb.client.MongoDatabase db) {}",
+            "  @ChangeSet(author = \"testuser\", id = \"test1\", order = \"01\")",
+            "  public void first() {}",
+            "  public void notAChangeSet() {}",
+            "}"),
+        source("test.changelogs.FirstChangeLog",
+            "package test.changelogs;",
+            "import com.github.mongobee.core.changeset.*;",
+            "@ChangeLog(order = \"1\")",
+            "public class FirstChangeLog {",
+            "  @ChangeSet(author = \"testuser\", id = \"test0\", order = \"01\")",
+            "  public void change(com.mongodb.DB db) {}",
+            "}"));
+
+    // then
+    assertTrue(compiled);
+    assertEquals(asList("test.changelogs.FirstChangeLog", "test.changelogs.SecondChangeLog"),
+        readIndex().getClassNames());
+  }
+
+  @Test
+  public void shouldDropPreviousEntryNoLongerAnnotated() throws Exception {
+    // given
+    assertTrue(compile(
+        source("test.changelogs.FirstChangeLog",
+            "package test.changelogs;",
+            "@com.github.mongobee.core.changeset.ChangeLog",
+            "public class FirstChangeLog {}"),
+        source("test.changelogs.SecondChangeLog",
+            "package test.changelogs;",
+            "@com.github.mongobee.core.changeset.ChangeLog",
+            "public class SecondChangeLog {}")));
+
+    // when
+    boolean compiled = compile(
+        source("test.changelogs.FirstChangeLog",
+            "package test.changelogs;",
+            "public class FirstChangeLog {}"),
+        source("test.changelogs.ThirdChangeLog",
+            "package test.changelogs;",
+            "@com.github.mongobee.core.changeset.ChangeLog",
+            "public class ThirdChangeLog {}"));
+
+    // then
+    assertTrue(compiled);
+    assertEquals(asList("test.changelogs.SecondChangeLog", "test.changelogs.ThirdChangeLog"),
+        readIndex().getClassNames());
+  }
+
+  @Test
+  public void shouldFailOnDuplicatedChangeSets() throws Exception {
+    // when
+    boolean compiled = compile(
+        source("test.changelogs.DuplicateChangeLog",
+            "package test.changelogs;",
+            "import com.github.mongobee.core.changeset.*;",
+            "@ChangeLog",
+            "public class DuplicateChangeLog {",
+            "  @ChangeSet(author = \"testuser\", id = \"test1\", order = \"01\")",
+            "  public void first() {}",
+            "  @ChangeSet(author = \"testuser\", id = \"test1\", order = \"02\")",
+            "  public void second() {}",
+            "}"));
+
+    // then
+    assertFalse(compiled);
+  }
+
+  private boolean compile(JavaFileObject... sources) {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    List<String> options = new ArrayList<>(asList("-d", outputDir.getPath(), "-classpath", classpath()));
+    JavaCompiler.CompilationTask task = compiler.getTask(null, null, null, options, null, asList(sources));
+    task.setProcessors(Collections.singletonList(new ChangeLogIndexProcessor()));
+    return task.call();
+  }
+
+  private String classpath() throws IllegalStateException {
+    try {
+      return new File(ChangeLog.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath()
+          + File.pathSeparator
+          + new File(com.mongodb.DB.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath()
+          + File.pathSeparator + outputDir.getPath();
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private ChangeLogIndex readIndex() throws Exception {
+    Reader reader = new InputStreamReader(new FileInputStream(new File(outputDir, ChangeLogIndex.LOCATION)), "UTF-8");
+    try {
+      return ChangeLogIndex.read(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static JavaFileObject source(String className, String... lines) {
+    final StringBuilder code = new StringBuilder();
+    for (String line : lines) {
+      code.append(line).append('\n');
+    }
+    return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"),
+        JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return code;
+      }
+    };
+  }
+
+}
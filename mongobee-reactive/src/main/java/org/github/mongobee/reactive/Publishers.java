@@ -0,0 +1,105 @@
+package org.github.mongobee.reactive;
+
+import com.mongodb.async.SingleResultCallback;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Subscribers bridging Reactive Streams publishers to callbacks
+ *
+ * @since 0.14
+ */
+public final class Publishers {
+
+  private Publishers() {
+  }
+
+  /**
+   * Requests a single element and cancels the subscription after it
+   *
+   * @param publisher publisher
+   * @param callback  receives the first element, null if the publisher completed empty
+   * @param <T>       type of the elements
+   */
+  public static <T> void first(Publisher<T> publisher, final SingleResultCallback<T> callback) {
+    publisher.subscribe(new Subscriber<T>() {
+      private Subscription subscription;
+      private boolean done;
+
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+      }
+
+      @Override
+      public void onNext(T element) {
+        if (!done) {
+          done = true;
+          subscription.cancel();
+          callback.onResult(element, null);
+        }
+      }
+
+      @Override
+      public void onError(Throwable error) {
+        if (!done) {
+          done = true;
+          callback.onResult(null, error);
+        }
+      }
+
+      @Override
+      public void onComplete() {
+        if (!done) {
+          done = true;
+          callback.onResult(null, null);
+        }
+      }
+    });
+  }
+
+  /**
+   * Consumes all elements, requesting the next batch only when the previous one has been received,
+   * so at most batchSize elements are in flight.
+   *
+   * @param publisher publisher
+   * @param batchSize number of elements requested at once
+   * @param callback  receives the number of elements on completion
+   */
+  public static void drain(Publisher<?> publisher, final int batchSize, final SingleResultCallback<Long> callback) {
+    publisher.subscribe(new Subscriber<Object>() {
+      private Subscription subscription;
+      private long count;
+      private int outstanding;
+
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        outstanding = batchSize;
+        subscription.request(batchSize);
+      }
+
+      @Override
+      public void onNext(Object element) {
+        count++;
+        if (--outstanding == 0) {
+          outstanding = batchSize;
+          subscription.request(batchSize);
+        }
+      }
+
+      @Override
+      public void onError(Throwable error) {
+        callback.onResult(null, error);
+      }
+
+      @Override
+      public void onComplete() {
+        callback.onResult(count, null);
+      }
+    });
+  }
+
+}
@@ -0,0 +1,203 @@
+package org.github.mongobee.reactive;
+
+import com.github.mongobee.core.changeset.ChangeEntry;
+import com.github.mongobee.core.exception.MongobeeLockException;
+import com.mongodb.WriteConcern;
+import com.mongodb.async.SingleResultCallback;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import com.mongodb.reactivestreams.client.Success;
+import org.bson.Document;
+
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Updates.set;
+
+/**
+ * Non-blocking counterpart of {@link com.github.mongobee.core.dao.ChangeEntryDao}, writing the same change entries
+ *
+ * @since 0.14
+ */
+public class ReactiveChangeEntryDao {
+
+  private final MongoDatabase mongoDatabase;
+  private final ReactiveLockDao lockDao;
+  private String changelogCollectionName;
+
+  public ReactiveChangeEntryDao(MongoDatabase mongoDatabase, String changelogCollectionName, String lockCollectionName) {
+    this.mongoDatabase = mongoDatabase;
+    this.changelogCollectionName = changelogCollectionName;
+    this.lockDao = new ReactiveLockDao(lockCollectionName);
+  }
+
+  public MongoDatabase getMongoDatabase() {
+    return mongoDatabase;
+  }
+
+  /**
+   * Creates the unique index of the change entries and the index of the lock
+   *
+   * @param callback called when both indexes exist
+   */
+  public void initializeMongoDb(final SingleResultCallback<Void> callback) {
+    Publishers.first(mongoDatabase.getCollection(changelogCollectionName).createIndex(new Document()
+            .append(ChangeEntry.KEY_CHANGEID, 1)
+            .append(ChangeEntry.KEY_AUTHOR, 1),
+        new IndexOptions().unique(true)), new SingleResultCallback<String>() {
+      @Override
+      public void onResult(String indexName, Throwable error) {
+        if (error != null) {
+          callback.onResult(null, error);
+        } else {
+          lockDao.initializeLock(mongoDatabase, callback);
+        }
+      }
+    });
+  }
+
+  public void acquireProcessLock(SingleResultCallback<Boolean> callback) {
+    lockDao.acquireLock(mongoDatabase, callback);
+  }
+
+  /**
+   * @param outcome  outcome of the migration, kept for processes waiting for the lock
+   * @param callback called when the lock has been released
+   */
+  public void releaseProcessLock(String outcome, SingleResultCallback<Void> callback) {
+    lockDao.releaseLock(mongoDatabase, outcome, callback);
+  }
+
+  public void isProccessLockHeld(SingleResultCallback<Boolean> callback) {
+    lockDao.isLockHeld(mongoDatabase, callback);
+  }
+
+  /**
+   * @return true if the process lock acquired by this process has been taken over by another process
+   */
+  public boolean isProcessLockLost() {
+    return lockDao.isLockLost();
+  }
+
+  public void isNewChange(ChangeEntry changeEntry, final SingleResultCallback<Boolean> callback) {
+    Publishers.first(mongoDatabase.getCollection(changelogCollectionName)
+        .find(changeEntry.buildSearchQueryDBObject())
+        .projection(include(ChangeEntry.KEY_CHANGEID))
+        .first(), new SingleResultCallback<Document>() {
+      @Override
+      public void onResult(Document entry, Throwable error) {
+        callback.onResult(error != null ? null : entry == null, error);
+      }
+    });
+  }
+
+  /**
+   * @param changeEntry applied runOnChange changeset
+   * @param callback    called with the recorded checksum, null if the changeset was recorded without one
+   */
+  public void findAppliedChecksum(ChangeEntry changeEntry, final SingleResultCallback<String> callback) {
+    Publishers.first(mongoDatabase.getCollection(changelogCollectionName)
+        .find(changeEntry.buildSearchQueryDBObject())
+        .projection(include(ChangeEntry.KEY_CHECKSUM))
+        .first(), new SingleResultCallback<Document>() {
+      @Override
+      public void onResult(Document entry, Throwable error) {
+        callback.onResult(entry != null ? entry.getString(ChangeEntry.KEY_CHECKSUM) : null, error);
+      }
+    });
+  }
+
+  /**
+   * @param changeEntry applied runOnChange changeset recorded without a checksum, with its current checksum
+   * @param callback    called when the checksum has been stored
+   */
+  public void recordChecksum(final ChangeEntry changeEntry, final SingleResultCallback<Void> callback) {
+    fenced(new Runnable() {
+      @Override
+      public void run() {
+        Publishers.first(mongoDatabase.getCollection(changelogCollectionName).withWriteConcern(WriteConcern.MAJORITY)
+                .updateOne(changeEntry.buildSearchQueryDBObject(), set(ChangeEntry.KEY_CHECKSUM, changeEntry.getChecksum())),
+            new SingleResultCallback<UpdateResult>() {
+              @Override
+              public void onResult(UpdateResult result, Throwable error) {
+                callback.onResult(null, error);
+              }
+            });
+      }
+    }, callback);
+  }
+
+  /**
+   * @param changeEntry applied changeset, e.g. a re-executed runOnChange changeset with its new checksum
+   * @param callback    called when the recorded entry has been replaced
+   */
+  public void replace(final ChangeEntry changeEntry, final SingleResultCallback<Void> callback) {
+    fenced(new Runnable() {
+      @Override
+      public void run() {
+        Publishers.first(mongoDatabase.getCollection(changelogCollectionName).withWriteConcern(WriteConcern.MAJORITY)
+                .replaceOne(changeEntry.buildSearchQueryDBObject(), changeEntry.buildFullDBObject()),
+            new SingleResultCallback<UpdateResult>() {
+              @Override
+              public void onResult(UpdateResult result, Throwable error) {
+                callback.onResult(null, error);
+              }
+            });
+      }
+    }, callback);
+  }
+
+  public void save(final ChangeEntry changeEntry, final SingleResultCallback<Void> callback) {
+    fenced(new Runnable() {
+      @Override
+      public void run() {
+        Publishers.first(mongoDatabase.getCollection(changelogCollectionName).withWriteConcern(WriteConcern.MAJORITY)
+                .insertOne(changeEntry.buildFullDBObject()),
+            new SingleResultCallback<Success>() {
+              @Override
+              public void onResult(Success success, Throwable error) {
+                callback.onResult(null, error);
+              }
+            });
+      }
+    }, callback);
+  }
+
+  /**
+   * Runs a write of the migration state only while the process lock acquired by this DAO is still held with its
+   * token, like the writes of {@link com.github.mongobee.core.dao.ChangeEntryDao}. Writes without the lock held by
+   * this DAO are not fenced.
+   */
+  private void fenced(final Runnable write, final SingleResultCallback<Void> callback) {
+    final long token = lockDao.getLockToken();
+    if (token == 0) {
+      write.run();
+      return;
+    }
+    lockDao.verifyLock(mongoDatabase, new SingleResultCallback<Boolean>() {
+      @Override
+      public void onResult(Boolean held, Throwable error) {
+        if (error != null) {
+          callback.onResult(null, error);
+        } else if (!held) {
+          callback.onResult(null, new MongobeeLockException("Mongobee process lock with token " + token
+              + " has been taken over by another process, not writing the migration state anymore"));
+        } else {
+          write.run();
+        }
+      }
+    });
+  }
+
+  public void setChangelogCollectionName(String changelogCollectionName) {
+    this.changelogCollectionName = changelogCollectionName;
+  }
+
+  public void setLockCollectionName(String lockCollectionName) {
+    this.lockDao.setLockCollectionName(lockCollectionName);
+  }
+
+  public void setLockLeaseMillis(long lockLeaseMillis) {
+    this.lockDao.setLeaseMillis(lockLeaseMillis);
+  }
+
+}
@@ -0,0 +1,283 @@
+package org.github.mongobee.reactive;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoServerException;
+import com.mongodb.async.SingleResultCallback;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Filters.ne;
+import static com.mongodb.client.model.Filters.or;
+import static com.mongodb.client.model.Projections.include;
+
+/**
+ * Non-blocking counterpart of {@link com.github.mongobee.core.dao.LockDao}. The lock document is the same,
+ * so blocking and reactive runners of one database exclude each other.
+ *
+ * @since 0.14
+ */
+public class ReactiveLockDao {
+  private static final Logger logger = LoggerFactory.getLogger(ReactiveLockDao.class);
+  private static final String KEY_PROP_NAME = "key";
+  private static final String KEY_STATUS = "status";
+  private static final String KEY_OWNER = "owner";
+  private static final String KEY_EXPIRES_AT = "expiresAt";
+  private static final String KEY_TOKEN = "token";
+  private static final String KEY_OUTCOME = "outcome";
+
+  private static final String LOCK_ENTRY_KEY_VAL = "LOCK";
+  private static final String STATUS_HELD = "LOCK_HELD";
+  private static final String STATUS_RELEASED = "LOCK_RELEASED";
+  private static final long DEFAULT_LEASE_MILLIS = 60 * 1000L;
+
+  private final String owner = UUID.randomUUID().toString();
+  private String lockCollectionName;
+  private long leaseMillis = DEFAULT_LEASE_MILLIS;
+
+  private volatile long lockToken;
+  private volatile boolean lockLost;
+  private static ScheduledExecutorService heartbeatExecutor;
+  private ScheduledFuture<?> heartbeat;
+
+  public ReactiveLockDao(String lockCollectionName) {
+    this.lockCollectionName = lockCollectionName;
+  }
+
+  public void initializeLock(MongoDatabase db, final SingleResultCallback<Void> callback) {
+    Publishers.first(db.getCollection(lockCollectionName).createIndex(new Document(KEY_PROP_NAME, 1),
+        new IndexOptions().unique(true).name("mongobeelock_key_idx")), new SingleResultCallback<String>() {
+      @Override
+      public void onResult(String indexName, Throwable error) {
+        callback.onResult(null, error);
+      }
+    });
+  }
+
+  public void acquireLock(final MongoDatabase db, final SingleResultCallback<Boolean> callback) {
+    Date now = new Date();
+
+    // the lock is free when released or when the lease of its holder has expired; locks written by versions
+    // without leases have no expiry time and are treated as expired
+    Bson free = and(eq(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL),
+        or(ne(KEY_STATUS, STATUS_HELD), lt(KEY_EXPIRES_AT, now), exists(KEY_EXPIRES_AT, false)));
+    Document acquire = new Document("$set", new Document(KEY_STATUS, STATUS_HELD)
+        .append(KEY_OWNER, owner)
+        .append(KEY_EXPIRES_AT, new Date(now.getTime() + leaseMillis)))
+        .append("$inc", new Document(KEY_TOKEN, 1L))
+        .append("$unset", new Document(KEY_OUTCOME, ""));
+
+    // if the lock is held, the upsert tries to insert the same key again - there will be an exception
+    Publishers.first(db.getCollection(lockCollectionName).findOneAndUpdate(free, acquire,
+        new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.BEFORE)),
+        new SingleResultCallback<Document>() {
+          @Override
+          public void onResult(Document previous, Throwable error) {
+            if (error instanceof MongoServerException
+                && ErrorCategory.fromErrorCode(((MongoServerException) error).getCode()) == ErrorCategory.DUPLICATE_KEY) {
+              logger.warn("Duplicate key exception while acquireLock. Probably the lock has been already acquired.");
+              callback.onResult(false, null);
+              return;
+            }
+            if (error != null) {
+              callback.onResult(null, error);
+              return;
+            }
+
+            if (previous != null && STATUS_HELD.equals(previous.getString(KEY_STATUS))) {
+              logger.warn("Lease of lock holder " + previous.get(KEY_OWNER) + " expired at " + previous.get(KEY_EXPIRES_AT)
+                  + ", the lock has been taken over");
+            }
+            lockToken = previous != null && previous.get(KEY_TOKEN) instanceof Number
+                ? ((Number) previous.get(KEY_TOKEN)).longValue() + 1 : 1;
+            lockLost = false;
+            startHeartbeat(db);
+            callback.onResult(true, null);
+          }
+        });
+  }
+
+  /**
+   * @param db       MongoDatabase object
+   * @param outcome  outcome of the work done while holding the lock, kept for processes waiting for the lock
+   * @param callback called when the lock document has been updated
+   */
+  public void releaseLock(MongoDatabase db, String outcome, final SingleResultCallback<Void> callback) {
+    stopHeartbeat();
+    Document release = new Document(KEY_STATUS, STATUS_RELEASED).append(KEY_EXPIRES_AT, new Date());
+    if (outcome != null) {
+      release.append(KEY_OUTCOME, outcome);
+    }
+    long token = lockToken;
+    lockToken = 0;
+    // release lock only if still held by this process, the document is kept to preserve the lock token
+    Publishers.first(db.getCollection(lockCollectionName).updateOne(
+        and(eq(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL), eq(KEY_OWNER, owner), eq(KEY_TOKEN, token)),
+        new Document("$set", release)), new SingleResultCallback<UpdateResult>() {
+      @Override
+      public void onResult(UpdateResult result, Throwable error) {
+        callback.onResult(null, error);
+      }
+    });
+  }
+
+  /**
+   * @param db       MongoDatabase object
+   * @param callback receives true if the lock is currently held
+   */
+  public void isLockHeld(MongoDatabase db, final SingleResultCallback<Boolean> callback) {
+    Publishers.first(db.getCollection(lockCollectionName)
+        .find(eq(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL))
+        .projection(include(KEY_STATUS, KEY_EXPIRES_AT))
+        .first(), new SingleResultCallback<Document>() {
+      @Override
+      public void onResult(Document lock, Throwable error) {
+        if (error != null) {
+          callback.onResult(null, error);
+        } else if (lock == null || !STATUS_HELD.equals(lock.getString(KEY_STATUS))) {
+          callback.onResult(false, null);
+        } else {
+          Date expiresAt = lock.getDate(KEY_EXPIRES_AT);
+          callback.onResult(expiresAt != null && expiresAt.after(new Date()), null);
+        }
+      }
+    });
+  }
+
+  /**
+   * @return token of the lock held by this process, 0 if not held
+   */
+  public long getLockToken() {
+    return lockToken;
+  }
+
+  /**
+   * @return true if the lock acquired by this process could not be renewed because it has been taken over
+   */
+  public boolean isLockLost() {
+    return lockLost;
+  }
+
+  /**
+   * Fencing check of the writes done while holding the lock, like
+   * {@link com.github.mongobee.core.dao.LockDao#verifyLock(com.mongodb.client.MongoDatabase)}
+   *
+   * @param db       MongoDatabase object
+   * @param callback receives true if the lock acquired by this process is still held with its token
+   */
+  public void verifyLock(MongoDatabase db, final SingleResultCallback<Boolean> callback) {
+    final long token = lockToken;
+    if (lockLost || token == 0) {
+      callback.onResult(false, null);
+      return;
+    }
+    Publishers.first(db.getCollection(lockCollectionName)
+        .find(and(eq(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL), eq(KEY_OWNER, owner), eq(KEY_TOKEN, token),
+            eq(KEY_STATUS, STATUS_HELD)))
+        .projection(include(KEY_TOKEN))
+        .first(), new SingleResultCallback<Document>() {
+      @Override
+      public void onResult(Document lock, Throwable error) {
+        if (error != null) {
+          callback.onResult(null, error);
+          return;
+        }
+        if (lock == null && lockToken == token) {
+          logger.error("Mongobee lock with token " + token + " has been taken over by another process");
+          lockLost = true;
+          stopHeartbeat();
+        }
+        callback.onResult(lock != null, null);
+      }
+    });
+  }
+
+  private synchronized void startHeartbeat(final MongoDatabase db) {
+    stopHeartbeat();
+    final long token = lockToken;
+    long period = Math.max(leaseMillis / 3, 1);
+    heartbeat = heartbeatExecutor().scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        renewLease(db, token);
+      }
+    }, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * One thread schedules the lease renewals of all reactive locks of the JVM, the renewals themselves do not block it
+   */
+  private static synchronized ScheduledExecutorService heartbeatExecutor() {
+    if (heartbeatExecutor == null) {
+      ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "mongobee-reactive-lock-heartbeat");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      executor.setKeepAliveTime(1, TimeUnit.MINUTES);
+      executor.allowCoreThreadTimeOut(true);
+      executor.setRemoveOnCancelPolicy(true);
+      heartbeatExecutor = executor;
+    }
+    return heartbeatExecutor;
+  }
+
+  private synchronized void stopHeartbeat() {
+    if (heartbeat != null) {
+      heartbeat.cancel(false);
+      heartbeat = null;
+    }
+  }
+
+  private void renewLease(MongoDatabase db, final long token) {
+    Publishers.first(db.getCollection(lockCollectionName).updateOne(
+        and(eq(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL), eq(KEY_OWNER, owner), eq(KEY_TOKEN, token),
+            eq(KEY_STATUS, STATUS_HELD)),
+        new Document("$set", new Document(KEY_EXPIRES_AT, new Date(System.currentTimeMillis() + leaseMillis)))),
+        new SingleResultCallback<UpdateResult>() {
+          @Override
+          public void onResult(UpdateResult result, Throwable error) {
+            if (error != null) {
+              logger.warn("Mongobee lock lease could not be renewed, retrying", error);
+            } else if (result.getMatchedCount() == 0 && lockToken == token) {
+              logger.error("Mongobee lock with token " + token + " has been taken over by another process");
+              lockLost = true;
+              stopHeartbeat();
+            }
+          }
+        });
+  }
+
+  /**
+   * @param leaseMillis time after which a lock not renewed by its holder may be taken over, default is 60 seconds
+   */
+  public void setLeaseMillis(long leaseMillis) {
+    this.leaseMillis = leaseMillis;
+  }
+
+  public void setLockCollectionName(String lockCollectionName) {
+    this.lockCollectionName = lockCollectionName;
+  }
+
+}
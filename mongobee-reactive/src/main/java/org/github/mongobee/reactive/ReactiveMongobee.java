@@ -0,0 +1,442 @@
+package org.github.mongobee.reactive;
+
+import com.github.mongobee.core.MigrationOutcome;
+import com.github.mongobee.core.changeset.ChangeEntry;
+import com.github.mongobee.core.changeset.ChangeLogDescriptor;
+import com.github.mongobee.core.changeset.ChangeSetDescriptor;
+import com.github.mongobee.core.exception.MongobeeChangeSetException;
+import com.github.mongobee.core.exception.MongobeeConfigurationException;
+import com.github.mongobee.core.exception.MongobeeException;
+import com.github.mongobee.core.invocation.ChangeSetInvoker;
+import com.github.mongobee.core.invocation.MigrationContext;
+import com.github.mongobee.core.invocation.ParameterResolver;
+import com.github.mongobee.core.utils.ChangeService;
+import com.github.mongobee.core.utils.ChangeSetSummary;
+import com.github.mongobee.core.utils.ExecutionEnvironment;
+import com.mongodb.async.SingleResultCallback;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.Document;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.mongobee.core.utils.StringUtils.hasText;
+
+/**
+ * Mongobee runner on the Reactive Streams driver. No thread is blocked while the migration waits for the database:
+ * every step continues in the callback of the previous one, so many databases can be migrated at the same time
+ * on the few threads of the driver.
+ * <p>Changesets may declare a reactive {@link MongoDatabase} parameter and return a {@link Publisher}; the changeset
+ * is complete when the publisher completes. Its elements are requested in batches of
+ * {@link #setChangeSetBatchSize(int)}, so a changeset streaming documents is throttled by the migration.
+ * Changeset methods must not block, the blocking driver is not available to them.</p>
+ *
+ * @since 0.14
+ */
+public class ReactiveMongobee {
+  private static final Logger logger = LoggerFactory.getLogger(ReactiveMongobee.class);
+
+  private static final String DEFAULT_CHANGELOG_COLLECTION_NAME = "dbchangelog";
+  private static final String DEFAULT_LOCK_COLLECTION_NAME = "mongobeelock";
+  private static final int DEFAULT_CHANGESET_BATCH_SIZE = 64;
+
+  private final ReactiveChangeEntryDao dao;
+  private final ChangeSetInvoker changeSetInvoker = new ChangeSetInvoker();
+  private boolean enabled = true;
+  private int changeSetBatchSize = DEFAULT_CHANGESET_BATCH_SIZE;
+  private String changeLogsScanPackage;
+  private List<Class<?>> changeLogClasses = Collections.emptyList();
+  private File scanCacheFile;
+
+  /**
+   * @param mongoClient reactive client, not closed by the runner
+   * @param dbName      database to migrate
+   */
+  public ReactiveMongobee(MongoClient mongoClient, String dbName) {
+    this(mongoClient.getDatabase(dbName));
+  }
+
+  /**
+   * @param mongoDatabase database to migrate
+   */
+  public ReactiveMongobee(MongoDatabase mongoDatabase) {
+    this.dao = new ReactiveChangeEntryDao(mongoDatabase, DEFAULT_CHANGELOG_COLLECTION_NAME, DEFAULT_LOCK_COLLECTION_NAME);
+    this.changeSetInvoker.addResolver(new ReactiveParameterResolver(mongoDatabase));
+  }
+
+  /**
+   * Executing migration without blocking the calling thread
+   *
+   * @param callback receives the outcome of the migration, null if Mongobee is disabled or another process holds
+   *                 the lock, or the exception which stopped the migration
+   */
+  public void execute(final SingleResultCallback<MigrationOutcome> callback) {
+    if (!isEnabled()) {
+      logger.info("Mongobee is disabled. Exiting.");
+      callback.onResult(null, null);
+      return;
+    }
+
+    final List<ChangeLogDescriptor> changeLogs;
+    try {
+      validateConfig();
+      changeLogs = newChangeService().fetchChangeLogs();
+    } catch (MongobeeException e) {
+      callback.onResult(null, e);
+      return;
+    }
+
+    dao.initializeMongoDb(new SingleResultCallback<Void>() {
+      @Override
+      public void onResult(Void result, Throwable error) {
+        if (error != null) {
+          callback.onResult(null, error);
+          return;
+        }
+        dao.acquireProcessLock(new SingleResultCallback<Boolean>() {
+          @Override
+          public void onResult(Boolean acquired, Throwable error) {
+            if (error != null) {
+              callback.onResult(null, error);
+            } else if (!acquired) {
+              logger.info("Mongobee did not acquire process lock. Exiting.");
+              callback.onResult(null, null);
+            } else {
+              logger.info("Mongobee acquired process lock, starting the data migration sequence..");
+              new Migration(changeLogs, callback).next();
+            }
+          }
+        });
+      }
+    });
+  }
+
+  protected ChangeService newChangeService() {
+    return new ChangeService(changeLogsScanPackage, changeLogClasses).setScanCacheFile(scanCacheFile);
+  }
+
+  private void validateConfig() throws MongobeeConfigurationException {
+    if (!hasText(changeLogsScanPackage) && changeLogClasses.isEmpty()) {
+      throw new MongobeeConfigurationException("Scan package for changelogs is not set: use appropriate setter");
+    }
+    if (changeSetBatchSize < 1) {
+      throw new MongobeeConfigurationException("ChangeSet batch size must be positive");
+    }
+  }
+
+  /**
+   * Changesets of one execution, applied one after another. Each step starts in the callback of the previous one;
+   * steps completing synchronously are run in a loop instead of recursively.
+   */
+  private class Migration {
+    private final List<ChangeLogDescriptor> changeLogOfStep = new ArrayList<>();
+    private final List<ChangeSetDescriptor> changeSetOfStep = new ArrayList<>();
+    private final SingleResultCallback<MigrationOutcome> callback;
+    private final MigrationContext context;
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile int step = -1;
+    private volatile boolean changeSetFailed;
+    private ChangeLogDescriptor instantiatedChangeLog;
+    private Object changeLogInstance;
+
+    Migration(List<ChangeLogDescriptor> changeLogs, SingleResultCallback<MigrationOutcome> callback) {
+      for (ChangeLogDescriptor changeLog : changeLogs) {
+        for (ChangeSetDescriptor changeSet : changeLog.getChangeSets()) {
+          changeLogOfStep.add(changeLog);
+          changeSetOfStep.add(changeSet);
+        }
+      }
+      this.callback = callback;
+      this.context = new MigrationContext(null, null, dao.getMongoDatabase().getName());
+    }
+
+    void next() {
+      step++;
+      if (wip.getAndIncrement() == 0) {
+        do {
+          executeStep();
+        } while (wip.decrementAndGet() != 0);
+      }
+    }
+
+    private void executeStep() {
+      if (step == changeSetOfStep.size()) {
+        finish(changeSetFailed ? MigrationOutcome.FAILED : MigrationOutcome.SUCCEEDED, null);
+        return;
+      }
+      if (dao.isProcessLockLost()) {
+        finish(MigrationOutcome.FAILED, new MongobeeException(
+            "Mongobee process lock has been taken over by another process, stopping the migration"));
+        return;
+      }
+
+      final ChangeLogDescriptor changeLog = changeLogOfStep.get(step);
+      final ChangeSetDescriptor changeSet = changeSetOfStep.get(step);
+      final ChangeEntry changeEntry;
+      try {
+        changeEntry = changeSet.createChangeEntry();
+      } catch (MongobeeChangeSetException e) {
+        finish(MigrationOutcome.FAILED, e);
+        return;
+      }
+      dao.isNewChange(changeEntry, new SingleResultCallback<Boolean>() {
+        @Override
+        public void onResult(Boolean newChange, Throwable error) {
+          if (error != null) {
+            finish(MigrationOutcome.FAILED, error);
+          } else if (newChange || changeSet.isRunAlways()) {
+            apply(changeLog, changeSet, changeEntry, newChange, false);
+          } else if (changeSet.isRunOnChange()) {
+            checkChecksum(changeLog, changeSet, changeEntry);
+          } else {
+            logger.info(changeEntry + " passed over");
+            next();
+          }
+        }
+      });
+    }
+
+    private void checkChecksum(final ChangeLogDescriptor changeLog, final ChangeSetDescriptor changeSet,
+                               final ChangeEntry changeEntry) {
+      dao.findAppliedChecksum(changeEntry, new SingleResultCallback<String>() {
+        @Override
+        public void onResult(String checksum, Throwable error) {
+          if (error != null) {
+            finish(MigrationOutcome.FAILED, error);
+          } else if (checksum == null) {
+            recordChecksum(changeEntry);
+          } else if (!changeEntry.getChecksum().equals(checksum)) {
+            apply(changeLog, changeSet, changeEntry, false, true);
+          } else {
+            logger.info(changeEntry + " passed over");
+            next();
+          }
+        }
+      });
+    }
+
+    /**
+     * Applied before it was declared runOnChange, the current code is taken as the applied one
+     */
+    private void recordChecksum(final ChangeEntry changeEntry) {
+      dao.recordChecksum(changeEntry, new SingleResultCallback<Void>() {
+        @Override
+        public void onResult(Void result, Throwable error) {
+          if (error != null) {
+            finish(MigrationOutcome.FAILED, error);
+          } else {
+            logger.info(changeEntry + " recorded without checksum, checksum stored");
+            next();
+          }
+        }
+      });
+    }
+
+    private void apply(ChangeLogDescriptor changeLog, ChangeSetDescriptor changeSet, final ChangeEntry changeEntry,
+                       final boolean newChange, final boolean changed) {
+      final Date startedAt = new Date();
+      final long start = System.nanoTime();
+      Object result;
+      try {
+        // instantiated when its first changeset is applied, changelogs without pending changesets are never created
+        if (instantiatedChangeLog != changeLog) {
+          changeLogInstance = changeLog.getType().getConstructor().newInstance();
+          instantiatedChangeLog = changeLog;
+        }
+        result = changeSetInvoker.invoke(context.withOptions(changeSet.getDatabaseOptions()), changeSet.getMethod(),
+            changeLogInstance, null);
+      } catch (MongobeeChangeSetException e) {
+        changeSetFailed = true;
+        logger.error(e.getMessage());
+        next();
+        return;
+      } catch (InvocationTargetException e) {
+        Throwable targetException = e.getTargetException();
+        finish(MigrationOutcome.FAILED, new MongobeeException(targetException.getMessage(), e));
+        return;
+      } catch (ReflectiveOperationException e) {
+        finish(MigrationOutcome.FAILED, new MongobeeException(e.getMessage(), e));
+        return;
+      }
+
+      if (result instanceof Publisher) {
+        Publishers.drain((Publisher<?>) result, changeSetBatchSize, new SingleResultCallback<Long>() {
+          @Override
+          public void onResult(Long count, Throwable error) {
+            if (error != null) {
+              finish(MigrationOutcome.FAILED, new MongobeeException(changeEntry + " failed: " + error.getMessage(), error));
+            } else {
+              recordExecution(changeEntry, startedAt, start, null);
+              completed(changeEntry, newChange, changed);
+            }
+          }
+        });
+      } else {
+        recordExecution(changeEntry, startedAt, start, ChangeSetSummary.of(result));
+        completed(changeEntry, newChange, changed);
+      }
+    }
+
+    private void recordExecution(ChangeEntry changeEntry, Date startedAt, long start, Document summary) {
+      changeEntry.recordExecution(startedAt, new Date(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+          ExecutionEnvironment.getHost(), ExecutionEnvironment.getProcessId(), ExecutionEnvironment.getMongobeeVersion(),
+          summary);
+    }
+
+    private void completed(final ChangeEntry changeEntry, boolean newChange, boolean changed) {
+      if (changed) {
+        dao.replace(changeEntry, new SingleResultCallback<Void>() {
+          @Override
+          public void onResult(Void result, Throwable error) {
+            if (error != null) {
+              finish(MigrationOutcome.FAILED, error);
+            } else {
+              logger.info(changeEntry + " changed, reapplied");
+              next();
+            }
+          }
+        });
+        return;
+      }
+      if (!newChange) {
+        logger.info(changeEntry + " reapplied");
+        next();
+        return;
+      }
+      dao.save(changeEntry, new SingleResultCallback<Void>() {
+        @Override
+        public void onResult(Void result, Throwable error) {
+          if (error != null) {
+            finish(MigrationOutcome.FAILED, error);
+          } else {
+            logger.info(changeEntry + " applied");
+            next();
+          }
+        }
+      });
+    }
+
+    private void finish(final MigrationOutcome outcome, final Throwable failure) {
+      logger.info("Mongobee is releasing process lock.");
+      dao.releaseProcessLock(outcome.name(), new SingleResultCallback<Void>() {
+        @Override
+        public void onResult(Void result, Throwable error) {
+          if (error != null) {
+            logger.warn("Mongobee process lock could not be released", error);
+          }
+          if (failure != null) {
+            callback.onResult(null, failure);
+          } else {
+            logger.info("Mongobee has finished his job.");
+            callback.onResult(outcome, null);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Package name where @ChangeLog-annotated classes are kept. Several packages are separated by commas.
+   *
+   * @param changeLogsScanPackage package where your changelogs are
+   * @return ReactiveMongobee object for fluent interface
+   */
+  public ReactiveMongobee setChangeLogsScanPackage(String changeLogsScanPackage) {
+    this.changeLogsScanPackage = changeLogsScanPackage;
+    return this;
+  }
+
+  /**
+   * @param changeLogClasses classes annotated with @ChangeLog, executed in addition to the scan package
+   * @return ReactiveMongobee object for fluent interface
+   * @see com.github.mongobee.core.Mongobee#setChangeLogClasses(Class[])
+   */
+  public ReactiveMongobee setChangeLogClasses(Class<?>... changeLogClasses) {
+    this.changeLogClasses = Collections.unmodifiableList(Arrays.asList(changeLogClasses.clone()));
+    return this;
+  }
+
+  /**
+   * @param scanCacheFile cache file of the classpath scan, null disables the cache (default)
+   * @return ReactiveMongobee object for fluent interface
+   * @see com.github.mongobee.core.Mongobee#setScanCacheFile(File)
+   */
+  public ReactiveMongobee setScanCacheFile(File scanCacheFile) {
+    this.scanCacheFile = scanCacheFile;
+    return this;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Feature which enables/disables Mongobee runner execution
+   *
+   * @param enabled Mongobee will run only if this option is set to true
+   * @return ReactiveMongobee object for fluent interface
+   */
+  public ReactiveMongobee setEnabled(boolean enabled) {
+    this.enabled = enabled;
+    return this;
+  }
+
+  /**
+   * @param changeSetBatchSize number of elements requested at once from a publisher returned by a changeset,
+   *                           default is 64
+   * @return ReactiveMongobee object for fluent interface
+   */
+  public ReactiveMongobee setChangeSetBatchSize(int changeSetBatchSize) {
+    this.changeSetBatchSize = changeSetBatchSize;
+    return this;
+  }
+
+  /**
+   * @param resolver resolver of additional changeset arguments, consulted before the built-in resolvers
+   * @return ReactiveMongobee object for fluent interface
+   */
+  public ReactiveMongobee addParameterResolver(ParameterResolver resolver) {
+    this.changeSetInvoker.addResolver(resolver);
+    return this;
+  }
+
+  /**
+   * @param changelogCollectionName a new changelog collection name
+   * @return ReactiveMongobee object for fluent interface
+   */
+  public ReactiveMongobee setChangelogCollectionName(String changelogCollectionName) {
+    this.dao.setChangelogCollectionName(changelogCollectionName);
+    return this;
+  }
+
+  /**
+   * @param lockCollectionName a new lock collection name
+   * @return ReactiveMongobee object for fluent interface
+   */
+  public ReactiveMongobee setLockCollectionName(String lockCollectionName) {
+    this.dao.setLockCollectionName(lockCollectionName);
+    return this;
+  }
+
+  /**
+   * @param lockLeaseMillis lease time of the process lock in milliseconds, default is 60 seconds
+   * @return ReactiveMongobee object for fluent interface
+   * @see com.github.mongobee.core.Mongobee#setLockLeaseTime(long)
+   */
+  public ReactiveMongobee setLockLeaseTime(long lockLeaseMillis) {
+    this.dao.setLockLeaseMillis(lockLeaseMillis);
+    return this;
+  }
+
+}
@@ -0,0 +1,54 @@
+package org.github.mongobee.reactive;
+
+import com.github.mongobee.core.exception.MongobeeChangeSetException;
+import com.github.mongobee.core.invocation.DatabaseOptions;
+import com.github.mongobee.core.invocation.MigrationContext;
+import com.github.mongobee.core.invocation.ParameterResolver;
+import com.mongodb.DB;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+/**
+ * Resolves the reactive {@link MongoDatabase} of the migrated database. The blocking {@link DB} and
+ * {@link com.mongodb.client.MongoDatabase} are rejected, reactive migrations do not open a blocking client.
+ * Changesets with {@link com.github.mongobee.core.changeset.ChangeSetOptions} get the database with their options.
+ *
+ * @since 0.14
+ */
+public class ReactiveParameterResolver implements ParameterResolver {
+
+  private final MongoDatabase mongoDatabase;
+
+  public ReactiveParameterResolver(MongoDatabase mongoDatabase) {
+    this.mongoDatabase = mongoDatabase;
+  }
+
+  @Override
+  public boolean supports(Class<?> parameterType) {
+    return parameterType.equals(MongoDatabase.class) || parameterType.equals(DB.class)
+        || parameterType.equals(com.mongodb.client.MongoDatabase.class);
+  }
+
+  @Override
+  public Object resolve(Class<?> parameterType, MigrationContext context) throws MongobeeChangeSetException {
+    if (!parameterType.equals(MongoDatabase.class)) {
+      throw new MongobeeChangeSetException("Blocking " + parameterType.getName()
+          + " is not available in reactive migrations, use " + MongoDatabase.class.getName());
+    }
+    DatabaseOptions options = context.getOptions();
+    if (options == null) {
+      return mongoDatabase;
+    }
+    MongoDatabase derived = mongoDatabase;
+    if (options.getWriteConcern() != null) {
+      derived = derived.withWriteConcern(options.getWriteConcern());
+    }
+    if (options.getReadPreference() != null) {
+      derived = derived.withReadPreference(options.getReadPreference());
+    }
+    if (options.getReadConcern() != null) {
+      derived = derived.withReadConcern(options.getReadConcern());
+    }
+    return derived;
+  }
+
+}
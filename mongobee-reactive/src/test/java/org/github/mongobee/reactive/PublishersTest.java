@@ -0,0 +1,87 @@
+package org.github.mongobee.reactive;
+
+import com.mongodb.async.SingleResultCallback;
+import org.github.mongobee.reactive.test.RangePublisher;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PublishersTest {
+
+  @Test
+  public void shouldDrainInBatches() {
+    // given
+    RangePublisher publisher = new RangePublisher(100);
+    final AtomicReference<Long> count = new AtomicReference<>();
+
+    // when
+    Publishers.drain(publisher, 7, new SingleResultCallback<Long>() {
+      @Override
+      public void onResult(Long result, Throwable error) {
+        count.set(result);
+      }
+    });
+
+    // then
+    assertEquals(Long.valueOf(100), count.get());
+    assertEquals(7, publisher.getMaxOutstanding());
+  }
+
+  @Test
+  public void shouldPassErrorOfDrainedPublisher() {
+    // given
+    RuntimeException failure = new IllegalStateException("failed");
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    // when
+    Publishers.drain(new RangePublisher(3, failure), 2, new SingleResultCallback<Long>() {
+      @Override
+      public void onResult(Long result, Throwable t) {
+        error.set(t);
+      }
+    });
+
+    // then
+    assertEquals(failure, error.get());
+  }
+
+  @Test
+  public void shouldTakeFirstElementOnly() {
+    // given
+    RangePublisher publisher = new RangePublisher(10);
+    final AtomicReference<Integer> first = new AtomicReference<>();
+
+    // when
+    Publishers.first(publisher, new SingleResultCallback<Integer>() {
+      @Override
+      public void onResult(Integer result, Throwable error) {
+        first.set(result);
+      }
+    });
+
+    // then
+    assertEquals(Integer.valueOf(0), first.get());
+    assertEquals(1, publisher.getEmitted());
+  }
+
+  @Test
+  public void shouldPassNullForEmptyPublisher() {
+    // given
+    final AtomicReference<Integer> first = new AtomicReference<>(-1);
+
+    // when
+    Publishers.first(new RangePublisher(0), new SingleResultCallback<Integer>() {
+      @Override
+      public void onResult(Integer result, Throwable error) {
+        first.set(result);
+      }
+    });
+
+    // then
+    assertNull(first.get());
+  }
+
+}
@@ -0,0 +1,174 @@
+package org.github.mongobee.reactive;
+
+import com.github.mongobee.core.MigrationOutcome;
+import com.github.mongobee.core.exception.MongobeeLockException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcern;
+import com.mongodb.async.SingleResultCallback;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import com.mongodb.reactivestreams.client.Success;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.github.mongobee.reactive.test.RangePublisher;
+import org.github.mongobee.reactive.test.ValuesPublisher;
+import org.github.mongobee.reactive.test.changelogs.ReactiveTestChangeLog;
+import org.github.mongobee.reactive.test.failing.FailingReactiveChangeLog;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReactiveMongobeeTest {
+
+  private MongoDatabase database;
+  private MongoCollection<Document> changelog;
+  private MongoCollection<Document> locks;
+  private FindPublisher<Document> lock;
+  private ReactiveMongobee runner;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void init() {
+    database = mock(MongoDatabase.class);
+    changelog = mock(MongoCollection.class);
+    locks = mock(MongoCollection.class);
+    FindPublisher<Document> found = mock(FindPublisher.class);
+    lock = mock(FindPublisher.class);
+    when(database.getName()).thenReturn("mongobeetest");
+    when(database.getCollection("dbchangelog")).thenReturn(changelog);
+    when(database.getCollection("mongobeelock")).thenReturn(locks);
+    when(changelog.createIndex(any(Bson.class), any(IndexOptions.class))).thenReturn(ValuesPublisher.just("idx"));
+    when(locks.createIndex(any(Bson.class), any(IndexOptions.class))).thenReturn(ValuesPublisher.just("idx"));
+    when(locks.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
+        .thenReturn(ValuesPublisher.<Document>just());
+    when(locks.updateOne(any(Bson.class), any(Bson.class)))
+        .thenReturn(ValuesPublisher.just(UpdateResult.acknowledged(1, 1L, null)));
+    when(locks.find(any(Bson.class))).thenReturn(lock);
+    when(lock.projection(any(Bson.class))).thenReturn(lock);
+    when(lock.first()).thenReturn(ValuesPublisher.just(new Document("token", 1L)));
+    when(changelog.find(any(Bson.class))).thenReturn(found);
+    when(found.projection(any(Bson.class))).thenReturn(found);
+    when(found.first()).thenReturn(ValuesPublisher.<Document>just());
+    when(changelog.withWriteConcern(any(WriteConcern.class))).thenReturn(changelog);
+    when(changelog.insertOne(any(Document.class))).thenReturn(ValuesPublisher.just(Success.SUCCESS));
+
+    runner = new ReactiveMongobee(database);
+  }
+
+  @Test
+  public void shouldApplyChangeSetsAndConsumeReturnedPublishers() throws Exception {
+    // given
+    ReactiveTestChangeLog.publisher = new RangePublisher(1000);
+    runner.setChangeLogsScanPackage(ReactiveTestChangeLog.class.getPackage().getName())
+        .setChangeSetBatchSize(16);
+
+    // when
+    Result result = execute();
+
+    // then
+    assertEquals(MigrationOutcome.SUCCEEDED, result.outcome);
+    assertNull(result.error);
+    assertSame(database, ReactiveTestChangeLog.database);
+    assertEquals(1000, ReactiveTestChangeLog.publisher.getEmitted());
+    assertEquals(16, ReactiveTestChangeLog.publisher.getMaxOutstanding());
+    verify(changelog, times(2)).insertOne(any(Document.class));
+    ArgumentCaptor<Bson> release = ArgumentCaptor.forClass(Bson.class);
+    verify(locks).updateOne(any(Bson.class), release.capture());
+    assertTrue(release.getValue().toString().contains("SUCCEEDED"));
+  }
+
+  @Test
+  public void shouldExitWhenLockIsHeld() throws Exception {
+    // given
+    BsonDocument response = new BsonDocument("ok", new BsonInt32(0)).append("code", new BsonInt32(11000))
+        .append("errmsg", new BsonString("duplicate key"));
+    when(locks.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
+        .thenReturn(ValuesPublisher.<Document>error(new MongoCommandException(response, new ServerAddress())));
+    runner.setChangeLogsScanPackage(ReactiveTestChangeLog.class.getPackage().getName());
+
+    // when
+    Result result = execute();
+
+    // then
+    assertNull(result.outcome);
+    assertNull(result.error);
+    verify(changelog, never()).find(any(Bson.class));
+    verify(locks, never()).updateOne(any(Bson.class), any(Bson.class));
+  }
+
+  @Test
+  public void shouldStopAndReleaseLockWhenPublisherFails() throws Exception {
+    // given
+    runner.setChangeLogsScanPackage(FailingReactiveChangeLog.class.getPackage().getName());
+
+    // when
+    Result result = execute();
+
+    // then
+    assertNull(result.outcome);
+    assertTrue(result.error.getMessage().contains("write failed"));
+    verify(changelog, never()).insertOne(any(Document.class));
+    ArgumentCaptor<Bson> release = ArgumentCaptor.forClass(Bson.class);
+    verify(locks).updateOne(any(Bson.class), release.capture());
+    assertTrue(release.getValue().toString().contains("FAILED"));
+  }
+
+  @Test
+  public void shouldNotRecordChangeSetsOnceLockIsTakenOver() throws Exception {
+    // given
+    when(lock.first()).thenReturn(ValuesPublisher.<Document>just());
+    ReactiveTestChangeLog.publisher = new RangePublisher(10);
+    runner.setChangeLogsScanPackage(ReactiveTestChangeLog.class.getPackage().getName());
+
+    // when
+    Result result = execute();
+
+    // then
+    assertNull(result.outcome);
+    assertTrue(result.error instanceof MongobeeLockException);
+    verify(changelog, never()).insertOne(any(Document.class));
+  }
+
+  private Result execute() throws InterruptedException {
+    final Result result = new Result();
+    final CountDownLatch completed = new CountDownLatch(1);
+    runner.execute(new SingleResultCallback<MigrationOutcome>() {
+      @Override
+      public void onResult(MigrationOutcome outcome, Throwable error) {
+        result.outcome = outcome;
+        result.error = error;
+        completed.countDown();
+      }
+    });
+    assertTrue(completed.await(30, TimeUnit.SECONDS));
+    return result;
+  }
+
+  private static class Result {
+    private volatile MigrationOutcome outcome;
+    private volatile Throwable error;
+  }
+
+}
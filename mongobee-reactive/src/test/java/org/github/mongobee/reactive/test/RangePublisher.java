@@ -0,0 +1,71 @@
+package org.github.mongobee.reactive.test;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Synchronous publisher of 0..count-1 recording the demand of its subscriber
+ */
+public class RangePublisher implements Publisher<Integer> {
+
+  private final int count;
+  private final RuntimeException failure;
+  private long maxOutstanding;
+  private int emitted;
+
+  public RangePublisher(int count) {
+    this(count, null);
+  }
+
+  public RangePublisher(int count, RuntimeException failure) {
+    this.count = count;
+    this.failure = failure;
+  }
+
+  @Override
+  public void subscribe(final Subscriber<? super Integer> subscriber) {
+    subscriber.onSubscribe(new Subscription() {
+      private long outstanding;
+      private boolean emitting;
+      private boolean done;
+
+      @Override
+      public void request(long n) {
+        outstanding += n;
+        maxOutstanding = Math.max(maxOutstanding, outstanding);
+        if (emitting) {
+          return;
+        }
+        emitting = true;
+        while (outstanding > 0 && emitted < count && !done) {
+          outstanding--;
+          subscriber.onNext(emitted++);
+        }
+        if (emitted == count && !done) {
+          done = true;
+          if (failure != null) {
+            subscriber.onError(failure);
+          } else {
+            subscriber.onComplete();
+          }
+        }
+        emitting = false;
+      }
+
+      @Override
+      public void cancel() {
+        done = true;
+      }
+    });
+  }
+
+  public long getMaxOutstanding() {
+    return maxOutstanding;
+  }
+
+  public int getEmitted() {
+    return emitted;
+  }
+
+}
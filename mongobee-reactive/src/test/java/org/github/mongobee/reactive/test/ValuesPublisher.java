@@ -0,0 +1,60 @@
+package org.github.mongobee.reactive.test;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Synchronous publisher of the given values or of an error, standing in for the results of the driver
+ */
+public class ValuesPublisher<T> implements Publisher<T> {
+
+  private final List<T> values;
+  private final Throwable failure;
+
+  private ValuesPublisher(List<T> values, Throwable failure) {
+    this.values = values;
+    this.failure = failure;
+  }
+
+  @SafeVarargs
+  public static <T> ValuesPublisher<T> just(T... values) {
+    return new ValuesPublisher<>(Arrays.asList(values), null);
+  }
+
+  public static <T> ValuesPublisher<T> error(Throwable failure) {
+    return new ValuesPublisher<>(Arrays.<T>asList(), failure);
+  }
+
+  @Override
+  public void subscribe(final Subscriber<? super T> subscriber) {
+    subscriber.onSubscribe(new Subscription() {
+      private int next;
+      private boolean done;
+
+      @Override
+      public void request(long n) {
+        for (long i = 0; i < n && next < values.size() && !done; i++) {
+          subscriber.onNext(values.get(next++));
+        }
+        if (next == values.size() && !done) {
+          done = true;
+          if (failure != null) {
+            subscriber.onError(failure);
+          } else {
+            subscriber.onComplete();
+          }
+        }
+      }
+
+      @Override
+      public void cancel() {
+        done = true;
+      }
+    });
+  }
+
+}
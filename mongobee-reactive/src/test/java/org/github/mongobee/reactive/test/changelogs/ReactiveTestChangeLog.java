@@ -0,0 +1,26 @@
+package org.github.mongobee.reactive.test.changelogs;
+
+import com.github.mongobee.core.changeset.ChangeLog;
+import com.github.mongobee.core.changeset.ChangeSet;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.github.mongobee.reactive.test.RangePublisher;
+import org.reactivestreams.Publisher;
+
+@ChangeLog(order = "1")
+public class ReactiveTestChangeLog {
+
+  public static volatile RangePublisher publisher;
+  public static volatile MongoDatabase database;
+
+  @ChangeSet(author = "testuser", id = "reactive1", order = "01")
+  public Publisher<Integer> testChangeSet(MongoDatabase mongoDatabase) {
+    database = mongoDatabase;
+    return publisher;
+  }
+
+  @ChangeSet(author = "testuser", id = "reactive2", order = "02")
+  public void testChangeSet2() {
+    System.out.println("invoked reactive2");
+  }
+
+}
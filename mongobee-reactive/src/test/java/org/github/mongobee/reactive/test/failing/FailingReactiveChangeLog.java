@@ -0,0 +1,21 @@
+package org.github.mongobee.reactive.test.failing;
+
+import com.github.mongobee.core.changeset.ChangeLog;
+import com.github.mongobee.core.changeset.ChangeSet;
+import org.github.mongobee.reactive.test.RangePublisher;
+import org.reactivestreams.Publisher;
+
+@ChangeLog(order = "1")
+public class FailingReactiveChangeLog {
+
+  @ChangeSet(author = "testuser", id = "failing1", order = "01")
+  public Publisher<Integer> testChangeSet() {
+    return new RangePublisher(5, new IllegalStateException("write failed"));
+  }
+
+  @ChangeSet(author = "testuser", id = "failing2", order = "02")
+  public void testChangeSet2() {
+    System.out.println("invoked failing2");
+  }
+
+}
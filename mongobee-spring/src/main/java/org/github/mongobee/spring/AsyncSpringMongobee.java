@@ -0,0 +1,142 @@
+package org.github.mongobee.spring;
+
+import com.github.mongobee.core.MigrationStatus;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientURI;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Spring Mongobee runner which does not block the refresh of the Spring context: the migration is started
+ * in the background when the context starts. Features depending on the migration can be gated with
+ * {@link #isReady()} or {@link #getMigrationStatus()}.
+ * <p>When the context stops, the stop is delayed until the running migration finishes.</p>
+ *
+ * @since 0.14
+ */
+public class AsyncSpringMongobee extends SpringMongobee implements SmartLifecycle {
+  private volatile Future<MigrationStatus> migration;
+  private volatile boolean running;
+  private int phase = 0;
+
+  public AsyncSpringMongobee() {
+  }
+
+  /**
+   * @param mongoClientURI uri to your db
+   * @see SpringMongobee#SpringMongobee(MongoClientURI)
+   */
+  public AsyncSpringMongobee(MongoClientURI mongoClientURI) {
+    super(mongoClientURI);
+  }
+
+  /**
+   * @param mongoClient database connection client
+   * @see SpringMongobee#SpringMongobee(MongoClient)
+   */
+  public AsyncSpringMongobee(MongoClient mongoClient) {
+    super(mongoClient);
+  }
+
+  /**
+   * @param mongoURI with correct format
+   * @see SpringMongobee#SpringMongobee(String)
+   */
+  public AsyncSpringMongobee(String mongoURI) {
+    super(mongoURI);
+  }
+
+  /**
+   * The migration is started by {@link #start()} instead
+   */
+  @Override
+  public void afterPropertiesSet() {
+  }
+
+  @Override
+  public synchronized void start() {
+    if (migration == null) {
+      migration = executeAsync();
+    }
+    running = true;
+  }
+
+  @Override
+  public void stop() {
+    Future<MigrationStatus> current = migration;
+    if (current != null) {
+      try {
+        current.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        // logged by the migration
+      }
+    }
+    running = false;
+  }
+
+  @Override
+  public void stop(final Runnable callback) {
+    final Future<MigrationStatus> current = migration;
+    if (current == null || current.isDone()) {
+      running = false;
+      callback.run();
+      return;
+    }
+    Thread waiter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        stop();
+        callback.run();
+      }
+    }, "mongobee-migration-stop");
+    waiter.setDaemon(true);
+    waiter.start();
+  }
+
+  /**
+   * @return true between the start and the stop of the context, the migration is started once only
+   */
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public boolean isAutoStartup() {
+    return true;
+  }
+
+  @Override
+  public int getPhase() {
+    return phase;
+  }
+
+  /**
+   * @param phase lifecycle phase starting the migration, default is 0
+   * @return AsyncSpringMongobee object for fluent interface
+   */
+  public AsyncSpringMongobee setPhase(int phase) {
+    this.phase = phase;
+    return this;
+  }
+
+  /**
+   * @return future of the started migration, null before the context starts
+   */
+  public Future<MigrationStatus> getMigration() {
+    return migration;
+  }
+
+  /**
+   * @return true if the migration is done, false while it is pending or running, when it failed and when another
+   * process holds the lock (see {@link MigrationStatus.State#LOCKED})
+   */
+  public boolean isReady() {
+    return getMigrationStatus().isDone();
+  }
+
+}
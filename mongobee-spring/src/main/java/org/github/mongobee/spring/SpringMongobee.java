@@ -1,32 +1,26 @@
 package org.github.mongobee.spring;
 
 import com.github.mongobee.core.Mongobee;
-import com.github.mongobee.core.exception.MongobeeChangeSetException;
 import com.github.mongobee.core.utils.ChangeService;
-import com.mongodb.DB;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientURI;
-import com.mongodb.client.MongoDatabase;
 import org.github.mongobee.spring.utils.SpringChangeService;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.env.Environment;
 import org.springframework.data.mongodb.core.MongoTemplate;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-
 /**
  * Spring Mongobee runner
  *
  * @author j-coll
  */
 public class SpringMongobee extends Mongobee implements InitializingBean {
-  private static final Logger logger = LoggerFactory.getLogger(SpringMongobee.class);
-
+  private final SpringParameterResolver parameterResolver = new SpringParameterResolver();
   private Environment springEnvironment;
-  private MongoTemplate mongoTemplate;
+
+  {
+    addParameterResolver(parameterResolver);
+  }
 
   /**
    * <p>Simple constructor with default configuration of host (localhost) and port (27017). Although
@@ -90,7 +84,8 @@ public class SpringMongobee extends Mongobee implements InitializingBean {
 
   @Override
   protected ChangeService newChangeService() {
-    return new SpringChangeService(changeLogsScanPackage, springEnvironment);
+    return new SpringChangeService(changeLogsScanPackage, changeLogClasses, springEnvironment)
+        .setScanCacheFile(scanCacheFile);
   }
 
   /**
@@ -103,24 +98,6 @@ public class SpringMongobee extends Mongobee implements InitializingBean {
     execute();
   }
 
-  @Override
-  protected Object executeChangeSetMethod(Method changeSetMethod, Object changeLogInstance, DB db, MongoDatabase mongoDatabase) throws IllegalAccessException, InvocationTargetException, MongobeeChangeSetException {
-    if (changeSetMethod.getParameterTypes().length == 1
-        && changeSetMethod.getParameterTypes()[0].equals(MongoTemplate.class)) {
-      logger.debug("method with MongoTemplate argument");
-
-      return changeSetMethod.invoke(changeLogInstance, mongoTemplate != null ? mongoTemplate : new MongoTemplate(db.getMongo(), dbName));
-    } else if (changeSetMethod.getParameterTypes().length == 2
-        && changeSetMethod.getParameterTypes()[0].equals(MongoTemplate.class)
-        && changeSetMethod.getParameterTypes()[1].equals(Environment.class)) {
-      logger.debug("method with MongoTemplate and environment arguments");
-
-      return changeSetMethod.invoke(changeLogInstance, mongoTemplate != null ? mongoTemplate : new MongoTemplate(db.getMongo(), dbName), springEnvironment);
-    } else {
-      return super.executeChangeSetMethod(changeSetMethod, changeLogInstance, db, mongoDatabase);
-    }
-  }
-
   /**
    * Set Environment object for Spring Profiles (@Profile) integration
    *
@@ -129,6 +106,7 @@ public class SpringMongobee extends Mongobee implements InitializingBean {
    */
   public Mongobee setSpringEnvironment(Environment environment) {
     this.springEnvironment = environment;
+    this.parameterResolver.setSpringEnvironment(environment);
     return this;
   }
 
@@ -139,7 +117,7 @@ public class SpringMongobee extends Mongobee implements InitializingBean {
    * @return Mongobee object for fluent interface
    */
   public Mongobee setMongoTemplate(MongoTemplate mongoTemplate) {
-    this.mongoTemplate = mongoTemplate;
+    this.parameterResolver.setMongoTemplate(mongoTemplate);
     return this;
   }
 
@@ -0,0 +1,61 @@
+package org.github.mongobee.spring;
+
+import com.github.mongobee.core.invocation.DatabaseOptions;
+import com.github.mongobee.core.invocation.MigrationContext;
+import com.github.mongobee.core.invocation.ParameterResolver;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoDbFactory;
+
+/**
+ * Resolves {@link MongoTemplate} and {@link Environment} arguments. Without a pre-configured MongoTemplate,
+ * one is created per migration. Changesets with {@link com.github.mongobee.core.changeset.ChangeSetOptions} get
+ * a template of their own with the write concern and read preference of the options (MongoTemplate has no read concern
+ * setting), sharing the converter of the pre-configured template.
+ *
+ * @since 0.14
+ */
+public class SpringParameterResolver implements ParameterResolver {
+
+  private volatile MongoTemplate mongoTemplate;
+  private volatile Environment springEnvironment;
+
+  @Override
+  public boolean supports(Class<?> parameterType) {
+    return parameterType.equals(MongoTemplate.class) || parameterType.equals(Environment.class);
+  }
+
+  @Override
+  public Object resolve(Class<?> parameterType, MigrationContext context) {
+    if (parameterType.equals(Environment.class)) {
+      return springEnvironment;
+    }
+    MongoTemplate template = mongoTemplate;
+    DatabaseOptions options = context.getOptions();
+    if (options == null) {
+      return template != null ? template : new MongoTemplate(context.getDb().getMongo(), context.getDbName());
+    }
+    MongoTemplate derived = template != null
+        ? new MongoTemplate(new SimpleMongoDbFactory(context.getDb().getMongo(), context.getDbName()), template.getConverter())
+        : new MongoTemplate(context.getDb().getMongo(), context.getDbName());
+    if (options.getWriteConcern() != null) {
+      derived.setWriteConcern(options.getWriteConcern());
+    }
+    if (options.getReadPreference() != null) {
+      derived.setReadPreference(options.getReadPreference());
+    }
+    return derived;
+  }
+
+  /**
+   * @param mongoTemplate template passed to changesets, null to create one per migration
+   */
+  public void setMongoTemplate(MongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  public void setSpringEnvironment(Environment springEnvironment) {
+    this.springEnvironment = springEnvironment;
+  }
+
+}
@@ -1,16 +1,11 @@
 package org.github.mongobee.spring.utils;
 
-import com.github.mongobee.core.exception.MongobeeChangeSetException;
-import com.github.mongobee.core.utils.ChangeLogComparator;
-import com.github.mongobee.core.utils.ChangeSetComparator;
+import com.github.mongobee.core.changeset.ChangeLogDescriptor;
+import com.github.mongobee.core.changeset.ChangeSetDescriptor;
 import com.github.mongobee.core.utils.ChangeService;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.env.Environment;
 
-import java.lang.reflect.AnnotatedElement;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -28,22 +23,12 @@ public class SpringChangeService extends ChangeService {
     this(changeLogsBasePackage, null);
   }
 
-  @Override
-  public List<Class<?>> fetchChangeLogs() {
-    List<Class<?>> changeLogs = super.fetchChangeLogs();
-
-    return filterByActiveProfiles(changeLogs);
-  }
-
-  @Override
-  public List<Method> fetchChangeSets(Class<?> type) throws MongobeeChangeSetException {
-    final List<Method> changeSets = super.fetchChangeSets(type);
-
-    return filterByActiveProfiles(changeSets);
+  public SpringChangeService(String changeLogsBasePackage, Environment environment) {
+    this(changeLogsBasePackage, Collections.<Class<?>>emptyList(), environment);
   }
 
-  public SpringChangeService(String changeLogsBasePackage, Environment environment) {
-    super(changeLogsBasePackage);
+  public SpringChangeService(String changeLogsBasePackage, List<Class<?>> changeLogClasses, Environment environment) {
+    super(changeLogsBasePackage, changeLogClasses);
 
     if (environment != null && environment.getActiveProfiles() != null && environment.getActiveProfiles().length> 0) {
       this.activeProfiles = asList(environment.getActiveProfiles());
@@ -52,22 +37,21 @@ public class SpringChangeService extends ChangeService {
     }
   }
 
-  private <T extends AnnotatedElement> List<T> filterByActiveProfiles(Collection<T> annotated) {
-    List<T> filtered = new ArrayList<>();
-    for (T element : annotated) {
-      if (matchesActiveSpringProfile(element)){
-        filtered.add(element);
-      }
-    }
-    return filtered;
+  @Override
+  protected boolean isIncluded(ChangeLogDescriptor changeLog) {
+    return matchesActiveSpringProfile(changeLog.getAnnotation(Profile.class));
+  }
+
+  @Override
+  protected boolean isIncluded(ChangeSetDescriptor changeSet) {
+    return matchesActiveSpringProfile(changeSet.getAnnotation(Profile.class));
   }
 
-  private boolean matchesActiveSpringProfile(AnnotatedElement element) {
-    if (!element.isAnnotationPresent(Profile.class)) {
+  private boolean matchesActiveSpringProfile(Profile annotation) {
+    if (annotation == null) {
       return true; // no-profiled changeset always matches
     }
-    List<String> profiles = asList(element.getAnnotation(Profile.class).value());
-    for (String profile : profiles) {
+    for (String profile : annotation.value()) {
       if (profile != null && profile.length() > 0 && profile.charAt(0) == '!') {
         if (!activeProfiles.contains(profile.substring(1))) {
           return true;
@@ -0,0 +1,119 @@
+package com.github.mongobee.spring;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.core.MigrationStatus;
+import com.github.mongobee.core.changeset.ChangeEntry;
+import com.github.mongobee.core.dao.ChangeEntryDao;
+import com.github.mongobee.core.dao.ChangeEntryIndexDao;
+import com.github.mongobee.spring.test.changelogs.SpringDataChangelog;
+import com.mongodb.DB;
+import com.mongodb.MongoClientURI;
+import com.mongodb.client.MongoDatabase;
+import org.github.mongobee.spring.AsyncSpringMongobee;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncSpringMongobeeTest {
+
+  private static final String CHANGELOG_COLLECTION_NAME = "dbchangelog";
+  @InjectMocks
+  private AsyncSpringMongobee runner = new AsyncSpringMongobee();
+
+  @Mock
+  private ChangeEntryDao dao;
+
+  @Mock
+  private ChangeEntryIndexDao indexDao;
+
+  private DB fakeDb;
+  private MongoDatabase fakeMongoDatabase;
+
+  @Before
+  public void init() throws Exception {
+    fakeDb = new Fongo("testServer").getDB("mongobeetest");
+    fakeMongoDatabase = new Fongo("testServer").getDatabase("mongobeetest");
+    when(dao.connectMongoDb(any(MongoClientURI.class), anyString()))
+        .thenReturn(fakeMongoDatabase);
+    when(dao.getDb()).thenReturn(fakeDb);
+    when(dao.getMongoDatabase()).thenReturn(fakeMongoDatabase);
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+    doCallRealMethod().when(dao).save(any(ChangeEntry.class));
+    doCallRealMethod().when(dao).setChangelogCollectionName(anyString());
+    doCallRealMethod().when(dao).setIndexDao(any(ChangeEntryIndexDao.class));
+    dao.setIndexDao(indexDao);
+    dao.setChangelogCollectionName(CHANGELOG_COLLECTION_NAME);
+
+    MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    when(mongoTemplate.getCollectionNames()).thenReturn(Collections.<String>emptySet());
+    runner.setMongoTemplate(mongoTemplate);
+    runner.setDbName("mongobeetest");
+    runner.setChangeLogsScanPackage(SpringDataChangelog.class.getPackage().getName());
+  }
+
+  @Test
+  public void shouldStartMigrationWithTheContextInsteadOfAfterProperties() throws Exception {
+    // when
+    runner.afterPropertiesSet();
+
+    // then
+    verify(dao, never()).acquireProcessLock();
+    assertNull(runner.getMigration());
+    assertFalse(runner.isReady());
+
+    // when
+    runner.start();
+    MigrationStatus status = runner.getMigration().get(30, TimeUnit.SECONDS);
+
+    // then
+    assertTrue(runner.isRunning());
+    assertEquals(MigrationStatus.State.DONE, status.getState());
+    assertTrue(runner.isReady());
+    verify(dao, atLeastOnce()).save(any(ChangeEntry.class));
+  }
+
+  @Test
+  public void shouldStopAfterTheMigrationFinished() throws Exception {
+    // given
+    runner.start();
+    final CountDownLatch stopped = new CountDownLatch(1);
+
+    // when
+    runner.stop(new Runnable() {
+      @Override
+      public void run() {
+        stopped.countDown();
+      }
+    });
+
+    // then
+    assertTrue(stopped.await(30, TimeUnit.SECONDS));
+    assertTrue(runner.getMigration().isDone());
+    assertFalse(runner.isRunning());
+  }
+
+  @After
+  public void cleanUp() {
+    fakeDb.dropDatabase();
+  }
+
+}